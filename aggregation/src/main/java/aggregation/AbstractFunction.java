@@ -31,9 +31,11 @@ import peersim.cdsim.CDProtocol;
  * @version $Revision$
  */
 public abstract class AbstractFunction 
-implements CDProtocol, SingleValue
+implements CDProtocol, SingleValue, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 //--------------------------------------------------------------------------
 //Fields
 //--------------------------------------------------------------------------
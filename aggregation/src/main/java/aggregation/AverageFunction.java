@@ -33,6 +33,8 @@ public class AverageFunction
 extends AbstractFunction 
 {
 
+private static final long serialVersionUID = 1L;
+
 //--------------------------------------------------------------------------
 // Initialization
 //--------------------------------------------------------------------------
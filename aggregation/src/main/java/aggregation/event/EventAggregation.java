@@ -31,9 +31,12 @@ import peersim.transport.*;
  * @author Alberto Montresor
  * @version $Revision$
  */
-public class EventAggregation implements SingleValue, EDProtocol
+public class EventAggregation
+implements SingleValue, EDProtocol, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 private static boolean DEBUG = false;
 	
 /**
@@ -128,7 +131,7 @@ public void processEvent(Node node, int pid, Object event)
 
 		EDSimulator.add(2000, null, node, pid);
 		
-		Message request = new Message(true, node, this, cycle, value);
+		Message request = Message.get(true, node, this, cycle, value);
 		trans.send(node, remote, request, pid);
 		initiated = true;
 
@@ -190,14 +193,39 @@ public void setValue(double value)
 	this.value = value;
 }
 
-class Message 
+/**
+ * The messages of the protocol, which are recycled (see
+ * {@link RecyclableEvent}) except the timer events, which are created
+ * with the constructor.
+ */
+static class Message extends RecyclableEvent
 {
+	private static final long serialVersionUID = 1L;
+
+	/** The pool of messages */
+	private static final EventPool<Message> pool = new EventPool<Message>() {
+		protected Message create() { return new Message(); }
+	};
+
 	boolean initiated;
 	Node src;
 	EventAggregation sender;
 	short cycle;
 	double value;
 
+	private Message() {}
+
+	/**
+	 * Returns a message from the pool with the given fields.
+	 */
+	static Message get(boolean initiated, Node src, EventAggregation sender, short cycle, double value)
+	{
+		Message msg = pool.acquire();
+		msg.set(initiated, src, sender, value);
+		msg.cycle = cycle;
+		return msg;
+	}
+
 	/**
 	 * @param src
 	 * @param sender
@@ -225,6 +253,12 @@ class Message
 		this.value = value;
 	}
 
+	protected void clear()
+	{
+		src = null;
+		sender = null;
+	}
+
 }	
 
 
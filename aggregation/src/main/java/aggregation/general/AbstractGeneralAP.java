@@ -34,9 +34,11 @@ import peersim.config.*;
  * @version $Revision$
  */
 public abstract class AbstractGeneralAP 
-implements GeneralAggregation, CDProtocol
+implements GeneralAggregation, CDProtocol, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 //--------------------------------------------------------------------------
 // Protocol data helper class
 //--------------------------------------------------------------------------
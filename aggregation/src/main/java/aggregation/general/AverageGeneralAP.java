@@ -32,6 +32,8 @@ public class AverageGeneralAP
 extends AbstractGeneralAP
 {
 
+private static final long serialVersionUID = 1L;
+
 //--------------------------------------------------------------------------
 // Initialization
 //--------------------------------------------------------------------------
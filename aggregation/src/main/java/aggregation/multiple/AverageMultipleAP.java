@@ -30,9 +30,11 @@ import peersim.cdsim.*;
  * @version $Revision$
  */
 public class AverageMultipleAP
-implements MultipleValues, CDProtocol
+implements MultipleValues, CDProtocol, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 //--------------------------------------------------------------------------
 // Protocol data helper class
 //--------------------------------------------------------------------------
@@ -39,9 +39,11 @@ import java.util.*;
  * @version $Revision$
  */
 public class CentralizedBlacklist
-implements Control, Blacklist, Protocol
+implements Control, Blacklist, Protocol, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 //--------------------------------------------------------------------------
 // Constants
 //--------------------------------------------------------------------------
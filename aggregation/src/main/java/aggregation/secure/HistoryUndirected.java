@@ -31,9 +31,11 @@ import peersim.config.*;
  * @version $Revision$
  */
 public class HistoryUndirected
-implements Protocol, History
+implements Protocol, History, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 //--------------------------------------------------------------------------
 // Parameters name
 //--------------------------------------------------------------------------
@@ -35,6 +35,8 @@ extends AbstractGeneralAP
 implements MaliciousProtocol
 {
 
+private static final long serialVersionUID = 1L;
+
 //--------------------------------------------------------------------------
 // Constants
 //--------------------------------------------------------------------------
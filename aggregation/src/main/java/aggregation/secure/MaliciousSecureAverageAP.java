@@ -38,6 +38,8 @@ extends AbstractGeneralAP
 implements MaliciousProtocol
 {
 
+private static final long serialVersionUID = 1L;
+
 //--------------------------------------------------------------------------
 //Protocol class data
 //--------------------------------------------------------------------------
@@ -31,9 +31,11 @@ import java.util.*;
  * @version $Revision$
  */
 public class ProofBlacklist 
-implements CDProtocol, Blacklist
+implements CDProtocol, Blacklist, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 //--------------------------------------------------------------------------
 // Constants
 //--------------------------------------------------------------------------
@@ -35,6 +35,8 @@ public class SecureAverageAP
 extends AbstractGeneralAP
 {
 
+private static final long serialVersionUID = 1L;
+
 //--------------------------------------------------------------------------
 //
 //--------------------------------------------------------------------------
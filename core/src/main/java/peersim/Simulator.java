@@ -115,6 +115,8 @@ public static int getSimID() {
 * The number of independent experiments is given by config parameter
 * {@value #PAR_EXPS}. In all experiments the configuration is the same,
 * only the random seed is not re-initialized between experiments.
+* The experiments can share the state built by the initializers of the
+* first one, see {@value peersim.core.Checkpoint#PAR_WARMSTART}.
 * <p>
 * Loading the configuration is currently done with the help of constructing
 * an instance of {@link ParsedProperties} using the constructor
@@ -147,6 +149,32 @@ public static int getSimID() {
 * @see EDSimulator
 */
 public static void main(String[] args)
+{
+	try {
+		run(args);
+	} catch (MissingParameterException e) {
+		System.err.println(e+"");
+		System.exit(1);
+	} catch (IllegalParameterException e) {
+		System.err.println(e+"");
+		System.exit(1);
+	}
+}
+
+// ----------------------------------------------------------------------
+
+/**
+* Loads the configuration and executes the experiments like {@link #main},
+* but reports configuration errors by throwing
+* {@link MissingParameterException} or {@link IllegalParameterException}
+* instead of exiting.
+* This is the entry point used by
+* {@link peersim.rangesim.RangeSimulator} to run experiments within its
+* own JVM.
+* @param args passed on to
+* {@link ParsedProperties#ParsedProperties(String[])}
+*/
+public static void run(String[] args)
 {
 	long time = System.currentTimeMillis();	
 	
@@ -167,49 +195,37 @@ public static void main(String[] args)
 		return;
 	}
 	
-	try {
-
-		for(int k=0; k<exps; ++k)
+	Checkpoint.discardWarmStart();
+	for(int k=0; k<exps; ++k)
+	{
+		if( k>0 )
 		{
-			if( k>0 )
-			{
-				long seed = CommonState.r.nextLong();
-				CommonState.initializeRandom(seed);
-			}
-			System.err.print("Simulator: starting experiment "+k);
-			System.err.println(" invoking "+simName[SIMID]);
-			System.err.println("Random seed: "+
-				CommonState.r.getLastSeed());
-			System.out.println("\n\n");
-			
-			// XXX could be done through reflection, but
-			// this is easier to read.
-			switch(SIMID)
-			{
-			case CDSIM:
-				CDSimulator.nextExperiment();
-				break;
-			case EDSIM:
-				EDSimulator.nextExperiment();
-				break;
-			}
+			long seed = CommonState.r.nextLong();
+			CommonState.initializeRandom(seed);
+		}
+		System.err.print("Simulator: starting experiment "+k);
+		System.err.println(" invoking "+simName[SIMID]);
+		System.err.println("Random seed: "+
+			CommonState.r.getLastSeed());
+		System.out.println("\n\n");
+		
+		// XXX could be done through reflection, but
+		// this is easier to read.
+		switch(SIMID)
+		{
+		case CDSIM:
+			CDSimulator.nextExperiment();
+			break;
+		case EDSIM:
+			EDSimulator.nextExperiment();
+			break;
 		}
-	
-	} catch (MissingParameterException e) {
-		System.err.println(e+"");
-		System.exit(1);
-	} catch (IllegalParameterException e) {
-		System.err.println(e+"");
-		System.exit(1);
 	}
 
 	// undocumented testing capabilities
 	if(Configuration.contains("__t")) 
 		System.out.println(System.currentTimeMillis()-time);
 	if(Configuration.contains("__x")) Network.test();
-	
-	
-	
 }
 
 }
@@ -37,7 +37,8 @@ import peersim.core.*;
  * specified, then simply the controls specified in the configuration are
  * run in the specified order. If {@value #PAR_NOMAIN} is not specified,
  * then the controls in the configuration are run in the specified order,
- * followed by the execution of {@link FullNextCycle}.
+ * followed by the execution of {@link FullNextCycle} (or
+ * {@link ParallelNextCycle}, see {@value #PAR_THREADS}).
  * <p>
  * All components (controls and protocols) can have configuration
  * parameters that control their scheduling (see {@link Scheduler}). This
@@ -51,6 +52,14 @@ import peersim.core.*;
  * the controls scheduled to run after the last cycle are still executed
  * completely, irrespective of their return value and even if the
  * experiment was interrupted.
+ * <p>
+ * The state of the simulation can be saved in a {@link Checkpoint} before
+ * the cycles given by {@value peersim.core.Checkpoint#PAR_CHECKPOINT}, and
+ * an experiment can be resumed from a checkpoint instead of running the
+ * initializers, see {@value peersim.core.Checkpoint#PAR_RESUME}.
+ * Similarly, the experiments after the first one can start from a copy of
+ * the state of the first one after its initializers, see
+ * {@value peersim.core.Checkpoint#PAR_WARMSTART}.
  * @see Configuration
  */
 public class CDSimulator
@@ -75,6 +84,16 @@ public static final String PAR_CYCLES = "simulation.cycles";
  */
 private static final String PAR_NOMAIN = "simulation.nodefaultcycle";
 
+/**
+ * The number of threads running the default cycle. If set, even to one,
+ * {@link ParallelNextCycle} is used instead of {@link FullNextCycle} as the
+ * default cycle, so the results do not depend on the number of threads.
+ * Only protocols implementing {@link ConcurrentCDProtocol} are run in
+ * parallel, see {@link ParallelNextCycle} for the details.
+ * @config
+ */
+public static final String PAR_THREADS = "simulation.threads";
+
 /**
  * This is the prefix for initializers. These have to be of type
  * {@link Control}. They are run at the beginning of each experiment, in
@@ -146,7 +165,10 @@ private static String[] loadControls()
 		controls = new Control[names.length + 1];
 		ctrlSchedules = new Scheduler[names.length + 1];
 		// calling with a prefix that cannot exist
-		controls[names.length] = new FullNextCycle(" ");
+		if (Configuration.contains(PAR_THREADS))
+			controls[names.length] = new ParallelNextCycle(" ");
+		else
+			controls[names.length] = new FullNextCycle(" ");
 		ctrlSchedules[names.length] = new Scheduler(" ");
 	}
 	for (int i = 0; i < names.length; ++i) {
@@ -188,16 +210,32 @@ public static final void nextExperiment()
 	System.err.println("CDSimulator: resetting");
 	controls = null;
 	ctrlSchedules = null;
-	Network.reset();
-	System.err.println("CDSimulator: running initializers");
-	runInitializers();
+	final boolean resumed = (Checkpoint.resume() != null);
+	int first = 0;
+	if (resumed) {
+		first = (int) CommonState.getTime();
+		System.err.println("CDSimulator: resuming at cycle " + first);
+	} else if (Checkpoint.warmStart() != null) {
+		System.err.println("CDSimulator: starting from the initial state "
+				+ "of the first experiment");
+	} else {
+		Network.reset();
+		Checkpoint.check();
+		System.err.println("CDSimulator: running initializers");
+		runInitializers();
+		new Checkpoint().storeWarmStart();
+	}
+	Scheduler checkpoints = Checkpoint.getSchedule();
 
 	// main cycle
 	loadControls();
 
 	System.err.println("CDSimulator: starting simulation");
-	for (int i = 0; i < cycles; ++i) {
+	for (int i = first; i < cycles; ++i) {
 		CDState.setCycle(i);
+		if (checkpoints != null && checkpoints.active(i)
+				&& (i > first || !resumed))
+			new Checkpoint().write();
 
 		boolean stop = false;
 		for (int j = 0; j < controls.length; ++j) {
@@ -216,6 +254,10 @@ public static final void nextExperiment()
 		if (ctrlSchedules[j].fin)
 			controls[j].execute();
 	}
+	for (int j = 0; j < controls.length; ++j) {
+		if (controls[j] instanceof ThreadedControl)
+			((ThreadedControl) controls[j]).shutdown();
+	}
 }
 
 }
@@ -19,34 +19,19 @@
 package peersim.cdsim;
 
 import peersim.core.CommonState;
+import peersim.core.SimulationContext;
 
 
 /**
  * This is the common state of a cycle driven simulation that all objects see.
  * It contains additional information, specific to the cycle driven model,
  * in addition to the info in {@link peersim.core.CommonState}.
+ * Like that class, it is a static facade of the current
+ * {@link SimulationContext}.
  */
 public class CDState extends CommonState {
 
 
-// ======================= fields ==================================
-// =================================================================
-
-/**
- * Current time within the current cycle.
- * Note that {@link #cycle} gives the cycle id to which this value is relative.
- */
-private static int ctime = -1;
-
-/**
- * Current cycle in the simulation. It makes sense only in the case of a
- * cycle based simulator, that is, cycle based simulators will maintain this
- * value, others will not. It still makes sense to keep it separate from
- * {@link #time} because it is an int, while time is a long.
- */
-private static int cycle = -1;
-
-
 // ======================== initialization =========================
 // =================================================================
 
@@ -63,7 +48,10 @@ private CDState() {}
 /**
 * Returns true if and only if there is a cycle driven simulation going on.
 */
-public static boolean isCD() { return cycle >= 0; }
+public static boolean isCD()
+{
+	return SimulationContext.current().getCycle() >= 0;
+}
 
 //-----------------------------------------------------------------
 
@@ -74,6 +62,7 @@ public static boolean isCD() { return cycle >= 0; }
  */
 public static int getCycle()
 {
+	final int cycle = SimulationContext.current().getCycle();
 	if( cycle >= 0 ) return cycle;
 	else throw new UnsupportedOperationException(
 		"Cycle driven state accessed when "+
@@ -89,9 +78,10 @@ public static int getCycle()
  */
 public static void setCycle(int t)
 {
-	cycle = t;
-	ctime = 0;
-	setTime(t);
+	SimulationContext ctx = SimulationContext.current();
+	ctx.setCycle(t);
+	ctx.setCycleT(0);
+	ctx.setTime(t);
 }
 
 //-----------------------------------------------------------------
@@ -102,6 +92,7 @@ public static void setCycle(int t)
  */
 public static Integer getCycleObj()
 {
+	final int cycle = SimulationContext.current().getCycle();
 	if( cycle >= 0 ) return Integer.valueOf(cycle);
 	else throw new UnsupportedOperationException(
 		"Cycle driven state accessed when "+
@@ -119,6 +110,7 @@ public static Integer getCycleObj()
  */
 public static int getCycleT()
 {
+	final int ctime = SimulationContext.current().getCycleT();
 	if( ctime >= 0 ) return ctime;
 	else throw new UnsupportedOperationException(
 		"Cycle driven state accessed when "+
@@ -129,7 +121,7 @@ public static int getCycleT()
 
 public static void setCycleT(int t)
 {
-	ctime = t;
+	SimulationContext.current().setCycleT(t);
 }
 }
 
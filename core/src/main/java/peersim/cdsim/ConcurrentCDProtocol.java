@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.cdsim;
+
+import peersim.core.Node;
+
+/**
+* A {@link CDProtocol} whose {@link #nextCycle} method can be called
+* concurrently for different nodes by {@link ParallelNextCycle}. The state
+* of the protocol is double buffered: {@link #nextCycle} reads the
+* committed state of this node and of other nodes, and writes the new
+* state of this node only to a separate buffer. When {@link #nextCycle}
+* has been called on all the nodes, {@link #commit} is called on each of
+* them to make the new state the committed one. So the values read in a
+* cycle are always those of the previous cycle, whatever the order or the
+* thread in which the nodes are processed, and the results are
+* reproducible.
+* <p>
+* In addition, an implementation must not modify the state of other nodes,
+* must not add or remove nodes, and must take its randomness from
+* {@link peersim.core.CommonState#r} (read every time, not stored in a
+* field), which is then specific to the calling thread.
+* {@link FullNextCycle} calls {@link #commit} the same way, so the protocol
+* can also be run sequentially.
+* <p>
+* Protocols that exchange state with a peer, like the push-pull averaging
+* of <code>example.aggregation.AverageFunction</code>, modify the state of
+* the peer and therefore cannot implement this interface. See
+* <code>example.aggregation.NeighbourAverage</code> for an example.
+*/
+public interface ConcurrentCDProtocol extends CDProtocol
+{
+
+/**
+* Makes the state computed by the last call to {@link #nextCycle} the
+* committed state, visible to the other nodes. It is called once for every
+* node that is up, after {@link #nextCycle} has been called on all the
+* nodes in a cycle in which the protocol is scheduled. It can be called
+* concurrently for different nodes.
+* @param node the node on which this component is run
+* @param protocolID the id of this protocol in the protocol array
+*/
+public void commit(Node node, int protocolID);
+
+}
@@ -28,7 +28,9 @@ import peersim.core.Control;
 * kinds of tasks during the simulation. Many users will probably not need it,
 * but it is a nice way to e.g. run controls at any time, not only between cycles.
 */
-public class DaemonProtocol implements CDProtocol {
+public class DaemonProtocol implements CDProtocol, java.io.Serializable {
+
+private static final long serialVersionUID = 1L;
 
 
 // ========================= fields =================================
@@ -63,6 +63,9 @@ protected final boolean shuffle;
 /** Holds the protocol schedulers of this simulation */
 protected Scheduler[] protSchedules = null;
 
+/** True for the protocols that implement {@link ConcurrentCDProtocol} */
+protected final boolean[] concurrent;
+
 /** The random permutation to use if config par {@value #PAR_SHUFFLE} is set. */
 protected RandPermutation rperm = new RandPermutation( CDState.r );
 
@@ -80,9 +83,12 @@ public FullNextCycle(String prefix) {
 	// load protocol schedulers
 	String[] names = Configuration.getNames(Node.PAR_PROT);
 	protSchedules = new Scheduler[names.length];
+	concurrent = new boolean[names.length];
 	for(int i=0; i<names.length; ++i)
 	{
 		protSchedules[i] = new Scheduler(names[i]);
+		concurrent[i] = Network.getPrototype().getProtocol(i) instanceof
+			ConcurrentCDProtocol;
 	}
 }
 
@@ -94,7 +100,8 @@ public FullNextCycle(String prefix) {
  * If the node goes down as a result of the execution of a protocol, then
  * the rest of the protocols on that node are not executed and we move on
  * to the next node.
- * It sets the {@link CDState} appropriately.
+ * It sets the {@link CDState} appropriately. Finally, the new state of the
+ * {@link ConcurrentCDProtocol}s is committed on all nodes that are up.
  * @return always false
  */
 public boolean execute() {
@@ -130,8 +137,31 @@ public boolean execute() {
 			}
 		}
 	}
+	commit(cycle);
 
 	return false;
 }
 
+// --------------------------------------------------------------------
+
+/**
+ * Calls {@link ConcurrentCDProtocol#commit} on all nodes that are up, for
+ * the concurrent protocols that are scheduled in the given cycle.
+ */
+protected void commit(int cycle) {
+
+	for(int k=0; k<concurrent.length; ++k)
+	{
+		if( !concurrent[k] || !protSchedules[k].active(cycle) ) continue;
+		CDState.setPid(k);
+		for(int j=0; j<Network.size(); ++j)
+		{
+			final Node node = Network.get(j);
+			if( !node.isUp() ) continue;
+			CDState.setNode(node);
+			((ConcurrentCDProtocol)node.getProtocol(k)).commit(node, k);
+		}
+	}
+}
+
 }
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.cdsim;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import peersim.config.*;
+import peersim.core.*;
+import peersim.util.*;
+
+/**
+* Control to run a cycle of the cycle driven simulation on several threads.
+* The node array is cut into a fixed number of contiguous chunks, and the
+* chunks are processed by a fork-join pool. Within a chunk the nodes are
+* iterated exactly like in {@link FullNextCycle}. Each chunk has its own
+* {@link SimulationContext}, forked the first time a cycle is run in
+* parallel, with a random generator seeded from {@link CDState#r}. As long
+* as no cycle is run in parallel, {@link CDState#r} is not touched, so the
+* results are the same as with {@link FullNextCycle}. The context is bound to
+* the thread processing the chunk, so the protocols running on the chunk
+* see their own node, pid, cycle time and {@link CommonState#r}.
+* When all the chunks are done, the new state of the protocols is
+* committed (see {@link ConcurrentCDProtocol#commit}), again chunk by chunk.
+* Since the protocols read only the state committed in the previous cycle,
+* the results depend only on the random seed and the number of chunks, not
+* on the number of threads or on thread scheduling.
+* <p>
+* A cycle is run in parallel only if all the {@link CDProtocol}s scheduled
+* for the cycle implement {@link ConcurrentCDProtocol}. Otherwise the cycle
+* is run sequentially by {@link FullNextCycle#execute}.
+* Parameter <code>shuffle</code> shuffles the nodes within
+* each chunk. With <code>getpair</code>, as many random nodes as the size
+* of the network are drawn before the cycle, from a generator of their
+* own, and each drawn node is processed by the chunk that contains it, in
+* the order of the draws. So a node is never processed by two chunks at
+* the same time.
+* <p>
+* This control is used instead of {@link FullNextCycle} as the default
+* cycle of {@link CDSimulator} if {@value CDSimulator#PAR_THREADS} is
+* set. The simulation engines call {@link #shutdown} at the end of each
+* experiment, which stops the threads of the pool. With more than one
+* thread, networks with {@value peersim.core.Network#PAR_LAZY} set are not
+* supported.
+*/
+public class ParallelNextCycle extends FullNextCycle
+implements ThreadedControl {
+
+
+// ============== fields ===============================================
+// =====================================================================
+
+
+/**
+* The number of threads. Defaults to the value of
+* {@value CDSimulator#PAR_THREADS}, or if that is not set either, to the
+* number of available processors.
+* @config
+*/
+private static final String PAR_THREADS = "threads";
+
+/**
+* The number of chunks the node array is cut into. More chunks than threads
+* give a better load balance. Defaults to 64, independently of the number
+* of threads, so that changing the number of threads does not change the
+* results.
+* @config
+*/
+private static final String PAR_CHUNKS = "chunks";
+
+// --------------------------------------------------------------------
+
+/** The pool running the chunks */
+private final ForkJoinPool pool;
+
+/** The chunks, with their own random generators, created lazily */
+private final Chunk[] chunks;
+
+/** Draws the nodes if <code>getpair</code> is set, created lazily */
+private ExtendedRandom pairs = null;
+
+/** The drawn nodes in the order of the draws */
+private int[] draws = new int[0];
+
+/** The drawn nodes sorted by chunk */
+private int[] picks = new int[0];
+
+// =============== initialization ======================================
+// =====================================================================
+
+/**
+* Reads config parameters, {@link Scheduler}s, and creates the thread pool.
+*/
+public ParallelNextCycle(String prefix) {
+	
+	super(prefix);
+	int threads = Configuration.getInt(prefix+"."+PAR_THREADS,
+		Configuration.getInt(CDSimulator.PAR_THREADS,
+		Runtime.getRuntime().availableProcessors()));
+	if( threads < 1 ) throw new IllegalParameterException(
+		prefix+"."+PAR_THREADS, "Should be positive");
+	// the nodes of a lazy network are created without synchronizing readers
+	if( threads > 1 && Configuration.contains(Network.PAR_LAZY) )
+		throw new IllegalParameterException(Network.PAR_LAZY,
+			"Lazy networks are not supported by parallel cycles");
+	int nchunks = Configuration.getInt(prefix+"."+PAR_CHUNKS, 64);
+	if( nchunks < 1 ) throw new IllegalParameterException(
+		prefix+"."+PAR_CHUNKS, "Should be positive");
+
+	pool = new ForkJoinPool(threads);
+	chunks = new Chunk[nchunks];
+}
+
+// =============== methods =============================================
+// =====================================================================
+
+/** 
+ * Execute all the {@link CDProtocol}s on all nodes that are up, in
+ * parallel if possible.
+ * @return always false
+ */
+public boolean execute() {
+
+	final int cycle = CDState.getCycle();
+	for(int k=0; k<protSchedules.length; ++k)
+	{
+		if( !concurrent[k] &&
+		    Network.getPrototype().getProtocol(k) instanceof CDProtocol &&
+		    protSchedules[k].active(cycle) )
+			return super.execute();
+	}
+
+	if( chunks[0] == null )
+	{
+		for(int i=0; i<chunks.length; ++i)
+			chunks[i] = new Chunk(SimulationContext.current().fork(
+				new ExtendedRandom(CDState.r.nextLong())));
+		if( getpair_rand ) pairs = new ExtendedRandom(CDState.r.nextLong());
+	}
+
+	final int size = Network.size();
+	for(int i=0; i<chunks.length; ++i)
+	{
+		chunks[i].from = (int)((long)size*i/chunks.length);
+		chunks[i].to = (int)((long)size*(i+1)/chunks.length);
+		chunks[i].cycle = cycle;
+	}
+	if( getpair_rand ) drawNodes(size);
+	for(int phase=0; phase<2; ++phase)
+	{
+		for(int i=0; i<chunks.length; ++i) chunks[i].commit = phase == 1;
+		pool.invoke(new RecursiveAction() {
+			protected void compute() { invokeAll(chunks); }
+		});
+		for(int i=0; i<chunks.length; ++i) chunks[i].reinitialize();
+	}
+
+	return false;
+}
+
+// --------------------------------------------------------------------
+
+/**
+ * Draws as many random nodes as the size of the network into
+ * {@link #picks}, grouped by the chunk that contains them and keeping the
+ * order of the draws within each chunk, and sets the range of the picks
+ * of each chunk.
+ */
+private void drawNodes(int size) {
+
+	if( draws.length < size )
+	{
+		draws = new int[size];
+		picks = new int[size];
+	}
+	final int[] start = new int[chunks.length+1];
+	for(int i=0; i<size; ++i)
+	{
+		final int idx = pairs.nextInt(size);
+		draws[i] = idx;
+		start[chunkOf(idx, size)+1]++;
+	}
+	for(int c=0; c<chunks.length; ++c)
+	{
+		start[c+1] += start[c];
+		chunks[c].pfrom = chunks[c].pto = start[c];
+	}
+	for(int i=0; i<size; ++i)
+	{
+		final Chunk c = chunks[chunkOf(draws[i], size)];
+		picks[c.pto++] = draws[i];
+	}
+}
+
+// --------------------------------------------------------------------
+
+/** Returns the chunk whose range contains the given node index */
+private int chunkOf(int idx, int size) {
+
+	int c = (int)((long)idx*chunks.length/size);
+	while( chunks[c].to <= idx ) ++c;
+	return c;
+}
+
+// --------------------------------------------------------------------
+
+/**
+ * Stops the threads of the pool. The control must not be executed
+ * afterwards.
+ */
+public void shutdown() {
+
+	pool.shutdown();
+}
+
+// =============== inner classes =======================================
+// =====================================================================
+
+/**
+ * A range of the node array with its own random generator.
+ */
+private final class Chunk extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The context bound to the thread processing this chunk */
+	final SimulationContext context;
+
+	/** Used to shuffle the range if parameter <code>shuffle</code> is set */
+	final RandPermutation perm;
+
+	/** The range of node indexes, the end is exclusive */
+	int from, to;
+
+	/** The range of the chunk in {@link #picks}, the end is exclusive */
+	int pfrom, pto;
+
+	/** The current cycle */
+	int cycle;
+
+	/** Whether the chunk commits the state instead of running the cycle */
+	boolean commit;
+
+	Chunk(SimulationContext context)
+	{
+		this.context = context;
+		perm = new RandPermutation(context.getRandom());
+	}
+
+	protected void compute()
+	{
+		context.setTime(cycle);
+		SimulationContext old = SimulationContext.bind(context);
+		try {
+			if( commit )
+			{
+				commitRange();
+				return;
+			}
+			if( shuffle ) perm.reset(to-from);
+			final int lo = getpair_rand ? pfrom : from;
+			final int hi = getpair_rand ? pto : to;
+			for(int j=lo; j<hi; ++j)
+			{
+				Node node = null;
+				if( getpair_rand )
+					node = Network.get(picks[j]);
+				else if( shuffle )
+					node = Network.get(from+perm.next());
+				else
+					node = Network.get(j);
+				if( !node.isUp() ) continue; 
+				context.setNode(node);
+				context.setCycleT(j);
+				final int len = node.protocolSize();
+				for(int k=0; k<len; ++k)
+				{
+					if (!protSchedules[k].active(cycle))
+						continue;
+						
+					context.setPid(k);
+					Protocol protocol = node.getProtocol(k);
+					if( protocol instanceof CDProtocol )
+					{
+						((CDProtocol)protocol).nextCycle(node, k);
+						if( !node.isUp() ) break;
+					}
+				}
+			}
+		} finally {
+			SimulationContext.bind(old);
+		}
+	}
+
+	/** Commits the state of the concurrent protocols of the range */
+	private void commitRange()
+	{
+		for(int k=0; k<concurrent.length; ++k)
+		{
+			if( !concurrent[k] || !protSchedules[k].active(cycle) )
+				continue;
+			context.setPid(k);
+			for(int j=from; j<to; ++j)
+			{
+				final Node node = Network.get(j);
+				if( !node.isUp() ) continue;
+				context.setNode(node);
+				((ConcurrentCDProtocol)node.getProtocol(k)).commit(node, k);
+			}
+		}
+	}
+}
+
+}
@@ -29,12 +29,23 @@ import java.util.zip.*;
  * 
  * Inspired from some code written by David Postill (david@postill.org.uk)
  * (found in http://groups.google.com).
- *
+ * <p>
+ * If a directory of the classpath contains the index written by
+ * {@link ClassIndex} during the build, and the index still covers all its
+ * classes, the classes are read from the index. Otherwise the directory
+ * is listed. The entries of jar files are always listed: a jar file may
+ * merge the classes of several modules, and checking that an index covers
+ * them costs as much as listing them. The classes of all the elements are
+ * merged, so a classpath can mix elements with and without an index.
+ * <p>
+ * This class is public only because
+ * {@link peersim.rangesim.InProcessRunner} shares it among the experiments
+ * it runs; it is not meant to be used outside this package.
  *
  * @author Alberto Montresor
  * @version $Revision$
  */
-class ClassFinder 
+public class ClassFinder 
 {
 
 //--------------------------------------------------------------------------
@@ -43,7 +54,7 @@ class ClassFinder
 	
 	
 /** Local map containing the associations */
-private static Map<String,String> map = new TreeMap<String,String>();	
+private static Map<String,String> map = new HashMap<String,String>();	
 
 /** The number of directories that have been touched by the search.
 This does not include directories in jar files. */
@@ -144,6 +155,20 @@ throws IOException
 		File pathFile = new File( pathElement );
 		
 		if( pathFile.isDirectory() ) {
+			File index = new File( pathFile, ClassIndex.INDEX );
+			if( index.isFile() ) {
+				ClassIndex classes;
+				InputStream in = new FileInputStream( index );
+				try {
+					classes = ClassIndex.read(in);
+				} finally {
+					in.close();
+				}
+				if( classes.covers(pathFile) ) {
+					addClasses( map, classes.getClasses() );
+					continue;
+				}
+			}
 			if (!pathElement.endsWith(filesep)) {
 				pathElement = pathElement + filesep;
 				pathFile = new File( pathElement);
@@ -169,23 +194,20 @@ private static void findClassInJar(Map<String,String> map, File pathFile)
 throws IOException
 {
 	ZipFile zipFile = new ZipFile( pathFile );
-	Enumeration entries = zipFile.entries();
-	while( entries.hasMoreElements() ) {
+	try {
+		Enumeration entries = zipFile.entries();
+		while( entries.hasMoreElements() ) {
 		
-		String entry = entries.nextElement().toString();
-		if( entry.endsWith( ".class" ) ) {
-			// File names in ZIP archives (so, also in JARs)
-			// are separated by forward slashes '/', independently
-			// of the architecture.
-			String className = classname( entry, "/" ); 
-			String shortName = getShortName( className );
-			if (map.containsKey(shortName)) {
-				map.put(shortName,
-					map.get(shortName)+","+className);
-			} else {
-				map.put(shortName, className);
+			String entry = entries.nextElement().toString();
+			if( entry.endsWith( ".class" ) ) {
+				// File names in ZIP archives (so, also in JARs)
+				// are separated by forward slashes '/', independently
+				// of the architecture.
+				addClass( map, classname( entry, "/" ) );
 			}
 		}
+	} finally {
+		zipFile.close();
 	}
 }
 
@@ -216,19 +238,46 @@ throws IOException
 		}
 		else if ( file.exists() && (file.length() != 0) && list[i].endsWith( ".class" ) ) {
 			String classFile = file.toString().substring( pathElement.length());
-			String className = classname( classFile, filesep );
-			String shortName = getShortName( className );
-			if (map.containsKey(shortName)) {
-				map.put(shortName, map.get(shortName)+","+className);
-			} else {
-				map.put(shortName, className);
-			}
+			addClass( map, classname( classFile, filesep ) );
 		}
 	}
 }
 
 //--------------------------------------------------------------------------
 
+/**
+ * Inserts the association of the given class in the map.
+ * 
+ * @param map the map where to insert associations
+ * @param className the fully-qualified name of the class
+ */
+private static void addClass(Map<String,String> map, String className)
+{
+	String shortName = getShortName( className );
+	String old = map.get(shortName);
+	if (old != null) {
+		map.put(shortName, old+","+className);
+	} else {
+		map.put(shortName, className);
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Inserts the associations of the given classes in the map.
+ * 
+ * @param map the map where to insert associations
+ * @param classNames the fully-qualified names of the classes
+ */
+private static void addClasses(Map<String,String> map,
+	List<String> classNames)
+{
+	for (String className: classNames) addClass( map, className );
+}
+
+//--------------------------------------------------------------------------
+
 /**
  * Translates a class file name in a class name using
  * the specified file separator.
@@ -248,10 +297,11 @@ private static String classname(String classFile, String filesep)
  */
 public static void main( String[] argv )
 {
-	Iterator i = map.keySet().iterator();
+	Map<String,String> sorted = new TreeMap<String,String>(map);
+	Iterator i = sorted.keySet().iterator();
 	while (i.hasNext()) {
 		String key = (String) i.next();
-		String name = map.get(key);
+		String name = sorted.get(key);
 		System.out.println(key + " --> " + name);
 	}
 }
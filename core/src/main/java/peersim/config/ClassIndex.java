@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.config;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * Writes and reads the index of the classes of a classpath directory, which
+ * lets {@link ClassFinder} map non-qualified class names to qualified ones
+ * without listing the directory.
+ * The index is the file {@value #INDEX} in the directory, with the
+ * qualified name of one class per line. The lines starting with
+ * <code>#</code> record what the index covers: the number of classes
+ * (<code>#classes</code>), and the modification time of each package
+ * directory (<code>#dir</code>) when the index was written.
+ * Only directories are read through their index, see {@link ClassFinder}.
+ * <p>
+ * The index is written during the build, after the classes are compiled,
+ * by running this class with the class output directories as arguments:
+ * <pre>
+ * java peersim.config.ClassIndex target/classes
+ * </pre>
+ * The Maven build of the core module does this in the
+ * <code>process-classes</code> phase (profile <code>class-index</code>).
+ * The other modules have no index, their classes are found by listing
+ * them, see {@link ClassFinder}; a module can get its own index with the
+ * same execution.
+ * <p>
+ * An index is used only if it still covers its directory (see
+ * {@link #covers}), otherwise the directory is listed. So classes compiled
+ * after the index was written (for example, by <code>mvn compile</code> or
+ * an IDE) are found as if there was no index.
+ */
+public class ClassIndex
+{
+
+//--------------------------------------------------------------------------
+//Fields
+//--------------------------------------------------------------------------
+
+/** The name of the index within the classpath element */
+public static final String INDEX = "META-INF/peersim/classes.idx";
+
+/** The encoding of the index */
+private static final Charset UTF8 = Charset.forName("UTF-8");
+
+/** The line with the number of classes */
+private static final String CLASSES = "#classes ";
+
+/** The lines with the modification time of a package directory */
+private static final String DIR = "#dir ";
+
+/** The qualified names of the classes */
+private final List<String> classes = new ArrayList<String>();
+
+/** The number of classes when the index was written, -1 if unknown */
+private int count = -1;
+
+/**
+ * The modification times of the package directories when the index was
+ * written, by path relative to the classpath element (the element itself
+ * is the empty path).
+ */
+private final Map<String,Long> dirs = new LinkedHashMap<String,Long>();
+
+/** Only {@link #read} creates instances */
+private ClassIndex() {}
+
+//--------------------------------------------------------------------------
+//Methods
+//--------------------------------------------------------------------------
+
+/**
+ * Reads an index. The stream is not closed.
+ */
+public static ClassIndex read(InputStream in) throws IOException
+{
+	ClassIndex index = new ClassIndex();
+	BufferedReader r = new BufferedReader(new InputStreamReader(in, UTF8));
+	String line;
+	while( (line = r.readLine()) != null )
+	{
+		line = line.trim();
+		if( line.startsWith(CLASSES) )
+		{
+			index.count = Integer.parseInt(
+				line.substring(CLASSES.length()).trim());
+		}
+		else if( line.startsWith(DIR) )
+		{
+			String s = line.substring(DIR.length());
+			int sp = s.indexOf(' ');
+			String path = sp < 0 ? "" : s.substring(sp+1);
+			index.dirs.put(path, Long.valueOf(
+				sp < 0 ? s : s.substring(0, sp)));
+		}
+		else if( line.length() > 0 && line.charAt(0) != '#' )
+		{
+			index.classes.add(line);
+		}
+	}
+	return index;
+}
+
+//--------------------------------------------------------------------------
+
+/** Returns the qualified names of the classes */
+public List<String> getClasses() { return classes; }
+
+//--------------------------------------------------------------------------
+
+/**
+ * Returns true if the index covers all the classes of the given directory,
+ * that is, if no package directory has been created, removed or modified
+ * (by adding or removing files) since the index was written.
+ * This needs only one file system lookup per package directory.
+ */
+public boolean covers(File dir)
+{
+	if( count != classes.size() || dirs.isEmpty() ) return false;
+	for(Map.Entry<String,Long> e: dirs.entrySet())
+	{
+		File d = e.getKey().length() == 0 ?
+			dir : new File(dir, e.getKey());
+		if( d.lastModified() != e.getValue().longValue() ) return false;
+	}
+	return true;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Writes the index of the classes in the given directory, and returns the
+ * number of classes.
+ */
+public static int write(File dir) throws IOException
+{
+	File index = new File(dir, INDEX);
+	// before the times are taken, creating META-INF changes the directory
+	index.getParentFile().mkdirs();
+	ArrayList<String> names = new ArrayList<String>();
+	Map<String,Long> dirs = new LinkedHashMap<String,Long>();
+	findClasses(names, dirs, "", dir);
+	Collections.sort(names);
+	Writer w = new BufferedWriter(new OutputStreamWriter(
+		new FileOutputStream(index), UTF8));
+	try {
+		w.write(CLASSES + names.size() + "\n");
+		for(Map.Entry<String,Long> e: dirs.entrySet())
+		{
+			w.write(DIR + e.getValue());
+			if( e.getKey().length() > 0 ) w.write(" " + e.getKey());
+			w.write('\n');
+		}
+		for(String name: names)
+		{
+			w.write(name);
+			w.write('\n');
+		}
+	} finally {
+		w.close();
+	}
+	return names.size();
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Adds the qualified names of the classes in the given directory,
+ * recursively, to the list, and the modification time of the directory
+ * and its package subdirectories to the map. The classes are in the given
+ * package, which is empty or ends with a dot.
+ */
+private static void findClasses(List<String> names, Map<String,Long> dirs,
+	String pkg, File dir)
+{
+	String[] list = dir.list();
+	if( list == null ) return;
+	dirs.put(pkg.replace('.', '/'), dir.lastModified());
+	Arrays.sort(list);
+	for(String name: list)
+	{
+		File file = new File(dir, name);
+		if( file.isDirectory() )
+		{
+			// "META-INF" and the like are not packages
+			if( name.indexOf('-') < 0 && name.indexOf('.') < 0 )
+				findClasses(names, dirs, pkg + name + ".", file);
+		}
+		else if( name.endsWith(".class") && file.length() != 0 )
+		{
+			names.add(pkg + name.substring(0,
+				name.length() - ".class".length()));
+		}
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Writes the index of each directory given as an argument.
+ */
+public static void main(String[] args) throws IOException
+{
+	for(String dir: args)
+	{
+		File file = new File(dir);
+		if( !file.isDirectory() )
+		{
+			System.err.println("ClassIndex: " + dir +
+			" is not a directory, skipping");
+			continue;
+		}
+		int n = write(file);
+		System.err.println("ClassIndex: indexed " + n + " classes in " +
+		dir);
+	}
+}
+
+}
@@ -49,6 +49,25 @@ private static final int DEBUG_CONTEXT = 2;
  */
 private Properties config;
 
+/**
+ * The resolved properties, indexed by name, if the configuration is
+ * resolved once, see
+ * {@value peersim.config.Configuration#PAR_SNAPSHOT}. Unmodifiable.
+ * Otherwise null.
+ */
+private Map<String, Resolved> snapshot = null;
+
+/**
+ * The numeric expressions parsed so far, indexed by property name.
+ */
+private final Map<String, Compiled> compiled = new HashMap<String, Compiled>();
+
+/**
+ * The error messages of the expression parser, collected while the
+ * configuration is resolved. Otherwise null, and they are printed.
+ */
+private List<String> errors = null;
+
 /**
  * Map associating string protocol names to the numeric protocol
  * identifiers. The protocol names are understood without prefix.
@@ -108,6 +127,75 @@ public ConfigContainer(Properties config, boolean check)
 	} else {
 		debugLevel = DEBUG_NO;
 	}
+	if (config.getProperty(Configuration.PAR_SNAPSHOT) != null)
+		snapshot = resolve();
+}
+
+// -------------------------------------------------------------------
+
+/**
+ * Evaluates all the properties as numeric expressions, so that they are
+ * read in constant time. The result of each evaluation is stored, whether
+ * it is a number or an exception: the exception is thrown again when the
+ * property is read as a number, exactly as it would be without the
+ * snapshot.
+ */
+private Map<String, Resolved> resolve()
+{
+	Map<String, Resolved> map = new HashMap<String, Resolved>();
+	errors = new ArrayList<String>();
+	for (String name : config.stringPropertyNames()) {
+		errors.clear();
+		Number number = null;
+		RuntimeException error = null;
+		try {
+			number = getVal(name, name, 0);
+			// fails as the reads do, if the expression cannot be parsed
+			number.doubleValue();
+		} catch (RuntimeException e) {
+			error = e;
+		}
+		map.put(name, new Resolved(config.getProperty(name), number, error,
+				errors.isEmpty() ? null : errors.toArray(new String[0])));
+	}
+	errors = null;
+	return Collections.unmodifiableMap(map);
+}
+
+// -------------------------------------------------------------------
+
+/**
+ * Returns the value of the given property, or null if it is not defined.
+ */
+private String getProperty(String name)
+{
+	if (snapshot == null)
+		return config.getProperty(name);
+	Resolved r = snapshot.get(name);
+	return (r != null ? r.string : null);
+}
+
+// -------------------------------------------------------------------
+
+/**
+ * Returns the resolved numeric value of the given property. If the
+ * evaluation failed, prints the messages of the expression parser and
+ * throws the exception of the evaluation.
+ */
+private Resolved getResolved(String name)
+{
+	Resolved r = snapshot.get(name);
+	if (r == null) {
+		throw new MissingParameterException(name,
+				" when evaluating property " + name);
+	}
+	if (r.errors != null) {
+		for (String error : r.errors)
+			System.err.println(error);
+	}
+	if (r.error != null)
+		throw r.error;
+	return r;
 }
 
 // =================== static public methods =========================
@@ -172,15 +260,16 @@ public boolean getBoolean(String name)
  */
 private boolean getBool(String name)
 {
-	if (config.getProperty(name) == null) {
+	String value = getProperty(name);
+	if (value == null) {
 		throw new MissingParameterException(name);
 //				"\nPossibly incorrect property: " + getSimilarProperty(name));
 	}
-	if (config.getProperty(name).matches("\\p{Blank}*")) {
+	if (value.matches("\\p{Blank}*")) {
 		throw new MissingParameterException(name,
 				"Blank value is not accepted when parsing Boolean.");
 	}
-	boolean ret = Boolean.valueOf(config.getProperty(name));
+	boolean ret = Boolean.valueOf(value);
 	debug(name, "" + ret);
 	return ret;
 }
@@ -198,6 +287,11 @@ private boolean getBool(String name)
 public int getInt(String name, int def)
 {
 	try {
+		if (snapshot != null) {
+			Resolved r = getResolved(name);
+			debug(name, "" + r.number);
+			return r.intValue;
+		}
 		Number ret = getVal(name, name, 0);
 		debug(name, "" + ret);
 		return ret.intValue();
@@ -218,6 +312,11 @@ public int getInt(String name, int def)
 public int getInt(String name)
 {
 	try {
+		if (snapshot != null) {
+			Resolved r = getResolved(name);
+			debug(name, "" + r.number);
+			return r.intValue;
+		}
 		Number ret = getVal(name, name, 0);
 		debug(name, "" + ret);
 		return ret.intValue();
@@ -240,6 +339,11 @@ public int getInt(String name)
 public long getLong(String name, long def)
 {
 	try {
+		if (snapshot != null) {
+			Resolved r = getResolved(name);
+			debug(name, "" + r.number);
+			return r.longValue;
+		}
 		Number ret = getVal(name, name, 0);
 		debug(name, "" + ret);
 		return ret.longValue();
@@ -260,6 +364,11 @@ public long getLong(String name, long def)
 public long getLong(String name)
 {
 	try {
+		if (snapshot != null) {
+			Resolved r = getResolved(name);
+			debug(name, "" + r.number);
+			return r.longValue;
+		}
 		Number ret = getVal(name, name, 0);
 		debug(name, "" + ret);
 		return ret.longValue();
@@ -282,6 +391,11 @@ public long getLong(String name)
 public double getDouble(String name, double def)
 {
 	try {
+		if (snapshot != null) {
+			Resolved r = getResolved(name);
+			debug(name, "" + r.number);
+			return r.doubleValue;
+		}
 		Number ret = getVal(name, name, 0);
 		debug(name, "" + ret);
 		return ret.doubleValue();
@@ -302,6 +416,11 @@ public double getDouble(String name, double def)
 public double getDouble(String name)
 {
 	try {
+		if (snapshot != null) {
+			Resolved r = getResolved(name);
+			debug(name, "" + r.number);
+			return r.doubleValue;
+		}
 		Number ret = getVal(name, name, 0);
 		debug(name, "" + ret);
 		return ret.doubleValue();
@@ -332,30 +451,56 @@ private Number getVal(String initial, String property, int depth)
 				maxdepth);
 	}
 
-	String s = config.getProperty(property);
+	String s = getProperty(property);
 	if (s == null || s.equals("")) {
 		throw new MissingParameterException(property,
 				" when evaluating property " + initial);
 //						+ "\nPossibly incorrect property: " + getSimilarProperty(property));
 	}
 
-//	GroupJep jep = new GroupJep(new Operators());
-//	jep.setAllowUndeclared(true);
-
-//	jep.parseExpression(s);
-	String[] symbols = getSymbols(null); //jep
-	for (int i = 0; i < symbols.length; i++) {
-		Object d = getVal(initial, symbols[i], depth + 1);
-//		jep.addVariable(symbols[i], d);
+	Compiled c = compile(property, s);
+	Object[] values = new Object[c.symbols.length];
+	for (int i = 0; i < values.length; i++) {
+		values[i] = getVal(initial, c.symbols[i], depth + 1);
+	}
+	Object ret;
+	String error = null;
+	synchronized (c) {
+		for (int i = 0; i < values.length; i++)
+			c.jep.addVariable(c.symbols[i], values[i]);
+		ret = c.jep.getValueAsObject();
+		if (c.jep.hasError())
+			error = c.jep.getErrorInfo();
+	}
+	if (error != null) {
+		if (errors != null)
+			errors.add(error);
+		else
+			System.err.println(error);
 	}
-	Object ret = null;//jep.getValueAsObject();
-//	if (jep.hasError())
-//		System.err.println(jep.getErrorInfo());
 	return (Number) ret;
 }
 
 // -------------------------------------------------------------------
 
+/**
+ * Returns the parsed form of the given expression, the value of the given
+ * property. Each expression is parsed only once.
+ */
+private Compiled compile(String property, String s)
+{
+	synchronized (compiled) {
+		Compiled c = compiled.get(property);
+		if (c == null || !c.expression.equals(s)) {
+			c = new Compiled(s);
+			compiled.put(property, c);
+		}
+		return c;
+	}
+}
+
+// -------------------------------------------------------------------
+
 /**
  * Returns an array of string, containing the symbols contained in the
  * expression parsed by the specified JEP parser.
@@ -363,7 +508,7 @@ private Number getVal(String initial, String property, int depth)
  *          the java expression parser containing the list of variables
  * @return an array of strings.
  */
-private String[] getSymbols(org.nfunk.jep.JEP jep)
+private static String[] getSymbols(org.nfunk.jep.JEP jep)
 {
 	Hashtable h = jep.getSymbolTable();
 	String[] ret = new String[h.size()];
@@ -418,7 +563,7 @@ public String getString(String name)
  */
 private String getStr(String name)
 {
-	String result = config.getProperty(name);
+	String result = getProperty(name);
 	if (result == null) {
 		throw new MissingParameterException(name);
 //				"\nPossibly incorrect property: " + getSimilarProperty(name));
@@ -545,7 +690,7 @@ public Class getClass(String name)
 
 private Class getClazz(String name)
 {
-	String classname = config.getProperty(name);
+	String classname = getProperty(name);
 	if (classname == null) {
 		throw new MissingParameterException(name);
 //				"\nPossibly incorrect property: " + getSimilarProperty(name));
@@ -1006,6 +1151,86 @@ private void manageException(String name, RuntimeException e)
 	}
 }
 
+// =================== private classes ===============================
+// ===================================================================
+
+/**
+ * A numeric expression parsed once, with the names of the properties it
+ * refers to. The parser is not thread safe, so it must be used holding
+ * the lock of this object.
+ */
+private static final class Compiled
+{
+
+/** The expression */
+final String expression;
+
+/** The parser, holding the parsed expression */
+final GroupJep jep;
+
+/** The names of the properties the expression refers to */
+final String[] symbols;
+
+Compiled(String expression)
+{
+	this.expression = expression;
+	jep = new GroupJep(new Operators());
+	jep.setAllowUndeclared(true);
+	jep.parseExpression(expression);
+	symbols = getSymbols(jep);
+}
+
+}
+
+//-------------------------------------------------------------------
+
+/**
+ * The value of a property, with its numeric value converted to each type
+ * once. If the property could not be read as a number, the exception to
+ * be thrown when it is read as a number.
+ */
+private static final class Resolved
+{
+
+/** The value of the property as written */
+final String string;
+
+/** The numeric value, null if error is not null */
+final Number number;
+
+final int intValue;
+
+final long longValue;
+
+final double doubleValue;
+
+/** The exception thrown by the evaluation, or null */
+final RuntimeException error;
+
+/** The messages printed by the expression parser, or null */
+final String[] errors;
+
+Resolved(String string, Number number, RuntimeException error,
+		String[] errors)
+{
+	this.string = string;
+	this.error = error;
+	this.errors = errors;
+	if (error == null) {
+		this.number = number;
+		intValue = number.intValue();
+		longValue = number.longValue();
+		doubleValue = number.doubleValue();
+	} else {
+		this.number = null;
+		intValue = 0;
+		longValue = 0;
+		doubleValue = 0;
+	}
+}
+
+}
+
 //-------------------------------------------------------------------
 
 }
@@ -171,10 +171,16 @@ import java.util.*;
  * example, 5.0/2 returns 2.5.
  * 
  * <p>
- * Expressions are parsed recursively. Note that no optimization is done,
- * so expression F is evaluated three times here (due to the fact that
- * appears twice in C and once in B). But since properties are read just
- * once at initialization, this is not a performance problem.
+ * Expressions are evaluated recursively. Each expression is parsed only
+ * once, but no other optimization is done, so expression F is evaluated
+ * three times here (due to the fact that appears twice in C and once in
+ * B). This is usually not a performance problem, since properties are
+ * read mostly at initialization. If they are read very often (for
+ * example, by components constructed for each node, or over many
+ * experiments), property {@value #PAR_SNAPSHOT} can be defined: then all
+ * the properties are evaluated once, when the configuration is set, and
+ * each read returns the stored value. A property that cannot be
+ * evaluated is reported with the same error when it is read as a number.
  * 
  * <p>
  * Finally, recursive definitions are not allowed (and without function
@@ -261,6 +267,14 @@ static final String DEBUG_FULL = "full";
  */
 static final String PAR_MAXDEPTH = "expressions.maxdepth";
 
+/**
+ * If defined, all the properties are evaluated when the configuration is
+ * set, so that reading a property is a hash table lookup, see the general
+ * description of {@link Configuration}.
+ * @config
+ */
+static final String PAR_SNAPSHOT = "config.snapshot";
+
 /**
  * Used to configure ordering of the components. Determines the ordering in
  * the array as returned by {@link #getNames}. See the general description
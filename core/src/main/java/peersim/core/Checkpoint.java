@@ -0,0 +1,829 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.core;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+import peersim.config.*;
+import peersim.util.ExtendedRandom;
+
+/**
+* A snapshot of a running simulation, which can be written to a file and
+* resumed later, by the same or by a modified configuration. The
+* simulation engines take a checkpoint at the time points given by the
+* {@link Scheduler} parameters of {@value #PAR_CHECKPOINT} (times in the
+* event driven engine, cycles in the cycle driven engine), and resume from
+* the checkpoint given by {@value #PAR_RESUME} instead of running the
+* initializers.
+* <p>
+* A checkpoint contains the nodes of the {@link Network} with their
+* protocols, the current time, the state of the random generator
+* {@link CommonState#r}, and the events in the event queue that are
+* delivered to nodes. The event driven engine takes the checkpoint before
+* executing the first event that is not before the scheduled time, and the
+* cycle driven engine before running the controls of the scheduled cycle.
+* The prototype node, the controls and the initializers are constructed
+* again from the configuration when resuming, the controls continue their
+* schedule from the time of the checkpoint. So the resumed simulation
+* continues exactly like the one that took the checkpoint, if the
+* configuration has not been changed. To this end, the event driven engine
+* rebuilds its queue after taking a checkpoint exactly as it builds it when
+* resuming, so events with the same time may be executed in a different
+* order than without the checkpoint (which is allowed, see
+* {@link peersim.edsim.PriorityQ#add(long,Object,Node,byte)}).
+* <p>
+* Each checkpoint is a complete snapshot of the state, written with Java
+* serialization, which replaces the previous one: checkpoints are not
+* incremental, and writing one takes time and space proportional to the
+* whole state. So the classes of the nodes, of their protocols and of the
+* events must implement {@link Serializable} (the nodes and protocols of
+* PeerSim do), and so must the classes of their non-transient fields.
+* The engines call {@link #check} before running the initializers, which
+* rejects a configuration whose prototype node cannot be serialized. The
+* events only exist while the simulation runs, so they are checked when
+* the first checkpoint is written.
+* State that is not
+* reachable from the nodes, like static fields, is not saved. If it is set
+* up by initializers (like the latency matrix read by
+* {@link peersim.transport.KingParser}), these have to be listed in
+* {@value #PAR_RESUME_INIT}, to be run again when resuming.
+* <p>
+* The file starts with a 16 byte header, with a magic number and the
+* version of the format, followed by the serialized state. The protocols
+* of the nodes of class {@link GeneralNode} and {@link ColumnNode} are written
+* after all the nodes, so that writing does not recurse along the links of
+* the overlay.
+* The file is first written with a temporary name and then renamed, so a
+* crash while writing does not destroy the previous checkpoint.
+*/
+public class Checkpoint {
+
+
+// ========================= fields =================================
+// ==================================================================
+
+
+/**
+* The file the checkpoints are written to. The time points at which they
+* are taken are defined by the {@link Scheduler} parameters with this
+* prefix, at least <code>at</code> or <code>step</code> has to be given.
+* Each checkpoint replaces the previous one. Not supported by the
+* parallel event driven engine.
+* @config
+*/
+public static final String PAR_CHECKPOINT = "simulation.checkpoint";
+
+/**
+* The checkpoint file to resume the simulation from. If set, the
+* initializers are not run, see {@value #PAR_RESUME_INIT}.
+* @config
+*/
+public static final String PAR_RESUME = "simulation.resume";
+
+/**
+* The names of the initializers that are run when the simulation is
+* resumed, separated by spaces or commas, without the <code>init</code>
+* prefix. They are run after the nodes have been restored, in the order
+* of the configuration, and before the random generator is restored, so
+* they do not change the course of the simulation. The other initializers
+* are only constructed.
+* @config
+*/
+public static final String PAR_RESUME_INIT = "simulation.resume.init";
+
+/**
+* If set, the state of the simulation after the initializers of the first
+* experiment is kept, and the later experiments start from a copy of it
+* instead of running the initializers again. Only the random generator is
+* not copied, so the experiments still differ in their random seed. The
+* state is kept in memory, unless {@value #PAR_WARMSTART_FILE} is set. In
+* memory, the nodes are cloned if their protocols refer to other objects
+* only through fields of type {@link Node} or arrays of nodes (see
+* {@link NetworkCopy}), otherwise the state is serialized like a
+* checkpoint. Networks of {@link ColumnNode}s are always serialized, with
+* their {@link ColumnStore}, and each experiment gets its own copy of the
+* store. If the state may have to be serialized, the prototype node is
+* checked before the initializers of the first experiment are run (see
+* {@link #check}). Not supported by the parallel event driven engine.
+* @config
+*/
+public static final String PAR_WARMSTART = "simulation.warmstart";
+
+/**
+* The file the initial state is kept in for warm starts (see
+* {@value #PAR_WARMSTART}), for networks that do not fit in memory twice.
+* @config
+*/
+public static final String PAR_WARMSTART_FILE = "simulation.warmstart.file";
+
+/** The prefix of the initializers */
+private static final String PAR_INIT = "init";
+
+/** The magic number at the beginning of the file */
+private static final int MAGIC = 0x50434b31; // "PCK1"
+
+/** The version of the format */
+private static final int VERSION = 1;
+
+/** The size of the header */
+private static final int HEADER = 16;
+
+/** The state kept in memory for warm starts, or null */
+private static ChunkOutputStream warmState = null;
+
+/**
+* The copy of the state kept for warm starts, if the nodes could be
+* copied by cloning them, or null
+*/
+private static Checkpoint warmCopy = null;
+
+/** True if the state for warm starts has been kept */
+private static boolean warmStored = false;
+
+/** The simulation time of the checkpoint */
+private long time;
+
+/** The capacity of the network */
+private int capacity;
+
+/** The nodes of the network */
+private Node[] nodes;
+
+/** The next ID of {@link GeneralNode} */
+private long counterID;
+
+/** The random generator */
+private ExtendedRandom random;
+
+/** The number of events */
+private int size = 0;
+
+/** The times of the events */
+private long[] times = new long[16];
+
+/** The priorities of the events */
+private long[] priorities = new long[16];
+
+/** The events */
+private Object[] events = new Object[16];
+
+/** The destination nodes of the events */
+private Node[] eventNodes = new Node[16];
+
+/** The destination protocols of the events */
+private byte[] pids = new byte[16];
+
+
+// ====================== initialization ===========================
+// =================================================================
+
+
+/**
+* Creates an empty checkpoint. The events have to be added with
+* {@link #add}, the rest of the state is taken by {@link #write}.
+*/
+public Checkpoint() {}
+
+
+// ======================== methods =================================
+// ==================================================================
+
+
+/**
+* Returns the schedule of the checkpoints defined by
+* {@value #PAR_CHECKPOINT}, or null if checkpoints are not taken.
+*/
+public static Scheduler getSchedule() {
+
+	if( !Configuration.contains(PAR_CHECKPOINT) ) return null;
+	return new Scheduler(PAR_CHECKPOINT, false);
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Checks that the nodes can be serialized, if {@value #PAR_CHECKPOINT} is
+* set, or if {@value #PAR_WARMSTART} is set and the state may not be kept by
+* cloning the nodes (see {@link #storeWarmStart}). The prototype node is
+* serialized, with its protocols, and discarded. Called by the engines
+* after constructing the network, and by {@link #resume}.
+* @throws IllegalParameterException if a class reached from the prototype
+* node is not serializable
+*/
+public static void check() {
+
+	String par = null;
+	if( Configuration.contains(PAR_CHECKPOINT) ) par = PAR_CHECKPOINT;
+	else if( isWarmStart() && (Configuration.contains(PAR_WARMSTART_FILE) ||
+		!(Network.getPrototype() instanceof GeneralNode)) )
+		par = PAR_WARMSTART;
+	if( par == null ) return;
+
+	try {
+		NodeOutputStream out = new NodeOutputStream(new OutputStream() {
+			public void write(int b) {}
+			public void write(byte[] b, int off, int len) {}
+		});
+		out.writeObject(Network.getPrototype());
+		out.writeProtocols();
+		out.close();
+	} catch (NotSerializableException e) {
+		throw new IllegalParameterException(par, "The nodes cannot be "+
+			"serialized, class "+e.getMessage()+" is not Serializable");
+	} catch (IOException e) {
+		throw new IllegalParameterException(par,
+			"The nodes cannot be serialized: "+e);
+	}
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Adds an event of the event queue to the checkpoint, with the parameters
+* of {@link peersim.edsim.PriorityQ#add(long,Object,Node,byte,long)}.
+* Events are restored in the order they were added.
+*/
+public void add(long time, Object event, Node node, byte pid, long priority) {
+
+	if( size == times.length )
+	{
+		final int n = 2*size;
+		times = Arrays.copyOf(times, n);
+		priorities = Arrays.copyOf(priorities, n);
+		events = Arrays.copyOf(events, n);
+		eventNodes = Arrays.copyOf(eventNodes, n);
+		pids = Arrays.copyOf(pids, n);
+	}
+	times[size] = time;
+	priorities[size] = priority;
+	events[size] = event;
+	eventNodes[size] = node;
+	pids[size] = pid;
+	size++;
+}
+
+// ------------------------------------------------------------------
+
+/** Returns the number of events */
+public int size() { return size; }
+
+// ------------------------------------------------------------------
+
+/** Returns the time of the given event */
+public long getTime(int i) { return times[i]; }
+
+// ------------------------------------------------------------------
+
+/** Returns the priority of the given event */
+public long getPriority(int i) { return priorities[i]; }
+
+// ------------------------------------------------------------------
+
+/** Returns the given event */
+public Object getEvent(int i) { return events[i]; }
+
+// ------------------------------------------------------------------
+
+/** Returns the destination node of the given event */
+public Node getNode(int i) { return eventNodes[i]; }
+
+// ------------------------------------------------------------------
+
+/** Returns the destination protocol of the given event */
+public byte getPid(int i) { return pids[i]; }
+
+// ------------------------------------------------------------------
+
+/**
+* Writes the current state of the simulation and the events of this
+* checkpoint to the file given by {@value #PAR_CHECKPOINT}.
+*/
+public void write() {
+
+	final String file = Configuration.getString(PAR_CHECKPOINT);
+	final long start = System.currentTimeMillis();
+	try {
+		writeFile(file);
+	} catch (NotSerializableException e) {
+		throw new IllegalParameterException(PAR_CHECKPOINT, "Cannot write "+
+			"checkpoint, class "+e.getMessage()+" is not Serializable");
+	} catch (IOException e) {
+		throw new IllegalParameterException(PAR_CHECKPOINT,
+			"Cannot write checkpoint: "+e);
+	}
+	System.err.println("Checkpoint: wrote time "+CommonState.getTime()+
+		", "+Network.size()+" nodes and "+size+" events to "+file+
+		" in "+(System.currentTimeMillis()-start)+" ms");
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Reads the checkpoint given by {@value #PAR_RESUME}, and restores the
+* state of the simulation: the network (with a new prototype node), the
+* time and the random generator. The initializers are constructed, and
+* those listed in {@value #PAR_RESUME_INIT} are also run.
+* Returns the checkpoint, which contains the events
+* to be put in the event queue, or null if {@value #PAR_RESUME} is not set.
+*/
+public static Checkpoint resume() {
+
+	if( !Configuration.contains(PAR_RESUME) ) return null;
+	final String file = Configuration.getString(PAR_RESUME);
+	final long start = System.currentTimeMillis();
+	Checkpoint cp = null;
+	try {
+		cp = readFile(file);
+	} catch (IOException e) {
+		throw new IllegalParameterException(PAR_RESUME,
+			"Cannot read checkpoint: "+e);
+	} catch (ClassNotFoundException e) {
+		throw new IllegalParameterException(PAR_RESUME,
+			"Cannot read checkpoint: "+e);
+	}
+	System.err.println("Checkpoint: read time "+cp.time+", "+
+		cp.nodes.length+" nodes and "+cp.size+" events from "+file+
+		" in "+(System.currentTimeMillis()-start)+" ms");
+
+	cp.restoreNetwork();
+	check();
+	runInitializers();
+	CommonState.setRandom(cp.random);
+	CommonState.setTime(cp.time);
+	return cp;
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Returns true if the initial state of the first experiment is used by the
+* later ones, see {@value #PAR_WARMSTART}.
+*/
+public static boolean isWarmStart() {
+
+	return Configuration.contains(PAR_WARMSTART);
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Keeps the current state of the simulation and the events of this
+* checkpoint, to start the later experiments from it, if
+* {@value #PAR_WARMSTART} is set and no state has been kept yet.
+* Called by the engines after running the initializers.
+*/
+public void storeWarmStart() {
+
+	if( !isWarmStart() || warmStored ) return;
+	final long start = System.currentTimeMillis();
+	String where = "memory";
+	try {
+		if( Configuration.contains(PAR_WARMSTART_FILE) )
+		{
+			where = Configuration.getString(PAR_WARMSTART_FILE);
+			writeFile(where);
+		}
+		else if( isCopyable() )
+		{
+			warmCopy = copy(currentNodes());
+			where += " (cloned)";
+		}
+		else
+		{
+			ChunkOutputStream out = new ChunkOutputStream();
+			writeTo(out);
+			warmState = out;
+			where += " ("+out.size()+" bytes)";
+		}
+	} catch (NotSerializableException e) {
+		throw new IllegalParameterException(PAR_WARMSTART, "Cannot store "+
+			"the initial state, class "+e.getMessage()+" is not Serializable");
+	} catch (IOException e) {
+		throw new IllegalParameterException(PAR_WARMSTART,
+			"Cannot store the initial state: "+e);
+	}
+	warmStored = true;
+	System.err.println("Checkpoint: stored initial state with "+
+		Network.size()+" nodes and "+size+" events in "+where+
+		" in "+(System.currentTimeMillis()-start)+" ms");
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Restores a copy of the state kept by {@link #storeWarmStart}: the
+* network (with a new prototype node) and the time, but not the random
+* generator, so each experiment continues with its own seed. Returns the
+* checkpoint, which contains the events to be put in the event queue, or
+* null if no state has been kept.
+*/
+public static Checkpoint warmStart() {
+
+	if( !warmStored ) return null;
+	final long start = System.currentTimeMillis();
+	Checkpoint cp = null;
+	try {
+		if( warmCopy != null )
+			cp = warmCopy.copy(warmCopy.nodes);
+		else if( warmState != null )
+			cp = readFrom(warmState.getInputStream());
+		else
+			cp = readFile(Configuration.getString(PAR_WARMSTART_FILE));
+	} catch (IOException e) {
+		throw new IllegalParameterException(PAR_WARMSTART,
+			"Cannot read the initial state: "+e);
+	} catch (ClassNotFoundException e) {
+		throw new IllegalParameterException(PAR_WARMSTART,
+			"Cannot read the initial state: "+e);
+	}
+	System.err.println("Checkpoint: copied initial state with "+
+		cp.nodes.length+" nodes and "+cp.size+" events in "+
+		(System.currentTimeMillis()-start)+" ms");
+
+	cp.restoreNetwork();
+	CommonState.setTime(cp.time);
+	return cp;
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Discards the state kept for warm starts, so that the next experiment
+* runs the initializers. Called by {@link peersim.Simulator} before
+* running the experiments of a configuration.
+*/
+public static void discardWarmStart() {
+
+	warmCopy = null;
+	warmState = null;
+	warmStored = false;
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Returns true if the current network and the events of this checkpoint
+* can be copied by {@link NetworkCopy}. The time, the capacity and the
+* node IDs of the current state are recorded as a side effect.
+*/
+private boolean isCopyable() {
+
+	time = CommonState.getTime();
+	capacity = Network.getCapacity();
+	counterID = GeneralNode.getCounterID();
+	return NetworkCopy.isCopyable(currentNodes(), events, size);
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Returns a checkpoint with the time, capacity and events of this one,
+* and with copies of the given nodes. The events are shared, and refer to
+* the copies of their nodes.
+*/
+private Checkpoint copy(Node[] from) {
+
+	NetworkCopy nc = new NetworkCopy(from);
+	Checkpoint cp = new Checkpoint();
+	cp.time = time;
+	cp.capacity = capacity;
+	cp.counterID = counterID;
+	cp.nodes = nc.getNodes();
+	for(int i=0; i<size; ++i)
+		cp.add(times[i], events[i], nc.map(eventNodes[i]), pids[i],
+			priorities[i]);
+	nc.finish();
+	return cp;
+}
+
+// ------------------------------------------------------------------
+
+/** Returns the nodes of the network */
+private static Node[] currentNodes() {
+
+	Node[] nodes = new Node[Network.size()];
+	for(int i=0; i<nodes.length; ++i) nodes[i] = Network.get(i);
+	return nodes;
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Populates the network with the nodes of this checkpoint, and makes sure
+* that new nodes get new IDs.
+*/
+private void restoreNetwork() {
+
+	Node[] n = new Node[Math.max(capacity, nodes.length)];
+	System.arraycopy(nodes, 0, n, 0, nodes.length);
+	Network.restore(n, nodes.length);
+	if( nodes.length > 0 && nodes[0] instanceof ColumnNode &&
+	    Network.getPrototype() instanceof ColumnNode )
+		((ColumnNode) Network.getPrototype()).join((ColumnNode) nodes[0]);
+	nodes = null;
+	GeneralNode.setCounterID(
+		Math.max(GeneralNode.getCounterID(), counterID));
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Constructs the initializers, and runs the ones listed in
+* {@value #PAR_RESUME_INIT}.
+*/
+private static void runInitializers() {
+
+	Set<String> run = new HashSet<String>(Arrays.asList(
+		Configuration.getString(PAR_RESUME_INIT, "").split("[\\s,]+")));
+	Object[] inits = Configuration.getInstanceArray(PAR_INIT);
+	String names[] = Configuration.getNames(PAR_INIT);
+	for(int i=0; i<inits.length; ++i)
+	{
+		if( !run.contains(names[i].substring(PAR_INIT.length()+1)) )
+			continue;
+		System.err.println(
+		"- Running initializer " +names[i]+ ": " + inits[i].getClass());
+		((Control)inits[i]).execute();
+	}
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Writes this checkpoint to the given file. The file is written with a
+* temporary name and then renamed.
+*/
+private void writeFile(String file) throws IOException {
+
+	final Path tmp = Paths.get(file+".tmp");
+	FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+		StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	try {
+		writeTo(new BufferedOutputStream(Channels.newOutputStream(ch), 1<<16));
+		ch.force(false);
+	} finally {
+		ch.close();
+	}
+	Files.move(tmp, Paths.get(file), StandardCopyOption.REPLACE_EXISTING,
+		StandardCopyOption.ATOMIC_MOVE);
+}
+
+// ------------------------------------------------------------------
+
+/** Writes the header and the state to the given stream, and flushes it */
+private void writeTo(OutputStream os) throws IOException {
+
+	ByteBuffer header = ByteBuffer.allocate(HEADER);
+	header.putInt(MAGIC).putInt(VERSION).putLong(0);
+	os.write(header.array());
+	NodeOutputStream out = new NodeOutputStream(os);
+	writeState(out);
+	out.flush();
+}
+
+// ------------------------------------------------------------------
+
+/** Reads a checkpoint from the given file */
+private static Checkpoint readFile(String file)
+throws IOException, ClassNotFoundException {
+
+	FileChannel ch = FileChannel.open(Paths.get(file),
+		StandardOpenOption.READ);
+	try {
+		return readFrom(
+			new BufferedInputStream(Channels.newInputStream(ch), 1<<16));
+	} finally {
+		ch.close();
+	}
+}
+
+// ------------------------------------------------------------------
+
+/** Reads a checkpoint written by {@link #writeTo} */
+private static Checkpoint readFrom(InputStream is)
+throws IOException, ClassNotFoundException {
+
+	byte[] h = new byte[HEADER];
+	new DataInputStream(is).readFully(h);
+	ByteBuffer header = ByteBuffer.wrap(h);
+	if( header.getInt() != MAGIC )
+		throw new IOException("not a checkpoint file");
+	int version = header.getInt();
+	if( version != VERSION )
+		throw new IOException("unsupported version "+version);
+	Checkpoint cp = new Checkpoint();
+	cp.readState(new NodeInputStream(is));
+	return cp;
+}
+
+// ------------------------------------------------------------------
+
+/** Writes the state of the simulation and the events */
+private void writeState(NodeOutputStream out) throws IOException {
+
+	out.writeLong(CommonState.getTime());
+	out.writeLong(GeneralNode.getCounterID());
+	out.writeObject(CommonState.getRandom());
+	out.writeInt(Network.getCapacity());
+	out.writeObject(currentNodes());
+	out.writeInt(size);
+	out.writeObject(Arrays.copyOf(times, size));
+	out.writeObject(Arrays.copyOf(priorities, size));
+	out.writeObject(Arrays.copyOf(pids, size));
+	out.writeObject(Arrays.copyOf(eventNodes, size));
+	out.writeObject(Arrays.copyOf(events, size));
+	out.writeProtocols();
+}
+
+// ------------------------------------------------------------------
+
+/** Reads the state written by {@link #writeState} */
+private void readState(NodeInputStream in)
+throws IOException, ClassNotFoundException {
+
+	time = in.readLong();
+	counterID = in.readLong();
+	random = (ExtendedRandom) in.readObject();
+	capacity = in.readInt();
+	nodes = (Node[]) in.readObject();
+	size = in.readInt();
+	times = (long[]) in.readObject();
+	priorities = (long[]) in.readObject();
+	pids = (byte[]) in.readObject();
+	eventNodes = (Node[]) in.readObject();
+	events = (Object[]) in.readObject();
+	in.readProtocols();
+}
+
+
+// ======================== streams =================================
+// ==================================================================
+
+
+/**
+* Object stream that collects the {@link GeneralNode}s and
+* {@link ColumnNode}s it writes, to write their protocols afterwards.
+*/
+private static class NodeOutputStream extends ObjectOutputStream {
+
+	/** The nodes whose protocols have not been written yet */
+	private final ArrayDeque<Node> pending = new ArrayDeque<Node>();
+
+	NodeOutputStream(OutputStream out) throws IOException {
+
+		super(out);
+		enableReplaceObject(true);
+	}
+
+	/** Called once for each object, before writing it */
+	protected Object replaceObject(Object obj) {
+
+		if( obj instanceof GeneralNode || obj instanceof ColumnNode )
+			pending.add((Node) obj);
+		return obj;
+	}
+
+	/**
+	* Writes the protocols of the nodes written so far, including the nodes
+	* reached through the protocols, followed by null.
+	*/
+	void writeProtocols() throws IOException {
+
+		while( !pending.isEmpty() )
+		{
+			Node n = pending.poll();
+			writeObject(n);
+			writeObject(n instanceof GeneralNode ?
+				((GeneralNode) n).protocol : ((ColumnNode) n).protocol);
+		}
+		writeObject(null);
+	}
+}
+
+// ------------------------------------------------------------------
+
+/** Object stream that reads the protocols written by NodeOutputStream */
+private static class NodeInputStream extends ObjectInputStream {
+
+	NodeInputStream(InputStream in) throws IOException { super(in); }
+
+	/** Reads the protocols of the nodes */
+	void readProtocols() throws IOException, ClassNotFoundException {
+
+		Node n;
+		while( (n = (Node) readObject()) != null )
+		{
+			Protocol[] p = (Protocol[]) readObject();
+			if( n instanceof GeneralNode ) ((GeneralNode) n).protocol = p;
+			else ((ColumnNode) n).protocol = p;
+		}
+	}
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Output stream that keeps the data in memory in chunks, so that it is not
+* copied when it grows, and it can be larger than an array.
+*/
+private static class ChunkOutputStream extends OutputStream {
+
+	/** The size of a chunk */
+	private static final int CHUNK = 1<<20;
+
+	/** The chunks, all full except the last one */
+	private final ArrayList<byte[]> chunks = new ArrayList<byte[]>();
+
+	/** The number of bytes in the last chunk */
+	private int last = CHUNK;
+
+	public void write(int b) {
+
+		if( last == CHUNK ) { chunks.add(new byte[CHUNK]); last = 0; }
+		chunks.get(chunks.size()-1)[last++] = (byte) b;
+	}
+
+	public void write(byte[] b, int off, int len) {
+
+		while( len > 0 )
+		{
+			if( last == CHUNK ) { chunks.add(new byte[CHUNK]); last = 0; }
+			final int n = Math.min(len, CHUNK-last);
+			System.arraycopy(b, off, chunks.get(chunks.size()-1), last, n);
+			last += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/** Returns the number of bytes written */
+	long size() { return (long) CHUNK*(chunks.size()-1) + last; }
+
+	/** Returns a new stream that reads the bytes written */
+	InputStream getInputStream() {
+
+		return new InputStream() {
+
+			/** The current chunk */
+			private int chunk = 0;
+
+			/** The position in the current chunk */
+			private int pos = 0;
+
+			/** Returns the number of bytes left in the current chunk */
+			private int available(int chunk) {
+
+				if( chunk >= chunks.size() ) return 0;
+				return (chunk == chunks.size()-1 ? last : CHUNK) - pos;
+			}
+
+			public int read() {
+
+				if( available(chunk) == 0 )
+				{
+					if( chunk >= chunks.size()-1 ) return -1;
+					chunk++;
+					pos = 0;
+				}
+				return chunks.get(chunk)[pos++] & 0xff;
+			}
+
+			public int read(byte[] b, int off, int len) {
+
+				if( len == 0 ) return 0;
+				if( available(chunk) == 0 )
+				{
+					if( chunk >= chunks.size()-1 ) return -1;
+					chunk++;
+					pos = 0;
+				}
+				final int n = Math.min(len, available(chunk));
+				System.arraycopy(chunks.get(chunk), pos, b, off, n);
+				pos += n;
+				return n;
+			}
+		};
+	}
+}
+
+}
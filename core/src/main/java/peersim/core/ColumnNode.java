@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.core;
+
+import java.io.*;
+import peersim.config.*;
+
+/**
+* A {@link Node} that stores the state of its {@link ColumnProtocol}s
+* column-wise in a {@link ColumnStore} shared by all the nodes cloned from
+* the same prototype, instead of in one object per protocol and node like
+* {@link GeneralNode}. Each node owns a slot of the store, which is the
+* handle of its state. For column protocols, {@link #getProtocol} returns
+* a new view of the state bound to the slot of the node, which is not
+* kept by the node (see {@link ColumnProtocol}). For the other protocols
+* it returns the node's own instance, like {@link GeneralNode}.
+* So, if all protocols are column protocols, the only per node objects are
+* the nodes themselves, and each state field takes as many bytes per node
+* as its primitive type in its column.
+* <p>
+* The slot of a node is released as soon as the node is dead, and the
+* node gets slot -1, so the state of a dead node can no longer be accessed
+* through the node. Views obtained before the node died are still bound
+* to the released slot, which is why views must not be kept.
+* <p>
+* To use it, set <code>network.node</code> to this class.
+*/
+public class ColumnNode implements Node, Serializable {
+
+private static final long serialVersionUID = 1L;
+
+
+// ================= fields ========================================
+// =================================================================
+
+/**
+* The initial number of slots of the store. Defaults to
+* <code>network.initialCapacity</code> if set, otherwise to
+* <code>network.size</code>, plus one for the prototype.
+* @config
+*/
+private static final String PAR_CAPACITY = "capacity";
+
+/** The store of the state of the column protocols */
+private ColumnStore store;
+
+/**
+* The prototype instances of the column protocols, shared by all the nodes.
+* Null for the other protocols.
+*/
+private ColumnProtocol[] columns;
+
+/**
+* The instances of the protocols that are not column protocols, null for
+* the column protocols. Null if all protocols are column protocols. They
+* are not serialized with the node, a {@link Checkpoint} writes them
+* separately to avoid deep recursion along the links of the overlay.
+*/
+transient Protocol[] protocol = null;
+
+/** The slot of this node in the store, -1 if the node is dead */
+private int slot;
+
+/** The index of this node in the {@link Network} */
+private int index;
+
+/** The fail state of the node */
+private int failstate = Fallible.OK;
+
+/** The ID of the node */
+private long ID;
+
+// ================ constructor and initialization =================
+// =================================================================
+
+/**
+* Used to construct the prototype node. Creates the store and reads the
+* protocol components (components that have type
+* {@value peersim.core.Node#PAR_PROT}) from the configuration.
+*/
+public ColumnNode(String prefix) {
+
+	int capacity = Configuration.getInt(prefix+"."+PAR_CAPACITY,
+		Configuration.getInt(Network.PAR_MAXSIZE,
+		Configuration.getInt(Network.PAR_SIZE))+1);
+	store = new ColumnStore(capacity);
+	slot = store.allocate();
+
+	String[] names = Configuration.getNames(PAR_PROT);
+	CommonState.setNode(this);
+	ID=nextID();
+	columns = new ColumnProtocol[names.length];
+	for (int i=0; i < names.length; i++) {
+		CommonState.setPid(i);
+		Protocol p = (Protocol)
+			Configuration.getInstance(names[i]);
+		if( p instanceof ColumnProtocol )
+		{
+			columns[i] = (ColumnProtocol) p;
+		}
+		else
+		{
+			if( protocol == null ) protocol = new Protocol[names.length];
+			protocol[i] = p;
+		}
+	}
+}
+
+
+// -----------------------------------------------------------------
+
+/**
+* Clones the node. The new node gets a new slot, where the state of the
+* column protocols of this node is copied. The other protocols are cloned.
+*/
+public Object clone() {
+
+	ColumnNode result = null;
+	try { result=(ColumnNode)super.clone(); }
+	catch( CloneNotSupportedException e ) {} // never happens
+	result.slot = store.allocate();
+	store.copy(slot, result.slot);
+	CommonState.setNode(result);
+	result.ID=nextID();
+	if( protocol != null )
+	{
+		result.protocol = new Protocol[protocol.length];
+		for(int i=0; i<protocol.length; ++i) {
+			if( protocol[i] == null ) continue;
+			CommonState.setPid(i);
+			result.protocol[i] = (Protocol)protocol[i].clone();
+		}
+	}
+	return result;
+}
+
+// -----------------------------------------------------------------
+
+/**
+* Returns the next unique ID. IDs are counted separately in each
+* independent {@link SimulationContext}.
+*/
+private long nextID() {
+
+	return SimulationContext.current().nextNodeID();
+}
+
+// =============== public methods ==================================
+// =================================================================
+
+
+/**
+* Sets the fail state. When the node becomes dead,
+* {@link Cleanable#onKill} is called on the protocols, then the slot is
+* released and the slot of the node becomes -1.
+*/
+public void setFailState(int failState) {
+
+	// after a node is dead, all operations on it are errors by definition
+	if(failstate==DEAD && failState!=DEAD) throw new IllegalStateException(
+		"Cannot change fail state: node is already DEAD");
+	switch(failState)
+	{
+		case OK:
+			failstate=OK;
+			break;
+		case DEAD:
+			if( failstate==DEAD ) break;
+			index = -1;
+			failstate = DEAD;
+			CommonState.setNode(this);
+			for(int i=0;i<columns.length;++i) {
+				CommonState.setPid(i);
+				Protocol p = getProtocol(i);
+				if(p instanceof Cleanable)
+					((Cleanable)p).onKill();
+			}
+			store.release(slot);
+			slot = -1;
+			break;
+		case DOWN:
+			failstate = DOWN;
+			break;
+		default:
+			throw new IllegalArgumentException(
+				"failState="+failState);
+	}
+}
+
+// -----------------------------------------------------------------
+
+public int getFailState() { return failstate; }
+
+// ------------------------------------------------------------------
+
+public boolean isUp() { return failstate==OK; }
+
+// -----------------------------------------------------------------
+
+/**
+* Returns a new view of the state of this node for column protocols, and
+* the instance of this node for the other protocols.
+*/
+public Protocol getProtocol(int i) {
+
+	final ColumnProtocol c = columns[i];
+	return c != null ? c.view(slot) : protocol[i];
+}
+
+//------------------------------------------------------------------
+
+public int protocolSize() { return columns.length; }
+
+//------------------------------------------------------------------
+
+public int getIndex() { return index; }
+
+//------------------------------------------------------------------
+
+public void setIndex(int index) { this.index = index; }
+
+//------------------------------------------------------------------
+
+/**
+* Returns the ID of this node. The IDs are generated using a counter
+* (i.e. they are not random).
+*/
+public long getID() { return ID; }
+
+//------------------------------------------------------------------
+
+/** Returns the slot of this node in the store */
+public int getSlot() { return slot; }
+
+//------------------------------------------------------------------
+
+/** Returns the store shared by all the nodes cloned from the prototype */
+public ColumnStore getStore() { return store; }
+
+//------------------------------------------------------------------
+
+public String toString()
+{
+	StringBuffer buffer = new StringBuffer();
+	buffer.append("ID: "+ID+" index: "+index+" slot: "+slot+"\n");
+	for(int i=0; slot>=0 && i<columns.length; ++i)
+	{
+		buffer.append("protocol["+i+"]="+getProtocol(i)+"\n");
+	}
+	return buffer.toString();
+}
+
+//------------------------------------------------------------------
+
+/**
+* Moves the state of the column protocols of this node to a new slot of
+* the store of the given node, and makes this node use the column
+* prototypes of that node. Used to make a new prototype node produce
+* nodes that share the store of nodes restored from a {@link Checkpoint}.
+* The two nodes must have been created from the same configuration.
+*/
+void join(ColumnNode other) {
+
+	final int s = other.store.allocate();
+	other.store.copy(store, slot, s);
+	store.release(slot);
+	store = other.store;
+	columns = other.columns;
+	slot = s;
+}
+
+//------------------------------------------------------------------
+
+/** Implemented as <code>(int)getID()</code>. */
+public int hashCode() { return (int)getID(); }
+
+}
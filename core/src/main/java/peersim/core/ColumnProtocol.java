@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.core;
+
+/**
+* A protocol whose state is stored in the {@link ColumnStore} of a
+* {@link ColumnNode} network instead of in the fields of one object per node.
+* The prototype instance, created from the configuration, declares its
+* state fields as columns in its constructor through the
+* <code>add...Column</code> methods, and keeps the returned columns in
+* its (final) fields. So a subclass must not have per node state in its
+* fields.
+* <p>
+* Nodes do not store instances of the protocol. The state of a node is
+* addressed through the slot of the node (see {@link #getSlot(Node)}):
+* the methods that get the node as a parameter, like
+* {@link peersim.cdsim.CDProtocol#nextCycle}, should read and write the
+* columns at the slots of the node and of its peers directly.
+* For the code that only has the node,
+* {@link Node#getProtocol} returns a <em>view</em> of the state of the
+* node, which is a shallow copy of the prototype bound to the slot of
+* the node (see {@link #getSlot()}). A new view is returned at each call,
+* and it is not referenced by the node, so it should be used right away
+* and not kept: it stays bound to the slot, which is given to another node
+* once the node is dead (see {@link ColumnNode#setFailState}). Keep
+* references to the node instead.
+* <p>
+* The state of a new node is copied from the node it is cloned from, so
+* {@link #clone} should not be overridden.
+* <p>
+* This class can be used only if <code>network.node</code> is
+* {@link ColumnNode}.
+*/
+public abstract class ColumnProtocol implements Protocol, java.io.Serializable
+{
+
+private static final long serialVersionUID = 1L;
+
+// ======================= fields ==================================
+// =================================================================
+
+/** The slot of the node whose state is viewed, -1 for the prototype */
+private int slot = -1;
+
+// ======================== initialization =========================
+// =================================================================
+
+/** Creates the prototype. Subclasses declare their columns here. */
+protected ColumnProtocol() {}
+
+// -----------------------------------------------------------------
+
+/**
+ * Returns the store of the node under construction, which is the
+ * current node.
+ */
+private static ColumnStore store()
+{
+	Node n = CommonState.getNode();
+	if( !(n instanceof ColumnNode) ) throw new IllegalStateException(
+		"Column protocols can be used only with "+
+		ColumnNode.class.getName()+" nodes");
+	return ((ColumnNode)n).getStore();
+}
+
+// -----------------------------------------------------------------
+
+/** Declares a column of doubles. Call only from the constructor. */
+protected static ColumnStore.DoubleColumn addDoubleColumn()
+{
+	return store().addDoubleColumn();
+}
+
+/** Declares a column of longs. Call only from the constructor. */
+protected static ColumnStore.LongColumn addLongColumn()
+{
+	return store().addLongColumn();
+}
+
+/** Declares a column of ints. Call only from the constructor. */
+protected static ColumnStore.IntColumn addIntColumn()
+{
+	return store().addIntColumn();
+}
+
+/** Declares a column of bytes. Call only from the constructor. */
+protected static ColumnStore.ByteColumn addByteColumn()
+{
+	return store().addByteColumn();
+}
+
+// ======================= methods =================================
+// =================================================================
+
+/** Returns the slot of the node whose state is viewed */
+protected final int getSlot() { return slot; }
+
+// -----------------------------------------------------------------
+
+/**
+ * Returns the slot of the given node, which must be a {@link ColumnNode}.
+ * It is -1 if the node is dead.
+ */
+protected static int getSlot(Node node)
+{
+	return ((ColumnNode) node).getSlot();
+}
+
+// -----------------------------------------------------------------
+
+/** Returns a new view of this prototype, bound to the given slot */
+final ColumnProtocol view(int slot)
+{
+	ColumnProtocol v = (ColumnProtocol) clone();
+	v.slot = slot;
+	return v;
+}
+
+// -----------------------------------------------------------------
+
+/** Returns a view of the same slot */
+public Object clone()
+{
+	try { return super.clone(); }
+	catch( CloneNotSupportedException e ) { return null; } // never happens
+}
+
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.core;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Column-wise storage of the state of {@link ColumnProtocol}s.
+ * Each state field declared by a protocol is a column: a primitive array
+ * with one element per node. A node is identified by its <em>slot</em>,
+ * which is the index of its elements in all the columns. Unlike the index
+ * of the node in the {@link Network}, the slot of a node does not change
+ * while the node is alive. The slot of a dead node is released at once and
+ * can be given to a new node, see {@link ColumnNode#setFailState}.
+ * <p>
+ * All the nodes of a network built from the same {@link ColumnNode}
+ * prototype share the same store. The store is not thread safe: slots
+ * must be allocated and released by one thread at a time, while the
+ * elements of different slots can be accessed concurrently.
+ * <p>
+ * The store is serializable, so that a {@link ColumnNode} network can be
+ * saved in a {@link Checkpoint}.
+ * @see ColumnNode
+ */
+public class ColumnStore implements Serializable
+{
+
+private static final long serialVersionUID = 1L;
+
+// ======================= fields ==================================
+// =================================================================
+
+/** The columns */
+private final ArrayList<Column> columns = new ArrayList<Column>();
+
+/** The number of elements of each column */
+private int capacity;
+
+/** The first slot that has never been allocated */
+private int top = 0;
+
+/** The released slots */
+private int[] free = new int[16];
+
+/** The number of released slots */
+private int nfree = 0;
+
+// ======================== initialization =========================
+// =================================================================
+
+/**
+ * Creates an empty store.
+ * @param capacity the initial number of slots of the columns
+ */
+public ColumnStore(int capacity)
+{
+	this.capacity = Math.max(capacity, 1);
+}
+
+// ======================= methods =================================
+// =================================================================
+
+/** Adds a column of doubles, initialized to 0 */
+public DoubleColumn addDoubleColumn()
+{
+	return add(new DoubleColumn());
+}
+
+// -----------------------------------------------------------------
+
+/** Adds a column of longs, initialized to 0 */
+public LongColumn addLongColumn()
+{
+	return add(new LongColumn());
+}
+
+// -----------------------------------------------------------------
+
+/** Adds a column of ints, initialized to 0 */
+public IntColumn addIntColumn()
+{
+	return add(new IntColumn());
+}
+
+// -----------------------------------------------------------------
+
+/** Adds a column of bytes, initialized to 0 */
+public ByteColumn addByteColumn()
+{
+	return add(new ByteColumn());
+}
+
+// -----------------------------------------------------------------
+
+private <T extends Column> T add(T c)
+{
+	c.resize(capacity);
+	columns.add(c);
+	return c;
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Returns a free slot, reusing released slots first. The columns are
+ * enlarged if necessary. The elements of the slot are not initialized.
+ */
+public int allocate()
+{
+	if( nfree > 0 ) return free[--nfree];
+	if( top == capacity )
+	{
+		capacity = 3*capacity/2+1;
+		for(int i=0; i<columns.size(); ++i) columns.get(i).resize(capacity);
+	}
+	return top++;
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Releases the given slot, which can be returned by later calls to
+ * {@link #allocate}.
+ */
+public void release(int slot)
+{
+	if( nfree == free.length ) free = Arrays.copyOf(free, 2*nfree);
+	free[nfree++] = slot;
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Copies the elements of all columns from one slot to another.
+ */
+public void copy(int from, int to)
+{
+	for(int i=0; i<columns.size(); ++i) columns.get(i).copy(from, to);
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Copies the elements of all columns from a slot of another store, which
+ * must have the same columns, to a slot of this store.
+ */
+public void copy(ColumnStore from, int fromSlot, int to)
+{
+	for(int i=0; i<columns.size(); ++i)
+		columns.get(i).copy(from.columns.get(i), fromSlot, to);
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Returns the number of slots currently in use.
+ */
+public int size() { return top-nfree; }
+
+// -----------------------------------------------------------------
+
+/**
+ * Returns the number of elements of each column. This is also the upper
+ * bound of the slots that have been allocated.
+ */
+public int getCapacity() { return capacity; }
+
+// -----------------------------------------------------------------
+
+/** Returns the number of columns */
+public int columns() { return columns.size(); }
+
+// ===================== columns ===================================
+// =================================================================
+
+/**
+ * A column of the store.
+ */
+public static abstract class Column implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	Column() {}
+
+	/** Sets the number of elements, preserving the content */
+	abstract void resize(int capacity);
+
+	/** Copies an element */
+	abstract void copy(int from, int to);
+
+	/** Copies an element of a column of the same type */
+	abstract void copy(Column src, int from, int to);
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * A column of doubles. The array returned by {@link #array} can be used for
+ * bulk access, but it is replaced when the store grows.
+ */
+public static final class DoubleColumn extends Column
+{
+	private static final long serialVersionUID = 1L;
+
+	private double[] data = new double[0];
+
+	DoubleColumn() {}
+
+	void resize(int capacity) { data = Arrays.copyOf(data, capacity); }
+
+	void copy(int from, int to) { data[to] = data[from]; }
+
+	void copy(Column src, int from, int to)
+	{
+		data[to] = ((DoubleColumn) src).data[from];
+	}
+
+	/** Returns the element of the given slot */
+	public double get(int slot) { return data[slot]; }
+
+	/** Sets the element of the given slot */
+	public void set(int slot, double value) { data[slot] = value; }
+
+	/** Returns the underlying array, indexed by slot */
+	public double[] array() { return data; }
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * A column of longs. The array returned by {@link #array} can be used for
+ * bulk access, but it is replaced when the store grows.
+ */
+public static final class LongColumn extends Column
+{
+	private static final long serialVersionUID = 1L;
+
+	private long[] data = new long[0];
+
+	LongColumn() {}
+
+	void resize(int capacity) { data = Arrays.copyOf(data, capacity); }
+
+	void copy(int from, int to) { data[to] = data[from]; }
+
+	void copy(Column src, int from, int to)
+	{
+		data[to] = ((LongColumn) src).data[from];
+	}
+
+	/** Returns the element of the given slot */
+	public long get(int slot) { return data[slot]; }
+
+	/** Sets the element of the given slot */
+	public void set(int slot, long value) { data[slot] = value; }
+
+	/** Returns the underlying array, indexed by slot */
+	public long[] array() { return data; }
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * A column of ints. The array returned by {@link #array} can be used for
+ * bulk access, but it is replaced when the store grows.
+ */
+public static final class IntColumn extends Column
+{
+	private static final long serialVersionUID = 1L;
+
+	private int[] data = new int[0];
+
+	IntColumn() {}
+
+	void resize(int capacity) { data = Arrays.copyOf(data, capacity); }
+
+	void copy(int from, int to) { data[to] = data[from]; }
+
+	void copy(Column src, int from, int to)
+	{
+		data[to] = ((IntColumn) src).data[from];
+	}
+
+	/** Returns the element of the given slot */
+	public int get(int slot) { return data[slot]; }
+
+	/** Sets the element of the given slot */
+	public void set(int slot, int value) { data[slot] = value; }
+
+	/** Returns the underlying array, indexed by slot */
+	public int[] array() { return data; }
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * A column of bytes, which can also be used for booleans.
+ * The array returned by {@link #array} can be used for
+ * bulk access, but it is replaced when the store grows.
+ */
+public static final class ByteColumn extends Column
+{
+	private static final long serialVersionUID = 1L;
+
+	private byte[] data = new byte[0];
+
+	ByteColumn() {}
+
+	void resize(int capacity) { data = Arrays.copyOf(data, capacity); }
+
+	void copy(int from, int to) { data[to] = data[from]; }
+
+	void copy(Column src, int from, int to)
+	{
+		data[to] = ((ByteColumn) src).data[from];
+	}
+
+	/** Returns the element of the given slot */
+	public byte get(int slot) { return data[slot]; }
+
+	/** Sets the element of the given slot */
+	public void set(int slot, byte value) { data[slot] = value; }
+
+	/** Returns the underlying array, indexed by slot */
+	public byte[] array() { return data; }
+}
+
+}
@@ -23,9 +23,9 @@ import peersim.util.*;
 
 /**
  * This is the common state of the simulation all objects see.
- * Static singleton. One of its purposes is
- * simplification of parameter structures and increasing efficiency by putting
- * state information here instead of passing parameters.
+ * Static facade of the current {@link SimulationContext}. One of its purposes
+ * is simplification of parameter structures and increasing efficiency by
+ * putting state information here instead of passing parameters.
  *<p>
  * <em>The set methods should not be used by applications</em>,
  * they are for system
@@ -57,40 +57,6 @@ public static final int PHASE_UNKNOWN = 0;
 // ======================= fields ==================================
 // =================================================================
 
-/**
- * Current time. Note that this value is simulator independent, all simulation
- * models have a notion related to time. For example, in the cycle based model,
- * the cycle id gives time, while in even driven simulations there is a more
- * realistic notion of time.
- */
-private static long time = 0;
-
-/**
- * The maximal value {@link #time} can ever take.
- */
-private static long endtime = -1;
-
-/**
- * Number of used bits in the long representation of time, calculated
- * based on the endtime.
- */
-private static int toshift = -1;
-
-/**
- * Information about where exactly the simulation is.
- */
-private static int phase = PHASE_UNKNOWN;
-
-/**
- * The current pid.
- */
-private static int pid;
-
-/**
- * The current node.
- */
-private static Node node;
-
 /**
 * This source of randomness should be used by all components.
 * This field is public because it doesn't matter if it changes
@@ -98,9 +64,20 @@ private static Node node;
 * randomness are used within the system. Besides, we can save the cost
 * of calling a wrapper method, which is important because this is needed
 * very often.
+* <p>
+* Normally this is the generator of the default {@link SimulationContext}.
+* Once a context has been bound to a thread, it is replaced by a generator
+* that dispatches all calls to the generator of the context of the calling
+* thread.
 */
 public static ExtendedRandom r = null;
 
+/**
+ * The generator of the default context, as installed in {@link #r} before
+ * it was replaced by the dispatching generator.
+ */
+private static ExtendedRandom defaultRandom = null;
+
 
 // ======================== initialization =========================
 // =================================================================
@@ -150,7 +127,7 @@ protected CommonState() {}
  */
 public static long getTime()
 {
-	return time;
+	return SimulationContext.current().getTime();
 }
 
 //-----------------------------------------------------------------
@@ -167,7 +144,7 @@ public static long getTime()
  */
 public static int getIntTime()
 {
-	return (int)(time>>toshift);
+	return SimulationContext.current().getIntTime();
 }
 
 //-----------------------------------------------------------------
@@ -177,7 +154,7 @@ public static int getIntTime()
  */
 public static void setTime(long t)
 {
-	time = t;
+	SimulationContext.current().setTime(t);
 }
 
 //-----------------------------------------------------------------
@@ -189,7 +166,7 @@ public static void setTime(long t)
  */
 public static long getEndTime()
 {
-	return endtime;
+	return SimulationContext.current().getEndTime();
 }
 
 //-----------------------------------------------------------------
@@ -199,14 +176,7 @@ public static long getEndTime()
  */
 public static void setEndTime(long t)
 {
-	if( endtime >= 0 )
-		throw new RuntimeException("You can set endtime only once");
-	if( t < 0 )
-		throw new RuntimeException("No negative values are allowed");
-		
-	endtime = t;
-	toshift = 32-Long.numberOfLeadingZeros(t);
-	if( toshift<0 ) toshift = 0;
+	SimulationContext.current().setEndTime(t);
 }
 
 //-----------------------------------------------------------------
@@ -221,14 +191,14 @@ public static void setEndTime(long t)
  */
 public static int getPhase()
 {
-	return phase;
+	return SimulationContext.current().getPhase();
 }
 
 // -----------------------------------------------------------------
 
 public static void setPhase(int p)
 {
-	phase = p;
+	SimulationContext.current().setPhase(p);
 }
 
 // -----------------------------------------------------------------
@@ -239,7 +209,7 @@ public static void setPhase(int p)
 */
 public static int getPid()
 {
-	return pid;
+	return SimulationContext.current().getPid();
 }
 
 //-----------------------------------------------------------------
@@ -247,7 +217,7 @@ public static int getPid()
 /** Sets the current protocol identifier.*/
 public static void setPid(int p)
 {
-	pid = p;
+	SimulationContext.current().setPid(p);
 }
 
 //-----------------------------------------------------------------
@@ -258,7 +228,7 @@ public static void setPid(int p)
  */
 public static Node getNode()
 {
-	return node;
+	return SimulationContext.current().getNode();
 }
 
 //-----------------------------------------------------------------
@@ -266,17 +236,134 @@ public static Node getNode()
 /** Sets the current node */
 public static void setNode(Node n)
 {
-	node = n;
+	SimulationContext.current().setNode(n);
 }
 
 //-----------------------------------------------------------------
 
+/**
+ * Seeds the random generator of the current {@link SimulationContext}.
+ * If the context has no generator yet, it is created according to the
+ * configuration.
+ */
 public static void initializeRandom(long seed)
 {
-	if (r == null) {
-		r = (ExtendedRandom) Configuration.getInstance(PAR_RANDOM, new ExtendedRandom(seed));
+	SimulationContext ctx = SimulationContext.current();
+	ExtendedRandom cr = ctx.getRandom();
+	if (cr == null) {
+		cr = (ExtendedRandom) Configuration.getInstance(PAR_RANDOM, new ExtendedRandom(seed));
+		ctx.setRandom(cr);
+	}
+	cr.setSeed(seed);
+	if (ctx == SimulationContext.getDefault()) {
+		defaultRandom = cr;
+		if (r == null) r = cr;
+	}
+}
+
+//-----------------------------------------------------------------
+
+/**
+ * Returns the random generator used by the current thread, that is,
+ * {@link #r} or, if it dispatches to the generators of the contexts, the
+ * generator of the current {@link SimulationContext}.
+ */
+static ExtendedRandom getRandom()
+{
+	if (!(r instanceof ContextRandom)) return r;
+	ExtendedRandom cr = SimulationContext.current().getRandom();
+	return (cr == null ? defaultRandom : cr);
+}
+
+//-----------------------------------------------------------------
+
+/**
+ * Replaces the random generator of the current {@link SimulationContext}
+ * with the given one, which continues the sequence of a generator saved in
+ * a {@link Checkpoint}. If the generator of the default context is
+ * replaced, {@link #r} is also replaced, unless it dispatches to the
+ * generators of the contexts.
+ */
+static void setRandom(ExtendedRandom random)
+{
+	SimulationContext ctx = SimulationContext.current();
+	ctx.setRandom(random);
+	if (ctx == SimulationContext.getDefault()) {
+		defaultRandom = random;
+		if (!(r instanceof ContextRandom)) r = random;
+	}
+}
+
+//-----------------------------------------------------------------
+
+/**
+ * Replaces {@link #r} with a generator that dispatches to the generator of
+ * the context of the calling thread. Called when the first context is
+ * bound to a thread.
+ */
+static void installContextRandom()
+{
+	if (r instanceof ContextRandom) return;
+	if (r != null && r != defaultRandom)
+	{
+		// somebody replaced r: keep it as the default generator
+		SimulationContext.getDefault().setRandom(r);
+		defaultRandom = r;
+	}
+	r = new ContextRandom();
+}
+
+//-----------------------------------------------------------------
+
+/**
+ * Restores {@link #r} to the generator of the default context. Called when
+ * no thread has a bound context any more.
+ */
+static void uninstallContextRandom()
+{
+	if (r instanceof ContextRandom) r = defaultRandom;
+}
+
+//-----------------------------------------------------------------
+
+/**
+ * The random generator installed in {@link #r} while contexts are bound
+ * to threads. It delegates all calls to the generator of the context
+ * of the calling thread, or to the generator of the default context if the
+ * context of the calling thread has no generator.
+ */
+private static final class ContextRandom extends ExtendedRandom
+{
+	private static final long serialVersionUID = 1L;
+
+	/** False while the super constructor is running */
+	private final boolean ready;
+
+	ContextRandom() { super(0); ready = true; }
+
+	private ExtendedRandom get()
+	{
+		ExtendedRandom cr = SimulationContext.current().getRandom();
+		return (cr == null ? defaultRandom : cr);
+	}
+
+	protected int next(int bits) { return get().nextInt() >>> (32-bits); }
+	public int nextInt() { return get().nextInt(); }
+	public int nextInt(int n) { return get().nextInt(n); }
+	public long nextLong() { return get().nextLong(); }
+	public long nextLong(long n) { return get().nextLong(n); }
+	public double nextDouble() { return get().nextDouble(); }
+	public float nextFloat() { return get().nextFloat(); }
+	public boolean nextBoolean() { return get().nextBoolean(); }
+	public double nextGaussian() { return get().nextGaussian(); }
+	public void nextBytes(byte[] bytes) { get().nextBytes(bytes); }
+	public int nextPoisson(double mean) { return get().nextPoisson(mean); }
+	public long getLastSeed() { return get().getLastSeed(); }
+	public void setSeed(long seed)
+	{
+		// also called by the super constructor, which must be ignored
+		if( ready ) get().setSeed(seed);
 	}
-	r.setSeed(seed);
 }
 
 //-----------------------------------------------------------------
@@ -24,19 +24,20 @@ import peersim.config.*;
 * This is the default {@link Node} class that is used to compose the
 * {@link Network}.
 */
-public class GeneralNode implements Node {
+public class GeneralNode implements Node, java.io.Serializable {
+
+private static final long serialVersionUID = 1L;
 
 
 // ================= fields ========================================
 // =================================================================
 
-/** used to generate unique IDs */
-private static long counterID = -1;
-
 /**
-* The protocols on this node.
+* The protocols on this node. They are not serialized with the node, a
+* {@link Checkpoint} writes them separately to avoid deep recursion along
+* the links of the overlay.
 */
-protected Protocol[] protocol = null;
+protected transient Protocol[] protocol = null;
 
 /**
 * The current index of this node in the node
@@ -100,10 +101,45 @@ public Object clone() {
 
 // -----------------------------------------------------------------
 
-/** returns the next unique ID */
+/**
+* Returns a clone of this node with the same ID, without using a new ID.
+* Used by {@link NetworkCopy}.
+*/
+GeneralNode copy() {
+
+	final SimulationContext ctx = SimulationContext.current();
+	final long next = ctx.getNodeID();
+	GeneralNode result = (GeneralNode) clone();
+	result.ID = ID;
+	ctx.setNodeID(next);
+	return result;
+}
+
+// -----------------------------------------------------------------
+
+/**
+* Returns the next unique ID. IDs are counted separately in each
+* independent {@link SimulationContext}.
+*/
 private long nextID() {
 
-	return counterID++;
+	return SimulationContext.current().nextNodeID();
+}
+
+// -----------------------------------------------------------------
+
+/** Returns the next ID that will be assigned, for {@link Checkpoint}s */
+static long getCounterID() {
+
+	return SimulationContext.current().getNodeID();
+}
+
+// -----------------------------------------------------------------
+
+/** Sets the next ID that will be assigned, for {@link Checkpoint}s */
+static void setCounterID(long id) {
+
+	SimulationContext.current().setNodeID(id);
 }
 
 // =============== public methods ==================================
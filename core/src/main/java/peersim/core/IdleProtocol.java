@@ -26,9 +26,11 @@ import peersim.config.Configuration;
  * (topology). The only function of this protocol is to serve as a source of
  * neighborhood information for other protocols.
  */
-public class IdleProtocol implements Protocol, Linkable
+public class IdleProtocol implements Protocol, Linkable, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 // --------------------------------------------------------------------------
 // Parameters
 // --------------------------------------------------------------------------
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.core;
+
+import peersim.config.Configuration;
+
+/**
+ * A protocol that stores links, like {@link IdleProtocol}, and also keeps
+ * the indices of the neighbors in the {@link Network}. Above a given
+ * degree, membership is tested with an open addressing hash set of the
+ * indices instead of a linear scan. {@link OverlayGraph} reads the indices
+ * directly, so graph algorithms do not have to look up the index of each
+ * neighbor.
+ * <p>
+ * The indices change when the node array of the network is reordered:
+ * when the nodes are shuffled (see {@link Network#shuffle}), sorted or
+ * removed. So when the node array has been reordered since the last
+ * access (see {@link Network#getReorderCount}), the indices are first
+ * rebuilt from the node references, in time proportional to the degree.
+ * A neighbor that has been removed from the network keeps its link, like
+ * with {@link IdleProtocol}, but has no index (see
+ * {@link #getNeighborIndex}).
+ */
+public class IndexIdleProtocol
+implements Protocol, Linkable, java.io.Serializable
+{
+
+private static final long serialVersionUID = 1L;
+
+// --------------------------------------------------------------------------
+// Parameters
+// --------------------------------------------------------------------------
+
+/**
+ * Default init capacity
+ */
+private static final int DEFAULT_INITIAL_CAPACITY = 10;
+
+/**
+ * Default degree above which the hash set is used
+ */
+private static final int DEFAULT_HASH = 16;
+
+/**
+ * Initial capacity. Defaults to {@value #DEFAULT_INITIAL_CAPACITY}.
+ * @config
+ */
+private static final String PAR_INITCAP = "capacity";
+
+/**
+ * The degree above which a hash set of the neighbor indices is maintained
+ * to speed up {@link #contains} and {@link #addNeighbor}. Zero means that
+ * the set is never used. Defaults to {@value #DEFAULT_HASH}.
+ * @config
+ */
+private static final String PAR_HASH = "hash";
+
+/** Marks the empty entries of the hash set */
+private static final int EMPTY = -1;
+
+// --------------------------------------------------------------------------
+// Fields
+// --------------------------------------------------------------------------
+
+/** Indices of the neighbors, -1 for the neighbors not in the network */
+protected int[] neighbors;
+
+/** The neighbors */
+protected Node[] nodes;
+
+/** Actual number of neighbors in the array */
+protected int len;
+
+/**
+ * The hash set of the neighbor indices, with {@link #EMPTY} entries, or null
+ * if the degree is not above {@link #hash}. Its length is a power of two
+ * and it is at most half full.
+ */
+private int[] set = null;
+
+/** The degree above which {@link #set} is used, 0 for never */
+private final int hash;
+
+/**
+ * The value of {@link Network#getReorderCount} when the indices were last
+ * rebuilt.
+ */
+private transient int stamp = Network.getReorderCount();
+
+// --------------------------------------------------------------------------
+// Initialization
+// --------------------------------------------------------------------------
+
+public IndexIdleProtocol(String s)
+{
+	neighbors = new int[Configuration.getInt(s + "." + PAR_INITCAP,
+			DEFAULT_INITIAL_CAPACITY)];
+	nodes = new Node[neighbors.length];
+	hash = Configuration.getInt(s + "." + PAR_HASH, DEFAULT_HASH);
+	len = 0;
+}
+
+//--------------------------------------------------------------------------
+
+public Object clone()
+{
+	IndexIdleProtocol ip = null;
+	try { ip = (IndexIdleProtocol) super.clone(); }
+	catch( CloneNotSupportedException e ) {} // never happens
+	ip.neighbors = neighbors.clone();
+	ip.nodes = nodes.clone();
+	if( set != null ) ip.set = set.clone();
+	return ip;
+}
+
+// --------------------------------------------------------------------------
+// Methods
+// --------------------------------------------------------------------------
+
+public boolean contains(Node n)
+{
+	if( stamp != Network.getReorderCount() ) remap();
+	final int index = indexOf(n);
+	if( index >= 0 ) return containsIndex(index);
+	for (int i = 0; i < len; i++) {
+		if (nodes[i] == n)
+			return true;
+	}
+	return false;
+}
+
+// --------------------------------------------------------------------------
+
+/**
+ * Returns true if the node with the given index is a neighbor.
+ */
+public boolean containsIndex(int index)
+{
+	if( stamp != Network.getReorderCount() ) remap();
+	if( set != null )
+	{
+		final int mask = set.length-1;
+		for(int h = mix(index) & mask; set[h] != EMPTY; h = (h+1) & mask)
+			if( set[h] == index ) return true;
+		return false;
+	}
+	for (int i = 0; i < len; i++) {
+		if (neighbors[i] == index)
+			return true;
+	}
+	return false;
+}
+
+// --------------------------------------------------------------------------
+
+/** Adds given node if it is not already in the network. There is no limit
+* to the number of nodes that can be added. */
+public boolean addNeighbor(Node n)
+{
+	if( contains(n) ) return false;
+	if (len == neighbors.length) {
+		int[] temp = new int[3 * neighbors.length / 2 + 1];
+		System.arraycopy(neighbors, 0, temp, 0, len);
+		neighbors = temp;
+		Node[] ntemp = new Node[temp.length];
+		System.arraycopy(nodes, 0, ntemp, 0, len);
+		nodes = ntemp;
+	}
+	final int index = indexOf(n);
+	neighbors[len] = index;
+	nodes[len] = n;
+	len++;
+	if( set != null )
+	{
+		if( 2*len > set.length ) rehash();
+		else if( index >= 0 ) insert(index);
+	}
+	else if( hash > 0 && len > hash ) rehash();
+	return true;
+}
+
+// --------------------------------------------------------------------------
+
+/**
+ * Adds the node with the given index if it is not already a neighbor.
+ * @return true if the neighbor was added
+ */
+public boolean addNeighborIndex(int index)
+{
+	return addNeighbor(Network.get(index));
+}
+
+// --------------------------------------------------------------------------
+
+public Node getNeighbor(int i)
+{
+	return nodes[i];
+}
+
+// --------------------------------------------------------------------------
+
+/**
+ * Returns the index of the i-th neighbor in the {@link Network}, or -1 if
+ * the neighbor has been removed from the network.
+ */
+public int getNeighborIndex(int i)
+{
+	if( stamp != Network.getReorderCount() ) remap();
+	return neighbors[i];
+}
+
+// --------------------------------------------------------------------------
+
+public int degree()
+{
+	return len;
+}
+
+// --------------------------------------------------------------------------
+
+public void pack()
+{
+	if (len == neighbors.length)
+		return;
+	int[] temp = new int[len];
+	System.arraycopy(neighbors, 0, temp, 0, len);
+	neighbors = temp;
+	Node[] ntemp = new Node[len];
+	System.arraycopy(nodes, 0, ntemp, 0, len);
+	nodes = ntemp;
+}
+
+// --------------------------------------------------------------------------
+
+/**
+ * Rebuilds the indices from the neighbors, after the node array has been
+ * reordered.
+ */
+private void remap()
+{
+	for(int i=0; i<len; ++i) neighbors[i] = indexOf(nodes[i]);
+	if( set != null ) rehash();
+	stamp = Network.getReorderCount();
+}
+
+// --------------------------------------------------------------------------
+
+/** Returns the index of the node, or -1 if it is not in the network */
+private static int indexOf(Node n)
+{
+	final int index = n.getIndex();
+	return index >= 0 && index < Network.size() && Network.get(index) == n ?
+		index : -1;
+}
+
+// --------------------------------------------------------------------------
+
+/** Rebuilds the hash set, with a length at least four times the degree */
+private void rehash()
+{
+	int n = 16;
+	while( n < 4*len ) n <<= 1;
+	set = new int[n];
+	java.util.Arrays.fill(set, EMPTY);
+	for(int i=0; i<len; ++i)
+		if( neighbors[i] >= 0 ) insert(neighbors[i]);
+}
+
+// --------------------------------------------------------------------------
+
+/** Inserts an index that is not in the set yet */
+private void insert(int index)
+{
+	final int mask = set.length-1;
+	int h = mix(index) & mask;
+	while( set[h] != EMPTY ) h = (h+1) & mask;
+	set[h] = index;
+}
+
+// --------------------------------------------------------------------------
+
+/** Spreads the bits of the index */
+private static int mix(int x)
+{
+	x *= 0x9E3779B9;
+	return x ^ (x >>> 16);
+}
+
+// --------------------------------------------------------------------------
+
+public String toString()
+{
+	if( neighbors == null ) return "DEAD!";
+	StringBuffer buffer = new StringBuffer();
+	buffer.append("len=" + len + " maxlen=" + neighbors.length + " [");
+	for (int i = 0; i < len; ++i) {
+		buffer.append(neighbors[i] + " ");
+	}
+	return buffer.append("]").toString();
+}
+
+// --------------------------------------------------------------------------
+
+public void onKill()
+{
+	neighbors = null;
+	nodes = null;
+	set = null;
+	len = 0;
+}
+
+}
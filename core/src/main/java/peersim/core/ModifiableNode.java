@@ -29,6 +29,8 @@ package peersim.core;
 public class ModifiableNode extends GeneralNode
 {
 
+private static final long serialVersionUID = 1L;
+
 /**
  * Invokes the super constructor.
  */
@@ -24,10 +24,11 @@ import java.util.Arrays;
 
 /**
 * This class forms the basic framework of all simulations.
-* This is a static singleton which is based on the assumption that we
-* will simulate only one overlay network at a time.
+* This is a static facade of the network of the current
+* {@link SimulationContext}, so normally there is one overlay network at a
+* time, except in threads that are bound to another independent context.
 * This allows us to reduce memory usage in many cases by allowing all the
-* components to directly reach the fields of this class without having to store
+* components to directly reach this class without having to store
 * a reference.
 * <p>
 * The network is a set of nodes implemented via an array list for the
@@ -40,6 +41,18 @@ import java.util.Arrays;
 * defines connections between nodes. In fact, such a {@link Linkable} protocol
 * layer can be accessed through a {@link peersim.graph.Graph} view
 * using {@link OverlayGraph}.
+* <p>
+* If {@value #PAR_LAZY} is set, the prototype is not cloned for every
+* index when the network is populated. Each node is created when it is
+* first returned by {@link #get}, that is, when it is first accessed by a
+* component, for example when it is wired or an event is sent to it.
+* Nodes that are never accessed cost only their slot in the node array,
+* which saves time and memory in large simulations where most nodes stay
+* idle. Note that the IDs of the nodes follow the order in which they are
+* created, and the prototype is cloned while other components are running,
+* so protocols that use the random generator when cloned change the
+* course of the simulation. Operations that need all the nodes, like
+* {@link #sort} or {@link Checkpoint}s, create them.
 */
 public class Network {
 
@@ -65,36 +78,33 @@ private static final String PAR_NODE = "network.node";
 * @see #getCapacity
 * @config
 */
-private static final String PAR_MAXSIZE = "network.initialCapacity";
+static final String PAR_MAXSIZE = "network.initialCapacity";
 
 /**
 * This config property defines the initial size of the overlay network.
 * This property is required.
 * @config
 */
-private static final String PAR_SIZE = "network.size";
+static final String PAR_SIZE = "network.size";
 
 /**
-* The node array. This is not a private array which is not nice but
-* efficiency has the highest priority here. The main purpose is to allow
-* the package quick reading of the contents in a maximally flexible way.
-* Nevertheless, methods of this class should be used instead of the array
-* when modifying the contents.
-* Because this array is not private,
-* it is necessary to know that the actual node set is only the first
-* {@link #size()} items of the array.
-*/
-static Node[] node = null;
-
-/**
-* Actual size of the network.
+* If set, the nodes are created when they are first accessed, instead of
+* when the network is populated. Not supported by the parallel event
+* driven engine, nor by {@link peersim.cdsim.ParallelNextCycle} with more
+* than one thread: a node is created by the first thread that accesses it,
+* and it is not safely published to the other threads.
+* @config
 */
-private static int len;
+public static final String PAR_LAZY = "network.lazy";
 
 /**
 * The prototype node which is used to populate the simulation via cloning.
 * After all the nodes have been cloned, {@link Control} components can be
 * applied to perform any further initialization.
+* <p>
+* This field refers to the prototype of the network of the default
+* {@link SimulationContext}. Use {@link #getPrototype} to get the prototype
+* of the network of the current context.
 */
 public static Node prototype = null;
 
@@ -109,22 +119,68 @@ public static Node prototype = null;
 */
 public static void reset() {
 
-	if( prototype != null )
+	final SimulationContext c = SimulationContext.current().network();
+	clear(c);
+	
+	c.len = Configuration.getInt(PAR_SIZE);
+	int maxlen = Configuration.getInt(PAR_MAXSIZE,c.len);
+	if( maxlen < c.len ) throw new IllegalArgumentException(
+			PAR_MAXSIZE+" is less than "+PAR_SIZE);
+
+	c.nodes = new Node[maxlen];
+	createPrototype(c);
+	c.lazy = Configuration.contains(PAR_LAZY);
+	if( c.lazy ) return; // nodes are cloned by materialize
+
+	// cloning the nodes
+	final Node[] node = c.nodes;
+	for(int i=0; i<c.len; ++i)
+	{
+		node[i] = (Node)c.prototype.clone();
+		node[i].setIndex(i);
+	}
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Constructs the prototype node as {@link #reset} does, but populates the
+* network with the given nodes instead of cloning the prototype.
+* The array is used directly. Used to resume a {@link Checkpoint}.
+*/
+static void restore(Node[] nodes, int len) {
+
+	final SimulationContext c = SimulationContext.current().network();
+	clear(c);
+	c.len = len;
+	c.nodes = nodes;
+	createPrototype(c);
+	c.lazy = Configuration.contains(PAR_LAZY);
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Removes the nodes and the prototype of the previous experiment, if any.
+*/
+private static void clear(SimulationContext c) {
+
+	if( c.prototype != null )
 	{
 		// not first experiment
-		while( len>0 ) remove(); // this is to call onKill on all nodes
-		prototype = null;
-		node = null;
+		while( c.len>0 ) removeLast(c); // this is to call onKill on all nodes
+		c.prototype = null;
+		c.nodes = null;
 	}
-	
-	len = Configuration.getInt(PAR_SIZE);
-	int maxlen = Configuration.getInt(PAR_MAXSIZE,len);
-	if( maxlen < len ) throw new IllegalArgumentException(
-			PAR_MAXSIZE+" is less than "+PAR_SIZE);
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Constructs the prototype node according to the configuration.
+*/
+private static void createPrototype(SimulationContext c) {
 
-	node = new Node[maxlen];
-	
-	// creating prototype node
 	Node tmp = null;
 	if (!Configuration.contains(PAR_NODE))
 	{
@@ -136,17 +192,48 @@ public static void reset() {
 	{
 		tmp = (Node) Configuration.getInstance(PAR_NODE);
 	}
-	prototype = tmp;
-	prototype.setIndex(-1);
+	c.prototype = tmp;
+	c.prototype.setIndex(-1);
+	if( c == SimulationContext.getDefault() ) prototype = tmp;
+}
 
-	// cloning the nodes
-	if(len > 0 )
-	{
-		for(int i=0; i<len; ++i)
+// ------------------------------------------------------------------
+
+/**
+* Removes the last node, without creating it if it has never been
+* accessed, as it has no state to clean up.
+*/
+private static void removeLast(SimulationContext c) {
+
+	if( c.nodes[c.len-1] == null ) { c.len--; c.reorders++; }
+	else remove();
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Creates the node with the given index of a network with
+* {@value #PAR_LAZY} set, if it has not been created yet, and returns it.
+* Returns null if the index is not less than the size of the network.
+* Called by {@link SimulationContext#getNetworkNode}.
+*/
+static Node materialize(SimulationContext c, int index) {
+
+	synchronized (c) {
+		if( index >= c.len ) return null;
+		Node n = c.nodes[index];
+		if( n == null )
 		{
-			node[i] = (Node)prototype.clone();
-			node[i].setIndex(i);
+			// cloning changes the current node and protocol
+			final Node node = CommonState.getNode();
+			final int pid = CommonState.getPid();
+			n = (Node) c.prototype.clone();
+			n.setIndex(index);
+			c.nodes[index] = n;
+			CommonState.setNode(node);
+			CommonState.setPid(pid);
 		}
+		return n;
 	}
 }
 
@@ -156,8 +243,30 @@ private Network() {}
 // =============== public methods ===================================
 // ==================================================================
 
+/**
+* Returns true if the nodes of the network of the current context are
+* created when first accessed, see {@value #PAR_LAZY}.
+*/
+public static boolean isLazy()
+{
+	return SimulationContext.current().network().lazy;
+}
+
+// ------------------------------------------------------------------
+
 /** Number of nodes currently in the network */
-public static int size() { return len; }
+public static int size() { return SimulationContext.current().getNetworkSize(); }
+
+// ------------------------------------------------------------------
+
+/**
+* Returns the prototype node of the network of the current context, which
+* is used to populate the simulation via cloning.
+*/
+public static Node getPrototype()
+{
+	return SimulationContext.current().getPrototype();
+}
 
 // ------------------------------------------------------------------
 
@@ -170,14 +279,15 @@ public static int size() { return len; }
 */
 public static void setCapacity(int newSize) {
 
-	if( node == null || newSize != node.length )
+	final SimulationContext c = SimulationContext.current().network();
+	if( c.nodes == null || newSize != c.nodes.length )
 	{
-		for(int i=newSize; i<len; ++i) remove();
+		for(int i=newSize; i<c.len; ++i) removeLast(c);
 		Node[] newnodes = new Node[newSize];
-		final int l = Math.min(node.length,newSize);
-		System.arraycopy(node,0,newnodes,0,l);
-		node = newnodes;
-		if( len > newSize ) len = newSize;
+		final int l = Math.min(c.nodes.length,newSize);
+		System.arraycopy(c.nodes,0,newnodes,0,l);
+		c.nodes = newnodes;
+		if( c.len > newSize ) c.len = newSize;
 	}
 }
 
@@ -187,7 +297,10 @@ public static void setCapacity(int newSize) {
 * Returns the maximal number of nodes that can be stored without reallocating
 * the underlying array to increase capacity.
 */
-public static int getCapacity() { return node.length; }
+public static int getCapacity()
+{
+	return SimulationContext.current().network().nodes.length;
+}
 
 // ------------------------------------------------------------------
 
@@ -197,10 +310,11 @@ public static int getCapacity() { return node.length; }
 */
 public static void add( Node n ) {
 	
-	if(len==node.length) setCapacity(3*node.length/2+1);
-	node[len] = n;
-	n.setIndex(len);
-	len++;
+	final SimulationContext c = SimulationContext.current().network();
+	if(c.len==c.nodes.length) setCapacity(3*c.nodes.length/2+1);
+	c.nodes[c.len] = n;
+	n.setIndex(c.len);
+	c.len++;
 }
 
 // ------------------------------------------------------------------
@@ -214,7 +328,7 @@ public static void add( Node n ) {
 */
 public static Node get( int index ) {
 	
-	return node[index];
+	return SimulationContext.current().getNetworkNode(index);
 }
 
 // ------------------------------------------------------------------
@@ -225,9 +339,12 @@ public static Node get( int index ) {
 */
 public static Node remove() {
 	
-	Node n = node[len-1]; // if len was zero this throws and exception
-	node[len-1]=null;
-	len--;
+	final SimulationContext c = SimulationContext.current().network();
+	Node n = c.nodes[c.len-1]; // if len was zero this throws and exception
+	if( n == null ) n = materialize(c, c.len-1);
+	c.nodes[c.len-1]=null;
+	c.len--;
+	c.reorders++;
 	n.setFailState(Fallible.DEAD);
 	return n;
 }
@@ -244,6 +361,7 @@ public static Node remove() {
 */
 public static Node remove(int i) {
 	
+	final int len = size();
 	if( i<0 || i>=len ) throw new IndexOutOfBoundsException(""+i);
 	swap(i,len-1);
 	return remove();
@@ -256,11 +374,15 @@ public static Node remove(int i) {
 */
 public static void swap(int i, int j) {
 	
+	final SimulationContext c = SimulationContext.current().network();
+	final Node[] node = c.nodes;
+	c.reorders++;
 	Node n = node[i];
 	node[i] = node[j];
 	node[j] = n;
-	node[j].setIndex(j);
-	node[i].setIndex(i);
+	// nodes that have not been created in a lazy network are null
+	if( node[j] != null ) node[j].setIndex(j);
+	if( node[i] != null ) node[i].setIndex(i);
 }
 
 // ------------------------------------------------------------------
@@ -270,7 +392,7 @@ public static void swap(int i, int j) {
 */
 public static void shuffle() {
 	
-	for(int i=len; i>1; i--) swap(i-1, CommonState.r.nextInt(i));
+	for(int i=size(); i>1; i--) swap(i-1, CommonState.r.nextInt(i));
 }
 
 // ------------------------------------------------------------------
@@ -282,22 +404,44 @@ public static void shuffle() {
 */
 public static void sort(Comparator<? super Node> c) {
 	
+	final SimulationContext sc = SimulationContext.current().network();
+	final Node[] node = sc.nodes;
+	final int len = size();
+	for(int i=0; i<len; i++) get(i); // creates the nodes of a lazy network
+	sc.reorders++;
 	Arrays.sort(node,0,len,c);
 	for(int i=0; i<len; i++) node[i].setIndex(i);
 }
 
 // ------------------------------------------------------------------
 
+/**
+* Returns the number of times nodes have been moved to another index or
+* removed, by {@link #swap}, {@link #shuffle}, {@link #sort},
+* {@link #remove()}, {@link #remove(int)} or {@link #setCapacity}. As long
+* as it does not change, the index of each node stays the same, so
+* components that refer to nodes by index can use it to check that their
+* indices are still valid.
+*/
+public static int getReorderCount() {
+
+	return SimulationContext.current().network().reorders;
+}
+
+// ------------------------------------------------------------------
+
 public static void test() {
 	
+	final int len = size();
 	System.err.println("number of nodes = "+len);
-	System.err.println("capacity (max number of nodes) = "+node.length);
+	System.err.println("capacity (max number of nodes) = "+getCapacity());
 	for(int i=0; i<len; ++i)
 	{
 		System.err.println("node["+i+"]");
-		System.err.println(node[i].toString());
+		System.err.println(get(i).toString());
 	}
 	
+	final Node prototype = getPrototype();
 	if(prototype==null) return;
 	for(int i=0; i<prototype.protocolSize(); ++i)
 	{
@@ -308,4 +452,3 @@ public static void test() {
 }
 
 }
-
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.core;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+* Copies a set of nodes by cloning them, for the warm starts of
+* {@link Checkpoint}. This is much faster than serialization, but it can
+* only be done if the nodes are {@link GeneralNode}s, and their protocols
+* refer to nodes only through fields of type {@link Node} or arrays of
+* nodes, because the clones of the protocols refer to the original nodes,
+* so these fields are redirected to the copies. The other fields of the
+* protocols must be primitive values, arrays of primitive values, strings
+* or boxed primitive values, which are copied by the
+* clone method of the protocol as when the network is populated by
+* {@link Network#reset}. Arrays of nodes shared by
+* several protocols stay shared by their copies.
+* The copies have the same IDs as the original nodes.
+*/
+final class NetworkCopy {
+
+
+// ========================= fields =================================
+// ==================================================================
+
+
+/** Marks the classes that cannot be copied */
+private static final Field[] UNSAFE = new Field[0];
+
+/** The immutable types of fields, besides primitive types */
+private static final List<Class<?>> IMMUTABLE = Arrays.<Class<?>>asList(
+	String.class, Boolean.class, Character.class, Byte.class,
+	Short.class, Integer.class, Long.class, Float.class, Double.class);
+
+/**
+* The fields that refer to nodes of the classes checked so far, or
+* {@link #UNSAFE} if the class cannot be copied.
+*/
+private static final HashMap<Class<?>,Field[]> nodeFields =
+	new HashMap<Class<?>,Field[]>();
+
+/** Whether the classes of events checked so far are stateless */
+private static final HashMap<Class<?>,Boolean> stateless =
+	new HashMap<Class<?>,Boolean>();
+
+/** The original nodes */
+private final Node[] from;
+
+/** The copies */
+private final Node[] to;
+
+/** The copies of the nodes that are not in {@link #from}, and of shared
+* arrays */
+private final IdentityHashMap<Object,Object> copies =
+	new IdentityHashMap<Object,Object>();
+
+/** The nodes in {@link #copies} whose copies have not been redirected */
+private final ArrayDeque<GeneralNode> pending = new ArrayDeque<GeneralNode>();
+
+
+// ====================== initialization ===========================
+// =================================================================
+
+
+/**
+* Copies the given nodes. The index of each node must be its position in
+* the array, as in the network. Nodes not in the array that are reached
+* through the protocols are copied when {@link #finish} is called.
+*/
+NetworkCopy(Node[] from) {
+
+	this.from = from;
+	to = new Node[from.length];
+	for(int i=0; i<from.length; ++i)
+		to[i] = ((GeneralNode) from[i]).copy();
+	for(int i=0; i<from.length; ++i)
+		redirect((GeneralNode) from[i], (GeneralNode) to[i]);
+}
+
+
+// ======================== methods =================================
+// ==================================================================
+
+
+/**
+* Returns true if the given nodes can be copied, and the given events
+* can be shared by the copies, that is, they are stateless (they have no
+* instance fields).
+*/
+static boolean isCopyable(Node[] nodes, Object[] events, int size) {
+
+	for(int i=0; i<nodes.length; ++i)
+	{
+		if( nodes[i].getClass() != GeneralNode.class ) return false;
+		for(int j=0; j<nodes[i].protocolSize(); ++j)
+			if( getNodeFields(nodes[i].getProtocol(j).getClass())
+				== UNSAFE ) return false;
+	}
+	for(int i=0; i<size; ++i)
+		if( events[i] != null && !isStateless(events[i].getClass()) )
+			return false;
+	return true;
+}
+
+// ------------------------------------------------------------------
+
+/** Returns the copies of the nodes given to the constructor */
+Node[] getNodes() { return to; }
+
+// ------------------------------------------------------------------
+
+/** Returns the copy of the given node, which can be null */
+Node map(Node n) {
+
+	if( n == null ) return null;
+	final int i = n.getIndex();
+	if( i >= 0 && i < from.length && from[i] == n ) return to[i];
+	Node c = (Node) copies.get(n);
+	if( c == null )
+	{
+		c = ((GeneralNode) n).copy();
+		copies.put(n, c);
+		pending.add((GeneralNode) n);
+	}
+	return c;
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Redirects the protocols of the copies of the nodes that are not in the
+* array given to the constructor.
+*/
+void finish() {
+
+	while( !pending.isEmpty() )
+	{
+		GeneralNode n = pending.poll();
+		redirect(n, (GeneralNode) copies.get(n));
+	}
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Redirects the references to nodes of the protocols of the given copy
+* to the copies of the nodes.
+*/
+private void redirect(GeneralNode orig, GeneralNode copy) {
+
+	try {
+		for(int j=0; j<copy.protocol.length; ++j)
+		{
+			final Protocol p = orig.protocol[j];
+			final Protocol c = copy.protocol[j];
+			if( c == p ) continue; // shared by all nodes
+			for(Field f : getNodeFields(c.getClass()))
+			{
+				if( !f.getType().isArray() )
+				{
+					f.set(c, map((Node) f.get(c)));
+					continue;
+				}
+				Node[] a = (Node[]) f.get(c);
+				if( a == null ) continue;
+				if( a == f.get(p) )
+				{
+					// the array is shared, so it is copied once
+					Node[] s = (Node[]) copies.get(a);
+					if( s == null )
+					{
+						s = a.clone();
+						for(int k=0; k<s.length; ++k) s[k] = map(s[k]);
+						copies.put(a, s);
+					}
+					f.set(c, s);
+				}
+				else for(int k=0; k<a.length; ++k) a[k] = map(a[k]);
+			}
+		}
+	} catch (IllegalAccessException e) {
+		// never happens, the fields are accessible
+		throw new IllegalStateException(e);
+	}
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Returns the fields of the given class that refer to nodes, or
+* {@link #UNSAFE} if the class has fields of other reference types.
+*/
+private static Field[] getNodeFields(Class<?> c) {
+
+	Field[] fs = nodeFields.get(c);
+	if( fs != null ) return fs;
+	ArrayList<Field> list = new ArrayList<Field>();
+	for(Class<?> k=c; k!=Object.class && fs==null; k=k.getSuperclass())
+	{
+		for(Field f : k.getDeclaredFields())
+		{
+			if( Modifier.isStatic(f.getModifiers()) ) continue;
+			Class<?> t = f.getType();
+			while( t.isArray() && !Node.class.isAssignableFrom(
+				t.getComponentType()) ) t = t.getComponentType();
+			if( t.isPrimitive() || IMMUTABLE.contains(t) ) continue;
+			if( Node.class.isAssignableFrom(t) ||
+				(t.isArray() && f.getType() == t) )
+			{
+				try {
+					f.setAccessible(true);
+				} catch (RuntimeException e) {
+					fs = UNSAFE;
+					break;
+				}
+				list.add(f);
+			}
+			else
+			{
+				fs = UNSAFE;
+				break;
+			}
+		}
+	}
+	if( fs == null ) fs = list.toArray(new Field[list.size()]);
+	nodeFields.put(c, fs);
+	return fs;
+}
+
+// ------------------------------------------------------------------
+
+/** Returns true if the given class has no instance fields */
+private static boolean isStateless(Class<?> c) {
+
+	Boolean b = stateless.get(c);
+	if( b != null ) return b;
+	b = Boolean.TRUE;
+	for(Class<?> k=c; k!=Object.class && b; k=k.getSuperclass())
+		for(Field f : k.getDeclaredFields())
+			if( !Modifier.isStatic(f.getModifiers()) ) b = Boolean.FALSE;
+	stateless.put(c, b);
+	return b;
+}
+
+}
@@ -25,7 +25,10 @@ package peersim.core;
 * whole node set. this protocol is also extremely cheap, in fact it
 * has no data fields.
 */
-public final class OracleIdleProtocol implements Protocol, Linkable {
+public final class OracleIdleProtocol
+implements Protocol, Linkable, java.io.Serializable {
+
+private static final long serialVersionUID = 1L;
 
 // =================== initialization, creation ======================
 // ===================================================================
@@ -52,7 +55,7 @@ public boolean contains(Node n) {
 	final int len = Network.size();
 	for (int i=0; i < len; i++)
 	{
-		if (Network.node[i] == n)
+		if (Network.get(i) == n)
 		return true;
 	}
 	return false;
@@ -74,7 +77,7 @@ public boolean addNeighbor(Node n) {
 */
 public Node getNeighbor(int i) {
 	
-	return Network.node[i];
+	return Network.get(i);
 }
 
 // --------------------------------------------------------------------
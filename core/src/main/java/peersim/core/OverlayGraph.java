@@ -18,7 +18,8 @@
 		
 package peersim.core;
 
-import peersim.graph.Graph;
+import peersim.graph.IndexedGraph;
+import peersim.util.IntList;
 import java.util.Collection;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -37,8 +38,11 @@ import java.util.Collections;
 * The fail state of nodes has an effect on the graph: all nodes are included
 * but edges are included only if both ends are up. This expresses the fact
 * that this graph is in fact defined by the "can communicate with" relation.
+*
+* If the protocol is an {@link IndexIdleProtocol}, {@link
+* #getNeighbours(int,IntList)} reads the indices of the neighbors directly.
 */
-public class OverlayGraph implements Graph {
+public class OverlayGraph implements IndexedGraph {
 
 
 // ====================== fields ================================
@@ -91,10 +95,10 @@ public OverlayGraph( int protocolID, boolean wireDirected ) {
 public boolean isEdge(int i, int j) {
 	
 	return
-		((Linkable)Network.node[i].getProtocol(protocolID)
-		).contains(Network.node[j]) &&
-		Network.node[j].isUp() &&
-		Network.node[i].isUp();
+		((Linkable)Network.get(i).getProtocol(protocolID)
+		).contains(Network.get(j)) &&
+		Network.get(j).isUp() &&
+		Network.get(i).isUp();
 }
 
 // ---------------------------------------------------------------
@@ -105,9 +109,9 @@ public boolean isEdge(int i, int j) {
 */
 public Collection<Integer> getNeighbours(int i) {
 	
-	Linkable lble=(Linkable)Network.node[i].getProtocol(protocolID);
+	Linkable lble=(Linkable)Network.get(i).getProtocol(protocolID);
 	ArrayList<Integer> al = new ArrayList<Integer>(lble.degree());
-	if( Network.node[i].isUp() )
+	if( Network.get(i).isUp() )
 	{	
 		for(int j=0; j<lble.degree(); ++j)
 		{
@@ -121,8 +125,44 @@ public Collection<Integer> getNeighbours(int i) {
 
 // ---------------------------------------------------------------
 
-/** Returns <code>Network.node[i]</code> */
-public Object getNode(int i) { return Network.node[i]; }
+/**
+* Lists those neighbors that are up into the given list, without
+* allocating memory if the list is large enough. If node i is not up,
+* the list will be empty.
+*/
+public int getNeighbours(int i, IntList list) {
+
+	list.clear();
+	final Node node = Network.get(i);
+	if( !node.isUp() ) return 0;
+	final Linkable lble=(Linkable)node.getProtocol(protocolID);
+	final int d = lble.degree();
+	list.ensureCapacity(d);
+	if( lble instanceof IndexIdleProtocol )
+	{
+		final IndexIdleProtocol ip = (IndexIdleProtocol)lble;
+		for(int j=0; j<d; ++j)
+		{
+			final int k = ip.getNeighborIndex(j);
+			// removed neighbors have no index, and they are dead anyway
+			if(k >= 0 && Network.get(k).isUp()) list.add(k);
+		}
+	}
+	else
+	{
+		for(int j=0; j<d; ++j)
+		{
+			final Node n = lble.getNeighbor(j);
+			if(n.isUp()) list.add(n.getIndex());
+		}
+	}
+	return list.size();
+}
+
+// ---------------------------------------------------------------
+
+/** Returns <code>Network.get(i)</code> */
+public Object getNode(int i) { return Network.get(i); }
 	
 // ---------------------------------------------------------------
 
@@ -163,13 +203,13 @@ public boolean setEdge( int i, int j ) {
 // XXX slightly unintuitive behavior but makes sense when understood
 	
 	if( !wireDirected ) 
-		((Linkable)Network.node[j].getProtocol(protocolID)
-		).addNeighbor(Network.node[i]);
+		((Linkable)Network.get(j).getProtocol(protocolID)
+		).addNeighbor(Network.get(i));
 
 
 	return
-		((Linkable)Network.node[i].getProtocol(protocolID)
-		).addNeighbor(Network.node[j]);
+		((Linkable)Network.get(i).getProtocol(protocolID)
+		).addNeighbor(Network.get(j));
 }
 
 // ---------------------------------------------------------------
@@ -187,8 +227,8 @@ public boolean clearEdge( int i, int j ) {
 */
 public int degree(int i) {
 
-	if( !Network.node[i].isUp() ) return 0;
-	Linkable lble=(Linkable)Network.node[i].getProtocol(protocolID);
+	if( !Network.get(i).isUp() ) return 0;
+	Linkable lble=(Linkable)Network.get(i).getProtocol(protocolID);
 	int numNeighbours = 0;
 	for(int j=0; j<lble.degree(); ++j)
 	{
@@ -210,8 +250,8 @@ public int degree(int i) {
 */
 public int fullDegree(int i) {
 
-	if( !Network.node[i].isUp() ) return 0;
-	Linkable lble=(Linkable)Network.node[i].getProtocol(protocolID);
+	if( !Network.get(i).isUp() ) return 0;
+	Linkable lble=(Linkable)Network.get(i).getProtocol(protocolID);
 	return lble.degree();
 }
 
@@ -181,6 +181,25 @@ public long getNext()
 	return ret;
 }
 
+//-------------------------------------------------------------------
+
+/**
+* Sets the next time point returned by {@link #getNext} to the first time
+* point that is not less than the given time.
+* Used to continue the schedule from a {@link Checkpoint}.
+*/
+public void setNext(long time)
+{
+	if( time <= from ) next = (from < until ? from : -1);
+	else
+	{
+		// round up to the next time point, preventing overflow
+		long k = (time - from - 1)/step + 1;
+		if( k > (until - from - 1)/step ) next = -1;
+		else next = from + k*step;
+	}
+}
+
 }
 
 
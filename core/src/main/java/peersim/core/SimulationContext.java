@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.core;
+
+import peersim.util.ExtendedRandom;
+
+/**
+ * Holds the state of a simulation that used to live in static fields:
+ * the state of {@link CommonState} (time, phase, current node and pid,
+ * random generator), that of {@link peersim.cdsim.CDState} (cycle, cycle
+ * time), the node array of {@link Network} and the counter of node IDs. The static methods of these
+ * classes delegate to the context returned by {@link #current}, so they are
+ * now facades.
+ * <p>
+ * By default every thread sees the same default context, which is
+ * what a normal, single threaded simulation uses. A context can be bound
+ * to a thread with {@link #bind}; from then on the static facades in that
+ * thread refer to the bound context. There are two kinds of contexts:
+ * <ul>
+ * <li>Independent contexts, created by the public constructor, represent
+ * a separate simulation with its own network. Several of them can run in
+ * the same JVM, each in its own thread. Note that the engines and many
+ * components still keep static state, and the configuration is global,
+ * so this is not enough in itself to run arbitrary simulations
+ * side by side.</li>
+ * <li>Child contexts, created by {@link #fork}, share the network, end
+ * time, phase and cycle with their parent, but have their own time,
+ * current node, pid, cycle time and random generator. They are used by
+ * the parallel engines to give each worker thread its own view of the
+ * same simulation.</li>
+ * </ul>
+ * While any context is bound to a thread, {@link CommonState#r} is a
+ * generator that dispatches every call to the generator of the calling
+ * thread's context. When no thread has a bound context any more,
+ * {@link CommonState#r} is the generator of the default context again.
+ * Components that store a reference to {@link CommonState#r} keep using
+ * the generator of the default context.
+ * <p>
+ * Code that has a context at hand can also use its methods directly,
+ * without going through the thread binding.
+ * <p>
+ * <em>The set methods should not be used by applications</em>, they are
+ * for system components, see {@link CommonState}.
+ */
+public class SimulationContext
+{
+
+// ======================= fields ==================================
+// =================================================================
+
+/** The context of threads that have no bound context */
+private static final SimulationContext defaultContext =
+	new SimulationContext();
+
+/** The bound contexts */
+private static final ThreadLocal<SimulationContext> bound =
+	new ThreadLocal<SimulationContext>();
+
+/**
+ * True while a context is bound to some thread. Otherwise, the
+ * thread local lookup is skipped.
+ */
+private static volatile boolean threaded = false;
+
+/** The number of threads that have a bound context */
+private static int boundThreads = 0;
+
+// ---------------- shared with children
+
+/** The context that holds the simulation wide state */
+private final SimulationContext root;
+
+/** The maximal value {@link #time} can ever take */
+private long endtime = -1;
+
+/** Number of used bits in the long representation of time */
+private int toshift = -1;
+
+/** Information about where exactly the simulation is */
+private int phase = CommonState.PHASE_UNKNOWN;
+
+/** Current cycle of a cycle driven simulation */
+private int cycle = -1;
+
+/** The node array, see {@link Network} */
+Node[] nodes = null;
+
+/** Actual size of the network */
+int len = 0;
+
+/** True if the nodes are created when first accessed, see {@link Network} */
+boolean lazy = false;
+
+/**
+ * The number of times nodes have been moved or removed in the node array,
+ * see {@link Network#getReorderCount}
+ */
+int reorders = 0;
+
+/** The prototype node, see {@link Network#prototype} */
+Node prototype = null;
+
+/** The ID the next node will get, see {@link GeneralNode} */
+private long nodeID = -1;
+
+// ---------------- specific to each context
+
+/** Current time */
+private long time = 0;
+
+/** Current time within the current cycle */
+private int ctime = -1;
+
+/** The current pid */
+private int pid;
+
+/** The current node */
+private Node node;
+
+/** The random generator of this context */
+private ExtendedRandom random;
+
+// ======================== initialization =========================
+// =================================================================
+
+/**
+ * Creates an independent context, with an empty network and no random
+ * generator. The generator is created by
+ * {@link CommonState#initializeRandom} when it is called in a thread bound
+ * to this context, or it can be set through {@link #setRandom}.
+ */
+public SimulationContext()
+{
+	root = this;
+}
+
+// -----------------------------------------------------------------
+
+/** Creates a child of the given context */
+private SimulationContext(SimulationContext parent, ExtendedRandom r)
+{
+	root = parent.root;
+	time = parent.time;
+	ctime = parent.ctime;
+	random = r;
+}
+
+// ======================= static methods ==========================
+// =================================================================
+
+/**
+ * Returns the context bound to the calling thread, or the default context
+ * if there is none.
+ */
+public static SimulationContext current()
+{
+	if( threaded )
+	{
+		SimulationContext c = bound.get();
+		if( c != null ) return c;
+	}
+	return defaultContext;
+}
+
+// -----------------------------------------------------------------
+
+/** Returns the context used by threads that have no bound context */
+public static SimulationContext getDefault()
+{
+	return defaultContext;
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Binds the given context to the calling thread. If the parameter is
+ * null, the calling thread goes back to the default context.
+ * @return the context that was bound before, null if there was none
+ */
+public static SimulationContext bind(SimulationContext c)
+{
+	final SimulationContext old = bound.get();
+	if( c != null && old == null )
+	{
+		synchronized(SimulationContext.class)
+		{
+			if( boundThreads++ == 0 )
+			{
+				CommonState.installContextRandom();
+				threaded = true;
+			}
+		}
+	}
+	if( c == null ) bound.remove();
+	else bound.set(c);
+	if( c == null && old != null )
+	{
+		synchronized(SimulationContext.class)
+		{
+			if( --boundThreads == 0 )
+			{
+				threaded = false;
+				CommonState.uninstallContextRandom();
+			}
+		}
+	}
+	return old;
+}
+
+// ======================= methods =================================
+// =================================================================
+
+/**
+ * Creates a child context that shares the simulation wide state
+ * (network, end time, phase, cycle) with this context, and uses the
+ * given random generator. The time and cycle time are copied from this
+ * context.
+ */
+public SimulationContext fork(ExtendedRandom r)
+{
+	return new SimulationContext(this, r);
+}
+
+// -----------------------------------------------------------------
+
+/** Returns true if this context was created by {@link #fork} */
+public boolean isChild() { return root != this; }
+
+// -----------------------------------------------------------------
+
+/** Returns the current time of this context */
+public long getTime() { return time; }
+
+/** Sets the current time of this context */
+public void setTime(long t) { time = t; }
+
+// -----------------------------------------------------------------
+
+/** Returns the end time, negative if not known */
+public long getEndTime() { return root.endtime; }
+
+/**
+ * Sets the end time. Can be called only once.
+ * @see CommonState#setEndTime
+ */
+public void setEndTime(long t)
+{
+	if( root.endtime >= 0 )
+		throw new RuntimeException("You can set endtime only once");
+	if( t < 0 )
+		throw new RuntimeException("No negative values are allowed");
+
+	root.endtime = t;
+	root.toshift = 32-Long.numberOfLeadingZeros(t);
+	if( root.toshift<0 ) root.toshift = 0;
+}
+
+/** Returns the time as an integer, see {@link CommonState#getIntTime} */
+public int getIntTime() { return (int)(time>>root.toshift); }
+
+// -----------------------------------------------------------------
+
+/** Returns the simulation phase */
+public int getPhase() { return root.phase; }
+
+/** Sets the simulation phase */
+public void setPhase(int p) { root.phase = p; }
+
+// -----------------------------------------------------------------
+
+/** Returns the current pid */
+public int getPid() { return pid; }
+
+/** Sets the current pid */
+public void setPid(int p) { pid = p; }
+
+// -----------------------------------------------------------------
+
+/** Returns the current node */
+public Node getNode() { return node; }
+
+/** Sets the current node */
+public void setNode(Node n) { node = n; }
+
+// -----------------------------------------------------------------
+
+/** Returns the random generator of this context */
+public ExtendedRandom getRandom() { return random; }
+
+/** Sets the random generator of this context */
+public void setRandom(ExtendedRandom r) { random = r; }
+
+// -----------------------------------------------------------------
+
+/** Returns the current cycle, negative if not cycle driven */
+public int getCycle() { return root.cycle; }
+
+/** Sets the current cycle, see {@link peersim.cdsim.CDState#setCycle} */
+public void setCycle(int c) { root.cycle = c; }
+
+// -----------------------------------------------------------------
+
+/** Returns the current time within the cycle, negative if not set */
+public int getCycleT() { return ctime; }
+
+/** Sets the current time within the cycle */
+public void setCycleT(int t) { ctime = t; }
+
+// -----------------------------------------------------------------
+
+/** Returns the number of nodes in the network of this context */
+public int getNetworkSize() { return root.len; }
+
+/** Returns the node of the network of this context with the given index */
+public Node getNetworkNode(int index) {
+
+	final Node n = root.nodes[index];
+	return (n != null || !root.lazy ? n : Network.materialize(root, index));
+}
+
+/** Returns the prototype node of the network of this context */
+public Node getPrototype() { return root.prototype; }
+
+// -----------------------------------------------------------------
+
+/** Returns the ID of a new node, and advances the counter of IDs */
+long nextNodeID() { return root.nodeID++; }
+
+/** Returns the ID the next node will get */
+long getNodeID() { return root.nodeID; }
+
+/** Sets the ID the next node will get */
+void setNodeID(long id) { root.nodeID = id; }
+
+// -----------------------------------------------------------------
+
+/** Returns the context that holds the network of this context */
+SimulationContext network() { return root; }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.core;
+
+/**
+ * A {@link Control} that keeps threads across its executions. The
+ * simulation engines call {@link #shutdown} on their controls of this type
+ * at the end of each experiment, after the final controls have run.
+ */
+public interface ThreadedControl extends Control
+{
+
+/**
+ * Stops the threads of the control. The engines do not execute the
+ * control afterwards.
+ */
+public void shutdown();
+
+}
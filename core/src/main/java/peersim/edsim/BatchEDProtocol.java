@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.edsim;
+
+import peersim.core.*;
+
+/**
+ * An {@link EDProtocol} that can receive many events at once. When the
+ * sequential engine takes an event for such a protocol from the queue,
+ * it also takes the events that follow it in the queue with the same time
+ * and protocol identifier, and delivers all of them with a single call to
+ * {@link #processEvents}, so the protocol can process them in a tight loop.
+ * The events of the batch keep the order they have in the queue.
+ * {@link NextCycleEvent}s and {@link EventBatch}es are not delivered in
+ * batches.
+ * <p>
+ * The batch is taken from the queue before {@link #processEvents} is
+ * called, so an event that {@link #processEvents} schedules for the
+ * current time (with delay 0) is delivered after the whole batch. When
+ * the events are delivered one by one, such an event may be delivered
+ * before the events of the batch that follow the one that scheduled it.
+ * Protocols that schedule events with delay 0 must not depend on this
+ * order.
+ * <p>
+ * The parallel engine (see {@link EDSimulator#isParallel}) delivers the
+ * events one by one through {@link #processEvent}, so that method must be
+ * implemented as well, with the same effect.
+ */
+public interface BatchEDProtocol<T>
+extends EDProtocol<T>
+{
+
+	/**
+	* Delivers a batch of events, all with the current time. Event
+	* <code>events[i]</code> is delivered to protocol <code>pid</code> of
+	* node <code>nodes[i]</code>, for <code>i</code> smaller than
+	* <code>size</code>. The method is invoked on the protocol of the first
+	* node, and it has to process the events of all the nodes. The nodes
+	* are up when the method is called; if processing an event makes
+	* another node of the batch go down, it is up to the protocol to check.
+	* <p>
+	* {@link CommonState} holds the first node and the protocol identifier
+	* when the method is called. Code run for an event, like a
+	* {@link peersim.transport.Transport}, may read the current node, so
+	* the method has to call <code>CommonState.setNode(nodes[i])</code>
+	* before processing <code>events[i]</code>, as the engine does before
+	* delivering a single event.
+	* The arrays are reused by the engine, they must not be kept after the
+	* method returns.
+	* 
+	* @param nodes the nodes the events are delivered to
+	* @param pid the identifier of this protocol
+	* @param events the events, of type <code>T</code>
+	* @param size the number of events
+	*/
+	public void processEvents( Node[] nodes, int pid, Object[] events,
+		int size );
+
+}
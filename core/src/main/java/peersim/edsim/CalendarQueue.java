@@ -0,0 +1,534 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.edsim;
+
+import peersim.core.Node;
+import peersim.core.CommonState;
+import peersim.config.Configuration;
+import peersim.config.IllegalParameterException;
+
+/**
+ * A calendar queue implementation of {@link PriorityQ}. Events are hashed
+ * into an array of buckets ("days") according to their time, each bucket
+ * covering an interval of {@value #PAR_WIDTH} time units. A full rotation
+ * of the bucket array is a "year". Insertion into a bucket is an O(1)
+ * append to an unsorted list. When the events of the current day are due,
+ * they are moved into a small binary heap (the "bottom"), which is then
+ * consumed in order; events scheduled into the current day while it is
+ * being consumed go straight into the bottom.
+ * <p>
+ * The number of buckets is doubled or halved as the queue grows or
+ * shrinks, and the bucket width is re-estimated from the events in the
+ * queue on every resize, unless it is fixed through {@value #PAR_WIDTH}.
+ * As long as the bucket width is in the order of the average separation
+ * of the pending events, which is the typical case for transports with a
+ * bounded delay like {@link peersim.transport.UniformRandomTransport},
+ * enqueue and dequeue cost amortized O(1).
+ * <p>
+ * Ties are broken exactly like in {@link Heap}: the time is shifted left
+ * by {@value #PAR_PBITS} bits and the priority is stored in the low bits,
+ * so {@link #maxTime()} and {@link #maxPriority()} are the same as those of
+ * a {@link Heap} with the same configuration.
+ * <p>
+ * To use this queue, set <code>simulation.eventqueue CalendarQueue</code>.
+ * @see Heap
+ */
+public class CalendarQueue implements PriorityQ {
+
+//--------------------------------------------------------------------------
+// Constants
+//--------------------------------------------------------------------------
+
+/**
+ * This parameter specifies how many
+ * bits are used to order events that occur at the same time. Defaults
+ * to 8. A value smaller than 8 causes an IllegalParameterException.
+ * Higher values allow for a better discrimination, but reduce
+ * the maximal time steps that can be simulated.
+ * @config
+ */
+private static final String PAR_PBITS = "pbits";
+private static final String PAR_PBITS_LEGACY = "simulation.timebits";
+
+/**
+ * Specifies the initial capacity of the queue. Defaults to 65536.
+ * @config
+ */
+private static final String PAR_SIZE = "size";
+
+/**
+ * The initial number of buckets. It is rounded up to a power of two.
+ * Defaults to 1024.
+ * @config
+ */
+private static final String PAR_BUCKETS = "buckets";
+
+/**
+ * The width of a bucket in time units. If set, the width is fixed;
+ * otherwise it is estimated from the pending events every time the
+ * bucket array is resized.
+ * @config
+ */
+private static final String PAR_WIDTH = "width";
+
+/** The bucket array is never shrunk below this size */
+private static final int MIN_BUCKETS = 16;
+
+/** Number of events sampled to estimate the bucket width */
+private static final int SAMPLE = 128;
+
+/** Marks the end of a bucket list and free slots */
+private static final int NIL = -1;
+
+//--------------------------------------------------------------------------
+// Fields
+//--------------------------------------------------------------------------
+
+// Like in Heap, event data is stored in parallel arrays indexed by slot.
+// Slots are linked into bucket lists through next[].
+
+/** Event component of the slots */
+private Object[] events;
+
+/** Key component of the slots: time shifted by pbits, plus priority */
+private long[] keys;
+
+/** Node component of the slots */
+private Node[] nodes;
+
+/** Pid component of the slots */
+private byte[] pids;
+
+/** Next slot in the same bucket, or in the free list */
+private int[] next;
+
+/** Head of the list of free slots */
+private int free;
+
+/** Heads of the bucket lists */
+private int[] buckets;
+
+/** Number of buckets minus one; the number of buckets is a power of two */
+private int mask;
+
+/** Number of events stored in buckets (that is, not in the bottom) */
+private int bucketSize;
+
+/** Width of a bucket in time units */
+private long width;
+
+/** True if the width was given in the configuration */
+private final boolean fixedWidth;
+
+/** Binary heap of slots that are due in the current day */
+private int[] bottom;
+
+/** Number of slots in the bottom heap */
+private int bottomSize;
+
+/**
+ * All events with a time strictly smaller than this are in the bottom heap,
+ * all other events are in the buckets.
+ */
+private long bottomEnd;
+
+/** Singleton event object used to return (event, time, node, pid) tuples */
+private final Event ev = new Event();
+
+/** The number of bits reserved to order event with the same timestamp */
+private final int pbits;
+
+/** The mask to test whether the time value fits into the range we can
+represent */
+private final long overflowMask;
+
+//--------------------------------------------------------------------------
+// Contructor
+//--------------------------------------------------------------------------
+
+/**
+ * Initializes a new calendar queue using defaults.
+ */
+public CalendarQueue() {
+	this(""); // "" is not a valid prefix for a component
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Initializes a new calendar queue using the configuration.
+ */
+public CalendarQueue(String prefix) {
+
+	int size = Configuration.getInt(prefix+"."+PAR_SIZE,65536);
+	int nb = Configuration.getInt(prefix+"."+PAR_BUCKETS,1024);
+
+	// same legacy parameter handling as in Heap
+	if( !Configuration.contains(PAR_PBITS_LEGACY) )
+		pbits = Configuration.getInt(prefix+"."+PAR_PBITS,8);
+	else
+	{
+		pbits = Configuration.getInt(PAR_PBITS_LEGACY);
+		if( Configuration.contains(prefix+"."+PAR_PBITS) )
+			throw new IllegalParameterException(PAR_PBITS_LEGACY,
+				"Your configuration file contains both "+
+				prefix+"."+PAR_PBITS+ " and "+
+				PAR_PBITS_LEGACY+"; please remove "+
+				PAR_PBITS_LEGACY);
+	}
+
+	if (pbits < 8 || pbits >= 31) {
+		throw new IllegalParameterException(prefix+"."+PAR_PBITS,
+		"This parameter should be >= 8 or < 31");
+	}
+	fixedWidth = Configuration.contains(prefix+"."+PAR_WIDTH);
+	width = Configuration.getLong(prefix+"."+PAR_WIDTH,1);
+	if (width < 1) {
+		throw new IllegalParameterException(prefix+"."+PAR_WIDTH,
+		"This parameter should be positive");
+	}
+	if (size < 1) size = 1;
+	overflowMask = ~maxTime();
+
+	events = new Object[size];
+	keys = new long[size];
+	nodes = new Node[size];
+	pids = new byte[size];
+	next = new int[size];
+	for(int i=0; i<size; ++i) next[i] = i+1;
+	next[size-1] = NIL;
+	free = 0;
+
+	int n = MIN_BUCKETS;
+	while( n < nb ) n <<= 1;
+	buckets = new int[n];
+	java.util.Arrays.fill(buckets, NIL);
+	mask = n-1;
+
+	bottom = new int[64];
+}
+
+//--------------------------------------------------------------------------
+// Methods
+//--------------------------------------------------------------------------
+
+/**
+ * Returns the current number of events in the system.
+ */
+public int size()
+{
+	return bucketSize+bottomSize;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Add a new event, to be scheduled at the specified time.
+ *
+ * @param time the time at which this event should be scheduled
+ * @param event the object describing the event
+ * @param node the node at which the event has to be delivered
+ * @param pid the protocol that handles the event
+ */
+public void add(long time, Object event, Node node, byte pid)
+{
+	add(time,event,node,pid,CommonState.r.nextInt(1 << pbits));
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Add a new event, to be scheduled at the specified time.
+ *
+ * @param time the time at which this event should be scheduled
+ * @param event the object describing the event
+ * @param node the node at which the event has to be delivered
+ * @param pid the protocol that handles the event
+ * @param priority the priority of the event among events with the same time
+ */
+public void add(long time, Object event, Node node, byte pid, long priority)
+{
+	if( (time&overflowMask) != 0 ) throw new
+		IllegalArgumentException("Time overflow: time="+time);
+
+	if( free == NIL ) doubleCapacity();
+	final int slot = free;
+	free = next[slot];
+	events[slot] = event;
+	keys[slot] = (time << pbits) | priority;
+	nodes[slot] = node;
+	pids[slot] = pid;
+
+	if( time < bottomEnd )
+	{
+		bottomPush(slot);
+	}
+	else
+	{
+		bucketPush(slot, time);
+		if( bucketSize > 2*buckets.length ) resize(2*buckets.length);
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Removes the first event in the queue and returns it.
+ * Note that, to avoid garbage collection, a singleton instance of
+ * the Event class is used. This means that data contained in the
+ * returned event are overwritten when a new invocation of this
+ * method is performed.
+ * @return first event or null if size is zero
+ */
+public Event removeFirst() {
+
+	if( bottomSize == 0 )
+	{
+		if( bucketSize == 0 ) return null;
+		if( bucketSize < buckets.length/2 && buckets.length > MIN_BUCKETS )
+			resize(buckets.length/2);
+		nextDay();
+	}
+
+	final int slot = bottomPop();
+	ev.time = keys[slot] >> pbits;
+	ev.event = events[slot];
+	ev.node = nodes[slot];
+	ev.pid = pids[slot];
+	ev.priority = keys[slot] & maxPriority();
+	events[slot] = null;
+	nodes[slot] = null;
+	next[slot] = free;
+	free = slot;
+	return ev;
+}
+
+//--------------------------------------------------------------------------
+
+public long maxTime() { return Long.MAX_VALUE >> pbits; }
+
+//--------------------------------------------------------------------------
+
+public long maxPriority() { return (1L << pbits)-1; }
+
+//--------------------------------------------------------------------------
+
+/**
+ *  Prints the size and the shape of the calendar.
+ */
+public String toString()
+{
+	return "[Size: "+size()+" Buckets: "+buckets.length+" Width: "+
+		width+" Bottom: "+bottomSize+"]";
+}
+
+//--------------------------------------------------------------------------
+// Private methods
+//--------------------------------------------------------------------------
+
+/**
+ * Appends the given slot to the bucket of the given time.
+ */
+private void bucketPush(int slot, long time)
+{
+	final int b = (int)(time/width) & mask;
+	next[slot] = buckets[b];
+	buckets[b] = slot;
+	bucketSize++;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Moves the events of the next non-empty day into the bottom heap.
+ * Assumes that there is at least one event in the buckets.
+ * If a whole year passes without finding any events, then the next day
+ * is located by a direct search over all the buckets.
+ */
+private void nextDay()
+{
+	long day = bottomEnd/width;
+	for(int i=0; i<=mask; ++i, ++day)
+	{
+		if( extract(day) ) return;
+	}
+
+	// the events are sparse compared to the length of a year
+	long min = Long.MAX_VALUE;
+	for(int b=0; b<=mask; ++b)
+		for(int s=buckets[b]; s!=NIL; s=next[s])
+			if( keys[s] < min ) min = keys[s];
+	extract((min >> pbits)/width);
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Moves all events of the given day from its bucket to the bottom heap and
+ * sets {@link #bottomEnd} to the end of that day.
+ * @return true if at least one event was moved
+ */
+private boolean extract(long day)
+{
+	final long end = (day+1)*width;
+	// the last day may extend beyond the representable time range
+	final long endkey = end > maxTime() ? Long.MAX_VALUE : end << pbits;
+	final int b = (int)day & mask;
+	int prev = NIL;
+	int s = buckets[b];
+	while( s != NIL )
+	{
+		final int n = next[s];
+		if( keys[s] < endkey || endkey == Long.MAX_VALUE )
+		{
+			if( prev == NIL ) buckets[b] = n;
+			else next[prev] = n;
+			bucketSize--;
+			bottomPush(s);
+		}
+		else prev = s;
+		s = n;
+	}
+	bottomEnd = end;
+	return bottomSize > 0;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Rebuilds the bucket array with the given number of buckets, and
+ * re-estimates the bucket width unless it is fixed.
+ * The width is set to 3.2 times the average separation of the events,
+ * close to the factor of three of Brown's original proposal. The separation
+ * is estimated from the 10% and 90% quantiles of a sample of the pending
+ * events, so that a few events scheduled far in the future (e.g. controls)
+ * do not inflate it.
+ */
+private void resize(int n)
+{
+	int[] old = buckets;
+	if( !fixedWidth && bucketSize > 1 )
+	{
+		final int stride = Math.max(1, bucketSize/SAMPLE);
+		long[] sample = new long[Math.min(SAMPLE, bucketSize)];
+		int k = 0, c = 0;
+		for(int b=0; b<old.length && k<sample.length; ++b)
+			for(int s=old[b]; s!=NIL && k<sample.length; s=next[s])
+				if( c++ % stride == 0 ) sample[k++] = keys[s] >> pbits;
+		java.util.Arrays.sort(sample, 0, k);
+		long span = sample[k*9/10] - sample[k/10];
+		// 80% of the events are within span: the separation is
+		// span/(0.8*bucketSize), and 3.2 times that is span*4/bucketSize
+		width = Math.max(1, (span*4)/bucketSize);
+	}
+
+	buckets = new int[n];
+	java.util.Arrays.fill(buckets, NIL);
+	mask = n-1;
+	bucketSize = 0;
+	for(int b=0; b<old.length; ++b)
+	{
+		int s = old[b];
+		while( s != NIL )
+		{
+			final int nx = next[s];
+			bucketPush(s, keys[s] >> pbits);
+			s = nx;
+		}
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Inserts the given slot into the bottom heap.
+ */
+private void bottomPush(int slot)
+{
+	if( bottomSize == bottom.length )
+	{
+		int[] tb = new int[2*bottom.length];
+		System.arraycopy(bottom, 0, tb, 0, bottomSize);
+		bottom = tb;
+	}
+	final long key = keys[slot];
+	int pos = bottomSize++;
+	while( pos > 0 )
+	{
+		final int parent = (pos-1) >> 1;
+		if( keys[bottom[parent]] <= key ) break;
+		bottom[pos] = bottom[parent];
+		pos = parent;
+	}
+	bottom[pos] = slot;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Removes and returns the slot with the smallest key from the bottom heap.
+ */
+private int bottomPop()
+{
+	final int ret = bottom[0];
+	final int last = bottom[--bottomSize];
+	final long key = keys[last];
+	int pos = 0;
+	int child;
+	while( (child = 2*pos+1) < bottomSize )
+	{
+		if( child+1 < bottomSize &&
+			keys[bottom[child+1]] < keys[bottom[child]] ) child++;
+		if( keys[bottom[child]] >= key ) break;
+		bottom[pos] = bottom[child];
+		pos = child;
+	}
+	bottom[pos] = last;
+	return ret;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Doubles the number of slots. All the new slots are put on the free list.
+ */
+private void doubleCapacity() {
+	int oldsize = events.length;
+	int newsize = oldsize*2;
+	Object[] te = new Object[newsize];
+	System.arraycopy(events, 0, te, 0, oldsize);
+	events = te;
+	long[] tt = new long[newsize];
+	System.arraycopy(keys, 0, tt, 0, oldsize);
+	keys = tt;
+	Node[] tn = new Node[newsize];
+	System.arraycopy(nodes, 0, tn, 0, oldsize);
+	nodes = tn;
+	byte[] tp = new byte[newsize];
+	System.arraycopy(pids, 0, tp, 0, oldsize);
+	pids = tp;
+	int[] tx = new int[newsize];
+	System.arraycopy(next, 0, tx, 0, oldsize);
+	for(int i=oldsize; i<newsize; ++i) tx[i] = i+1;
+	tx[newsize-1] = free;
+	next = tx;
+	free = oldsize;
+}
+
+} // END CalendarQueue
@@ -78,6 +78,14 @@ import peersim.core.*;
 * want to use a model of the transport layer so that in the simulation
 * message delay and message omissions can be modeled in a modular way.
 * This functionality is implemented in package {@link peersim.transport}.
+* <p>
+* The state of the simulation can be saved in a {@link Checkpoint} at the
+* times given by {@value peersim.core.Checkpoint#PAR_CHECKPOINT}, and an
+* experiment can be resumed from a checkpoint instead of running the
+* initializers, see {@value peersim.core.Checkpoint#PAR_RESUME}. Similarly,
+* the experiments after the first one can start from a copy of the state
+* of the first one after its initializers, see
+* {@value peersim.core.Checkpoint#PAR_WARMSTART}.
 * @see Configuration
  */
 public class EDSimulator
@@ -110,11 +118,56 @@ private static final String PAR_LOGTIME = "simulation.logtime";
 /** 
  * This parameter specifies the event queue to be used. It must be an
  * implementation of interface {@link PriorityQ}. If it is not defined,
- * the internal implementation is used.
+ * the internal implementation ({@link Heap}) is used. For large queues
+ * {@link CalendarQueue} is usually faster. For protocols that cancel most
+ * of their events (see {@link #addCancellable}), {@link IndexedHeap}
+ * removes the cancelled events from the queue.
  * @config 
  */	
 private static final String PAR_PQ = "simulation.eventqueue";
 
+/**
+ * If this parameter is present, the {@link NextCycleEvent}s, which are
+ * scheduled periodically by {@link CDScheduler} for every node, are kept
+ * in a timing wheel instead of the event queue defined by
+ * {@value #PAR_PQ}. Adding and removing them costs O(1), and the event
+ * queue is left to the other events. The order of the events is the same,
+ * except for events with the same time and priority.
+ * @config
+ */
+private static final String PAR_TIMERWHEEL = "simulation.timerwheel";
+
+/**
+ * The number of threads to run the simulation on. Defaults to 1.
+ * If larger than 1, the nodes are partitioned among that many worker
+ * threads by their ID, each with its own event queue, and the simulation
+ * proceeds in time windows of length {@value #PAR_LOOKAHEAD}, in which
+ * the workers run in parallel. Control events are executed
+ * sequentially between windows, before the node events of the same time.
+ * <p>
+ * This is only correct if the protocols interact with other nodes
+ * exclusively through events, and all events sent to other nodes are
+ * delayed by at least the lookahead; the latter is checked, an
+ * exception is thrown if an event would be delivered in the past of
+ * another worker. Each worker has its own random generator seeded
+ * from {@link CommonState#r}, so the results are deterministic for a
+ * fixed random seed and number of threads, but different from the
+ * results with a different number of threads.
+ * @config
+ */
+private static final String PAR_THREADS = "simulation.threads";
+
+/**
+ * The lookahead of the parallel engine (see {@value #PAR_THREADS}), that is,
+ * the minimal delay of any event sent from a node to another node.
+ * If not set, it is the smallest value returned by
+ * {@link peersim.transport.MinLatencyTransport#getMinLatency} among the
+ * protocols of the prototype node that implement it, after running the
+ * initializers. It must be positive.
+ * @config
+ */
+private static final String PAR_LOOKAHEAD = "simulation.lookahead";
+
 /**
  * This is the prefix for initializers.
  * These have to be of type
@@ -157,8 +210,62 @@ private static Scheduler[] ctrlSchedules = null;
 /** Ordered list of events (heap) */
 private static PriorityQ heap = null;
 
+/**
+ * The parallel engine, if {@value #PAR_THREADS} is larger than one. In that
+ * case {@link #heap} stores only control events.
+ */
+private static ParallelEDSimulator parallel = null;
+
 private static long nextlog = 0;
 
+/** The schedule of the checkpoints, or null if they are not taken */
+private static Scheduler checkpoints = null;
+
+/** The time of the next checkpoint, or -1 if there are no more */
+private static long nextCheckpoint = -1;
+
+/**
+ * The event taken from the queue after the last batch for a
+ * {@link BatchEDProtocol}, which is the next event to execute.
+ */
+private static final PriorityQ.Event pending = new PriorityQ.Event();
+
+/** Whether {@link #pending} is set */
+private static boolean hasPending = false;
+
+/**
+ * Whether the protocol with the given identifier is a
+ * {@link BatchEDProtocol}, set up at the beginning of each experiment
+ */
+private static boolean[] batched = new boolean[0];
+
+/** The nodes of the current batch, see {@link #deliverBatch} */
+private static Node[] batchNodes = new Node[16];
+
+/** The events of the current batch, see {@link #deliverBatch} */
+private static Object[] batchEvents = new Object[16];
+
+/**
+ * The smallest number of cancelled events in the queue that makes it
+ * compacted, see {@link #cancel}.
+ */
+private static final int COMPACT_MIN = 1024;
+
+/** The number of cancelled events in the queue */
+private static int cancelledQueued = 0;
+
+/**
+ * The number of events delivered in the current experiment. Not counted
+ * by the parallel engine.
+ */
+private static long executed = 0;
+
+/** The number of cancellable events added in the current experiment */
+private static long cancellable = 0;
+
+/** The number of events cancelled in the current experiment */
+private static long cancelled = 0;
+
 // =============== initialization ======================================
 // =====================================================================
 
@@ -230,6 +337,7 @@ static void addControlEvent(long time, int order, ControlEvent event)
 // we don't check whether time is negative or in the past: we trust
 // the caller, which must be from this package
 	if (time >= endtime) return;
+	if( hasPending && time <= pending.time ) putBack();
 	heap.add(time, event, null, (byte)0, order);
 }
 
@@ -247,13 +355,52 @@ public static final boolean isConfigurationEventDriven()
 
 //---------------------------------------------------------------------
 
+/**
+ * Returns true if the current experiment is run by the parallel engine,
+ * that is, if {@value #PAR_THREADS} is larger than one. Its value is valid
+ * from the beginning of the initialization of the experiment.
+ */
+public static boolean isParallel()
+{
+	return parallel != null;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Logs the given time if the next logging time has been reached.
+ * @see #PAR_LOGTIME
+ */
+static void logTime(long time) {
+
+	if (time >= nextlog)
+	{
+		System.err.println("Current time: " + time);
+		// seemingly complicated: to prevent overflow
+		while( time-nextlog >= logtime ) nextlog+=logtime;
+		if( endtime-nextlog >= logtime ) nextlog+=logtime;
+		else nextlog=endtime;
+	}
+}
+
+//---------------------------------------------------------------------
+
 /**
  * Execute and remove the next event from the ordered event list.
  * @return true if the execution should be stopped.
  */
 private static boolean executeNext() {
 
-	PriorityQ.Event ev = heap.removeFirst();
+	PriorityQ.Event ev;
+	if( hasPending )
+	{
+		hasPending = false;
+		ev = pending;
+	}
+	else ev = heap.removeFirst();
+	if( ev != null && nextCheckpoint >= 0 && ev.time >= nextCheckpoint &&
+		ev.time < endtime )
+		ev = checkpoint(ev);
 	if( ev == null )
 	{
 		System.err.println("EDSimulator: queue is empty, quitting"+
@@ -262,14 +409,7 @@ private static boolean executeNext() {
 	}
 	
 	long time = ev.time;
-	if (time >= nextlog)
-	{
-		System.err.println("Current time: " + time);
-		// seemingly complicated: to prevent overflow
-		while( time-nextlog >= logtime ) nextlog+=logtime;
-		if( endtime-nextlog >= logtime ) nextlog+=logtime;
-		else nextlog=endtime;
-	}
+	logTime(time);
 	if (time >= endtime)
 	{
 		System.err.println("EDSimulator: reached end time, quitting,"+
@@ -278,7 +418,6 @@ private static boolean executeNext() {
 	}
 	
 	CommonState.setTime(time);
-	int pid = ev.pid;
 	if (ev.node == null)
 	{
 		// might be control event; handled through a special method
@@ -292,31 +431,224 @@ private static boolean executeNext() {
 		}
 		return ctrl.execute();
 	}
-	else if (ev.node != Network.prototype && ev.node.isUp() )
+	else if( parallel == null && isBatched(ev) ) deliverBatch(ev);
+	else deliver(ev.node, ev.pid, ev.event);
+	
+	return false;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns true if the given event is for a {@link BatchEDProtocol}, and
+ * can be delivered in a batch.
+ */
+private static boolean isBatched(PriorityQ.Event ev) {
+
+	return ev.node != null && batched[ev.pid] &&
+		!(ev.event instanceof NextCycleEvent) &&
+		!(ev.event instanceof EventBatch) &&
+		!(ev.event instanceof EventHandle);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Delivers the given event, which has just been removed from the queue,
+ * together with the events that follow it with the same time and
+ * protocol, to a {@link BatchEDProtocol}. The first event that does not
+ * belong to the batch becomes {@link #pending}. The events to nodes that
+ * are down are not delivered, the {@link RecyclableEvent}s are recycled
+ * afterwards as in {@link #deliver}.
+ */
+private static void deliverBatch(PriorityQ.Event ev) {
+
+	final long time = ev.time;
+	final byte pid = ev.pid;
+	batchNodes[0] = ev.node;
+	batchEvents[0] = ev.event;
+	int size = 1;
+	for(PriorityQ.Event e; (e = heap.removeFirst()) != null; )
+	{
+		if( e.time != time || e.pid != pid || !isBatched(e) )
+		{
+			pending.time = e.time;
+			pending.event = e.event;
+			pending.node = e.node;
+			pending.pid = e.pid;
+			pending.priority = e.priority;
+			hasPending = true;
+			break;
+		}
+		if( size == batchNodes.length )
+		{
+			batchNodes = Arrays.copyOf(batchNodes, 2*size);
+			batchEvents = Arrays.copyOf(batchEvents, 2*size);
+		}
+		batchNodes[size] = e.node;
+		batchEvents[size++] = e.event;
+	}
+
+	// the events of the nodes that are down are moved to the end
+	final Node prototype = Network.getPrototype();
+	int up = 0;
+	for(int i=0; i<size; ++i)
+	{
+		final Node node = batchNodes[i];
+		if( node != prototype && node.isUp() )
+		{
+			final Object event = batchEvents[i];
+			batchNodes[i] = batchNodes[up];
+			batchEvents[i] = batchEvents[up];
+			batchNodes[up] = node;
+			batchEvents[up++] = event;
+		}
+	}
+	if( up > 0 )
 	{
+		executed += up;
 		CommonState.setPid(pid);
-		CommonState.setNode(ev.node);
-		if( ev.event instanceof NextCycleEvent )
+		CommonState.setNode(batchNodes[0]);
+		((BatchEDProtocol) batchNodes[0].getProtocol(pid)).processEvents(
+			batchNodes, pid, batchEvents, up);
+	}
+	for(int i=0; i<size; ++i)
+	{
+		if( batchEvents[i] instanceof RecyclableEvent )
+			((RecyclableEvent) batchEvents[i]).delivered();
+		batchNodes[i] = null;
+		batchEvents[i] = null;
+	}
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Puts {@link #pending} back into the queue, because an event that might
+ * have to be executed before it is added.
+ */
+private static void putBack() {
+
+	hasPending = false;
+	heap.add(pending.time, pending.event, pending.node, pending.pid,
+		pending.priority);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Writes a checkpoint at the time of the next checkpoint, with the given
+ * event that has just been removed from the queue and the events
+ * still in the queue. The queue is then rebuilt as it is rebuilt
+ * when resuming from the checkpoint, so that the two simulations
+ * continue in the same way. Returns the first event of the new queue.
+ */
+private static PriorityQ.Event checkpoint(PriorityQ.Event ev) {
+
+	final long time = nextCheckpoint;
+	final long first = ev.time;
+	Checkpoint cp = drainQueue(ev);
+	CommonState.setTime(time);
+	cp.write();
+	restoreQueue(cp);
+	checkpoints.setNext(first+1);
+	nextCheckpoint = checkpoints.getNext();
+	return heap.removeFirst();
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Removes all the events from the queue, and returns a checkpoint
+ * with the given event, which has just been removed, and the removed events
+ * that are not controls.
+ */
+private static Checkpoint drainQueue(PriorityQ.Event ev) {
+
+	Checkpoint cp = new Checkpoint();
+	for(; ev != null; ev = heap.removeFirst())
+	{
+		// controls are rescheduled by restoreQueue
+		if( !(ev.event instanceof ControlEvent) && !isCancelled(ev.event) )
+			cp.add(ev.time, ev.event, ev.node, ev.pid, ev.priority);
+	}
+	return cp;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Replaces the event queue with a new one, which contains the controls
+ * scheduled from the current time on, and the events of the given
+ * checkpoint.
+ */
+private static void restoreQueue(Checkpoint cp) {
+
+	final long time = CommonState.getTime();
+	heap = newQueue();
+	cancelledQueued = 0;
+	for (int i=0; i < controls.length; i++) {
+		ctrlSchedules[i].setNext(time);
+		new ControlEvent(controls[i], ctrlSchedules[i], i);
+	}
+	for (int i=0; i < cp.size(); i++)
+		heap.add(cp.getTime(i), cp.getEvent(i), cp.getNode(i), cp.getPid(i),
+			cp.getPriority(i));
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Delivers the given event to the given protocol of the given node,
+ * if the node is up. Sets the node and pid in {@link CommonState}, the
+ * time has to be set by the caller. The events of an {@link EventBatch}
+ * are delivered one by one. A {@link RecyclableEvent} is recycled
+ * afterwards if it is not in the queue any more. The event of an
+ * {@link EventHandle} is delivered unless it has been cancelled.
+ */
+static void deliver(Node node, int pid, Object event) {
+
+	if (event instanceof EventBatch)
+	{
+		((EventBatch) event).deliver(node);
+		return;
+	}
+	if (event instanceof EventHandle)
+	{
+		EventHandle handle = (EventHandle) event;
+		if( !handle.fire() )
 		{
-			NextCycleEvent nce = (NextCycleEvent) ev.event;
+			if( parallel == null && cancelledQueued > 0 ) cancelledQueued--;
+			return;
+		}
+		event = handle.event;
+	}
+	if (node != Network.getPrototype() && node.isUp() )
+	{
+		if( parallel == null ) executed++;
+		CommonState.setPid(pid);
+		CommonState.setNode(node);
+		if( event instanceof NextCycleEvent )
+		{
+			NextCycleEvent nce = (NextCycleEvent) event;
 			nce.execute();
 		}
 		else
 		{
 			EDProtocol prot = null;
 			try {
-				prot = (EDProtocol) ev.node.getProtocol(pid);
+				prot = (EDProtocol) node.getProtocol(pid);
 			} catch (ClassCastException e) {
 				e.printStackTrace();
 				throw new IllegalArgumentException("Protocol " +
 					Configuration.lookupPid(pid) + 
-					" does not implement EDProtocol; " + ev.event.getClass()  );
+					" does not implement EDProtocol; " + event.getClass()  );
 			}
-			prot.processEvent(ev.node, pid, ev.event);
+			prot.processEvent(node, pid, event);
 		}
 	}
-	
-	return false;
+	if( parallel == null && event instanceof RecyclableEvent )
+		((RecyclableEvent) event).delivered();
 }
 
 //---------------------------------------------------------------------
@@ -329,10 +661,7 @@ private static boolean executeNext() {
 public static void nextExperiment() 
 {
 	// Reading parameter
-	if( Configuration.contains(PAR_PQ) ) 
-		heap = (PriorityQ) Configuration.getInstance(PAR_PQ);
-	else 
-		heap = new Heap();
+	heap = newQueue();
 	endtime = Configuration.getLong(PAR_ENDTIME);
 	if( CommonState.getEndTime() < 0 ) // not initialized yet
 		CommonState.setEndTime(endtime);
@@ -349,17 +678,77 @@ public static void nextExperiment()
 	controls = null;
 	ctrlSchedules = null;
 	nextlog = 0;
-	Network.reset();
-	System.err.println("EDSimulator: running initializers");
-	runInitializers();
-	scheduleControls();
+	hasPending = false;
+	cancelledQueued = 0;
+	executed = cancellable = cancelled = 0;
+	Checkpoint cp = Checkpoint.resume();
+	if( cp != null )
+		System.err.println("EDSimulator: resuming at time "+
+			CommonState.getTime());
+	else if( (cp = Checkpoint.warmStart()) != null )
+		System.err.println("EDSimulator: starting from the initial state "+
+			"of the first experiment");
+	else
+	{
+		Network.reset();
+		Checkpoint.check();
+	}
+	final Node prototype = Network.getPrototype();
+	batched = new boolean[prototype.protocolSize()];
+	for(int i=0; i<batched.length; ++i)
+		batched[i] = prototype.getProtocol(i) instanceof BatchEDProtocol;
+	checkpoints = Checkpoint.getSchedule();
+	nextCheckpoint = -1;
+	int threads = Configuration.getInt(PAR_THREADS, 1);
+	parallel = null;
+	if( threads > 1 )
+	{
+		if( cp != null || checkpoints != null || Checkpoint.isWarmStart() )
+			throw new IllegalParameterException(PAR_THREADS,
+				"Checkpoints are not supported by the parallel engine");
+		if( Network.isLazy() )
+			throw new IllegalParameterException(PAR_THREADS,
+				"Lazy networks are not supported by the parallel engine");
+		parallel = new ParallelEDSimulator(threads, heap, endtime);
+	}
+	if( cp == null )
+	{
+		System.err.println("EDSimulator: running initializers");
+		runInitializers();
+		scheduleControls();
+		if( Checkpoint.isWarmStart() )
+		{
+			cp = drainQueue(heap.removeFirst());
+			cp.storeWarmStart();
+			restoreQueue(cp);
+		}
+	}
+	else
+	{
+		scheduleControls();
+		restoreQueue(cp);
+		if( checkpoints != null )
+			checkpoints.setNext(CommonState.getTime()+1);
+	}
+	if( checkpoints != null ) nextCheckpoint = checkpoints.getNext();
 
 	// Perform the actual simulation; executeNext() will tell when to
 	// stop.
-	boolean exit = false;
-	while (!exit) {
-		exit = executeNext();
+	if( parallel != null )
+	{
+		parallel.run(getLookahead());
+		parallel = null;
 	}
+	else
+	{
+		boolean exit = false;
+		while (!exit) {
+			exit = executeNext();
+		}
+	}
+	if( cancellable > 0 )
+		System.err.println("EDSimulator: executed "+executed+" events, "+
+		"cancelled "+cancelled+" of "+cancellable+" cancellable events");
 
 	// analysis after the simulation
 	CommonState.setPhase(CommonState.POST_SIMULATION);
@@ -367,6 +756,11 @@ public static void nextExperiment()
 	{
 		if( ctrlSchedules[j].fin ) controls[j].execute();
 	}
+	for(int j=0; j<controls.length; ++j)
+	{
+		if( controls[j] instanceof ThreadedControl )
+			((ThreadedControl) controls[j]).shutdown();
+	}
 
 }
 
@@ -400,7 +794,169 @@ public static void add(long delay, Object event, Node node, int pid)
 	
 	long time = CommonState.getTime();
 	if( endtime - time > delay ) // check like this to deal with overflow 
-		heap.add(time+delay, event, node, (byte) pid);
+	{
+		if( parallel != null )
+			parallel.add(time+delay, event, node, (byte) pid);
+		else
+		{
+			if( hasPending && time+delay <= pending.time ) putBack();
+			heap.add(time+delay, event, node, (byte) pid);
+			if( event instanceof RecyclableEvent )
+				((RecyclableEvent) event).queued();
+		}
+	}
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Adds a new event to be scheduled like {@link #add}, and returns a handle
+ * that can be used to cancel it by {@link #cancel}. If the event would be
+ * delivered after the end of the simulation, it is not scheduled and the
+ * handle is not pending.
+ * 
+ * @param delay 
+ *   The number of time units before the event is scheduled.
+ *   Has to be non-negative.
+ * @param event 
+ *   The object associated to this event
+ * @param node 
+ *   The node associated to the event.
+ * @param pid 
+ *   The identifier of the protocol to which the event will be delivered
+ * @return the handle of the event
+ */
+public static EventHandle addCancellable(long delay, Object event, Node node,
+	int pid)
+{
+	EventHandle handle = new EventHandle(event);
+	add(delay, handle, node, pid);
+	if( endtime - CommonState.getTime() <= delay )
+		handle.state = EventHandle.DONE;
+	else if( parallel == null )
+	{
+		cancellable++;
+		if( event instanceof RecyclableEvent )
+			((RecyclableEvent) event).queued();
+	}
+	else parallel.countCancellable();
+	return handle;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Cancels the event of the given handle, if it is still pending, so that
+ * it is not delivered. Returns true if the event was pending, false if it
+ * was not or the handle is null. A
+ * {@link RecyclableEvent} is recycled if it is not in the queue any more.
+ * If the queue is an {@link IndexedHeap}, the event is removed from it.
+ * Otherwise, when more than half of the queue is made of cancelled events,
+ * it is compacted by removing them.
+ */
+public static boolean cancel(EventHandle handle)
+{
+	if( handle == null || handle.state != EventHandle.PENDING ) return false;
+	handle.state = EventHandle.CANCELLED;
+	if( parallel != null )
+	{
+		parallel.countCancelled();
+		return true;
+	}
+	cancelled++;
+	if( handle.event instanceof RecyclableEvent )
+		((RecyclableEvent) handle.event).delivered();
+	if( remove(handle) ) return true;
+	if( ++cancelledQueued >= COMPACT_MIN &&
+		2*cancelledQueued > heap.size() )
+	{
+		PriorityQ old = heap;
+		heap = newQueue();
+		for(PriorityQ.Event ev; (ev = old.removeFirst()) != null; )
+			if( !isCancelled(ev.event) )
+				heap.add(ev.time, ev.event, ev.node, ev.pid, ev.priority);
+		cancelledQueued = 0;
+	}
+	return true;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Removes the given handle from the queue, if the queue, or the queue
+ * within the timing wheel, is an {@link IndexedHeap}. Returns false if the
+ * handle was not removed.
+ */
+private static boolean remove(EventHandle handle)
+{
+	PriorityQ queue = heap;
+	if( queue instanceof TimerWheel ) queue = ((TimerWheel) queue).getQueue();
+	return queue instanceof IndexedHeap &&
+		((IndexedHeap) queue).remove(handle);
+}
+
+//---------------------------------------------------------------------
+
+/** Returns true if the given event is a cancelled {@link EventHandle} */
+static boolean isCancelled(Object event)
+{
+	return event instanceof EventHandle &&
+		((EventHandle) event).isCancelled();
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns a new instance of the event queue defined by {@value #PAR_PQ},
+ * within a timing wheel if {@value #PAR_TIMERWHEEL} is present.
+ */
+static PriorityQ newQueue()
+{
+	PriorityQ queue;
+	if( Configuration.contains(PAR_PQ) ) 
+		queue = (PriorityQ) Configuration.getInstance(PAR_PQ);
+	else 
+		queue = new Heap();
+	if( Configuration.contains(PAR_TIMERWHEEL) )
+	{
+		try {
+			queue = new TimerWheel(queue);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalParameterException(PAR_TIMERWHEEL,
+				e.getMessage());
+		}
+	}
+	return queue;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the lookahead of the parallel engine as defined by
+ * {@value #PAR_LOOKAHEAD}.
+ */
+private static long getLookahead()
+{
+	long lookahead = Long.MAX_VALUE;
+	if( Configuration.contains(PAR_LOOKAHEAD) )
+		lookahead = Configuration.getLong(PAR_LOOKAHEAD);
+	else
+	{
+		for(int i=0; i<Network.getPrototype().protocolSize(); ++i)
+		{
+			Protocol p = Network.getPrototype().getProtocol(i);
+			if( p instanceof peersim.transport.MinLatencyTransport )
+				lookahead = Math.min(lookahead,
+				((peersim.transport.MinLatencyTransport)p).
+				getMinLatency());
+		}
+	}
+	if( lookahead <= 0 || lookahead == Long.MAX_VALUE )
+		throw new IllegalParameterException(PAR_LOOKAHEAD,
+			"The parallel engine needs a positive lookahead; "+
+			"none of the transports provides one, please set "+
+			PAR_LOOKAHEAD);
+	return lookahead;
 }
 
 }
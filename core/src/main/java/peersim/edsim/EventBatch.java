@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.edsim;
+
+import peersim.core.*;
+
+/**
+* A group of events that are delivered to the same protocol of the same
+* node at the same time, which takes a single entry of the event queue.
+* When the batch is taken from the queue, its events are delivered one by
+* one in the order they were added, exactly as if each of them had its own
+* entry (in particular, they are not delivered once the node is down).
+* <p>
+* A batch is scheduled by {@link #schedule} with its first event. Until it
+* is delivered, further events for the same time and protocol can be
+* added by {@link #add}. After it has been delivered, it can be scheduled
+* again, so an owner that keeps it does not need to allocate new batches.
+* Batches are not thread safe, so they must not be used by the parallel
+* engine (see {@link EDSimulator#isParallel}).
+* @see peersim.transport.CoalescingTransport
+*/
+public final class EventBatch implements java.io.Serializable {
+
+private static final long serialVersionUID = 1L;
+
+
+// ============================ fields =================================
+// =====================================================================
+
+
+/** Not scheduled, or already delivered */
+private static final int IDLE = 0;
+
+/** Waiting in the event queue */
+private static final int SCHEDULED = 1;
+
+/** Being delivered */
+private static final int DELIVERING = 2;
+
+/** The events */
+private Object[] events = new Object[4];
+
+/** The number of events */
+private int size = 0;
+
+/** The delivery time */
+private long time;
+
+/** The protocol the events are delivered to */
+private int pid;
+
+/** The state of the batch */
+private int state = IDLE;
+
+
+// ========================== methods ==================================
+// =====================================================================
+
+
+/**
+* Schedules this batch to be delivered after the given delay to the given
+* protocol of the given node, with the given event as the first one.
+* Does nothing and returns false if the batch is scheduled or being
+* delivered.
+*/
+public boolean schedule(long delay, Object event, Node node, int pid) {
+
+	if( state != IDLE ) return false;
+	time = CommonState.getTime()+delay;
+	this.pid = pid;
+	events[0] = event;
+	size = 1;
+	state = SCHEDULED;
+	if( event instanceof RecyclableEvent )
+		((RecyclableEvent) event).queued();
+	EDSimulator.add(delay, this, node, pid);
+	return true;
+}
+
+// ---------------------------------------------------------------------
+
+/**
+* Adds the given event to this batch, if it is waiting in the queue to be
+* delivered to the given protocol after the given delay. Otherwise it does
+* nothing and returns false.
+*/
+public boolean add(long delay, Object event, int pid) {
+
+	if( state != SCHEDULED || this.pid != pid ||
+		time != CommonState.getTime()+delay ) return false;
+	if( size == events.length )
+	{
+		Object[] temp = new Object[2*size];
+		System.arraycopy(events, 0, temp, 0, size);
+		events = temp;
+	}
+	events[size++] = event;
+	if( event instanceof RecyclableEvent )
+		((RecyclableEvent) event).queued();
+	return true;
+}
+
+// ---------------------------------------------------------------------
+
+/**
+* Returns true if the batch is neither scheduled nor being delivered, so
+* it can be scheduled.
+*/
+public boolean isIdle() { return state == IDLE; }
+
+// ---------------------------------------------------------------------
+
+/** Returns the number of events in the batch */
+public int size() { return size; }
+
+// ---------------------------------------------------------------------
+
+/**
+* Delivers the events in order, and makes the batch idle.
+*/
+void deliver(Node node) {
+
+	state = DELIVERING;
+	try {
+		for(int i=0; i<size; ++i)
+		{
+			final Object event = events[i];
+			events[i] = null;
+			EDSimulator.deliver(node, pid, event);
+		}
+	} finally {
+		size = 0;
+		state = IDLE;
+	}
+}
+
+// ---------------------------------------------------------------------
+
+public String toString() {
+
+	return "EventBatch[time="+time+" pid="+pid+" size="+size+"]";
+}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.edsim;
+
+/**
+* A handle to an event scheduled by {@link EDSimulator#addCancellable},
+* which can be used to cancel it by {@link EDSimulator#cancel}. This is
+* useful for timeouts, which are usually obsolete when they are due:
+* a cancelled event is not delivered.
+* <p>
+* The handle is what is actually in the event queue. If the queue is an
+* {@link IndexedHeap}, the sequential engine removes a cancelled event
+* from it right away. Otherwise a cancelled event
+* stays in the queue until it is due, or until the queue is compacted,
+* which the sequential engine does when more than half of the queue is
+* made of cancelled events. The parallel engine (see
+* {@link EDSimulator#isParallel}) leaves cancelled events in its queues
+* until they are due, and an
+* event must be cancelled by the worker thread of its node, that is, by
+* the protocols of the node or of other nodes of the same worker.
+*/
+public final class EventHandle implements java.io.Serializable {
+
+private static final long serialVersionUID = 1L;
+
+
+// ============================ fields =================================
+// =====================================================================
+
+
+/** Waiting in the event queue */
+static final int PENDING = 0;
+
+/** Delivered, or not scheduled because it was after the end time */
+static final int DONE = 1;
+
+/** Cancelled */
+static final int CANCELLED = 2;
+
+/** The event */
+final Object event;
+
+/** The state of the event */
+int state = PENDING;
+
+/**
+* The (1-based) position of the handle in an {@link IndexedHeap}, 0 if it
+* is not in one
+*/
+transient int index = 0;
+
+
+// ========================== initialization ===========================
+// =====================================================================
+
+
+EventHandle(Object event) { this.event = event; }
+
+
+// ========================== methods ==================================
+// =====================================================================
+
+
+/** Returns the event */
+public Object getEvent() { return event; }
+
+// ---------------------------------------------------------------------
+
+/**
+* Returns true if the event is in the queue, that is, it has been neither
+* delivered nor cancelled.
+*/
+public boolean isPending() { return state == PENDING; }
+
+// ---------------------------------------------------------------------
+
+/** Returns true if the event has been cancelled */
+public boolean isCancelled() { return state == CANCELLED; }
+
+// ---------------------------------------------------------------------
+
+/**
+* Called when the event is due. Returns true if it has to be delivered,
+* that is, it has not been cancelled.
+*/
+boolean fire() {
+
+	if( state != PENDING ) return false;
+	state = DONE;
+	return true;
+}
+
+// ---------------------------------------------------------------------
+
+public String toString() {
+
+	return "EventHandle["+event+(state == CANCELLED ? ", cancelled]" : "]");
+}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.edsim;
+
+/**
+* A pool of {@link RecyclableEvent}s of one type. Typically, the event class
+* has a static pool, and a static factory method that takes an event from
+* the pool with {@link #acquire} and sets all its fields, for example:
+* <pre>
+* static final EventPool&lt;MyEvent&gt; pool = new EventPool&lt;MyEvent&gt;() {
+* 	protected MyEvent create() { return new MyEvent(); }
+* };
+* </pre>
+* The event driven engine returns the events to the pool after their
+* delivery. The pool keeps at most a given number of events, the others
+* are left to the garbage collector.
+* The pool is not thread safe: with the parallel engine (see
+* {@link EDSimulator#isParallel}) it always creates new events, which are
+* never recycled.
+*/
+public abstract class EventPool<T extends RecyclableEvent> {
+
+
+// ============================ fields =================================
+// =====================================================================
+
+
+/** The default maximal number of events kept by a pool */
+public static final int DEFAULT_CAPACITY = 1<<16;
+
+/** The maximal number of events kept */
+private final int capacity;
+
+/** The events in the pool */
+private RecyclableEvent[] events = new RecyclableEvent[16];
+
+/** The number of events in the pool */
+private int size = 0;
+
+
+// ========================== initialization ===========================
+// =====================================================================
+
+
+/** Creates a pool that keeps at most {@link #DEFAULT_CAPACITY} events. */
+protected EventPool() { this(DEFAULT_CAPACITY); }
+
+// ---------------------------------------------------------------------
+
+/** Creates a pool that keeps at most the given number of events. */
+protected EventPool(int capacity) { this.capacity = capacity; }
+
+
+// ========================== methods ==================================
+// =====================================================================
+
+
+/** Creates a new event, when the pool is empty. */
+protected abstract T create();
+
+// ---------------------------------------------------------------------
+
+/**
+* Returns an event from the pool, or a new one if the pool is empty.
+* The fields of a reused event have the values they had when it was last
+* used (after {@link RecyclableEvent#clear}), so they all have to be set.
+*/
+@SuppressWarnings("unchecked")
+public T acquire() {
+
+	if( EDSimulator.isParallel() ) return create();
+	T e;
+	if( size > 0 )
+	{
+		e = (T) events[--size];
+		events[size] = null;
+	}
+	else e = create();
+	e.pool = this;
+	return e;
+}
+
+// ---------------------------------------------------------------------
+
+/** Returns the number of events in the pool */
+public int size() { return size; }
+
+// ---------------------------------------------------------------------
+
+/** Returns the given event to the pool */
+void recycle(RecyclableEvent e) {
+
+	e.pool = null;
+	e.clear();
+	if( size == capacity ) return;
+	if( size == events.length )
+	{
+		RecyclableEvent[] temp = new RecyclableEvent[
+			(int)Math.min(capacity, 2L*size)];
+		System.arraycopy(events, 0, temp, 0, size);
+		events = temp;
+	}
+	events[size++] = e;
+}
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.edsim;
+
+import java.lang.management.*;
+import java.util.*;
+
+import peersim.config.*;
+import peersim.core.*;
+
+/**
+ * Command line benchmark that measures the garbage collection pressure of
+ * event driven simulations with and without {@link RecyclableEvent}s.
+ * Each node of the network forwards every message it receives to a random
+ * node, with a delay drawn uniformly from [1, 100], so the number of
+ * messages in flight is constant. The simulation is run once allocating a
+ * new message for each send, and once taking messages from an
+ * {@link EventPool}. For each run, the time and the bytes allocated per
+ * event (if the JVM can measure them), and the number of collections and
+ * the time spent in them are printed.
+ * <p>
+ * Usage:
+ * <pre>
+ * java peersim.edsim.EventPoolBenchmark [size] [messages] [endtime]
+ * </pre>
+ * where <code>size</code> is the size of the network (default 100000),
+ * <code>messages</code> is the number of messages in flight per node
+ * (default 10) and <code>endtime</code> is the end of the simulation
+ * (default 1000, that is, about 20 million events with the default
+ * sizes).
+ */
+public class EventPoolBenchmark {
+
+//--------------------------------------------------------------------------
+
+/** Disable instance construction */
+private EventPoolBenchmark() {}
+
+//--------------------------------------------------------------------------
+
+/** Whether messages are taken from the pool */
+private static boolean pooled;
+
+/** The number of delivered messages */
+private static long events;
+
+//--------------------------------------------------------------------------
+
+/** The benchmark message, with a few fields like a typical message */
+static final class Message extends RecyclableEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	static final EventPool<Message> pool = new EventPool<Message>() {
+		protected Message create() { return new Message(); }
+	};
+
+	Node sender;
+	double value;
+	long time;
+	int hops;
+
+	/** Returns a new or recycled message, depending on the mode */
+	static Message get(Node sender, double value, int hops) {
+
+		Message m = (pooled ? pool.acquire() : new Message());
+		m.sender = sender;
+		m.value = value;
+		m.time = CommonState.getTime();
+		m.hops = hops;
+		return m;
+	}
+
+	protected void clear() { sender = null; }
+}
+
+//--------------------------------------------------------------------------
+
+/** Forwards each message to a random node */
+public static class Forward implements EDProtocol<Message> {
+
+	public Forward(String prefix) {}
+
+	public Object clone() { return this; }
+
+	public void processEvent(Node node, int pid, Message m) {
+
+		events++;
+		send(node, pid, m.value+1, m.hops+1);
+	}
+
+	static void send(Node node, int pid, double value, int hops) {
+
+		Node dest = Network.get(CommonState.r.nextInt(Network.size()));
+		EDSimulator.add(1+CommonState.r.nextInt(100),
+			Message.get(node, value, hops), dest, pid);
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/** Sends the initial messages */
+public static class Start implements Control {
+
+	private final int messages;
+
+	private final int pid;
+
+	public Start(String prefix) {
+		messages = Configuration.getInt(prefix+".messages");
+		pid = Configuration.getPid(prefix+".protocol");
+	}
+
+	public boolean execute() {
+
+		for(int i=0; i<Network.size(); ++i)
+			for(int j=0; j<messages; ++j)
+				Forward.send(Network.get(i), pid, 0, 0);
+		return false;
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/** Returns the bytes allocated by the current thread, or -1 */
+private static long allocated() {
+
+	ThreadMXBean t = ManagementFactory.getThreadMXBean();
+	if( t instanceof com.sun.management.ThreadMXBean )
+		return ((com.sun.management.ThreadMXBean) t).
+			getThreadAllocatedBytes(Thread.currentThread().getId());
+	return -1;
+}
+
+//--------------------------------------------------------------------------
+
+/** Returns the number of collections and the time spent in them */
+private static long[] collections() {
+
+	long[] r = new long[2];
+	for(GarbageCollectorMXBean gc :
+		ManagementFactory.getGarbageCollectorMXBeans())
+	{
+		r[0] += Math.max(0, gc.getCollectionCount());
+		r[1] += Math.max(0, gc.getCollectionTime());
+	}
+	return r;
+}
+
+//--------------------------------------------------------------------------
+
+/** Runs one experiment in the given mode and prints the results */
+private static void run(boolean pool) {
+
+	pooled = pool;
+	events = 0;
+	CommonState.initializeRandom(1234567890L);
+	System.gc();
+	long[] gc = collections();
+	long bytes = allocated();
+	long start = System.nanoTime();
+	EDSimulator.nextExperiment();
+	double ms = (System.nanoTime()-start)/1e6;
+	bytes = (bytes < 0 ? -1 : allocated()-bytes);
+	long[] gc2 = collections();
+	System.out.println((pool ? "pooled" : "new   ")+
+		": "+events+" events, "+ms+" ms, "+
+		(bytes < 0 ? "n/a" : ""+((double)bytes/events))+" bytes/event, "+
+		(gc2[0]-gc[0])+" collections, "+(gc2[1]-gc[1])+" ms in GC");
+}
+
+//--------------------------------------------------------------------------
+
+public static void main(String[] args) {
+
+	Properties p = new Properties();
+	p.setProperty("network.size", args.length > 0 ? args[0] : "100000");
+	p.setProperty("init.start.messages", args.length > 1 ? args[1] : "10");
+	p.setProperty("simulation.endtime", args.length > 2 ? args[2] : "1000");
+	p.setProperty("protocol.forward", Forward.class.getName());
+	p.setProperty("init.start", Start.class.getName());
+	p.setProperty("init.start.protocol", "forward");
+	Configuration.setConfig(p);
+
+	// warm up, then measure
+	for(int i=0; i<2; ++i)
+	{
+		run(false);
+		run(true);
+	}
+}
+
+}
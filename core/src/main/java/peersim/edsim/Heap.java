@@ -204,6 +204,7 @@ public Event removeFirst() {
 	ev.event = events[0];
 	ev.node = nodes[0];
 	ev.pid = pids[0];
+	ev.priority = times[0] & maxPriority();
 	swap(1, size);
 	size--;
 	minHeapify(1);
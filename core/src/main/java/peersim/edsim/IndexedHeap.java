@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.edsim;
+
+import peersim.core.Node;
+import peersim.core.CommonState;
+import peersim.config.Configuration;
+import peersim.config.IllegalParameterException;
+
+/**
+ * A binary heap like {@link Heap}, which also keeps track of the position
+ * of each {@link EventHandle} it contains. This way
+ * {@link EDSimulator#cancel} removes a cancelled event from the queue in
+ * O(log n), instead of leaving it in the queue until it is due. This
+ * pays off for protocols that cancel most of their timeouts; for the
+ * other protocols {@link Heap} is slightly faster.
+ * <p>
+ * The events are ordered exactly as by {@link Heap}, with the same
+ * parameters, so as long as no event is removed the two queues return the
+ * events in the same order.
+ * @see EDSimulator#addCancellable
+ */
+public class IndexedHeap implements PriorityQ {
+
+//--------------------------------------------------------------------------
+// Constants
+//--------------------------------------------------------------------------
+
+/**
+ * This parameter specifies how many
+ * bits are used to order events that occur at the same time. Defaults
+ * to 8. A value smaller than 8 causes an IllegalParameterException.
+ * @config
+ */
+private static final String PAR_PBITS = "pbits";
+
+/**
+ * Specifies the initial capacity of the heap. Defaults to 65536.
+ * @config
+ */
+private static final String PAR_SIZE = "size";
+
+
+//--------------------------------------------------------------------------
+// Fields
+//--------------------------------------------------------------------------
+
+/** Event component of the heap */
+private Object[] events;
+
+/** Time component of the heap, with the priority in the lowest bits */
+private long[] times;
+
+/** Node component of the heap */
+private Node[] nodes;
+
+/** Pid component of the heap */
+private byte[] pids;
+
+/** Number of elements */
+private int size;
+
+/** Singleton event object used to return (event, time, node, pid) tuples */
+private final Event ev = new Event();
+
+/** The number of bits reserved to order event with the same timestamp */
+private final int pbits;
+
+/** The mask to test whether the time value fits into the range we can
+represent */
+private final long overflowMask;
+
+//--------------------------------------------------------------------------
+// Contructor
+//--------------------------------------------------------------------------
+
+/**
+ * Initializes a new heap using defaults.
+ */
+public IndexedHeap() {
+	this(""); // "" is not a valid prefix for a component
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Initializes a new heap using the configuration.
+ */
+public IndexedHeap(String prefix) {
+
+	int size = Configuration.getInt(prefix+"."+PAR_SIZE,65536);
+	pbits = Configuration.getInt(prefix+"."+PAR_PBITS,8);
+	if (pbits < 8 || pbits >= 31) {
+		throw new IllegalParameterException(prefix+"."+PAR_PBITS,
+		"This parameter should be >= 8 or < 31");
+	}
+	overflowMask = ~maxTime();
+	events = new Object[size];
+	times = new long[size];
+	nodes = new Node[size];
+	pids = new byte[size];
+}
+
+//--------------------------------------------------------------------------
+// Methods
+//--------------------------------------------------------------------------
+
+public int size()
+{
+	return size;
+}
+
+//--------------------------------------------------------------------------
+
+public void add(long time, Object event, Node node, byte pid)
+{
+	add(time,event,node,pid,CommonState.r.nextInt(1 << pbits));
+}
+
+//--------------------------------------------------------------------------
+
+public void add(long time, Object event, Node node, byte pid, long priority)
+{
+	if( (time&overflowMask) != 0 ) throw new
+		IllegalArgumentException("Time overflow: time="+time);
+
+	time = (time << pbits) | priority;
+
+	size++;
+	if (size > events.length) doubleCapacity();
+	set(size, time, event, node, pid);
+	siftUp(size);
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Removes the first event in the heap and returns it.
+ * Note that, to avoid garbage collection, a singleton instance of
+ * the Event class is used. This means that data contained in the
+ * returned event are overwritten when a new invocation of this
+ * method is performed.
+ * @return first event or null if size is zero
+ */
+public Event removeFirst() {
+
+	if(size==0) return null;
+
+	ev.time = times[0] >> pbits;
+	ev.event = events[0];
+	ev.node = nodes[0];
+	ev.pid = pids[0];
+	ev.priority = times[0] & maxPriority();
+	removeAt(1);
+	return ev;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Removes the given handle from the heap. Returns false if it is not
+ * in the heap, for example because it has already been removed by
+ * {@link #removeFirst}.
+ */
+boolean remove(EventHandle handle) {
+
+	final int index = handle.index;
+	if (index < 1 || index > size || events[index-1] != handle)
+		return false;
+	removeAt(index);
+	return true;
+}
+
+//--------------------------------------------------------------------------
+
+public long maxTime() { return Long.MAX_VALUE >> pbits; }
+
+//--------------------------------------------------------------------------
+
+public long maxPriority() { return (1L << pbits)-1; }
+
+//--------------------------------------------------------------------------
+
+/**
+ *  Prints the time values contained in the heap.
+ */
+public String toString()
+{
+	StringBuffer buffer = new StringBuffer();
+	buffer.append("[Size: " + size + " Times: ");
+	for (int i=0; i < size; i++) {
+		buffer.append(times[i]+",");
+	}
+	buffer.append("]");
+	return buffer.toString();
+}
+
+
+//--------------------------------------------------------------------------
+// Private methods
+//--------------------------------------------------------------------------
+
+/**
+ * Removes the element at the given (1-based) position, replacing it with
+ * the last element, which is then moved to its place in the heap.
+ */
+private void removeAt(int index)
+{
+	final int i = index-1;
+	if (events[i] instanceof EventHandle)
+		((EventHandle) events[i]).index = 0;
+	if (index < size) {
+		set(index, times[size-1], events[size-1], nodes[size-1],
+			pids[size-1]);
+	}
+	events[size-1] = null;
+	nodes[size-1] = null;
+	size--;
+	if (index <= size) {
+		siftDown(index);
+		siftUp(index);
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Moves the element at the given (1-based) position up, as long as it is
+ * earlier than its parent.
+ */
+private void siftUp(int index)
+{
+	final long time = times[index-1];
+	while (index > 1 && times[index/2-1] > time) {
+		swap(index, index/2);
+		index = index/2;
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Moves the element at the given (1-based) position down, as long as it
+ * is later than one of its children, like {@link Heap}.
+ */
+private void siftDown(int index)
+{
+	final long time = times[index-1];
+	int l, r;
+	long lt, rt;
+	long mintime;
+	int minindex = index;
+	do {
+		index = minindex;
+		mintime = time;
+		l = index << 1;
+		r = l + 1;
+		if (l <= size && (lt = times[l-1]) < mintime) {
+			minindex = l;
+			mintime = lt;
+		}
+		if (r <= size && (rt = times[r-1]) < mintime) {
+			minindex = r;
+			mintime = rt;
+		}
+		if (minindex != index) {
+			swap(minindex, index);
+		}
+	} while (minindex != index);
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Swaps the elements at the given (1-based) positions.
+ */
+private void swap(int i1, int i2) {
+
+	final long tt = times[i1-1];
+	final Object te = events[i1-1];
+	final Node tn = nodes[i1-1];
+	final byte tp = pids[i1-1];
+	set(i1, times[i2-1], events[i2-1], nodes[i2-1], pids[i2-1]);
+	set(i2, tt, te, tn, tp);
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Puts an element at the given (1-based) position, and records the
+ * position in its handle, if it is an {@link EventHandle}.
+ */
+private void set(int index, long time, Object event, Node node, byte pid) {
+
+	events[index-1] = event;
+	times[index-1] = time;
+	nodes[index-1] = node;
+	pids[index-1] = pid;
+	if (event instanceof EventHandle)
+		((EventHandle) event).index = index;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ *
+ */
+private void doubleCapacity() {
+	int oldsize = events.length;
+	int newsize = oldsize*2;
+	Object[] te = new Object[newsize];
+	System.arraycopy(events, 0, te, 0, oldsize);
+	events = te;
+	long[] tt = new long[newsize];
+	System.arraycopy(times, 0, tt, 0, oldsize);
+	times = tt;
+	Node[] tn = new Node[newsize];
+	System.arraycopy(nodes, 0, tn, 0, oldsize);
+	nodes = tn;
+	byte[] tp = new byte[newsize];
+	System.arraycopy(pids, 0, tp, 0, oldsize);
+	pids = tp;
+}
+
+} // END IndexedHeap
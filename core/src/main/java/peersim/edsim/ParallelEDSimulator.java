@@ -0,0 +1,466 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.edsim;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import peersim.core.*;
+import peersim.util.ExtendedRandom;
+
+/**
+ * Conservative parallel engine used by {@link EDSimulator} when more than
+ * one thread is configured. The nodes are partitioned among a number of
+ * workers according to their ID, and each worker has its own event queue.
+ * Time is advanced in windows: if the earliest pending event is at time
+ * <em>t</em>, then all workers process their events in
+ * [<em>t</em>, <em>t</em>+lookahead) in parallel, because no event generated
+ * in this window can be delivered to another worker within the window.
+ * Events sent to other workers are collected in per-destination outboxes,
+ * which are merged into the destination queues in a fixed order at the
+ * beginning of the next window. Control events are kept in a separate
+ * queue and are executed by the calling thread between windows.
+ * <p>
+ * Determinism for a fixed seed and number of workers follows from the
+ * fixed partitioning, the per-worker {@link SimulationContext}s (forked from
+ * the context of the calling thread, each with its own random generator)
+ * and the fixed merge order.
+ */
+final class ParallelEDSimulator
+{
+
+//---------------------------------------------------------------------
+//Fields
+//---------------------------------------------------------------------
+
+/** The workers; worker i hosts the nodes whose ID is i modulo their number */
+private final Worker[] workers;
+
+/** The queue of control events */
+private final PriorityQ controls;
+
+/** The end time of the simulation */
+private final long endtime;
+
+/** The context of the thread that created this engine */
+private final SimulationContext main;
+
+/** The workers of the calling thread, null for non-worker threads */
+private final ThreadLocal<Worker> current = new ThreadLocal<Worker>();
+
+/**
+ * The end of the current window. Events for other workers must not be
+ * scheduled before this time.
+ */
+private long window;
+
+/** Selects the outboxes that are written in the current window */
+private int parity = 0;
+
+/** Number of cancellable events added outside the workers */
+private long cancellable = 0;
+
+/** Number of events cancelled outside the workers */
+private long cancelled = 0;
+
+//---------------------------------------------------------------------
+//Initialization
+//---------------------------------------------------------------------
+
+/**
+ * Creates the workers. Their event queues are created through
+ * {@link EDSimulator#newQueue}, and their random generators are seeded from
+ * {@link CommonState#r}.
+ * @param threads the number of workers
+ * @param controls the queue of control events
+ * @param endtime the end time of the simulation
+ */
+ParallelEDSimulator(int threads, PriorityQ controls, long endtime)
+{
+	this.controls = controls;
+	this.endtime = endtime;
+	main = SimulationContext.current();
+	workers = new Worker[threads];
+	for(int i=0; i<threads; ++i)
+	{
+		workers[i] = new Worker(i, EDSimulator.newQueue(),
+			new ExtendedRandom(CommonState.r.nextLong()));
+	}
+}
+
+//---------------------------------------------------------------------
+//Methods
+//---------------------------------------------------------------------
+
+/**
+ * Schedules a node event. Called from the main thread the event is added
+ * directly to the queue of the destination worker. Called from a worker,
+ * the event is added to the own queue of the worker, or to the outbox of
+ * the destination worker.
+ * @throws IllegalStateException if the event is scheduled for another
+ * worker within the current window, which means the lookahead was
+ * too large.
+ */
+void add(long time, Object event, Node node, byte pid)
+{
+	if( node == null ) throw new IllegalArgumentException(
+		"Events with no destination are not supported");
+	final int d = partition(node);
+	final Worker src = current.get();
+	if( src == null )
+	{
+		final Worker dst = workers[d];
+		dst.queue.add(time, event, node, pid);
+		if( time < dst.next ) dst.next = time;
+	}
+	else if( d == src.id )
+	{
+		src.queue.add(time, event, node, pid);
+	}
+	else
+	{
+		if( time < window ) throw new IllegalStateException(
+			"Event "+event+" for node "+node.getID()+
+			" scheduled at time "+time+
+			" before the end of the parallel window "+window+
+			"; the lookahead (simulation.lookahead) is too large");
+		final long max = workers[d].queue.maxPriority();
+		src.out[parity][d].add(time, event, node, pid,
+			src.random.nextInt((int)Math.min(max, Integer.MAX_VALUE-1)+1));
+	}
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Runs the simulation until the end time is reached, the queues are empty,
+ * or a control stops the simulation.
+ * @param lookahead the minimal delay of events sent to other nodes
+ */
+void run(long lookahead)
+{
+	System.err.println("EDSimulator: running on "+workers.length+
+		" threads with lookahead "+lookahead);
+	ExecutorService pool = Executors.newFixedThreadPool(workers.length,
+		new ThreadFactory() {
+			private int count = 0;
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "EDSimulator-"+(count++));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	List<Worker> tasks = Arrays.asList(workers);
+	try {
+		while(true)
+		{
+			long t = Long.MAX_VALUE;
+			for(int i=0; i<workers.length; ++i)
+			{
+				t = Math.min(t, workers[i].next);
+				for(int j=0; j<workers.length; ++j)
+					t = Math.min(t, workers[i].out[parity][j].min);
+			}
+			final long ctrl = peekControl();
+			t = Math.min(t, ctrl);
+			if( t == Long.MAX_VALUE )
+			{
+				System.err.println("EDSimulator: queue is empty, "+
+				"quitting at time "+CommonState.getTime());
+				break;
+			}
+			EDSimulator.logTime(t);
+			if( t >= endtime )
+			{
+				System.err.println("EDSimulator: reached end time, "+
+				"quitting, leaving "+size()+
+				" unprocessed events in the queue");
+				break;
+			}
+			CommonState.setTime(t);
+			if( ctrl == t )
+			{
+				if( executeControls(t) ) break;
+				continue;
+			}
+
+			window = Math.min(t+lookahead, Math.min(ctrl, endtime));
+			parity ^= 1;
+			for(Future<Object> f : pool.invokeAll(tasks))
+			{
+				try { f.get(); }
+				catch( ExecutionException e ) {
+					Throwable c = e.getCause();
+					if( c instanceof RuntimeException )
+						throw (RuntimeException) c;
+					if( c instanceof Error ) throw (Error) c;
+					throw new RuntimeException(c);
+				}
+			}
+		}
+	} catch( InterruptedException e ) {
+		throw new RuntimeException(e);
+	} finally {
+		pool.shutdown();
+	}
+
+	long executed = 0;
+	for(int i=0; i<workers.length; ++i)
+	{
+		executed += workers[i].executed;
+		cancellable += workers[i].cancellable;
+		cancelled += workers[i].cancelled;
+	}
+	System.err.println("EDSimulator: executed "+executed+
+		" node events in parallel"+(cancellable == 0 ? "" :
+		", cancelled "+cancelled+" of "+cancellable+" cancellable events"));
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Counts a cancellable event added by the calling thread, see
+ * {@link EDSimulator#addCancellable}.
+ */
+void countCancellable()
+{
+	final Worker w = current.get();
+	if( w != null ) w.cancellable++;
+	else cancellable++;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Counts an event cancelled by the calling thread, see
+ * {@link EDSimulator#cancel}.
+ */
+void countCancelled()
+{
+	final Worker w = current.get();
+	if( w != null ) w.cancelled++;
+	else cancelled++;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the total number of events in the queues and outboxes.
+ */
+private int size()
+{
+	int size = controls.size();
+	for(int i=0; i<workers.length; ++i)
+	{
+		size += workers[i].queue.size();
+		for(int j=0; j<workers.length; ++j)
+			size += workers[i].out[parity][j].size;
+	}
+	return size;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the time of the first control event, or Long.MAX_VALUE if there
+ * is none. The event remains in the queue.
+ */
+private long peekControl()
+{
+	PriorityQ.Event ev = controls.removeFirst();
+	if( ev == null ) return Long.MAX_VALUE;
+	final long time = ev.time;
+	controls.add(time, ev.event, ev.node, ev.pid, ev.priority);
+	return time;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Executes all control events scheduled for the given time, in the order
+ * of their priority.
+ * @return true if one of the controls requested the end of the simulation
+ */
+private boolean executeControls(long time)
+{
+	while( peekControl() == time )
+	{
+		ControlEvent ctrl = (ControlEvent) controls.removeFirst().event;
+		if( ctrl.execute() ) return true;
+	}
+	return false;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the worker that hosts the given node.
+ */
+private int partition(Node node)
+{
+	final long id = node.getID() % workers.length;
+	return (int)(id < 0 ? id+workers.length : id);
+}
+
+//---------------------------------------------------------------------
+//Inner classes
+//---------------------------------------------------------------------
+
+/**
+ * A worker owns a partition of the nodes and processes their events in
+ * each window.
+ */
+private final class Worker implements Callable<Object>
+{
+	/** Index of this worker */
+	final int id;
+
+	/** The events of the nodes of this worker */
+	final PriorityQ queue;
+
+	/** The random generator of this worker */
+	final ExtendedRandom random;
+
+	/** The context bound to the thread running this worker */
+	final SimulationContext context;
+
+	/** Outboxes indexed by parity and destination worker */
+	final Outbox[][] out;
+
+	/** Time of the first event in {@link #queue} */
+	long next = Long.MAX_VALUE;
+
+	/** Number of events processed */
+	long executed = 0;
+
+	/** Number of cancellable events added by this worker */
+	long cancellable = 0;
+
+	/** Number of events cancelled by this worker */
+	long cancelled = 0;
+
+	Worker(int id, PriorityQ queue, ExtendedRandom random)
+	{
+		this.id = id;
+		this.queue = queue;
+		this.random = random;
+		context = SimulationContext.current().fork(random);
+		out = new Outbox[2][workers.length];
+		for(int i=0; i<workers.length; ++i)
+		{
+			out[0][i] = new Outbox();
+			out[1][i] = new Outbox();
+		}
+	}
+
+	/**
+	 * Merges the outboxes written in the previous window and
+	 * processes all events before the end of the current window.
+	 */
+	public Object call()
+	{
+		current.set(this);
+		context.setTime(main.getTime());
+		SimulationContext old = SimulationContext.bind(context);
+		try {
+			for(int i=0; i<workers.length; ++i)
+				workers[i].out[parity^1][id].drainTo(queue);
+
+			final long end = window;
+			while( true )
+			{
+				PriorityQ.Event ev = queue.removeFirst();
+				if( ev == null )
+				{
+					next = Long.MAX_VALUE;
+					break;
+				}
+				if( ev.time >= end )
+				{
+					queue.add(ev.time, ev.event, ev.node, ev.pid,
+						ev.priority);
+					next = ev.time;
+					break;
+				}
+				final Node node = ev.node;
+				final int pid = ev.pid;
+				final Object event = ev.event;
+				context.setTime(ev.time);
+				EDSimulator.deliver(node, pid, event);
+				if( !EDSimulator.isCancelled(event) ) executed++;
+			}
+		} finally {
+			SimulationContext.bind(old);
+			current.remove();
+		}
+		return null;
+	}
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Events sent by one worker to another one during a window.
+ */
+private static final class Outbox
+{
+	long[] times = new long[16];
+	long[] prios = new long[16];
+	Object[] events = new Object[16];
+	Node[] nodes = new Node[16];
+	byte[] pids = new byte[16];
+	int size = 0;
+
+	/** The smallest time in the outbox */
+	long min = Long.MAX_VALUE;
+
+	void add(long time, Object event, Node node, byte pid, long priority)
+	{
+		if( size == times.length )
+		{
+			final int n = 2*size;
+			times = Arrays.copyOf(times, n);
+			prios = Arrays.copyOf(prios, n);
+			events = Arrays.copyOf(events, n);
+			nodes = Arrays.copyOf(nodes, n);
+			pids = Arrays.copyOf(pids, n);
+		}
+		times[size] = time;
+		prios[size] = priority;
+		events[size] = event;
+		nodes[size] = node;
+		pids[size] = pid;
+		size++;
+		if( time < min ) min = time;
+	}
+
+	void drainTo(PriorityQ queue)
+	{
+		for(int i=0; i<size; ++i)
+		{
+			queue.add(times[i], events[i], nodes[i], pids[i], prios[i]);
+			events[i] = null;
+			nodes[i] = null;
+		}
+		size = 0;
+		min = Long.MAX_VALUE;
+	}
+}
+
+}
@@ -95,6 +95,12 @@ public class Event
 	public long time;
 	public Node node;
 	public byte pid;
+	/**
+	 * The priority the event was added with. Implementations that do not
+	 * keep track of priorities leave it zero.
+	 * @see #add(long,Object,Node,byte,long)
+	 */
+	public long priority;
 	public String toString() {
 		return "["+event+" to node "+node+
 			", protocol "+pid+", at time "+time+"]"; }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.edsim;
+
+import java.util.*;
+
+import peersim.config.*;
+import peersim.core.*;
+
+/**
+ * Command line benchmark comparing {@link PriorityQ} implementations under
+ * the classic "hold" model: the queue is filled with <em>n</em> events, and
+ * then each step removes the first event and schedules a new one at the
+ * removed time plus a delay drawn uniformly from [<em>min</em>,
+ * <em>max</em>], mimicking {@link peersim.transport.UniformRandomTransport}.
+ * The time spent per hold operation is printed for each queue and size.
+ * <p>
+ * Usage:
+ * <pre>
+ * java peersim.edsim.PriorityQBenchmark [sizes] [min] [max] [queues]
+ * </pre>
+ * where <code>sizes</code> is a comma separated list of queue sizes
+ * (default <code>100000,1000000,10000000</code>; sizes up to 1e8 need
+ * several gigabytes of heap), <code>min</code> and <code>max</code> are the
+ * delay bounds (default 10 and 100), and <code>queues</code> is a comma
+ * separated list of fully qualified {@link PriorityQ} classes (default
+ * {@link Heap} and {@link CalendarQueue}).
+ */
+public class PriorityQBenchmark {
+
+//--------------------------------------------------------------------------
+
+/** Disable instance construction */
+private PriorityQBenchmark() {}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Runs the benchmark for one queue and size. Returns the nanoseconds spent
+ * per hold operation.
+ */
+private static double hold(PriorityQ q, int n, long min, long max, long seed)
+{
+	Random r = new Random(seed);
+	final long range = max-min+1;
+	for(int i=0; i<n; ++i)
+		q.add(min+(long)(r.nextDouble()*range), null, null, (byte)0);
+
+	final int steps = Math.max(n, 1000000);
+	long start = System.nanoTime();
+	for(int i=0; i<steps; ++i)
+	{
+		long t = q.removeFirst().time;
+		q.add(t+min+(long)(r.nextDouble()*range), null, null, (byte)0);
+	}
+	return (System.nanoTime()-start)/(double)steps;
+}
+
+//--------------------------------------------------------------------------
+
+public static void main(String[] args) throws Exception {
+
+	String sizes = args.length > 0 ? args[0] : "100000,1000000,10000000";
+	long min = args.length > 1 ? Long.parseLong(args[1]) : 10;
+	long max = args.length > 2 ? Long.parseLong(args[2]) : 100;
+	String queues = args.length > 3 ? args[3] :
+		Heap.class.getName()+","+CalendarQueue.class.getName();
+
+	// queues read their (default) parameters from the configuration
+	Configuration.setConfig(new Properties());
+	CommonState.initializeRandom(1234567890L);
+
+	String[] qs = queues.split(",");
+	for(String size : sizes.split(","))
+	{
+		int n = (int) Double.parseDouble(size);
+		for(int i=0; i<qs.length; ++i)
+		{
+			PriorityQ q = (PriorityQ) Class.forName(qs[i]).getConstructor().newInstance();
+			System.gc();
+			double ns = hold(q, n, min, max, n);
+			System.out.println(qs[i]+" size "+n+": "+ns+" ns/hold");
+		}
+	}
+}
+
+}
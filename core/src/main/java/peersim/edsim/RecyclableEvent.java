@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.edsim;
+
+/**
+* An event that can be reused after it has been delivered, to reduce the
+* number of objects allocated by the simulation. Recyclable events are
+* obtained from an {@link EventPool}, and the event driven engine returns
+* them to their pool when they have been delivered as many times as
+* they were scheduled, after {@link EDProtocol#processEvent} returns.
+* So an event can be sent to several nodes, or sent again by the protocol
+* that receives it: it is recycled only when it is not in the event queue
+* any more.
+* <p>
+* A protocol that keeps a reference to a recyclable event after
+* processing it must call {@link #retain}, otherwise the event may be
+* modified when it is reused. Events that are dropped (for example by
+* {@link peersim.transport.UnreliableTransport}) are not recycled, they are
+* simply garbage collected. Events are not recycled by the parallel
+* engine (see {@link EDSimulator#isParallel}), and events restored from a
+* {@link peersim.core.Checkpoint} are not returned to their pool.
+*/
+public abstract class RecyclableEvent implements java.io.Serializable {
+
+private static final long serialVersionUID = 1L;
+
+
+// ============================ fields =================================
+// =====================================================================
+
+
+/** The number of times the event is in the event queue */
+private int pending = 0;
+
+/** The pool the event is returned to, null if it is not recycled */
+transient EventPool<?> pool = null;
+
+
+// ========================== methods ==================================
+// =====================================================================
+
+
+/**
+* Called when the event is returned to its pool. Subclasses should clear
+* their references to other objects, to allow their garbage collection.
+* Does nothing by default.
+*/
+protected void clear() {}
+
+// ---------------------------------------------------------------------
+
+/**
+* Makes sure that this event is never recycled, so that it can be kept
+* after it has been processed.
+*/
+public final void retain() { pool = null; }
+
+// ---------------------------------------------------------------------
+
+/** Called when the event is inserted in the event queue */
+final void queued() { pending++; }
+
+// ---------------------------------------------------------------------
+
+/**
+* Called when the event has been delivered. Returns it to its pool if it
+* is not in the event queue any more.
+*/
+final void delivered() {
+
+	if( --pending == 0 && pool != null ) pool.recycle(this);
+}
+
+}
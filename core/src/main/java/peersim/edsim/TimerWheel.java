@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.edsim;
+
+import java.util.Arrays;
+
+import peersim.core.CommonState;
+import peersim.core.Node;
+
+/**
+ * An event queue that keeps the {@link NextCycleEvent}s in a hierarchical
+ * timing wheel, and all the other events in another {@link PriorityQ}.
+ * The periodic events scheduled by {@link CDScheduler}, one per node and
+ * protocol, are usually the bulk of the queue, so this keeps the other
+ * queue small for the actual messages.
+ * <p>
+ * The wheel has {@value #LEVELS} levels of {@value #SLOTS} slots. An event
+ * is put in the lowest level whose slot covers its time, given the current
+ * time of the wheel, so insertion is O(1). When a slot of a higher level
+ * is reached, its events are moved to the lower levels. When a slot of
+ * the lowest level is reached, its events, which have all the same time,
+ * are sorted by priority (with a counting sort if there are many of them)
+ * and returned one by one, merged with the events of the other queue.
+ * <p>
+ * The priorities are drawn exactly as in {@link Heap}, and ties are
+ * broken by priority in both queues, so the events are returned in the
+ * same order as by the other queue alone, except for events with the same
+ * time and priority, whose order is unspecified anyway.
+ * @see EDSimulator
+ */
+final class TimerWheel implements PriorityQ {
+
+//--------------------------------------------------------------------------
+// Constants
+//--------------------------------------------------------------------------
+
+/** The number of bits of time covered by one level */
+private static final int BITS = 8;
+
+/** The number of slots of a level */
+private static final int SLOTS = 1 << BITS;
+
+/** The number of levels, enough for any non-negative time */
+private static final int LEVELS = 8;
+
+/** The end of a list of entries */
+private static final int NIL = -1;
+
+/** The largest number of priorities sorted by a counting sort */
+private static final int MAX_COUNTING = 1 << 16;
+
+//--------------------------------------------------------------------------
+// Fields
+//--------------------------------------------------------------------------
+
+/** The queue of all the other events */
+private final PriorityQ queue;
+
+/** The number of priorities */
+private final int priorities;
+
+/** The entries of the wheel: times */
+private long[] times = new long[1024];
+
+/** The entries of the wheel: priorities */
+private long[] prios = new long[1024];
+
+/** The entries of the wheel: events */
+private Object[] events = new Object[1024];
+
+/** The entries of the wheel: nodes */
+private Node[] nodes = new Node[1024];
+
+/** The entries of the wheel: protocol identifiers */
+private byte[] pids = new byte[1024];
+
+/** The entries of the wheel: the next entry in the same list */
+private int[] next = new int[1024];
+
+/** The number of entries ever used */
+private int used = 0;
+
+/** The list of the free entries */
+private int free = NIL;
+
+/** The number of events in the wheel, including {@link #due} */
+private int size = 0;
+
+/** The first and last entry of each slot, level by level */
+private final int[] heads = new int[LEVELS*SLOTS], tails = new int[LEVELS*SLOTS];
+
+/** One bit for each slot, set if the slot is not empty */
+private final long[] bitmap = new long[LEVELS*SLOTS/64];
+
+/**
+ * The time of the wheel. All the events in the slots are not earlier,
+ * and those of a slot of a level other than the lowest one have the
+ * same time as this, up to the bits of that level.
+ */
+private long now = 0;
+
+/** The events of time {@link #now} taken from the wheel, in order */
+private int[] due = new int[1024];
+
+/** The number of events in {@link #due} */
+private int dueSize = 0;
+
+/** The position of the next event in {@link #due} */
+private int duePos = 0;
+
+/** Temporary storage for sorting {@link #due} */
+private int[] sorted = new int[1024];
+
+/** Temporary storage for sorting {@link #due} */
+private long[] keys = new long[1024];
+
+/** Counters for the counting sort, null if there are too many priorities */
+private final int[] counts;
+
+/** The first event of {@link #queue}, taken out to be compared */
+private final Event held = new Event();
+
+/** Whether {@link #held} is set */
+private boolean hasHeld = false;
+
+/** Singleton event object used to return the events of the wheel */
+private final Event ev = new Event();
+
+//--------------------------------------------------------------------------
+// Contructor
+//--------------------------------------------------------------------------
+
+/**
+ * Creates a wheel for the {@link NextCycleEvent}s, and uses the given queue
+ * for the other events.
+ */
+TimerWheel(PriorityQ queue) {
+
+	if( queue.maxPriority() >= Integer.MAX_VALUE )
+		throw new IllegalArgumentException(
+		"Too many priorities for the timing wheel: "+queue.maxPriority());
+	this.queue = queue;
+	priorities = (int) queue.maxPriority()+1;
+	counts = priorities <= MAX_COUNTING ? new int[priorities+1] : null;
+	Arrays.fill(heads, NIL);
+}
+
+//--------------------------------------------------------------------------
+// Methods
+//--------------------------------------------------------------------------
+
+public int size() {
+
+	return size + queue.size() + (hasHeld ? 1 : 0);
+}
+
+//--------------------------------------------------------------------------
+
+public void add(long time, Object event, Node node, byte pid) {
+
+	if( event instanceof NextCycleEvent )
+		add(time, event, node, pid, CommonState.r.nextInt(priorities));
+	else
+	{
+		queue.add(time, event, node, pid);
+		if( hasHeld && time <= held.time ) putBack();
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Adds the event to the wheel if it is a {@link NextCycleEvent} and it is
+ * not earlier than the wheel, otherwise to the other queue.
+ */
+public void add(long time, Object event, Node node, byte pid, long priority) {
+
+	if( size == 0 ) now = time;
+	if( !(event instanceof NextCycleEvent) || time < now ||
+		(time == now && duePos < dueSize) )
+	{
+		queue.add(time, event, node, pid, priority);
+		if( hasHeld && time <= held.time ) putBack();
+		return;
+	}
+	if( free == NIL && used == times.length ) grow();
+	final int e;
+	if( free != NIL )
+	{
+		e = free;
+		free = next[e];
+	}
+	else e = used++;
+	times[e] = time;
+	prios[e] = priority;
+	events[e] = event;
+	nodes[e] = node;
+	pids[e] = pid;
+	link(e);
+	size++;
+}
+
+//--------------------------------------------------------------------------
+
+public Event removeFirst() {
+
+	if( duePos == dueSize && size > 0 ) advance();
+	if( !hasHeld && queue.size() > 0 )
+	{
+		Event first = queue.removeFirst();
+		held.time = first.time;
+		held.event = first.event;
+		held.node = first.node;
+		held.pid = first.pid;
+		held.priority = first.priority;
+		hasHeld = true;
+	}
+	if( duePos < dueSize )
+	{
+		final int e = due[duePos];
+		if( !hasHeld || times[e] < held.time ||
+			(times[e] == held.time && prios[e] <= held.priority) )
+		{
+			duePos++;
+			size--;
+			ev.time = times[e];
+			ev.event = events[e];
+			ev.node = nodes[e];
+			ev.pid = pids[e];
+			ev.priority = prios[e];
+			events[e] = null;
+			nodes[e] = null;
+			next[e] = free;
+			free = e;
+			return ev;
+		}
+	}
+	if( !hasHeld ) return null;
+	hasHeld = false;
+	return held;
+}
+
+//--------------------------------------------------------------------------
+
+public long maxTime() { return queue.maxTime(); }
+
+//--------------------------------------------------------------------------
+
+/** Returns the queue of the events that are not in the wheel */
+PriorityQ getQueue() { return queue; }
+
+//--------------------------------------------------------------------------
+
+public long maxPriority() { return queue.maxPriority(); }
+
+//--------------------------------------------------------------------------
+
+/**
+ * Puts the first event of the other queue back, because an earlier event
+ * has been added to it.
+ */
+private void putBack() {
+
+	hasHeld = false;
+	queue.add(held.time, held.event, held.node, held.pid, held.priority);
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Appends the given entry to the slot of its time, in the lowest level
+ * in which its time differs from {@link #now}.
+ */
+private void link(int e) {
+
+	final long t = times[e];
+	final long diff = t ^ now;
+	final int level = diff == 0 ? 0 : (63-Long.numberOfLeadingZeros(diff))/BITS;
+	final int slot = level*SLOTS + ((int) (t >>> (level*BITS)) & (SLOTS-1));
+	next[e] = NIL;
+	if( heads[slot] == NIL )
+	{
+		heads[slot] = e;
+		bitmap[slot >> 6] |= 1L << slot;
+	}
+	else next[tails[slot]] = e;
+	tails[slot] = e;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Removes and returns the list of the given slot.
+ */
+private int unlink(int slot) {
+
+	final int e = heads[slot];
+	heads[slot] = NIL;
+	bitmap[slot >> 6] &= ~(1L << slot);
+	return e;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Returns the first non-empty slot of the given level, starting from the
+ * given one, or -1 if there is none.
+ */
+private int findSlot(int level, int from) {
+
+	if( from >= SLOTS ) return -1;
+	int i = (level*SLOTS + from) >> 6;
+	final int end = ((level+1)*SLOTS) >> 6;
+	long w = bitmap[i] & (-1L << from);
+	while( w == 0 )
+	{
+		if( ++i == end ) return -1;
+		w = bitmap[i];
+	}
+	return (i << 6) + Long.numberOfTrailingZeros(w) - level*SLOTS;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Moves {@link #now} to the time of the earliest events of the wheel,
+ * which must not be empty, and puts them in {@link #due}.
+ */
+private void advance() {
+
+	int level = 0;
+	while( true )
+	{
+		final int shift = level*BITS;
+		int from = (int) (now >>> shift) & (SLOTS-1);
+		// at the higher levels the slot of now is empty
+		if( level > 0 ) from++;
+		final int s = findSlot(level, from);
+		if( s < 0 )
+		{
+			level++;
+			continue;
+		}
+		if( level == 0 )
+		{
+			now = (now & ~(long) (SLOTS-1)) | s;
+			takeDue(unlink(s));
+			return;
+		}
+		// move the events of the slot to the lower levels
+		final long high = shift+BITS < 64 ? now & (-1L << (shift+BITS)) : 0;
+		now = high | ((long) s << shift);
+		for(int e = unlink(level*SLOTS+s); e != NIL; )
+		{
+			final int n = next[e];
+			link(e);
+			e = n;
+		}
+		level = 0;
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Puts the given list of events, which have the same time, in
+ * {@link #due}, sorted by priority. Events with the same priority keep
+ * their order.
+ */
+private void takeDue(int list) {
+
+	int n = 0;
+	for(int e = list; e != NIL; e = next[e])
+	{
+		if( n == due.length )
+		{
+			due = Arrays.copyOf(due, 2*n);
+			sorted = new int[2*n];
+			keys = new long[2*n];
+		}
+		due[n++] = e;
+	}
+	dueSize = n;
+	duePos = 0;
+	if( n < 2 ) return;
+	if( counts != null && 4*n >= priorities )
+	{
+		for(int i=0; i<n; ++i) counts[(int) prios[due[i]]+1]++;
+		for(int i=0; i<priorities; ++i) counts[i+1] += counts[i];
+		for(int i=0; i<n; ++i) sorted[counts[(int) prios[due[i]]]++] = due[i];
+		Arrays.fill(counts, 0);
+	}
+	else
+	{
+		for(int i=0; i<n; ++i) keys[i] = (prios[due[i]] << 32) | i;
+		Arrays.sort(keys, 0, n);
+		for(int i=0; i<n; ++i) sorted[i] = due[(int) keys[i]];
+	}
+	final int[] temp = due;
+	due = sorted;
+	sorted = temp;
+}
+
+//--------------------------------------------------------------------------
+
+/** Doubles the capacity of the entries */
+private void grow() {
+
+	final int n = 2*times.length;
+	times = Arrays.copyOf(times, n);
+	prios = Arrays.copyOf(prios, n);
+	events = Arrays.copyOf(events, n);
+	nodes = Arrays.copyOf(nodes, n);
+	pids = Arrays.copyOf(pids, n);
+	next = Arrays.copyOf(next, n);
+}
+
+}
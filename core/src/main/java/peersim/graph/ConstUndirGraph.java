@@ -19,6 +19,7 @@
 package peersim.graph;
 
 import java.util.*;
+import peersim.util.IntList;
 
 /**
 * This class is an adaptor making any Graph an undirected graph
@@ -32,8 +33,9 @@ import java.util.*;
 * The upside of this inconvenience is that {@link #getNeighbours} will have
 * constant time complexity.
 * @see UndirectedGraph
+* @see CsrGraph
 */
-public class ConstUndirGraph implements Graph {
+public class ConstUndirGraph implements IndexedGraph {
 
 
 // ====================== private fileds ========================
@@ -110,6 +112,21 @@ public Collection<Integer> getNeighbours(int i) {
 
 // ---------------------------------------------------------------
 
+public int getNeighbours(int i, IntList list) {
+
+	GraphAlgorithms.getNeighbours(g, i, list);
+	if( in != null )
+	{
+		final List<Integer> l = in[i];
+		final int n = l.size();
+		list.ensureCapacity(list.size()+n);
+		for(int j=0; j<n; ++j) list.add(l.get(j));
+	}
+	return list.size();
+}
+
+// ---------------------------------------------------------------
+
 /** Returns the node from the underlying graph */
 public Object getNode(int i) { return g.getNode(i); }
 	
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.graph;
+
+import java.util.*;
+import peersim.util.IntList;
+
+/**
+* An immutable snapshot of a graph in compressed sparse row form: the
+* neighbours of all the nodes are stored one after the other in a single
+* int array, and a second array stores where the neighbours of each node
+* start. The snapshot is taken at construction time, later changes of the
+* original graph are not reflected.
+* <p>
+* Since it is never modified, the snapshot can be read by any number of
+* threads at the same time, which is what the parallel observers of
+* package {@link peersim.reports} do. It is also compact: it uses one int
+* per edge and one per node, without any per node objects.
+* Optionally, the snapshot can be made undirected, which is a more compact
+* alternative to {@link ConstUndirGraph}.
+*/
+public class CsrGraph implements IndexedGraph {
+
+
+// ====================== private fields ========================
+// ==============================================================
+
+/** The graph the snapshot was taken of, which provides the nodes */
+private final Graph g;
+
+/** Tells if the graph is directed */
+private final boolean directed;
+
+/**
+* The neighbours of node i are between <code>offsets[i]</code> (inclusive)
+* and <code>offsets[i+1]</code> (exclusive) in {@link #targets}.
+*/
+private final int[] offsets;
+
+/** The neighbours of all the nodes */
+private final int[] targets;
+
+// ====================== public constructors ===================
+// ==============================================================
+
+/**
+* Takes a snapshot of the edges of the given graph. The order of the
+* neighbours of each node is that of the given graph. Only the reference
+* of the given graph is stored, which is used by {@link #getNode}.
+*/
+public CsrGraph( Graph g ) {
+
+	this(g, false);
+}
+
+// --------------------------------------------------------------
+
+/**
+* Takes a snapshot of the edges of the given graph, optionally
+* making it undirected. In that case, the neighbours of a node are its
+* neighbours in the given graph followed by the nodes that have an edge
+* to it but are not its neighbours, in increasing order, exactly like in
+* {@link ConstUndirGraph}, but without storing any lists.
+* Only the reference of the given graph is stored, which is used by
+* {@link #getNode}.
+* @param undirected if true and the given graph is directed, the edges
+* are made bidirectional
+*/
+public CsrGraph( Graph g, boolean undirected ) {
+
+	this.g = g;
+	final int size = g.size();
+	int[] o = new int[size+1];
+	final IntList list = new IntList();
+	final IntList all = new IntList(size);
+	for(int i=0; i<size; ++i)
+	{
+		final int n = GraphAlgorithms.getNeighbours(g, i, list);
+		all.ensureCapacity(all.size()+n);
+		final int[] a = list.array();
+		for(int k=0; k<n; ++k) all.add(a[k]);
+		o[i+1] = all.size();
+	}
+	int[] t = all.toArray();
+
+	if( undirected && g.directed() )
+	{
+		// count the incoming edges that have no opposite edge
+		final int[] pos = new int[size];
+		for(int j=0; j<size; ++j)
+		for(int k=o[j]; k<o[j+1]; ++k)
+			if( !contains(o, t, t[k], j) ) pos[t[k]]++;
+
+		final int[] uo = new int[size+1];
+		for(int i=0; i<size; ++i)
+		{
+			uo[i+1] = uo[i]+(o[i+1]-o[i])+pos[i];
+			pos[i] = uo[i]+(o[i+1]-o[i]);
+		}
+		final int[] ut = new int[uo[size]];
+		for(int i=0; i<size; ++i)
+			System.arraycopy(t, o[i], ut, uo[i], o[i+1]-o[i]);
+		for(int j=0; j<size; ++j)
+		for(int k=o[j]; k<o[j+1]; ++k)
+			if( !contains(o, t, t[k], j) ) ut[pos[t[k]]++] = j;
+		o = uo;
+		t = ut;
+	}
+
+	directed = g.directed() && !undirected;
+	offsets = o;
+	targets = t;
+}
+
+// --------------------------------------------------------------
+
+/** Tells if j is a neighbour of i in the given arrays */
+private static boolean contains( int[] offsets, int[] targets, int i, int j ) {
+
+	for(int k=offsets[i]; k<offsets[i+1]; ++k)
+		if( targets[k] == j ) return true;
+	return false;
+}
+
+
+// ======================= Graph implementations ================
+// ==============================================================
+
+
+/** Scans the neighbours of i, so it takes time linear in its degree. */
+public boolean isEdge(int i, int j) {
+
+	return contains(offsets, targets, i, j);
+}
+
+// ---------------------------------------------------------------
+
+/**
+* Returns an unmodifiable view of the neighbours of i.
+*/
+public Collection<Integer> getNeighbours(final int i) {
+
+	return new AbstractList<Integer>() {
+		public Integer get(int k) { return targets[offsets[i]+k]; }
+		public int size() { return offsets[i+1]-offsets[i]; }
+	};
+}
+
+// ---------------------------------------------------------------
+
+public int getNeighbours(int i, IntList list) {
+
+	list.clear();
+	final int n = offsets[i+1]-offsets[i];
+	list.ensureCapacity(n);
+	for(int k=offsets[i]; k<offsets[i+1]; ++k) list.add(targets[k]);
+	return n;
+}
+
+// ---------------------------------------------------------------
+
+/** Returns the node from the original graph */
+public Object getNode(int i) { return g.getNode(i); }
+
+// ---------------------------------------------------------------
+
+/** Returns null always, edge objects are not stored */
+public Object getEdge(int i, int j) { return null; }
+
+// ---------------------------------------------------------------
+
+public int size() { return offsets.length-1; }
+
+// --------------------------------------------------------------------
+
+public boolean directed() { return directed; }
+
+// --------------------------------------------------------------------
+
+/** not supported */
+public boolean setEdge( int i, int j ) {
+
+	throw new UnsupportedOperationException();
+}
+
+// ---------------------------------------------------------------
+
+/** not supported */
+public boolean clearEdge( int i, int j ) {
+
+	throw new UnsupportedOperationException();
+}
+
+// ---------------------------------------------------------------
+
+public int degree(int i) { return offsets[i+1]-offsets[i]; }
+
+
+// ========================= other methods =======================
+// ===============================================================
+
+
+/**
+* Returns the array of the start positions of the neighbour lists in
+* {@link #getTargets}, which has {@link #size}+1 elements, the last one
+* being the number of edges. It must not be modified.
+*/
+public int[] getOffsets() { return offsets; }
+
+// ---------------------------------------------------------------
+
+/**
+* Returns the array of the neighbours of all the nodes. It must not be
+* modified.
+* @see #getOffsets
+*/
+public int[] getTargets() { return targets; }
+
+// ---------------------------------------------------------------
+
+/** Returns the number of edges */
+public int edges() { return targets.length; }
+
+// ---------------------------------------------------------------
+
+/**
+* Calculates the length of the shortest paths from the given node with
+* breadth-first search, like {@link GraphAlgorithms#dist}, but using the
+* given arrays, so that several threads can run it at the same time.
+* @param from the source of the search
+* @param d at least as long as the graph, on return <code>d[j]</code>
+* is the distance from "from" to j, or -1 if j is not accessible
+* @param queue work array, at least as long as the graph
+* @return the number of nodes accessible from "from", including itself
+*/
+public int dist( int from, int[] d, int[] queue ) {
+
+	final int size = size();
+	for(int j=0; j<size; ++j) d[j] = -1;
+
+	int head = 0, tail = 0;
+	queue[tail++] = from;
+	d[from] = 0;
+	while( head < tail )
+	{
+		final int u = queue[head++];
+		final int du = d[u]+1;
+		for(int k=offsets[u]; k<offsets[u+1]; ++k)
+		{
+			final int j = targets[k];
+			if( d[j] < 0 )
+			{
+				d[j] = du;
+				queue[tail++] = j;
+			}
+		}
+	}
+	return tail;
+}
+
+}
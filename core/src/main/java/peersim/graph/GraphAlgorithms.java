@@ -20,10 +20,16 @@ package peersim.graph;
 
 import java.util.*;
 
+import peersim.util.IntList;
+
 /**
 * Implements graph algorithms. The current implementation is NOT thread
 * safe. Some algorithms are not static, many times the result of an
 * algorithm can be read from non-static fields.
+* The non-static algorithms use primitive work arrays that are kept
+* between calls, and they are not recursive, so after the first call on a
+* graph of a given size they do not allocate memory (apart from their
+* result maps) and they work on large graphs of any diameter.
 */
 public class GraphAlgorithms {
 
@@ -32,10 +38,6 @@ public class GraphAlgorithms {
 
 /** output of some algorithms is passed here */
 public int[] root = null;
-private Stack<Integer> stack = new Stack<Integer>();
-private int counter=0;
-
-private Graph g=null;
 
 public final static int WHITE=0;
 public final static int GREY=1;
@@ -44,91 +46,119 @@ public final static int BLACK=2;
 /** output of some algorithms is passed here */
 public int[] color = null;
 
-/** output of some algorithms is passed here */
+/**
+* Used to be the set of clusters met by the last search of
+* {@link #weaklyConnectedClusters}. That method does not search the graph
+* any more, so it only clears this set.
+* @deprecated not used by any algorithm, it is always empty
+*/
+@Deprecated
 public Set<Integer> cluster = null;
 
 /** output of some algorithms is passed here */
 public int[] d = null;
 
-// =================== private methods ================================
+// =================== private fields =================================
 // ====================================================================
 
+private Graph g=null;
+
+private int counter=0;
+
+/** The number of nodes on the node stack of Tarjan's algorithm */
+private int sp=0;
 
 /**
-* Collects nodes accessible from node "from" using depth-first search.
-* Works on the array {@link #color} which must be of the same length as
-* the size of the graph, and must contain values according to the
-* following semantics: 
-* WHITE (0): not seen yet, GREY (1): currently worked upon. BLACK
-* (other than 0 or 1): finished.
-* If a negative color is met, it is saved in the {@link #cluster} set
-* and is treated as black. This can be used to check if the currently
-* visited cluster is weakly connected to another cluster.
-* On exit no nodes are GREY.
-* The result is the modified array {@link #color} and the modified set
-* {@link #cluster}.
+* Work array: the queue of the breadth-first search, the union-find forest
+* of the weakly connected clusters and the node stack of Tarjan's algorithm
 */
-private void dfs( int from ) {
+private int[] queue = null;
 
-	color[from]=GREY;
+/** Work array: the nodes on the current path of the depth-first search */
+private int[] path = null;
 
-	for(int j:g.getNeighbours(from))
-	{
-		if( color[j]==WHITE )
-		{
-			dfs(j);
-		}
-		else
-		{
-			if( color[j]<0 ) cluster.add(color[j]);
-		}
-	}
+/**
+* Work array: for each node on the path, the position of its next
+* neighbour in {@link #edges}
+*/
+private int[] next = null;
 
-	color[from]=BLACK;
+/**
+* Work array: for each node on the path, the position of its first
+* neighbour in {@link #edges}
+*/
+private int[] start = null;
+
+/** The neighbours of the nodes on the path, in the order of the path */
+private final IntList edges = new IntList();
+
+/** The neighbours of the current node */
+private final IntList nbr = new IntList();
+
+// =================== private methods ================================
+// ====================================================================
+
+
+/**
+* Makes sure that {@link #color} and {@link #queue} are at least as long
+* as the graph.
+*/
+private void init( Graph g ) {
+
+	this.g=g;
+	final int size = g.size();
+	if( color==null || color.length<size ) color = new int[size];
+	if( queue==null || queue.length<size ) queue = new int[size];
 }
 
 // --------------------------------------------------------------------
 
 /**
 * Collects nodes accessible from node "from" using breadth-first search.
-* Its parameters and side-effects are identical to those of dfs.
-* In addition, it stores the shortest distances from "from" in {@link #d},
-* if it is not null. On return, <code>d[i]</code> contains the length of
+* Works on the array {@link #color} which must be of the same length as
+* the size of the graph, and must contain values according to the
+* following semantics:
+* WHITE (0): not seen yet, GREY (1): currently worked upon. BLACK
+* (other than 0 or 1): finished.
+* On exit no nodes are GREY.
+* It stores the shortest distances from "from" in {@link #d}.
+* On return, <code>d[i]</code> contains the length of
 * the shortest path from "from" to "i", if such a path exists, or it is
 * unchanged (ie the original value of <code>d[i]</code> is kept,
 * whatever that was.
-* <code>d</code> must either be long enough or null.
+* Every node enters the queue at most once, so the queue needs no more
+* elements than the graph.
 */
 private void bfs( int from ) {
 
-	List<Integer> q = new LinkedList<Integer>();
-	int u, du;
-	
-	q.add(from);
-	q.add(0);
-	if( d != null ) d[from] = 0;
+	int head = 0, tail = 0;
+	int du = 0, levelEnd;
 
+	queue[tail++] = from;
+	levelEnd = tail;
+	d[from] = 0;
 	color[from]=GREY;
 
-	while( ! q.isEmpty() )
+	while( head < tail )
 	{
-		u = q.remove(0).intValue();
-		du = q.remove(0).intValue();
-		
-		for(int j:g.getNeighbours(u))
+		// the nodes of distance du are between head and levelEnd
+		if( head == levelEnd )
+		{
+			++du;
+			levelEnd = tail;
+		}
+		final int u = queue[head++];
+
+		final int n = getNeighbours(g, u, nbr);
+		final int[] a = nbr.array();
+		for(int k=0; k<n; ++k)
 		{
+			final int j = a[k];
 			if( color[j]==WHITE )
 			{
 				color[j]=GREY;
-				
-				q.add(j);
-				q.add(du+1);
-				if( d != null ) d[j] = du+1;
-			}
-			else
-			{
-				if( color[j]<0 )
-					cluster.add(color[j]);
+				queue[tail++]=j;
+				d[j] = du+1;
 			}
 		}
 		color[u]=BLACK;
@@ -137,36 +167,94 @@ private void bfs( int from ) {
 
 // --------------------------------------------------------------------
 
-/** The recursive part of the Tarjan algorithm. */
-private void tarjanVisit(int i) {
+/**
+* Returns the root of the tree of i in the given union-find forest, halving
+* the path to it.
+*/
+private static int find( int[] parent, int i ) {
 
-	color[i]=counter++;
-	root[i]=i;
-	stack.push(i);
-	
-	for(int j:g.getNeighbours(i))
+	while( parent[i] != i )
 	{
-		if( color[j]==WHITE )
+		parent[i] = parent[parent[i]];
+		i = parent[i];
+	}
+	return i;
+}
+
+// --------------------------------------------------------------------
+
+/**
+* The depth-first search of the Tarjan algorithm, from node "from".
+* The path of the search is kept in {@link #path} instead of the call stack,
+* and the neighbours of the nodes on the path are kept in {@link #edges}.
+*/
+private void tarjanVisit( int from ) {
+
+	int top = tarjanEnter(from, -1);
+	while( top >= 0 )
+	{
+		final int i = path[top];
+		if( next[top] < edges.size() )
 		{
-			tarjanVisit(j);
+			final int j = edges.get(next[top]++);
+			if( color[j]==WHITE ) top = tarjanEnter(j, top);
+			else tarjanUpdate(i, j);
 		}
-		if( color[j]>0 && color[root[j]]<color[root[i]] )
-		// inComponent is false and have to update root
+		else
 		{
-			root[i]=root[j];
+			if(root[i]==i) //this node is the root of its cluster
+			{
+				int j;
+				do
+				{
+					j=queue[--sp];
+					color[j]=-color[j];
+					root[j]=i;
+				}
+				while(j!=i);
+			}
+			edges.truncate(start[top]);
+			--top;
+			if( top >= 0 ) tarjanUpdate(path[top], i);
 		}
 	}
+}
+
+// --------------------------------------------------------------------
 
-	int j;
-	if(root[i]==i) //this node is the root of its cluster
+/**
+* Visits node i in the Tarjan algorithm: puts it on the path above
+* position top and stores its neighbours.
+* @return the new top of the path
+*/
+private int tarjanEnter( int i, int top ) {
+
+	color[i]=counter++;
+	root[i]=i;
+	queue[sp++]=i;
+
+	++top;
+	path[top]=i;
+	start[top]=next[top]=edges.size();
+	final int n = getNeighbours(g, i, nbr);
+	edges.ensureCapacity(edges.size()+n);
+	final int[] a = nbr.array();
+	for(int k=0; k<n; ++k) edges.add(a[k]);
+	return top;
+}
+
+// --------------------------------------------------------------------
+
+/**
+* Updates the root of node i in the Tarjan algorithm after its neighbour j
+* has been visited.
+*/
+private void tarjanUpdate( int i, int j ) {
+
+	if( color[j]>0 && color[root[j]]<color[root[i]] )
+	// inComponent is false and have to update root
 	{
-		do
-		{
-			j=stack.pop();
-			color[j]=-color[j];
-			root[j]=i;
-		}
-		while(j!=i);
+		root[i]=root[j];
 	}
 }
 
@@ -178,38 +266,43 @@ private void tarjanVisit(int i) {
 * each node has the cluster index as color. The cluster indexes carry no
 * information; we guarantee only that different clusters have different indexes.
 */
-public Map weaklyConnectedClusters( Graph g ) {
+public Map<Integer,Integer> weaklyConnectedClusters( Graph g ) {
 
-	this.g=g;
+	init(g);
 	if( cluster == null ) cluster = new HashSet<Integer>();
-	if( color==null || color.length<g.size() ) color = new int[g.size()];
+	else cluster.clear();
+	final int size = g.size();
+	final int[] parent = queue;
 
-	// cluster numbers are negative integers
-	int i, j, actCluster=0;
-	for(i=0; i<g.size(); ++i) color[i]=WHITE;
-	for(i=0; i<g.size(); ++i)
+	// union-find over the edges, the root of a tree is its smallest node
+	for(int i=0; i<size; ++i) parent[i]=i;
+	for(int i=0; i<size; ++i)
 	{
-		if( color[i]==WHITE )
+		final int n = getNeighbours(g, i, nbr);
+		final int[] a = nbr.array();
+		for(int k=0; k<n; ++k)
 		{
-			cluster.clear();
-			bfs(i); // dfs is recursive, for large graphs not ok
-			--actCluster;
-			for(j=0; j<g.size(); ++j)
-			{
-				if( color[j] == BLACK ||
-						cluster.contains(color[j]) )
-					color[j] = actCluster;
-			}
+			final int x = find(parent,i);
+			final int y = find(parent,a[k]);
+			if( x<y ) parent[y]=x;
+			else if( y<x ) parent[x]=y;
 		}
 	}
 
-	Hashtable<Integer,Integer> ht = new Hashtable<Integer,Integer>();
-	for(j=0; j<g.size(); ++j)
+	// cluster numbers are negative integers, in the order of the roots
+	int actCluster=0;
+	for(int i=0; i<size; ++i)
 	{
-		Integer num = ht.get(color[j]);
-		if( num == null ) ht.put(color[j],Integer.valueOf(1));
-		else ht.put(color[j],num+1);
+		final int r = find(parent,i);
+		if( r==i ) color[i] = --actCluster;
+		else color[i] = color[r];
 	}
+
+	final int[] count = parent;
+	for(int c=0; c<-actCluster; ++c) count[c]=0;
+	for(int i=0; i<size; ++i) count[-color[i]-1]++;
+	Hashtable<Integer,Integer> ht = new Hashtable<Integer,Integer>();
+	for(int c=0; c<-actCluster; ++c) ht.put(-c-1,count[c]);
 	
 	return ht;
 }
@@ -222,9 +315,8 @@ public Map weaklyConnectedClusters( Graph g ) {
 */
 public void dist( Graph g, int i ) {
 
-	this.g=g;
+	init(g);
 	if( d==null || d.length<g.size() ) d = new int[g.size()];
-	if( color==null || color.length<g.size() ) color = new int[g.size()];
 	
 	for(int j=0; j<g.size(); ++j)
 	{
@@ -237,6 +329,28 @@ public void dist( Graph g, int i ) {
 
 // --------------------------------------------------------------------
 
+/**
+* Replaces the content of the given list with the indices of the
+* neighbours of node i in the given graph. If the graph is an
+* {@link IndexedGraph} then its primitive method is used, which does not box
+* the indices, otherwise the elements of {@link Graph#getNeighbours(int)}
+* are copied.
+* @return the number of neighbours
+*/
+public static int getNeighbours( Graph g, int i, IntList list ) {
+
+	if( g instanceof IndexedGraph )
+		return ((IndexedGraph)g).getNeighbours(i, list);
+
+	list.clear();
+	final Collection<Integer> c = g.getNeighbours(i);
+	list.ensureCapacity(c.size());
+	for(Integer j:c) list.add(j);
+	return list.size();
+}
+
+// --------------------------------------------------------------------
+
 /**
 * Calculates the clustering coefficient for the given node in the given
 * graph. The clustering coefficient is the number of edges between
@@ -248,20 +362,34 @@ public void dist( Graph g, int i ) {
 */
 public static double clustering( Graph g, int i ) {
 
+	return clustering(g, i, new IntList());
+}
+
+// --------------------------------------------------------------------
+
+/**
+* Calculates the clustering coefficient like {@link #clustering(Graph,int)},
+* using the given list to store the neighbours of i. If the list is reused
+* over many calls, the calculation does not allocate memory.
+* @throws IllegalArgumentException if g is directed
+*/
+public static double clustering( Graph g, int i, IntList list ) {
+
 	if( g.directed() ) throw new IllegalArgumentException(
 		"graph is directed");
 		
-	Object[] n = g.getNeighbours(i).toArray();
+	final int n = getNeighbours(g, i, list);
 	
-	if( n.length==1 ) return 1.0;
+	if( n==1 ) return 1.0;
 	
+	final int[] a = list.array();
 	int edges = 0;
 	
-	for(int j=0; j<n.length; ++j)
-	for(int k=j+1; k<n.length; ++k)
-		if( g.isEdge((Integer)n[j],(Integer)n[k]) ) ++edges;
+	for(int j=0; j<n; ++j)
+	for(int k=j+1; k<n; ++k)
+		if( g.isEdge(a[j],a[k]) ) ++edges;
 
-	return ((edges*2.0)/n.length)/(n.length-1);
+	return ((edges*2.0)/n)/(n-1);
 }
 
 // --------------------------------------------------------------------
@@ -340,31 +468,34 @@ public void flooding( Graph g, int[] b, int k ) {
 /** Returns the strongly connected cluster roots with size as a value.
 * Cluster membership can be seen from the content of the array {@link #root};
 * each node has the root of the strongly connected cluster it belongs to.
-* A word of caution: for large graphs that have a large diameter and that
-* are strongly connected (such as large rings) you can get stack overflow
-* because of the large depth of recursion.
 */
-//XXX implement a non-recursive version ASAP!!!
-public Map tarjan( Graph g ) {
+public Map<Integer,Integer> tarjan( Graph g ) {
 	
-	this.g=g;
-	stack.clear();
-	if( root==null || root.length<g.size() ) root = new int[g.size()];
-	if( color==null || color.length<g.size() ) color = new int[g.size()];
-	for( int i=0; i<g.size(); ++i) color[i]=WHITE;
+	init(g);
+	final int size = g.size();
+	if( root==null || root.length<size ) root = new int[size];
+	if( path==null || path.length<size )
+	{
+		path = new int[size];
+		next = new int[size];
+		start = new int[size];
+	}
+	for( int i=0; i<size; ++i) color[i]=WHITE;
 	counter = 1;
+	sp = 0;
+	edges.clear();
 	
 	// color is WHITE (0): not visited
 	// not WHITE, positive (c>1): visited as the c-th node
 	// color is negative (c<1): inComponent true
-	for(int i=0; i<g.size(); ++i)
+	for(int i=0; i<size; ++i)
 	{
 		if( color[i]==WHITE ) tarjanVisit(i);
 	}
-	for( int i=0; i<g.size(); ++i) color[i]=0;
-	for( int i=0; i<g.size(); ++i) color[root[i]]++;
+	for( int i=0; i<size; ++i) color[i]=0;
+	for( int i=0; i<size; ++i) color[root[i]]++;
 	Hashtable<Integer,Integer> ht = new Hashtable<Integer,Integer>();
-	for(int j=0; j<g.size(); ++j)
+	for(int j=0; j<size; ++j)
 	{
 		if(color[j]>0)
 		{
@@ -376,4 +507,3 @@ public Map tarjan( Graph g ) {
 }
 
 }
-
@@ -20,9 +20,14 @@ package peersim.graph;
 
 import java.util.*;
 import java.io.*;
+import peersim.util.IntList;
 
 /**
 * Implements static methods to load and write graphs.
+* The writers read the neighbours through
+* {@link GraphAlgorithms#getNeighbours(Graph,int,IntList)}, so they
+* do not box the node indices of an {@link IndexedGraph}, such as a
+* {@link CsrGraph} snapshot.
 */
 public class GraphIO {
 private GraphIO() {}
@@ -38,12 +43,13 @@ private GraphIO() {}
 */
 public static void writeEdgeList( Graph g, PrintStream out ) {
 
+	final IntList list = new IntList();
 	for(int i=0; i<g.size(); ++i)
 	{
-		Iterator it=g.getNeighbours(i).iterator();
-		while(it.hasNext())
+		final int n = GraphAlgorithms.getNeighbours(g, i, list);
+		for(int k=0; k<n; ++k)
 		{
-			out.println(i+" "+it.next());
+			out.println(i+" "+list.get(k));
 		}
 	}
 }
@@ -56,15 +62,16 @@ public static void writeEdgeList( Graph g, PrintStream out ) {
 */
 public static void writeNeighborList( Graph g, PrintStream out ) {
 
+	final IntList list = new IntList();
 	out.println("# "+g.size());
 	
 	for(int i=0; i<g.size(); ++i)
 	{
 		out.print(i+" ");
-		Iterator it=g.getNeighbours(i).iterator();
-		while(it.hasNext())
+		final int n = GraphAlgorithms.getNeighbours(g, i, list);
+		for(int k=0; k<n; ++k)
 		{
-			out.print(it.next()+" ");
+			out.print(list.get(k)+" ");
 		}
 		out.println();
 	}
@@ -78,14 +85,15 @@ public static void writeNeighborList( Graph g, PrintStream out ) {
 */
 public static void writeDOT( Graph g, PrintStream out ) {
 
+	final IntList list = new IntList();
 	out.println((g.directed()?"digraph":"graph")+" {");
 	
 	for(int i=0; i<g.size(); ++i)
 	{
-		Iterator<Integer> it=g.getNeighbours(i).iterator();
-		while(it.hasNext())
+		final int n = GraphAlgorithms.getNeighbours(g, i, list);
+		for(int k=0; k<n; ++k)
 		{
-			final int j = it.next();
+			final int j = list.get(k);
 			if(g.directed())
 				out.println(i+" -> "+j+";");
 			else if( i<=j )
@@ -104,6 +112,7 @@ public static void writeDOT( Graph g, PrintStream out ) {
 */
 public static void writeGML( Graph g, PrintStream out ) {
 
+	final IntList list = new IntList();
 	out.println("graph [ directed "+(g.directed()?"1":"0"));
 	
 	for(int i=0; i<g.size(); ++i)
@@ -111,11 +120,11 @@ public static void writeGML( Graph g, PrintStream out ) {
 	
 	for(int i=0; i<g.size(); ++i)
 	{
-		Iterator it=g.getNeighbours(i).iterator();
-		while(it.hasNext())
+		final int n = GraphAlgorithms.getNeighbours(g, i, list);
+		for(int k=0; k<n; ++k)
 		{
 			out.println(
-				"edge [ source "+i+" target "+it.next()+" ]");
+				"edge [ source "+i+" target "+list.get(k)+" ]");
 		}
 	}
 	
@@ -130,6 +139,7 @@ public static void writeGML( Graph g, PrintStream out ) {
 */
 public static void writeNetmeter( Graph g, PrintStream out ) {
 
+	final IntList list = new IntList();
 	out.println("*Vertices "+g.size());
 	for(int i=0; i<g.size(); ++i)
 		out.println((i+1)+" \""+(i+1)+"\"");
@@ -137,11 +147,11 @@ public static void writeNetmeter( Graph g, PrintStream out ) {
 	out.println("*Arcs");
 	for(int i=0; i<g.size(); ++i)
 	{
-		Iterator it=g.getNeighbours(i).iterator();
-		while(it.hasNext())
+		final int n = GraphAlgorithms.getNeighbours(g, i, list);
+		for(int k=0; k<n; ++k)
 		{
 			out.println((i+1)+" "+
-				(((Integer)it.next()).intValue()+1)+" 1");
+				(list.get(k)+1)+" 1");
 		}
 	}
 	out.println("*Edges");
@@ -155,15 +165,16 @@ public static void writeNetmeter( Graph g, PrintStream out ) {
 */
 public static void writeUCINET_DL( Graph g, PrintStream out ) {
 
+	final IntList list = new IntList();
 	out.println("DL\nN="+g.size()+"\nFORMAT=NODELIST\nDATA:");
 	
 	for(int i=0; i<g.size(); ++i)
 	{
 		out.print(" " + (i+1));
-		Iterator it=g.getNeighbours(i).iterator();
-		while(it.hasNext())
+		final int n = GraphAlgorithms.getNeighbours(g, i, list);
+		for(int k=0; k<n; ++k)
 		{
-			out.print(" "+(((Integer)it.next()).intValue()+1));
+			out.print(" "+(list.get(k)+1));
 		}
 		out.println();
 	}
@@ -178,15 +189,16 @@ public static void writeUCINET_DL( Graph g, PrintStream out ) {
 */
 public static void writeUCINET_DLMatrix( Graph g, PrintStream out ) {
 
+	final IntList list = new IntList();
 	out.println("DL\nN="+g.size()+"\nDATA:");
 	
 	for(int i=0; i<g.size(); ++i)
 	{
 		BitSet bs = new BitSet(g.size());
-		Iterator it=g.getNeighbours(i).iterator();
-		while(it.hasNext())
+		final int n = GraphAlgorithms.getNeighbours(g, i, list);
+		for(int k=0; k<n; ++k)
 		{
-			bs.set( ((Integer)it.next()).intValue() );
+			bs.set( list.get(k) );
 		}
 		for(int j=0; j<g.size(); ++j)
 		{
@@ -207,20 +219,21 @@ public static void writeUCINET_DLMatrix( Graph g, PrintStream out ) {
 */
 public static void writeChaco( Graph g, PrintStream out ) {
 
+	final IntList list = new IntList();
 	if( g.directed() ) System.err.println(
 		"warning: you're saving a directed graph in Chaco format");
 	
 	long edges = 0;
-	for(int i=0; i<g.size(); ++i) edges += g.getNeighbours(i).size();
+	for(int i=0; i<g.size(); ++i) edges += GraphAlgorithms.getNeighbours(g, i, list);
 	
 	out.println( g.size() + " " + edges/2 );
 	
 	for(int i=0; i<g.size(); ++i)
 	{
-		Iterator it=g.getNeighbours(i).iterator();
-		while(it.hasNext())
+		final int n = GraphAlgorithms.getNeighbours(g, i, list);
+		for(int k=0; k<n; ++k)
 		{
-			out.print((((Integer)it.next()).intValue()+1)+" ");
+			out.print((list.get(k)+1)+" ");
 		}
 		out.println();
 	}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.graph;
+
+import peersim.util.IntList;
+
+/**
+* A {@link Graph} that can list the neighbours of a node into a
+* reusable primitive list, without boxing the indices and, if the list
+* is large enough, without allocating memory. Graph algorithms should use
+* {@link GraphAlgorithms#getNeighbours(Graph,int,IntList)}, which works with
+* any graph but takes this fast path when it is available.
+*/
+public interface IndexedGraph extends Graph {
+
+	/**
+	* Replaces the content of the given list with the indices of the
+	* neighbours of node i, that is, the elements of
+	* {@link #getNeighbours(int)}, in the same order.
+	* @return the number of neighbours
+	*/
+	public int getNeighbours(int i, IntList list);
+}
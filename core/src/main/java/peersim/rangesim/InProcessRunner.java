@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.rangesim;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs experiments as concurrent tasks within the current JVM, on a
+ * bounded thread pool, instead of forking a JVM for each of them.
+ * This avoids paying the JVM startup and the classpath scanning of
+ * {@link peersim.config.Configuration} for every experiment.
+ * <p>
+ * Each experiment is run by {@link peersim.Simulator#run} as loaded by a
+ * fresh class loader, which loads the classes of the classpath again,
+ * so the configuration and all the static state of the simulation
+ * (including that of the protocols and controls) are isolated from the
+ * other experiments. Only the class lookup table of the configuration is
+ * shared, because it depends only on the classpath.
+ * Note that for the same reason the code of the
+ * simulation is compiled by the JIT again in each experiment, and
+ * that components that call <code>System.exit</code> terminate all
+ * experiments. A class loader is not reused for the next experiment of
+ * the same thread, since the static state of arbitrary components cannot
+ * be reset, and the configuration can be set only once.
+ * <p>
+ * While the experiments are running, {@link System#out} and
+ * {@link System#err} are replaced by streams that send the output of each
+ * thread (and of the threads it creates) to a buffer of the experiment.
+ * The standard output of an experiment is tagged with the values of the
+ * range parameters, like in {@link TaggedOutputStream}.
+ * The buffers are printed in the order in which the experiments were
+ * submitted, so the output is the same as if the experiments were run
+ * one after the other.
+ */
+public class InProcessRunner
+{
+
+//--------------------------------------------------------------------------
+//Constants
+//--------------------------------------------------------------------------
+
+/**
+ * Classes that are loaded once and shared by all experiments. They must
+ * have no state that depends on the experiment.
+ */
+private static final String[] SHARED = { "peersim.config.ClassFinder" };
+
+//--------------------------------------------------------------------------
+//Fields
+//--------------------------------------------------------------------------
+
+/** The classpath of the experiments */
+private final URL[] classpath;
+
+/** The threads running the experiments */
+private final ExecutorService pool;
+
+/** The experiments whose output has not been printed yet, in order */
+private final LinkedList<Future<Run>> pending = new LinkedList<Future<Run>>();
+
+/** The maximum number of experiments that are submitted but not printed */
+private final int window;
+
+/** The original standard output */
+private final PrintStream stdout;
+
+/** The original standard error */
+private final PrintStream stderr;
+
+/** The stream installed as standard output */
+private final Dispatcher out;
+
+/** The stream installed as standard error */
+private final Dispatcher err;
+
+//--------------------------------------------------------------------------
+//Initialization
+//--------------------------------------------------------------------------
+
+/**
+ * Creates a runner that runs at most the given number of experiments
+ * at the same time, and installs the dispatching standard output and
+ * error streams. The classpath of the experiments is that of the
+ * current JVM.
+ */
+public InProcessRunner(int threads)
+{
+	String[] cp = System.getProperty("java.class.path").split(
+		File.pathSeparator);
+	classpath = new URL[cp.length];
+	try {
+		for (int i=0; i < cp.length; i++)
+			classpath[i] = new File(cp[i]).toURI().toURL();
+	} catch (MalformedURLException e) {
+		throw new RuntimeException(e);
+	}
+
+	pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+		private int count = 0;
+		public Thread newThread(Runnable r) {
+			return new Thread(r, "Experiment-"+(count++));
+		}
+	});
+	window = 2*threads;
+
+	stdout = System.out;
+	stderr = System.err;
+	out = new Dispatcher(stdout);
+	err = new Dispatcher(stderr);
+	System.setOut(out);
+	System.setErr(err);
+}
+
+//--------------------------------------------------------------------------
+//Methods
+//--------------------------------------------------------------------------
+
+/**
+ * Submits an experiment. If too many experiments are waiting to be printed,
+ * it first waits for the oldest one and prints its output.
+ * @param args the arguments of {@link peersim.Simulator#run}
+ * @param ranges the values of the range parameters of the experiment,
+ * which are used to tag the output
+ */
+public void submit(String[] args, String ranges)
+{
+	if (pending.size() >= window)
+		printNext();
+	pending.add(pool.submit(new Run(args, ranges)));
+}
+
+// --------------------------------------------------------------------
+
+/**
+ * Waits for all the submitted experiments, prints their output, and
+ * restores the original standard output and error.
+ */
+public void finish()
+{
+	try {
+		while (!pending.isEmpty())
+			printNext();
+	} finally {
+		pool.shutdown();
+		System.setOut(stdout);
+		System.setErr(stderr);
+	}
+}
+
+// --------------------------------------------------------------------
+
+/**
+ * Waits for the oldest experiment and prints its output.
+ */
+private void printNext()
+{
+	Run r;
+	try {
+		r = pending.removeFirst().get();
+	} catch (InterruptedException e) {
+		throw new RuntimeException(e);
+	} catch (ExecutionException e) {
+		throw new RuntimeException(e.getCause());
+	}
+	stderr.write(r.errbuf.toByteArray(), 0, r.errbuf.size());
+	stderr.flush();
+	stdout.write(r.outbuf.toByteArray(), 0, r.outbuf.size());
+	stdout.flush();
+}
+
+//--------------------------------------------------------------------------
+//Inner classes
+//--------------------------------------------------------------------------
+
+/**
+ * A single experiment.
+ */
+private final class Run implements Callable<Run>
+{
+	/** The arguments of the simulator */
+	private final String[] args;
+
+	/** The values of the range parameters */
+	private final String ranges;
+
+	/** The standard output of the experiment */
+	final ByteArrayOutputStream outbuf = new ByteArrayOutputStream();
+
+	/** The standard error of the experiment */
+	final ByteArrayOutputStream errbuf = new ByteArrayOutputStream();
+
+	Run(String[] args, String ranges)
+	{
+		this.args = args;
+		this.ranges = ranges;
+	}
+
+	public Run call()
+	{
+		final IsolatingClassLoader loader =
+			new IsolatingClassLoader(classpath, getClass().getClassLoader());
+		final PrintStream e = new PrintStream(errbuf, true);
+		final PrintStream o = new TaggedOutputStream(
+			new PrintStream(outbuf), ranges.trim(), false) {
+			private Method time = null;
+			long getTime()
+			{
+				try {
+					if (time == null)
+						time = loader.loadClass("peersim.core.CommonState")
+							.getMethod("getTime");
+					return ((Long) time.invoke(null)).longValue();
+				} catch (Exception ex) {
+					throw new RuntimeException(ex);
+				}
+			}
+		};
+
+		Thread thread = Thread.currentThread();
+		ClassLoader context = thread.getContextClassLoader();
+		thread.setContextClassLoader(loader);
+		out.set(o);
+		err.set(e);
+		try {
+			e.println("Experiment: " + ranges);
+			loader.loadClass("peersim.Simulator").getMethod("run",
+				String[].class).invoke(null, (Object) args);
+		} catch (InvocationTargetException ex) {
+			Throwable c = ex.getCause();
+			String name = c.getClass().getName();
+			// these are reported briefly, like Simulator.main does
+			if (name.equals("peersim.config.MissingParameterException") ||
+			    name.equals("peersim.config.IllegalParameterException"))
+				e.println(c + "");
+			else
+				c.printStackTrace(e);
+		} catch (Throwable ex) {
+			ex.printStackTrace(e);
+		} finally {
+			o.flush();
+			out.set(null);
+			err.set(null);
+			thread.setContextClassLoader(context);
+			try {
+				loader.close();
+			} catch (IOException ex) {
+				ex.printStackTrace(e);
+			}
+		}
+		return this;
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * A class loader that loads the classes of the classpath itself instead
+ * of delegating to its parent, except the JDK classes and the
+ * {@link #SHARED} classes.
+ */
+private static final class IsolatingClassLoader extends URLClassLoader
+{
+	static { registerAsParallelCapable(); }
+
+	IsolatingClassLoader(URL[] urls, ClassLoader parent)
+	{
+		super(urls, parent);
+	}
+
+	protected Class<?> loadClass(String name, boolean resolve)
+	throws ClassNotFoundException
+	{
+		if (name.startsWith("java.") || Arrays.asList(SHARED).contains(name))
+			return super.loadClass(name, resolve);
+		synchronized (getClassLoadingLock(name)) {
+			Class<?> c = findLoadedClass(name);
+			if (c == null) {
+				try {
+					c = findClass(name);
+				} catch (ClassNotFoundException e) {
+					return super.loadClass(name, resolve);
+				}
+			}
+			if (resolve)
+				resolveClass(c);
+			return c;
+		}
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * A print stream that sends the output of each thread to the stream set
+ * for that thread (or for the thread that created it), or to the original
+ * stream if there is none.
+ */
+private static final class Dispatcher extends PrintStream
+{
+	private final InheritableThreadLocal<PrintStream> target =
+		new InheritableThreadLocal<PrintStream>();
+
+	Dispatcher(PrintStream out)
+	{
+		super(out, true);
+	}
+
+	void set(PrintStream p)
+	{
+		if (p == null)
+			target.remove();
+		else
+			target.set(p);
+	}
+
+	private PrintStream get()
+	{
+		PrintStream p = target.get();
+		return (p == null ? (PrintStream) out : p);
+	}
+
+	@Override
+	public void write(int b)
+	{
+		get().write(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len)
+	{
+		get().write(b, off, len);
+	}
+
+	@Override
+	public void flush()
+	{
+		get().flush();
+	}
+}
+
+}
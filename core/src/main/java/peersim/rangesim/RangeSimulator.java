@@ -81,6 +81,14 @@ java peersim.rangesim.RangeSimulator config.file jvm.options=-Xmx256m
  * The new JVM inherits the same classpath as the JVM running the
  * RangeSimulator. The {@value #PAR_JVM} parameter can be used to
  * specify additional classpath specification.
+ * <p>
+ * Alternatively, if parameter {@value #PAR_THREADS} is set, the
+ * experiments are run within the JVM of the RangeSimulator by an
+ * {@link InProcessRunner}, at most {@value #PAR_THREADS} at a time.
+ * This is much faster if there are many short experiments.
+ * In this case {@value #PAR_JVM} is ignored: options like the maximum heap
+ * size have to be given to the JVM running the RangeSimulator, and the
+ * heap is shared by the concurrent experiments.
  * 
  * @author Alberto Montresor
  * @version $Revision$
@@ -107,6 +115,15 @@ private static final String PAR_RANGE = "range";
  */
 public static final String PAR_JVM = "jvm.options";
 
+/**
+ * This config property defines the number of experiments that are run
+ * concurrently within the JVM of the range simulator, instead of forking
+ * a JVM for each experiment. If it is not set, or it is zero, the
+ * experiments are run one at a time in separate JVMs.
+ * @config
+ */
+public static final String PAR_THREADS = "rangesim.threads";
+
 
 // --------------------------------------------------------------------------
 // Static variables
@@ -121,6 +138,9 @@ private String[][] values;
 /** The jvm options to be used when creating jvms */
 private String[] jvmoptions;
 
+/** The number of experiments run concurrently in this JVM, or 0 */
+private int threads;
+
 /** Command line arguments */
 private String[] args;
 
@@ -169,6 +189,11 @@ public RangeSimulator(String[] args)
 	else
 		jvmoptions = opt.split(" ");
 
+	threads = Configuration.getInt(PAR_THREADS, 0);
+	if (threads < 0)
+		throw new IllegalParameterException(PAR_THREADS,
+				"Should not be negative");
+
 	// Parse range parameters
 	parseRanges();
 
@@ -284,6 +309,7 @@ private void doExperiments(String[] args)
 	list.add("peersim.Simulator");
 	
 	// Parameters specified on the command line
+	int startargs = list.size();
 	for (int i=0; i < args.length; i++) {
 		list.add(args[i]);
 	}
@@ -293,6 +319,7 @@ private void doExperiments(String[] args)
 	list.add(Simulator.PAR_EXPS+"=1");
 
 	// Activate redirection to separate stdout from stderr
+	int endargs = list.size();
 	list.add(Simulator.PAR_REDIRECT+"="+TaggedOutputStream.class.getCanonicalName());
 	int startlog = list.size();
 	list.add(""); 
@@ -306,6 +333,11 @@ private void doExperiments(String[] args)
 	for (int i=0; i < values.length; i++)
 		list.add("");
 		
+	// Run in this JVM if requested
+	InProcessRunner runner = null;
+	if (threads > 0)
+		runner = new InProcessRunner(threads);
+
 	// Execute with different values
 	int[] idx = new int[values.length]; // Initialized to 0
 	while (idx[0] < values[0].length) {
@@ -330,14 +362,25 @@ private void doExperiments(String[] args)
 		long seed = CommonState.r.nextLong();
 		list.set(startseed, CommonState.PAR_SEED+"="+seed);
 
-		System.err.println("Experiment: " + log);
-		
-		executeProcess(list);
+		if (runner != null) {
+			// the same arguments, without the redirection
+			List<String> local = new ArrayList<String>(
+					list.subList(startargs, endargs));
+			local.addAll(list.subList(startseed, list.size()));
+			runner.submit(local.toArray(new String[local.size()]),
+					log.toString());
+		} else {
+			System.err.println("Experiment: " + log);
+			executeProcess(list);
+		}
 
 		// Increment values
 		nextValues(idx, values);
 	
 	}
+	
+	if (runner != null)
+		runner.finish();
 }
 
 //--------------------------------------------------------------------
@@ -89,6 +89,9 @@ private final String ranges;
 /** The value of the PAR_TIME parameter */
 private final ArrayList<String> obstime;
 
+/** True if lines must be terminated by {@link #TAG} */
+private final boolean tag;
+
 //--------------------------------------------------------------------------
 //Initialization
 //--------------------------------------------------------------------------
@@ -100,15 +103,29 @@ private final ArrayList<String> obstime;
  */
 public TaggedOutputStream(String prefix)
 {
-	super(System.out);
+	this(System.out, Configuration.getString(prefix + "." + PAR_RANGES, ""),
+		true);
+}
+
+/**
+ * Creates an output stream that prints the output on the specified stream,
+ * inserting the given range values like the tagged stream does.
+ * Lines are terminated by {@link #TAG} only if <code>tag</code> is true.
+ * This is used by {@link InProcessRunner}, where standard output and
+ * standard error are never mixed.
+ */
+TaggedOutputStream(PrintStream out, String ranges, boolean tag)
+{
+	super(out);
 	
 	obstime = new ArrayList<String>();
 	String[] obs = Configuration.getString(PAR_TIME, "").split("[ :,]");
 	for (int i=0; i < obs.length; i++) {
 		obstime.add("control." + obs[i]);
 	}
-	ranges = Configuration.getString(prefix + "." + PAR_RANGES, "");
-	stdout = System.out;
+	this.ranges = ranges;
+	this.tag = tag;
+	stdout = out;
 	size = 0;
 }
 
@@ -120,15 +137,15 @@ public TaggedOutputStream(String prefix)
 @Override
 public synchronized void write(byte[] b, int off, int len)
 {
-	if (size+len > buffer.length) {
-		byte[] tmp = new byte[Math.max(buffer.length*2, size+len)];
+	if (size+len+1 > buffer.length) {
+		byte[] tmp = new byte[Math.max(buffer.length*2, size+len+1)];
 		System.arraycopy(buffer, 0, tmp, 0, size);
 		buffer = tmp;
 	}
 	int last = off+len;
 	for (int i=off; i < last; i++) {
 		if (b[i] == '\n') {
-			buffer[size++] = TAG;
+			if (tag) buffer[size++] = TAG;
 			buffer[size++] = b[i];
 			printLine();
 		}  else {
@@ -141,13 +158,13 @@ public synchronized void write(byte[] b, int off, int len)
 @Override
 public synchronized void write(int b)
 {
-	if (size == buffer.length) {
+	if (size+2 > buffer.length) {
 		byte[] tmp = new byte[buffer.length*2];
 		System.arraycopy(buffer, 0, tmp, 0, size);
 		buffer = tmp;
 	}
 	if (b == '\n') {
-		buffer[size++] = TAG;
+		if (tag) buffer[size++] = TAG;
 		buffer[size++] = (byte) b;
 		printLine();
 	}  else {
@@ -168,7 +185,7 @@ private void printLine()
 		stdout.print(": ");
 		stdout.print(ranges);
 		if (obstime.contains(parts[0]))
-			stdout.print(" TIME " + CommonState.getTime() + " ");
+			stdout.print(" TIME " + getTime() + " ");
 		stdout.print(parts[1]);
 	} else {
 		stdout.print(line);
@@ -176,4 +193,12 @@ private void printLine()
 	size = 0;
 }
 
+/**
+ * Returns the current time of the simulation producing the output.
+ */
+long getTime()
+{
+	return CommonState.getTime();
+}
+
 }
@@ -65,16 +65,16 @@ private static final String PAR_N = "n";
  */
 private static final String PAR_STATS = "stats";
 
-private final int maxd;
+final int maxd;
 
-private final int n;
+final int n;
 
-private final boolean stats;
+final boolean stats;
 
 /** working variable */
 private final int[] b;
 
-private final RandPermutation rp = new RandPermutation(CommonState.r);
+final RandPermutation rp = new RandPermutation(CommonState.r);
 
 // ===================== initialization ================================
 // =====================================================================
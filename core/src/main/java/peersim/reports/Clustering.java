@@ -21,6 +21,7 @@ package peersim.reports;
 import peersim.config.Configuration;
 import peersim.graph.GraphAlgorithms;
 import peersim.util.IncrementalStats;
+import peersim.util.IntList;
 
 /**
  * Control to observe the clustering coefficient.
@@ -38,7 +39,10 @@ public class Clustering extends GraphObserver
  */
 private static final String PAR_N = "n";
 
-private final int n;
+final int n;
+
+/** working variable */
+private final IntList list = new IntList();
 
 // ===================== initialization ================================
 // =====================================================================
@@ -71,7 +75,7 @@ public boolean execute()
 	IncrementalStats stats = new IncrementalStats();
 	updateGraph();
 	for (int i = 0; i < n && i < g.size(); ++i) {
-		stats.add(GraphAlgorithms.clustering(g, i));
+		stats.add(GraphAlgorithms.clustering(g, i, list));
 	}
 	System.out.println(name + ": " + stats);
 	return false;
@@ -18,7 +18,6 @@
 
 package peersim.reports;
 
-import java.util.Iterator;
 import java.util.Map;
 import peersim.config.Configuration;
 import peersim.util.IncrementalStats;
@@ -58,10 +57,10 @@ private static final String PAR_TYPE = "type";
 //--------------------------------------------------------------------------
 
 /** {@link #PAR_STATS} */
-private final boolean sizestats;
+final boolean sizestats;
 
 /** {@link #PAR_TYPE} */
-private final String type;
+final String type;
 
 //--------------------------------------------------------------------------
 //Initialization
@@ -98,7 +97,7 @@ public ConnectivityObserver(String name)
 */
 public boolean execute()
 {
-	Map clst;
+	Map<Integer,Integer> clst;
 	updateGraph();
 	
 	if(type.equals("wcc"))
@@ -109,17 +108,26 @@ public boolean execute()
 		throw new RuntimeException(
 		"Unsupported connted cluster type '"+type+"'");
 
+	print(clst);
+	return false;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+* Prints the given clusters as described at {@link #execute}.
+*/
+void print(Map<Integer,Integer> clst)
+{
 	if (!sizestats) {
 		System.out.println(name + ": " + clst);
 	} else {
 		IncrementalStats stats = new IncrementalStats();
-		Iterator it = clst.values().iterator();
-		while (it.hasNext()) {
-			stats.add(((Integer) it.next()).intValue());
+		for (int size : clst.values()) {
+			stats.add(size);
 		}
 		System.out.println(name + ": " + stats);
 	}
-	return false;
 }
 
 }
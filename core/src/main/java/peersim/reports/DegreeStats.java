@@ -72,19 +72,19 @@ private static final String PAR_TYPE = "linktype";
 //Parameter
 //--------------------------------------------------------------------------
 
-private final int n;
+final int n;
 
-private final boolean trace;
+final boolean trace;
 
 private Node[] traced = null;
 
-private final String method;
+final String method;
 
-private final String type;
+final String type;
 
-private final RandPermutation rp = new RandPermutation(CommonState.r);
+final RandPermutation rp = new RandPermutation(CommonState.r);
 
-private int nextnode = 0;
+int nextnode = 0;
 
 //--------------------------------------------------------------------------
 //Initialization
@@ -117,7 +117,7 @@ public DegreeStats(String name)
 /**
  * Returns next node to get degree information about.
  */
-private int nextNodeId()
+int nextNodeId()
 {
 	if (trace) {
 		if (traced == null) {
@@ -142,9 +142,9 @@ private int nextDegree()
 	if (type.equals("live")) {
 		return g.degree(nodeid);
 	} else if (type.equals("all")) {
-		return ((OverlayGraph) g).fullDegree(nodeid);
+		return overlay().fullDegree(nodeid);
 	} else if (type.equals("dead")) {
-		return ((OverlayGraph) g).fullDegree(nodeid) - g.degree(nodeid);
+		return overlay().fullDegree(nodeid) - g.degree(nodeid);
 	} else
 		throw new RuntimeException(name + ": invalid type");
 }
@@ -65,6 +65,19 @@ private static final String PAR_UNDIR_ALT = "undirected";
  */
 private static final String PAR_FAST = "graphobserver.fast";
 
+/**
+ * If defined, the graphs are stored as {@link CsrGraph} snapshots, both the
+ * directed and (if needed) the undirected version. They use much less
+ * memory than the default undirected graph and even more so than
+ * {@value #PAR_FAST}, and they are faster to traverse. The snapshots are
+ * taken when the graphs are updated, so, unlike the default directed graph,
+ * they do not reflect changes of the overlay made later at the same time
+ * point. Not defined by default. Like {@value #PAR_FAST}, it is a
+ * standalone property that affects all graph observers.
+ * @config
+ */
+private static final String PAR_CSR = "graphobserver.csr";
+
 /** The name of this observer in the configuration */
 protected final String name;
 
@@ -86,12 +99,22 @@ private static int phase = -1234;
 
 private static int ctime = -1234;
 
+private static OverlayGraph overlay;
+
 private static Graph dirg;
 
 private static Graph undirg;
 
+/** Snapshot of {@link #dirg}, taken when first needed */
+private static CsrGraph dirsnap;
+
+/** Snapshot of {@link #undirg}, taken when first needed */
+private static CsrGraph undirsnap;
+
 private static boolean fast;
 
+private static boolean csr;
+
 /** If any instance of some extending class defines undir we need to
 maintain an undir graph. Note that the graph is stored in a static
 field so it is common to all instances. */
@@ -113,6 +136,7 @@ protected GraphObserver(String name) {
 	undir = (Configuration.contains(name + "." + PAR_UNDIR) |
 		Configuration.contains(name + "." + PAR_UNDIR_ALT));
 	GraphObserver.fast = Configuration.contains(PAR_FAST);
+	GraphObserver.csr = Configuration.contains(PAR_CSR);
 	GraphObserver.needUndir = (GraphObserver.needUndir || undir);
 }
 
@@ -148,15 +172,28 @@ protected void updateGraph() {
 		if( CDState.isCD() ) GraphObserver.ctime = CDState.getCycleT();
 		GraphObserver.phase = CommonState.getPhase();
 
-		GraphObserver.dirg = new OverlayGraph(pid);
-		if( GraphObserver.needUndir )
+		GraphObserver.overlay = new OverlayGraph(pid);
+		GraphObserver.dirsnap = null;
+		GraphObserver.undirsnap = null;
+		if( csr )
 		{
-			if( fast )
+			GraphObserver.dirg = new CsrGraph(GraphObserver.overlay);
+			if( GraphObserver.needUndir )
 				GraphObserver.undirg =
-				new FastUndirGraph(GraphObserver.dirg);
-			else
-				GraphObserver.undirg =
-				new ConstUndirGraph(GraphObserver.dirg);
+				new CsrGraph(GraphObserver.dirg, true);
+		}
+		else
+		{
+			GraphObserver.dirg = GraphObserver.overlay;
+			if( GraphObserver.needUndir )
+			{
+				if( fast )
+					GraphObserver.undirg =
+					new FastUndirGraph(GraphObserver.dirg);
+				else
+					GraphObserver.undirg =
+					new ConstUndirGraph(GraphObserver.dirg);
+			}
 		}
 	}
 	
@@ -164,6 +201,52 @@ protected void updateGraph() {
 	else g = GraphObserver.dirg;
 }
 
+// ---------------------------------------------------------------------
+
+/**
+* Returns a {@link CsrGraph} snapshot of {@link #g}. It can be called only
+* after {@link #updateGraph}. Like the graphs, the snapshots are shared
+* by all observers and taken again only when the graphs are updated, so
+* the observers that run at the same time observe the same snapshot.
+* Being immutable, the snapshot can be read by several threads.
+*/
+protected CsrGraph snapshot() {
+
+	if( g instanceof CsrGraph ) return (CsrGraph)g;
+	if( undir )
+	{
+		if( GraphObserver.undirsnap == null )
+			GraphObserver.undirsnap = new CsrGraph(GraphObserver.undirg);
+		return GraphObserver.undirsnap;
+	}
+	if( GraphObserver.dirsnap == null )
+		GraphObserver.dirsnap = new CsrGraph(GraphObserver.dirg);
+	return GraphObserver.dirsnap;
+}
+
+// ---------------------------------------------------------------------
+
+/**
+* Returns the {@link OverlayGraph} of the protocol, which reflects the
+* current state of the overlay. It can be called only after
+* {@link #updateGraph}. Unlike {@link #g}, it is an {@link OverlayGraph}
+* even if the graphs are stored as snapshots.
+*/
+protected OverlayGraph overlay() { return GraphObserver.overlay; }
+
+// ---------------------------------------------------------------------
+
+/**
+* Makes the next call to {@link #updateGraph} update the graphs even if
+* the simulation has not advanced. Observers that change the overlay or
+* the order of the nodes (for example by {@link Network#shuffle}) must call
+* it before observing the graph again.
+*/
+protected static void invalidateGraph() {
+
+	GraphObserver.lastpid = -1234;
+}
+
 }
 
 
@@ -21,6 +21,7 @@ package peersim.reports;
 import peersim.config.Configuration;
 import peersim.graph.GraphAlgorithms;
 import peersim.util.IncrementalStats;
+import peersim.util.IntList;
 
 /**
 * Prints reports on the graph like average clustering and average path length,
@@ -66,6 +67,9 @@ private final int nc;
 
 private final int nl;
 
+/** working variable */
+private final IntList list = new IntList();
+
 
 // ===================== initialization ================================
 // =====================================================================
@@ -114,7 +118,7 @@ public boolean execute() {
 		final int n = ( nc<0 ? g.size() : nc );
 		for(int i=0; i<n && i<g.size(); ++i)
 		{
-			stats.add(GraphAlgorithms.clustering(g,i));
+			stats.add(GraphAlgorithms.clustering(g,i,list));
 		}
 		System.out.print(stats.getAverage()+" ");
 	}
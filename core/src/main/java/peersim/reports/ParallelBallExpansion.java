@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.reports;
+
+import java.util.Arrays;
+
+import peersim.core.ThreadedControl;
+import peersim.graph.CsrGraph;
+import peersim.util.*;
+
+/**
+ * Parallel version of {@link BallExpansion}. The sources are selected like
+ * in {@link BallExpansion}, then the breadth-first searches from them are
+ * run on the {@link GraphObserver#snapshot} of the graph by
+ * as many threads as parameter <code>threads</code> (see
+ * {@link ParallelObserver}), each working on a contiguous range of the
+ * sources. The output is the same as that of {@link BallExpansion}.
+ */
+public class ParallelBallExpansion extends BallExpansion
+implements ThreadedControl
+{
+
+// ===================== fields =======================================
+// ====================================================================
+
+/** The chunks of the sources */
+private final Search[] chunks;
+
+/** Runs the chunks */
+private final ParallelObserver parallel = new ParallelObserver();
+
+/** The sources of the current execution */
+private int[] sources = new int[0];
+
+/**
+ * The ball expansion from each source, up to the first zero, if
+ * statistics are not printed.
+ */
+private int[][] balls = null;
+
+// ===================== initialization ================================
+// =====================================================================
+
+/**
+ * Standard constructor that reads the configuration parameters.
+ * Invoked by the simulation engine.
+ * @param name the configuration prefix for this class
+ */
+public ParallelBallExpansion(String name)
+{
+	super(name);
+	final int threads = ParallelObserver.getThreads(name);
+	chunks = new Search[threads];
+	for (int i = 0; i < threads; ++i)
+		chunks[i] = new Search();
+}
+
+// ====================== methods ======================================
+// =====================================================================
+
+/**
+ * Prints information about ball expansion, like
+ * {@link BallExpansion#execute}.
+ * @return always false
+ */
+public boolean execute() {
+
+	updateGraph();
+	final CsrGraph csr = snapshot();
+	System.out.print(name + ": ");
+	rp.reset(csr.size());
+	final int ns = Math.min(n, csr.size());
+	if (sources.length != ns)
+		sources = new int[ns];
+	for (int i = 0; i < ns; ++i)
+		sources[i] = rp.next();
+	if (!stats)
+		balls = new int[ns][];
+
+	for (int i = 0; i < chunks.length; ++i)
+		chunks[i].csr = csr;
+	parallel.invoke(chunks, ns);
+
+	if (stats)
+	{
+		IncrementalStats is = new IncrementalStats();
+		for (int i = 0; i < chunks.length; ++i)
+			is.add(chunks[i].is);
+		System.out.println(is);
+	}
+	else
+	{
+		System.out.println();
+		for (int i = 0; i < ns; ++i)
+		{
+			for (int j = 0; j < balls[i].length; ++j)
+				System.out.print(balls[i][j] + " ");
+			System.out.println();
+		}
+		balls = null;
+	}
+	for (int i = 0; i < chunks.length; ++i)
+		chunks[i].csr = null;
+	return false;
+}
+
+// ---------------------------------------------------------------------
+
+/**
+ * Stops the threads that run the chunks.
+ */
+public void shutdown()
+{
+	parallel.shutdown();
+}
+
+// ===================== inner classes =================================
+// =====================================================================
+
+/**
+ * Runs the searches from a range of the sources.
+ */
+private final class Search extends ParallelObserver.Chunk
+{
+	private static final long serialVersionUID = 1L;
+
+	/** The graph */
+	CsrGraph csr;
+
+	/** The statistics of the range */
+	final IncrementalStats is = new IncrementalStats();
+
+	/** Work arrays */
+	private int[] d = new int[0], queue = new int[0], b = new int[maxd];
+
+	void run()
+	{
+		final int size = csr.size();
+		if (d.length < size)
+		{
+			d = new int[size];
+			queue = new int[size];
+		}
+		is.reset();
+		for (int i = from; i < to; ++i)
+		{
+			csr.dist(sources[i], d, queue);
+			if (stats)
+			{
+				for (int j = 0; j < size; j++)
+				{
+					if (d[j] > 0)
+						is.add(d[j]);
+					else if (d[j] == -1)
+						is.add(Double.POSITIVE_INFINITY);
+				}
+			}
+			else
+			{
+				Arrays.fill(b, 0);
+				for (int j = 0; j < size; j++)
+				{
+					if (d[j] >= 0 && d[j] < b.length)
+						b[d[j]]++;
+				}
+				int k = 0;
+				while (k < b.length && b[k] > 0)
+					++k;
+				balls[i] = Arrays.copyOf(b, k);
+			}
+		}
+	}
+}
+
+}
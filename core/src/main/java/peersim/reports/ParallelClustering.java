@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.reports;
+
+
+import peersim.core.ThreadedControl;
+import peersim.graph.*;
+import peersim.util.*;
+
+/**
+ * Parallel version of {@link Clustering}. The clustering coefficients
+ * are calculated on the {@link GraphObserver#snapshot} of the graph by
+ * as many threads as parameter <code>threads</code> (see
+ * {@link ParallelObserver}), each working on a contiguous range of the
+ * nodes. The coefficients are then added to the statistics in the order
+ * of the nodes, so the output is the same as that of {@link Clustering}.
+ */
+public class ParallelClustering extends Clustering
+implements ThreadedControl
+{
+
+// ===================== fields =======================================
+// ====================================================================
+
+/** The chunks of the nodes */
+private final Range[] chunks;
+
+/** Runs the chunks */
+private final ParallelObserver parallel = new ParallelObserver();
+
+/** The clustering coefficients of the nodes */
+private double[] coef = new double[0];
+
+// ===================== initialization ================================
+// =====================================================================
+
+/**
+ * Standard constructor that reads the configuration parameters.
+ * Invoked by the simulation engine.
+ * @param name the configuration prefix for this class
+ */
+public ParallelClustering(String name)
+{
+	super(name);
+	final int threads = ParallelObserver.getThreads(name);
+	chunks = new Range[threads];
+	for (int i = 0; i < threads; ++i)
+		chunks[i] = new Range();
+}
+
+// ====================== methods ======================================
+// =====================================================================
+
+/**
+ * Prints information about the clustering coefficient, like
+ * {@link Clustering#execute}.
+ * @return always false
+ */
+public boolean execute()
+{
+	updateGraph();
+	final CsrGraph csr = snapshot();
+	final int size = Math.min(n, csr.size());
+	if (coef.length < size)
+		coef = new double[size];
+	for (int i = 0; i < chunks.length; ++i) {
+		chunks[i].csr = csr;
+		chunks[i].coef = coef;
+	}
+	parallel.invoke(chunks, size);
+	for (int i = 0; i < chunks.length; ++i)
+		chunks[i].csr = null;
+
+	IncrementalStats stats = new IncrementalStats();
+	for (int i = 0; i < size; ++i)
+		stats.add(coef[i]);
+	System.out.println(name + ": " + stats);
+	return false;
+}
+
+// ---------------------------------------------------------------------
+
+/**
+ * Stops the threads that run the chunks.
+ */
+public void shutdown()
+{
+	parallel.shutdown();
+}
+
+// ===================== inner classes =================================
+// =====================================================================
+
+/**
+ * Calculates the coefficients of a range of the nodes.
+ */
+private static final class Range extends ParallelObserver.Chunk
+{
+	private static final long serialVersionUID = 1L;
+
+	/** The graph */
+	CsrGraph csr;
+
+	/** The coefficients of all the nodes, the range is filled in */
+	double[] coef;
+
+	/** Work list */
+	private final IntList list = new IntList();
+
+	void run()
+	{
+		for (int i = from; i < to; ++i)
+			coef[i] = GraphAlgorithms.clustering(csr, i, list);
+	}
+}
+
+}
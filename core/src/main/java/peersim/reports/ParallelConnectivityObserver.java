@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.reports;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import peersim.core.ThreadedControl;
+import peersim.graph.CsrGraph;
+
+/**
+ * Parallel version of {@link ConnectivityObserver}. The weakly connected
+ * clusters are found on the {@link GraphObserver#snapshot} of the graph
+ * by as many threads as parameter <code>threads</code> (see
+ * {@link ParallelObserver}), each joining the ends of the edges of a
+ * contiguous range of the nodes in a shared, lock-free union-find forest.
+ * The cluster indexes are the same as those of
+ * {@link peersim.graph.GraphAlgorithms#weaklyConnectedClusters}, so the
+ * output is the same as that of {@link ConnectivityObserver}.
+ * The strongly connected clusters are found by Tarjan's algorithm, which
+ * is inherently sequential, on the snapshot.
+ */
+public class ParallelConnectivityObserver extends ConnectivityObserver
+implements ThreadedControl
+{
+
+//--------------------------------------------------------------------------
+//Fields
+//--------------------------------------------------------------------------
+
+/** The chunks of the nodes */
+private final Range[] chunks;
+
+/** Runs the chunks */
+private final ParallelObserver parallel = new ParallelObserver();
+
+/**
+ * The union-find forest. Each node points to a node with a smaller or equal
+ * index, and the root of a tree is its smallest node.
+ */
+private AtomicIntegerArray parent = null;
+
+//--------------------------------------------------------------------------
+//Initialization
+//--------------------------------------------------------------------------
+
+/**
+ * Standard constructor that reads the configuration parameters.
+ * Invoked by the simulation engine.
+ * @param name the configuration prefix for this class
+ */
+public ParallelConnectivityObserver(String name)
+{
+	super(name);
+	final int threads = ParallelObserver.getThreads(name);
+	chunks = new Range[threads];
+	for (int i = 0; i < threads; ++i)
+		chunks[i] = new Range();
+}
+
+//--------------------------------------------------------------------------
+//Methods
+//--------------------------------------------------------------------------
+
+/**
+ * Prints information about clusters, like
+ * {@link ConnectivityObserver#execute}.
+ * @return always false
+ */
+public boolean execute()
+{
+	updateGraph();
+	final CsrGraph csr = snapshot();
+
+	if (type.equals("wcc"))
+		print(weaklyConnectedClusters(csr));
+	else if (type.equals("scc"))
+		print(ga.tarjan(csr));
+	else
+		throw new RuntimeException(
+		"Unsupported connted cluster type '"+type+"'");
+
+	return false;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Returns the weakly connected cluster indexes with size as a value.
+ */
+private Map<Integer,Integer> weaklyConnectedClusters(CsrGraph csr)
+{
+	final int size = csr.size();
+	if (parent == null || parent.length() < size)
+		parent = new AtomicIntegerArray(size);
+	for (int i = 0; i < size; ++i)
+		parent.set(i, i);
+	for (int i = 0; i < chunks.length; ++i)
+		chunks[i].csr = csr;
+	parallel.invoke(chunks, size);
+	for (int i = 0; i < chunks.length; ++i)
+		chunks[i].csr = null;
+
+	// cluster numbers are negative integers, in the order of the roots
+	final int[] color = new int[size];
+	int clusters = 0;
+	for (int i = 0; i < size; ++i)
+	{
+		final int r = find(i);
+		color[i] = (r == i ? --clusters : color[r]);
+	}
+	final int[] count = new int[-clusters];
+	for (int i = 0; i < size; ++i)
+		count[-color[i] - 1]++;
+	Hashtable<Integer,Integer> ht = new Hashtable<Integer,Integer>();
+	for (int c = 0; c < count.length; ++c)
+		ht.put(-c - 1, count[c]);
+	return ht;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Returns the root of the tree of i, halving the path to it.
+ */
+private int find(int i)
+{
+	int p;
+	while ((p = parent.get(i)) != i)
+	{
+		final int gp = parent.get(p);
+		if (gp != p)
+			parent.compareAndSet(i, p, gp);
+		i = p;
+	}
+	return i;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Joins the trees of i and j, linking the larger root to the smaller one.
+ */
+private void union(int i, int j)
+{
+	while (true)
+	{
+		i = find(i);
+		j = find(j);
+		if (i == j)
+			return;
+		if (i < j) {
+			final int t = i;
+			i = j;
+			j = t;
+		}
+		if (parent.compareAndSet(i, i, j))
+			return;
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Stops the threads that run the chunks.
+ */
+public void shutdown()
+{
+	parallel.shutdown();
+}
+
+//--------------------------------------------------------------------------
+//Inner classes
+//--------------------------------------------------------------------------
+
+/**
+ * Joins the ends of the edges of a range of the nodes.
+ */
+private final class Range extends ParallelObserver.Chunk
+{
+	private static final long serialVersionUID = 1L;
+
+	/** The graph */
+	CsrGraph csr;
+
+	void run()
+	{
+		final int[] offsets = csr.getOffsets();
+		final int[] targets = csr.getTargets();
+		for (int i = from; i < to; ++i)
+		{
+			for (int k = offsets[i]; k < offsets[i + 1]; ++k)
+				union(i, targets[k]);
+		}
+	}
+}
+
+}
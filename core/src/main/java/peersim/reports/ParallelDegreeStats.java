@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.reports;
+
+
+import peersim.core.*;
+import peersim.graph.CsrGraph;
+import peersim.util.*;
+
+/**
+ * Parallel version of {@link DegreeStats}. The nodes are selected like in
+ * {@link DegreeStats}, then their degrees are read by
+ * as many threads as parameter <code>threads</code> (see
+ * {@link ParallelObserver}), each working on a contiguous range of the
+ * selected nodes. The live degrees are read from the
+ * {@link GraphObserver#snapshot} of the graph, the others from the
+ * {@link OverlayGraph}. The output is the same as that of
+ * {@link DegreeStats}.
+ */
+public class ParallelDegreeStats extends DegreeStats
+implements ThreadedControl
+{
+
+//--------------------------------------------------------------------------
+//Fields
+//--------------------------------------------------------------------------
+
+/** The chunks of the selected nodes */
+private final Range[] chunks;
+
+/** Runs the chunks */
+private final ParallelObserver parallel = new ParallelObserver();
+
+/** The selected nodes */
+private int[] ids = new int[0];
+
+/** The degrees of the selected nodes */
+private int[] degrees = new int[0];
+
+//--------------------------------------------------------------------------
+//Initialization
+//--------------------------------------------------------------------------
+
+/**
+ * Standard constructor that reads the configuration parameters.
+ * Invoked by the simulation engine.
+ * @param name the configuration prefix for this class
+ */
+public ParallelDegreeStats(String name)
+{
+	super(name);
+	final int threads = ParallelObserver.getThreads(name);
+	chunks = new Range[threads];
+	for (int i = 0; i < threads; ++i)
+		chunks[i] = new Range();
+}
+
+//--------------------------------------------------------------------------
+//Methods
+//--------------------------------------------------------------------------
+
+/**
+ * Prints statistics about node degree, like {@link DegreeStats#execute}.
+ * @return always false
+ */
+public boolean execute()
+{
+	updateGraph();
+	if (!trace)
+		rp.reset(g.size());
+	else
+		nextnode = 0;
+	final int nn = (n < 0 ? Network.size() : n);
+	if (ids.length < nn) {
+		ids = new int[nn];
+		degrees = new int[nn];
+	}
+	for (int i = 0; i < nn; ++i)
+		ids[i] = nextNodeId();
+
+	final CsrGraph csr = snapshot();
+	for (int i = 0; i < chunks.length; ++i)
+		chunks[i].csr = csr;
+	parallel.invoke(chunks, nn);
+	for (int i = 0; i < chunks.length; ++i)
+		chunks[i].csr = null;
+
+	if (method.equals("stats")) {
+		IncrementalStats stats = new IncrementalStats();
+		for (int i = 0; i < chunks.length; ++i)
+			stats.add(chunks[i].stats);
+		System.out.println(name + ": " + stats);
+	} else if (method.equals("freq")) {
+		IncrementalFreq stats = new IncrementalFreq();
+		for (int i = 0; i < chunks.length; ++i)
+			stats.add(chunks[i].freq);
+		stats.print(System.out);
+		System.out.println("\n\n");
+	} else if (method.equals("list")) {
+		System.out.print(name + ": ");
+		for (int i = 0; i < nn; ++i)
+			System.out.print(degrees[i] + " ");
+		System.out.println();
+	}
+	return false;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Stops the threads that run the chunks.
+ */
+public void shutdown()
+{
+	parallel.shutdown();
+}
+
+//--------------------------------------------------------------------------
+//Inner classes
+//--------------------------------------------------------------------------
+
+/**
+ * Reads the degrees of a range of the selected nodes.
+ */
+private final class Range extends ParallelObserver.Chunk
+{
+	private static final long serialVersionUID = 1L;
+
+	/** The graph */
+	CsrGraph csr;
+
+	/** The statistics of the range */
+	final IncrementalStats stats = new IncrementalStats();
+
+	/** The frequencies of the range */
+	final IncrementalFreq freq = new IncrementalFreq();
+
+	void run()
+	{
+		stats.reset();
+		freq.reset();
+		for (int i = from; i < to; ++i)
+		{
+			final int id = ids[i];
+			final int d;
+			if (type.equals("live")) {
+				d = csr.degree(id);
+			} else if (type.equals("all")) {
+				d = overlay().fullDegree(id);
+			} else if (type.equals("dead")) {
+				d = overlay().fullDegree(id) - csr.degree(id);
+			} else
+				throw new RuntimeException(name + ": invalid type");
+			degrees[i] = d;
+			if (method.equals("stats"))
+				stats.add(d);
+			else if (method.equals("freq"))
+				freq.add(d);
+		}
+	}
+}
+
+}
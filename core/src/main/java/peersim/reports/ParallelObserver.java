@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.reports;
+
+import java.util.concurrent.*;
+
+import peersim.cdsim.CDSimulator;
+import peersim.config.*;
+import peersim.core.SimulationContext;
+import peersim.core.ThreadedControl;
+
+/**
+* Common code of the parallel graph observers. They work on the
+* {@link GraphObserver#snapshot} of the graph, and cut the sources or nodes
+* they process into as many contiguous chunks as threads. The chunks are
+* processed by a fork-join pool, and their results are merged in the order
+* of the chunks, so the output depends only on the number of threads.
+* Each observer keeps one instance of this class, which creates its pool at
+* the first observation and reuses it for the following ones. The observers
+* implement {@link ThreadedControl}, so the pool is shut down at the end of
+* the experiment.
+*/
+final class ParallelObserver {
+
+
+// ============== fields ===============================================
+// =====================================================================
+
+
+/**
+* The number of threads of a parallel observer. Defaults to the value of
+* {@value CDSimulator#PAR_THREADS}, or if that is not set either, to the
+* number of available processors.
+* @config
+*/
+static final String PAR_THREADS = "threads";
+
+/** The pool, created at the first observation */
+private ForkJoinPool pool = null;
+
+// =============== methods =============================================
+// =====================================================================
+
+/**
+* Reads parameter {@value #PAR_THREADS} of the given observer.
+*/
+static int getThreads(String prefix) {
+
+	int threads = Configuration.getInt(prefix+"."+PAR_THREADS,
+		Configuration.getInt(CDSimulator.PAR_THREADS,
+		Runtime.getRuntime().availableProcessors()));
+	if( threads < 1 ) throw new IllegalParameterException(
+		prefix+"."+PAR_THREADS, "Should be positive");
+	return threads;
+}
+
+// ---------------------------------------------------------------------
+
+/**
+* Cuts the range from 0 to size (exclusive) into the given chunks, and
+* runs them in the pool, which has as many threads as chunks. Returns when
+* all of them are done.
+* The chunks see the simulation context of the calling thread.
+*/
+void invoke(final Chunk[] chunks, int size) {
+
+	final SimulationContext context = SimulationContext.current();
+	for(int i=0; i<chunks.length; ++i)
+	{
+		chunks[i].context = context;
+		chunks[i].from = (int)((long)size*i/chunks.length);
+		chunks[i].to = (int)((long)size*(i+1)/chunks.length);
+	}
+	if( pool == null ) pool = new ForkJoinPool(chunks.length);
+	pool.invoke(new RecursiveAction() {
+		protected void compute() { invokeAll(chunks); }
+	});
+	for(int i=0; i<chunks.length; ++i) chunks[i].reinitialize();
+}
+
+// ---------------------------------------------------------------------
+
+/**
+* Stops the threads of the pool, if any. A following observation creates
+* a new pool.
+*/
+void shutdown() {
+
+	if( pool != null ) pool.shutdown();
+	pool = null;
+}
+
+// =============== inner classes =======================================
+// =====================================================================
+
+/**
+* A contiguous range of the sources or nodes processed by an observer.
+* Subclasses keep their partial results and work arrays in their fields.
+*/
+static abstract class Chunk extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The range, the end is exclusive */
+	int from, to;
+
+	/** The context of the thread that invoked the chunk */
+	private SimulationContext context;
+
+	/** Processes the range */
+	abstract void run();
+
+	protected final void compute()
+	{
+		SimulationContext old = SimulationContext.bind(context);
+		try {
+			run();
+		} finally {
+			SimulationContext.bind(old);
+		}
+	}
+}
+
+}
@@ -79,6 +79,8 @@ public RandRemoval(String name)
 * percentage values a line is printed that contains the respective averages,
 * first the average maximal cluster size, followed by the average number
 * of clusters.
+* The network is shuffled between the experiments, and the graph is built
+* again after each shuffle, so every experiment sees the shuffled network.
 * @return always false
 */
 public boolean execute()
@@ -110,7 +112,11 @@ public boolean execute()
 			maxClust[i].add(stats.getMax());
 			clustNum[i].add(clst.size());
 		}
-		if( j+1 < n ) Network.shuffle();
+		if( j+1 < n ) {
+			Network.shuffle();
+			invalidateGraph();
+			updateGraph();
+		}
 	}
 	for (int i = 0; i < steps; ++i) {
 		System.out.println(maxClust[i].getAverage() + " "
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+import peersim.config.*;
+import peersim.core.*;
+import peersim.edsim.*;
+
+
+/**
+ * This transport protocol can be combined with other transports
+ * to simulate limited bandwidth and congestion. Each node has an upload
+ * and a download bandwidth, and each message has a size (see
+ * {@link SizedMessage}). The underlying transport provides the propagation
+ * delay.
+ * <p>
+ * The links of a node are first-in first-out queues. A message is
+ * transmitted on the uplink of the sender when it is free, which takes
+ * its size divided by the upload bandwidth, and its first bit arrives at
+ * the receiver after the propagation delay. It is received on the
+ * downlink of the receiver when it is free, which takes its size divided
+ * by the download bandwidth, but not before its last bit has arrived.
+ * So the delivery time is the sum of the propagation delay, the queueing
+ * delays and the transmission time on the slower link.
+ * <p>
+ * Each link only stores the time when it becomes free, so the cost of a
+ * message is constant. The consequence is that the downlink is
+ * reserved in the order messages are sent, not in the order they arrive:
+ * a message that is sent later but arrives earlier than another one still
+ * waits for it. This is exact if the uplinks are not congested and the
+ * propagation delay is the same for all the senders.
+ * <p>
+ * The bandwidths are initially set from the configuration, and they can
+ * be changed for each node with {@link #setUpload} and
+ * {@link #setDownload}, for example by the initializers of package
+ * {@link peersim.vector}.
+ * <p>
+ * Sending a message updates the downlink of the receiver, which belongs
+ * to another worker of the parallel engine, so this transport cannot be
+ * used with the parallel engine (see {@link EDSimulator#isParallel}): it
+ * throws an exception when a delay is computed in parallel mode.
+ */
+public class BandwidthTransport
+implements MinLatencyTransport, java.io.Serializable
+{
+
+private static final long serialVersionUID = 1L;
+
+//---------------------------------------------------------------------
+//Parameters
+//---------------------------------------------------------------------
+
+/**
+ * The name of the underlying transport protocol, which provides the
+ * propagation delay.
+ * @config
+ */
+private static final String PAR_TRANSPORT = "transport";
+
+/**
+ * The default upload bandwidth of the nodes, in size units per time unit.
+ * Zero means unlimited. Defaults to 0.
+ * @config
+ */
+private static final String PAR_UPLOAD = "upload";
+
+/**
+ * The default download bandwidth of the nodes, in size units per time
+ * unit. Zero means unlimited. Defaults to 0.
+ * @config
+ */
+private static final String PAR_DOWNLOAD = "download";
+
+/**
+ * The size of the messages that do not implement {@link SizedMessage}.
+ * Defaults to 0.
+ * @config
+ */
+private static final String PAR_SIZE = "size";
+
+//---------------------------------------------------------------------
+//Static fields
+//---------------------------------------------------------------------
+
+/** Identifier of this transport protocol */
+private static int tid;
+
+/** Protocol identifier for the underlying transport protocol */
+private static int transport;
+
+/** Size of the messages without size */
+private static long size;
+
+//---------------------------------------------------------------------
+//Fields
+//---------------------------------------------------------------------
+
+/** Upload bandwidth, 0 for unlimited */
+private double upload;
+
+/** Download bandwidth, 0 for unlimited */
+private double download;
+
+/** The time when the uplink becomes free */
+private long upFree = 0;
+
+/** The time when the downlink becomes free */
+private long downFree = 0;
+
+//---------------------------------------------------------------------
+//Initialization
+//---------------------------------------------------------------------
+
+/**
+ * Reads configuration parameters.
+ */
+public BandwidthTransport(String prefix)
+{
+	tid = CommonState.getPid();
+	transport = Configuration.getPid(prefix+"."+PAR_TRANSPORT);
+	upload = Configuration.getDouble(prefix+"."+PAR_UPLOAD, 0);
+	download = Configuration.getDouble(prefix+"."+PAR_DOWNLOAD, 0);
+	size = Configuration.getLong(prefix+"."+PAR_SIZE, 0);
+	if (upload < 0)
+		throw new IllegalParameterException(prefix+"."+PAR_UPLOAD,
+			"Should not be negative");
+	if (download < 0)
+		throw new IllegalParameterException(prefix+"."+PAR_DOWNLOAD,
+			"Should not be negative");
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Clones the object.
+ */
+public Object clone()
+{
+	BandwidthTransport bt=null;
+	try { bt=(BandwidthTransport)super.clone(); }
+	catch( CloneNotSupportedException e ) {} // never happens
+	return bt;
+}
+
+//---------------------------------------------------------------------
+//Methods inherited by Transport
+//---------------------------------------------------------------------
+
+/**
+ * Delivers the message reliably after the delay described in the class
+ * comment, and reserves the uplink of the sender and the downlink of the
+ * receiver for the message.
+ */
+public void send(Node src, Node dest, Object msg, int pid)
+{
+	EDSimulator.add(delay(src, dest, msg, true), msg, dest, pid);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the delay a message of the default size (see
+ * {@value #PAR_SIZE}) would have if it were sent now, without reserving
+ * the links.
+ */
+public long getLatency(Node src, Node dest)
+{
+	return delay(src, dest, null, false);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the minimal latency of the underlying protocol, or zero if it
+ * does not implement {@link MinLatencyTransport}.
+ */
+public long getMinLatency()
+{
+	Protocol t = Network.getPrototype().getProtocol(transport);
+	if( t instanceof MinLatencyTransport )
+		return ((MinLatencyTransport) t).getMinLatency();
+	return 0;
+}
+
+//---------------------------------------------------------------------
+//Methods
+//---------------------------------------------------------------------
+
+/**
+ * Computes the delay of the given message, and if reserve is true, updates
+ * the times when the links become free.
+ * @throws IllegalStateException if the parallel engine is running
+ */
+private static long delay(Node src, Node dest, Object msg, boolean reserve)
+{
+	if (EDSimulator.isParallel())
+		throw new IllegalStateException(
+			"BandwidthTransport is not supported by the parallel engine");
+	final BandwidthTransport sender =
+		(BandwidthTransport) src.getProtocol(tid);
+	final BandwidthTransport receiver =
+		(BandwidthTransport) dest.getProtocol(tid);
+	final long s = (msg instanceof SizedMessage ?
+		((SizedMessage) msg).getSize() : size);
+	final long now = CommonState.getTime();
+	final long prop =
+		((Transport) src.getProtocol(transport)).getLatency(src, dest);
+
+	final long upStart = Math.max(now, sender.upFree);
+	final long upEnd = upStart + time(s, sender.upload);
+	if (reserve)
+		sender.upFree = upEnd;
+	final long down = time(s, receiver.download);
+	if (down == 0) // the downlink is not occupied
+		return upEnd + prop - now;
+	final long downStart = Math.max(upStart + prop, receiver.downFree);
+	final long downEnd = Math.max(downStart + down, upEnd + prop);
+	if (reserve)
+		receiver.downFree = downEnd;
+	return downEnd - now;
+}
+
+//---------------------------------------------------------------------
+
+/** Returns the time needed to transmit the given size */
+private static long time(long size, double bandwidth)
+{
+	return (bandwidth > 0 ? (long) Math.ceil(size/bandwidth) : 0);
+}
+
+//---------------------------------------------------------------------
+
+/** Returns the upload bandwidth of this node, 0 means unlimited */
+public double getUpload()
+{
+	return upload;
+}
+
+//---------------------------------------------------------------------
+
+/** Sets the upload bandwidth of this node, 0 means unlimited */
+public void setUpload(double upload)
+{
+	this.upload = upload;
+}
+
+//---------------------------------------------------------------------
+
+/** Returns the download bandwidth of this node, 0 means unlimited */
+public double getDownload()
+{
+	return download;
+}
+
+//---------------------------------------------------------------------
+
+/** Sets the download bandwidth of this node, 0 means unlimited */
+public void setDownload(double download)
+{
+	this.download = download;
+}
+
+}
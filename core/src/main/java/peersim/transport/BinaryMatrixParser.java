@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+import java.io.IOException;
+
+import peersim.config.*;
+import peersim.core.Control;
+
+/**
+ * Initializes static singleton {@link E2ENetwork} by reading a latency
+ * matrix in the binary format of {@link LatencyMatrixFile}, which can be
+ * produced from the files read by the other parsers with the converter of
+ * that class. Since the file is not parsed, this is much faster than
+ * reading the original measurements.
+ */
+public class BinaryMatrixParser implements Control
+{
+
+// ---------------------------------------------------------------------
+// Parameters
+// ---------------------------------------------------------------------
+
+/**
+ * The file containing the latency matrix.
+ * @config
+ */
+private static final String PAR_FILE = "file";
+
+/**
+ * The ratio between the time units used in the file and the time units
+ * used in the Peersim simulator. Defaults to 1, that is, the latencies
+ * are used as they were converted.
+ * @config
+ */
+private static final String PAR_RATIO = "ratio";
+
+/**
+ * If set, the latencies are stored off-heap in the memory-mapped file
+ * of the given name (see {@link MappedLatencyMatrix}). If the file
+ * already contains the complete matrix, computed from the same file with
+ * the same {@value #PAR_RATIO} and stored with the same
+ * {@value #PAR_QUANTUM}, and it is not older than the latency matrix, it is
+ * mapped without reading the matrix. Not set by default.
+ * @config
+ */
+private static final String PAR_MMAP = "mmap";
+
+/**
+ * If set together with {@value #PAR_MMAP}, latencies are stored in 16 bits,
+ * rounded to multiples of this value (after applying {@value #PAR_RATIO}).
+ * Not set by default, that is, latencies are stored exactly in 32 bits.
+ * @config
+ */
+private static final String PAR_QUANTUM = "quantum";
+
+// ---------------------------------------------------------------------
+// Fields
+// ---------------------------------------------------------------------
+
+/** Name of the file containing the latency matrix. */
+private String filename;
+
+/** Ratio read from PAR_RATIO */
+private double ratio;
+
+/** Prefix for reading parameters */
+private String prefix;
+
+/** Name of the memory-mapped file, or null */
+private String mmap;
+
+/** Quantum of the memory-mapped file, or 0 */
+private double quantum;
+
+// ---------------------------------------------------------------------
+// Initialization
+// ---------------------------------------------------------------------
+
+/**
+ * Read the configuration parameters.
+ */
+public BinaryMatrixParser(String prefix)
+{
+	this.prefix = prefix;
+	filename = Configuration.getString(prefix + "." + PAR_FILE);
+	ratio = Configuration.getDouble(prefix + "." + PAR_RATIO, 1);
+	mmap = Configuration.getString(prefix + "." + PAR_MMAP, null);
+	quantum = Configuration.getDouble(prefix + "." + PAR_QUANTUM, 0);
+}
+
+// ---------------------------------------------------------------------
+// Methods
+// ---------------------------------------------------------------------
+
+/**
+ * Initializes static singleton {@link E2ENetwork} by reading the latency
+ * matrix.
+ * @return  always false
+ */
+public boolean execute()
+{
+	if (mmap != null && MappedLatencyMatrix.isReusable(mmap, quantum, ratio,
+			filename)) {
+		E2ENetwork.map(mmap);
+		System.err.println("BinaryMatrixParser: mapped " +
+			E2ENetwork.getSize() + " rows from " + mmap);
+		return false;
+	}
+
+	try {
+		long start = System.currentTimeMillis();
+		LatencyMatrixFile.load(filename, ratio, mmap, quantum);
+		System.err.println("BinaryMatrixParser: read " + E2ENetwork.getSize() +
+			" rows from " + filename + " in " +
+			(System.currentTimeMillis() - start) + " ms");
+	} catch (IOException e) {
+		throw new IllegalParameterException(prefix + "." + PAR_FILE,
+			e.getMessage());
+	}
+	return false;
+}
+
+}
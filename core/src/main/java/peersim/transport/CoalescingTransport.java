@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+import peersim.config.*;
+import peersim.core.*;
+import peersim.edsim.*;
+
+
+/**
+ * This transport protocol can be combined with other transports
+ * to reduce the number of entries of the event queue. Messages are
+ * delivered with the latency given by the underlying transport, but
+ * the messages that are delivered to the same protocol of the same node at
+ * the same time take a single entry of the queue (see {@link EventBatch}),
+ * and they are delivered one after the other, in the order they were sent.
+ * This is allowed because the order of the events that are scheduled at
+ * the same time is unspecified anyway (see {@link PriorityQ#add}).
+ * <p>
+ * Each node remembers the last batch that was scheduled for it, and
+ * messages are added to it if they have the same time and protocol, so
+ * coalescing takes constant time and works best when the messages for a
+ * node are sent close together, like in a flood or a broadcast with
+ * constant latency. Each node also keeps a few batches that are reused
+ * once they have been delivered, so batches are rarely allocated.
+ * <p>
+ * The underlying transport must deliver messages with the latency returned
+ * by its {@link Transport#getLatency} method, which is true for
+ * {@link UniformRandomTransport}, {@link E2ETransport} and
+ * {@link CoordinateTransport}. Transports that do something else in
+ * {@link Transport#send}, like dropping messages, should be put on top of
+ * this one. With the parallel engine (see {@link EDSimulator#isParallel}),
+ * messages are not coalesced, they are simply sent through the underlying
+ * transport.
+ */
+public class CoalescingTransport
+implements MinLatencyTransport, java.io.Serializable
+{
+
+private static final long serialVersionUID = 1L;
+
+//---------------------------------------------------------------------
+//Parameters
+//---------------------------------------------------------------------
+
+/**
+ * The name of the underlying transport protocol, which provides the
+ * latency.
+ * @config
+ */
+private static final String PAR_TRANSPORT = "transport";
+
+//---------------------------------------------------------------------
+//Static fields
+//---------------------------------------------------------------------
+
+/** Identifier of this transport protocol */
+private static int tid;
+
+/** Protocol identifier for the underlying transport protocol */
+private static int transport;
+
+/** The maximal number of batches reused by a node */
+private static final int POOL = 8;
+
+//---------------------------------------------------------------------
+//Fields
+//---------------------------------------------------------------------
+
+/** The last batch scheduled for this node, or null */
+private EventBatch last = null;
+
+/** The batches of this node that are reused, or null */
+private EventBatch[] pool = null;
+
+//---------------------------------------------------------------------
+//Initialization
+//---------------------------------------------------------------------
+
+/**
+ * Reads configuration parameters.
+ */
+public CoalescingTransport(String prefix)
+{
+	tid = CommonState.getPid();
+	transport = Configuration.getPid(prefix+"."+PAR_TRANSPORT);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Clones the object. The clone has no batches.
+ */
+public Object clone()
+{
+	CoalescingTransport ct=null;
+	try { ct=(CoalescingTransport)super.clone(); }
+	catch( CloneNotSupportedException e ) {} // never happens
+	ct.last = null;
+	ct.pool = null;
+	return ct;
+}
+
+//---------------------------------------------------------------------
+//Methods
+//---------------------------------------------------------------------
+
+/**
+ * Delivers the message with the latency of the underlying transport,
+ * adding it to the last batch of the destination if possible.
+ */
+public void send(Node src, Node dest, Object msg, int pid)
+{
+	Transport t = (Transport) src.getProtocol(transport);
+	if (EDSimulator.isParallel()) {
+		t.send(src, dest, msg, pid);
+		return;
+	}
+	final long delay = t.getLatency(src, dest);
+	final CoalescingTransport receiver =
+		(CoalescingTransport) dest.getProtocol(tid);
+	if (receiver.last != null && receiver.last.add(delay, msg, pid))
+		return;
+	receiver.last = receiver.idleBatch();
+	receiver.last.schedule(delay, msg, dest, pid);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns an idle batch from the pool of this node, or a new one if they
+ * are all in use.
+ */
+private EventBatch idleBatch()
+{
+	if (pool == null)
+		pool = new EventBatch[POOL];
+	for (int i=0; i < POOL; i++) {
+		if (pool[i] == null)
+			return (pool[i] = new EventBatch());
+		if (pool[i].isIdle())
+			return pool[i];
+	}
+	return new EventBatch();
+}
+
+//---------------------------------------------------------------------
+
+/** Returns the latency of the underlying protocol.*/
+public long getLatency(Node src, Node dest)
+{
+	Transport t = (Transport) src.getProtocol(transport);
+	return t.getLatency(src, dest);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the minimal latency of the underlying protocol, or zero if it
+ * does not implement {@link MinLatencyTransport}.
+ */
+public long getMinLatency()
+{
+	Protocol t = Network.getPrototype().getProtocol(transport);
+	if( t instanceof MinLatencyTransport )
+		return ((MinLatencyTransport) t).getMinLatency();
+	return 0;
+}
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+import java.io.*;
+import java.util.*;
+
+import peersim.config.*;
+import peersim.core.*;
+import peersim.dynamics.NodeInitializer;
+
+
+/**
+ * Initializes {@link CoordinateInfo} protocols by assigning coordinates to
+ * them. By default, the points are drawn uniformly at random from a
+ * hypercube and the heights from a range. If a file is given, each node is
+ * assigned one of the coordinates in the file, drawn uniformly at random,
+ * the same way {@link UniformRouterAssignment} assigns routers; the nodes
+ * that get the same coordinate share its point.
+ * <p>
+ * The file contains one coordinate per line: {@value #PAR_DIM} numbers
+ * for the point, optionally followed by the height, separated by spaces,
+ * tabs or commas. Empty lines and lines starting with "#" are ignored.
+ * <p>
+ * It can also be used as a {@link NodeInitializer} to assign coordinates
+ * to the nodes added during the simulation.
+ */
+public class CoordinateAssignment implements Control, NodeInitializer
+{
+
+//---------------------------------------------------------------------
+//Parameters
+//---------------------------------------------------------------------
+
+/**
+ * Parameter name used to configure the {@link CoordinateInfo} protocol
+ * that should be initialized.
+ * @config
+ */
+private static final String PAR_PROT = "protocol";
+
+/**
+ * The number of dimensions of the points. Defaults to 2.
+ * @config
+ */
+private static final String PAR_DIM = "dimensions";
+
+/**
+ * The side of the hypercube the random points are drawn from, that is,
+ * each coordinate is drawn from [0, {@value #PAR_MAX}[. Defaults to 1.
+ * @config
+ */
+private static final String PAR_MAX = "max";
+
+/**
+ * The heights are drawn uniformly from [0, {@value #PAR_HEIGHT}[.
+ * Defaults to 0, that is, there is no height.
+ * @config
+ */
+private static final String PAR_HEIGHT = "height";
+
+/**
+ * The file the coordinates are read from. Not set by default, that is,
+ * random coordinates are generated.
+ * @config
+ */
+private static final String PAR_FILE = "file";
+
+//---------------------------------------------------------------------
+//Fields
+//---------------------------------------------------------------------
+
+/** Protocol identifier */
+private final int pid;
+
+/** Number of dimensions */
+private final int dim;
+
+/** Side of the hypercube */
+private final double max;
+
+/** Maximal height */
+private final double height;
+
+/** The points read from the file, or null */
+private double[][] points = null;
+
+/** The heights read from the file, or null */
+private double[] heights = null;
+
+//---------------------------------------------------------------------
+//Initialization
+//---------------------------------------------------------------------
+
+/**
+ * Reads configuration parameters, and the file if given.
+ */
+public CoordinateAssignment(String prefix)
+{
+	pid = Configuration.getPid(prefix+"."+PAR_PROT);
+	dim = Configuration.getInt(prefix+"."+PAR_DIM, 2);
+	max = Configuration.getDouble(prefix+"."+PAR_MAX, 1);
+	height = Configuration.getDouble(prefix+"."+PAR_HEIGHT, 0);
+	String file = Configuration.getString(prefix+"."+PAR_FILE, null);
+	if (dim < 1)
+		throw new IllegalParameterException(prefix+"."+PAR_DIM,
+			"Should be positive");
+	if (file != null) {
+		try {
+			read(file);
+		} catch (IOException e) {
+			throw new IllegalParameterException(prefix+"."+PAR_FILE,
+				e.getMessage());
+		}
+	}
+}
+
+//---------------------------------------------------------------------
+
+/** Reads the coordinates from the given file */
+private void read(String file) throws IOException
+{
+	List<double[]> list = new ArrayList<double[]>();
+	BufferedReader in = new BufferedReader(new FileReader(file));
+	try {
+		String line;
+		int lc = 0;
+		while ((line = in.readLine()) != null) {
+			lc++;
+			line = line.trim();
+			if (line.length() == 0 || line.startsWith("#"))
+				continue;
+			StringTokenizer tok = new StringTokenizer(line, " \t,");
+			final int n = tok.countTokens();
+			if (n != dim && n != dim+1)
+				throw new IOException(file + ", line " + lc +
+					": expected " + dim + " or " + (dim+1) + " numbers");
+			double[] c = new double[dim+1];
+			try {
+				for (int i=0; i < n; i++)
+					c[i] = Double.parseDouble(tok.nextToken());
+			} catch (NumberFormatException e) {
+				throw new IOException(file + ", line " + lc + ": " +
+					e.getMessage());
+			}
+			list.add(c);
+		}
+	} finally {
+		in.close();
+	}
+	if (list.isEmpty())
+		throw new IOException(file + ": no coordinates");
+	points = new double[list.size()][];
+	heights = new double[list.size()];
+	for (int i=0; i < points.length; i++) {
+		final double[] c = list.get(i);
+		heights[i] = c[dim];
+		points[i] = Arrays.copyOf(c, dim);
+	}
+}
+
+//---------------------------------------------------------------------
+//Methods
+//---------------------------------------------------------------------
+
+/**
+ * Assigns coordinates to all the nodes.
+ * @return always false
+ */
+public boolean execute()
+{
+	for (int i=0; i < Network.size(); i++)
+		initialize(Network.get(i));
+
+	return false;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Assigns a coordinate to the given node.
+ */
+public void initialize(Node n)
+{
+	CoordinateInfo t = (CoordinateInfo) n.getProtocol(pid);
+	if (points != null) {
+		final int r = CommonState.r.nextInt(points.length);
+		t.setCoordinate(points[r], heights[r]);
+		return;
+	}
+	double[] p = new double[dim];
+	for (int i=0; i < dim; i++)
+		p[i] = CommonState.r.nextDouble()*max;
+	t.setCoordinate(p, CommonState.r.nextDouble()*height);
+}
+
+}
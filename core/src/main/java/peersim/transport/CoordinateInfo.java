@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+/**
+ * Generic interface to be implemented by protocols that need to be assigned
+ * network coordinates, the counterpart of {@link RouterInfo} for
+ * coordinate based latency models. A coordinate is a point in a
+ * Euclidean space plus a non-negative height, which models the access link
+ * of the node: the distance between two nodes is the Euclidean distance of
+ * their points plus both heights, like in the Vivaldi system.
+ */
+public interface CoordinateInfo
+{
+
+/**
+ * Associates the node hosting this protocol instance with a coordinate.
+ * The array is not copied, so it can be shared by several nodes, and must
+ * not be modified afterwards.
+ *
+ * @param point the position in the Euclidean space
+ * @param height the height
+ */
+public void setCoordinate(double[] point, double height);
+
+/**
+ * @return the position in the Euclidean space, or null if no coordinate
+ * was assigned
+ */
+public double[] getPoint();
+
+/**
+ * @return the height
+ */
+public double getHeight();
+
+}
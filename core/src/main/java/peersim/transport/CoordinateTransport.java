@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+import peersim.config.*;
+import peersim.core.*;
+import peersim.edsim.*;
+
+
+/**
+ * A transport protocol that computes latency from synthetic network
+ * coordinates, as an alternative to {@link E2ETransport} that does not
+ * need a latency matrix. Each instance is assigned a coordinate
+ * (see {@link CoordinateInfo}), for example by
+ * {@link CoordinateAssignment}, and the latency between two nodes is
+ * their distance (the Euclidean distance of the points plus both heights)
+ * multiplied by a ratio, plus twice a local delay and an optional random
+ * jitter. So memory is linear in the number of nodes, instead of quadratic
+ * in the number of routers.
+ */
+public class CoordinateTransport
+implements MinLatencyTransport, CoordinateInfo, java.io.Serializable
+{
+
+private static final long serialVersionUID = 1L;
+
+//---------------------------------------------------------------------
+//Parameters
+//---------------------------------------------------------------------
+
+/**
+ * The ratio between the units of the coordinates and the time units used
+ * in the Peersim simulator. Defaults to 1.
+ * @config
+ */
+private static final String PAR_RATIO = "ratio";
+
+/**
+ * The delay that corresponds to the time spent on the source (and
+ * destination) nodes, added twice to the latency. Defaults to 0.
+ * @config
+ */
+private static final String PAR_LOCAL = "local";
+
+/**
+ * If positive, a random delay drawn uniformly from the range
+ * [0, {@value #PAR_JITTER}] is added to the latency of each message.
+ * Defaults to 0.
+ * @config
+ */
+private static final String PAR_JITTER = "jitter";
+
+//---------------------------------------------------------------------
+//Static fields
+//---------------------------------------------------------------------
+
+/** Identifier of this transport protocol */
+private static int tid;
+
+/** Ratio between coordinate and time units */
+private static double ratio;
+
+/** Local component of latency */
+private static long local;
+
+/** Maximal jitter */
+private static long jitter;
+
+//---------------------------------------------------------------------
+//Fields
+//---------------------------------------------------------------------
+
+/** The position in the Euclidean space */
+private double[] point = null;
+
+/** The height */
+private double height = 0;
+
+//---------------------------------------------------------------------
+//Initialization
+//---------------------------------------------------------------------
+
+/**
+ * Reads configuration parameters.
+ */
+public CoordinateTransport(String prefix)
+{
+	tid = CommonState.getPid();
+	ratio = Configuration.getDouble(prefix + "." + PAR_RATIO, 1);
+	local = Configuration.getLong(prefix + "." + PAR_LOCAL, 0);
+	jitter = Configuration.getLong(prefix + "." + PAR_JITTER, 0);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Clones the object. The point is shared, since it is never modified.
+ */
+public Object clone()
+{
+	CoordinateTransport ct=null;
+	try { ct=(CoordinateTransport)super.clone(); }
+	catch( CloneNotSupportedException e ) {} // never happens
+	return ct;
+}
+
+//---------------------------------------------------------------------
+//Methods inherited by Transport
+//---------------------------------------------------------------------
+
+/**
+* Delivers the message reliably, with the latency calculated by
+* {@link #getLatency}.
+*/
+public void send(Node src, Node dest, Object msg, int pid)
+{
+	EDSimulator.add(getLatency(src, dest), msg, dest, pid);
+}
+
+//---------------------------------------------------------------------
+
+/**
+* Returns the distance of the coordinates of the given nodes multiplied by
+* {@value #PAR_RATIO}, plus twice the local delay configured by
+* {@value #PAR_LOCAL}, plus the jitter if configured by
+* {@value #PAR_JITTER}.
+*/
+public long getLatency(Node src, Node dest)
+{
+	/* Assuming that the sender corresponds to the source node */
+	CoordinateTransport sender = (CoordinateTransport) src.getProtocol(tid);
+	CoordinateTransport receiver = (CoordinateTransport) dest.getProtocol(tid);
+	long latency = (long) (distance(sender, receiver)*ratio) + local*2;
+	// avoid calling nextLong if possible
+	return (jitter > 0 ? latency + CommonState.r.nextLong(jitter+1) : latency);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns twice the local delay, plus the latency that corresponds to
+ * twice the smallest height of the nodes currently in the network, which
+ * is a lower bound of the distance of any two of them.
+ * Nodes added later are not taken into account.
+ */
+public long getMinLatency()
+{
+	double min = Double.MAX_VALUE;
+	for(int i=0; i<Network.size(); ++i)
+	{
+		double h = ((CoordinateTransport)
+			Network.get(i).getProtocol(tid)).height;
+		if( h < min ) min = h;
+	}
+	if( min == Double.MAX_VALUE ) return local*2;
+	return (long) (2*min*ratio) + local*2;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the Euclidean distance of the points of the given instances plus
+ * their heights.
+ */
+private static double distance(CoordinateTransport a, CoordinateTransport b)
+{
+	final double[] p = a.point;
+	final double[] q = b.point;
+	double sum = 0;
+	for(int i=0; i<p.length; ++i)
+	{
+		final double d = p[i]-q[i];
+		sum += d*d;
+	}
+	return Math.sqrt(sum) + a.height + b.height;
+}
+
+//---------------------------------------------------------------------
+//Methods inherited by CoordinateInfo
+//---------------------------------------------------------------------
+
+public void setCoordinate(double[] point, double height)
+{
+	this.point = point;
+	this.height = height;
+}
+
+//---------------------------------------------------------------------
+
+public double[] getPoint()
+{
+	return point;
+}
+
+//---------------------------------------------------------------------
+
+public double getHeight()
+{
+	return height;
+}
+
+}
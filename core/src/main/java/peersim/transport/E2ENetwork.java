@@ -18,11 +18,21 @@
 
 package peersim.transport;
 
+import java.io.IOException;
 
 /**
  * This static singleton emulates an underlying router network
  * of fixed size, and stores the latency measurements for all pairs
  * of routers.
+ * <p>
+ * The latencies are stored on the heap by default (see
+ * {@link #reset(int,boolean)}). Symmetric latencies can also be stored
+ * off-heap in a memory-mapped file (see {@link #reset(int,String,double,double,String)}
+ * and {@link #map}), which allows router networks that do not fit in the
+ * heap, and reusing a matrix file in later experiments without parsing
+ * the measurements again. The latencies can also be saved to a compact
+ * binary file and loaded from it without parsing (see
+ * {@link LatencyMatrixFile}).
  *
  * @author Alberto Montresor
  * @version $Revision$
@@ -48,6 +58,12 @@ private static int size;
  * Latency distances between nodes.
  */
 private static int[][] array;
+
+/**
+ * Latency distances between nodes, if they are stored off-heap, otherwise
+ * null.
+ */
+private static MappedLatencyMatrix mapped;
 	
 //---------------------------------------------------------------------
 //Initialization
@@ -71,6 +87,7 @@ public static void reset(int size, boolean symm)
 {
 	E2ENetwork.symm = symm;
 	E2ENetwork.size = size;
+	mapped = null;
 	array = new int[size][];
 	for (int i=0; i < size; i++) {
 		if (symm)
@@ -82,6 +99,71 @@ public static void reset(int size, boolean symm)
 	
 //---------------------------------------------------------------------
 
+/**
+ * Resets the network to a symmetric one whose latencies are stored in the
+ * given file, which is created or replaced, and is memory-mapped.
+ * Initially all latencies between any pairs are set to be 0.
+ * After setting the latencies, {@link #setComplete} should be called to
+ * make the file usable by {@link #map}.
+ * @param size the number or routers
+ * @param file the name of the file
+ * @param quantum if positive, the latencies are stored in 16 bits,
+ * as multiples of this value, otherwise they are stored exactly in 32 bits
+ * @param ratio the ratio the latencies of the source are multiplied by
+ * @param source the file the latencies are read from, or null
+ * @see MappedLatencyMatrix
+ */
+public static void reset(int size, String file, double quantum,
+		double ratio, String source)
+{
+	try {
+		mapped = MappedLatencyMatrix.create(file, size, quantum, ratio,
+			source);
+	} catch (IOException e) {
+		throw new RuntimeException("Cannot create " + file + ": " +
+			e.getMessage());
+	}
+	E2ENetwork.symm = true;
+	E2ENetwork.size = size;
+	array = null;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Resets the network to the symmetric one stored in the given file, which
+ * is memory-mapped. The file must have been written through
+ * {@link #reset(int,String,double,double,String)} (or by {@link MappedLatencyMatrix}).
+ * @param file the name of the file
+ */
+public static void map(String file)
+{
+	try {
+		mapped = MappedLatencyMatrix.open(file);
+	} catch (IOException e) {
+		throw new RuntimeException("Cannot map " + file + ": " +
+			e.getMessage());
+	}
+	E2ENetwork.symm = true;
+	E2ENetwork.size = mapped.getSize();
+	array = null;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * If the latencies are stored in a file, writes them to the file and marks
+ * it as complete, so that later experiments can {@link #map} it.
+ * Otherwise it does nothing.
+ */
+public static void setComplete()
+{
+	if (mapped != null)
+		mapped.setComplete();
+}
+
+//---------------------------------------------------------------------
+
 /**
  * Returns the latency associated to the specified (sender, receiver)
  * pair. Routers are indexed from 0.
@@ -104,6 +186,8 @@ public static int getLatency(int sender, int receiver)
 			receiver = tmp;
 		}
 	} 
+	if (mapped != null)
+		return mapped.get(sender, receiver);
 	return array[sender][receiver];
 }
 
@@ -127,7 +211,62 @@ public static void setLatency(int sender, int receiver, int latency)
 			receiver = tmp;
 		}
 	} 
- 	array[sender][receiver] = latency;
+	if (mapped != null)
+		mapped.set(sender, receiver, latency);
+	else
+		array[sender][receiver] = latency;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the smallest latency between two different routers. Its cost is
+ * linear in the number of stored latencies.
+ */
+public static int getMinLatency()
+{
+	int min = Integer.MAX_VALUE;
+	if (mapped != null) {
+		for (int i=0; i < size; i++) {
+			for (int j=0; j < i; j++) {
+				final int l = mapped.get(i, j);
+				if (l < min)
+					min = l;
+			}
+		}
+		return (min == Integer.MAX_VALUE ? 0 : min);
+	}
+	for (int i=0; i < size; i++) {
+		for (int j=0; j < array[i].length; j++) {
+			if (i != j && array[i][j] < min)
+				min = array[i][j];
+		}
+	}
+	return (min == Integer.MAX_VALUE ? 0 : min);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the array that stores the latencies from router i, if they are
+ * stored on the heap, otherwise null. If the network is symmetric, its
+ * length is i and it stores the latencies to the routers with a smaller
+ * index, otherwise its length is the size of the network.
+ */
+static int[] getRow(int i)
+{
+	return (array == null ? null : array[i]);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns true if the latency between two routers is the same in both
+ * directions.
+ */
+public static boolean isSymmetric()
+{
+	return symm;
 }
 
 //---------------------------------------------------------------------
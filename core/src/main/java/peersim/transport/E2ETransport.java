@@ -34,9 +34,12 @@ import peersim.edsim.*;
  * @author Alberto Montresor
  * @version $Revision$
  */
-public class E2ETransport implements Transport, RouterInfo
+public class E2ETransport
+implements MinLatencyTransport, RouterInfo, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 //---------------------------------------------------------------------
 //Parameters
 //---------------------------------------------------------------------
@@ -128,6 +131,26 @@ public long getLatency(Node src, Node dest)
 }
 
 
+//---------------------------------------------------------------------
+
+/**
+ * Returns twice the local delay, plus the smallest router to router latency
+ * if the nodes currently in the network are all assigned to different
+ * routers (two nodes on the same router have a router latency of zero).
+ * Nodes added later are not taken into account.
+ */
+public long getMinLatency()
+{
+	boolean[] used = new boolean[E2ENetwork.getSize()];
+	for(int i=0; i<Network.size(); ++i)
+	{
+		int r = ((E2ETransport) Network.get(i).getProtocol(tid)).router;
+		if( r < 0 || used[r] ) return local*2;
+		used[r] = true;
+	}
+	return E2ENetwork.getMinLatency() + local*2;
+}
+
 //---------------------------------------------------------------------
 //Methods inherited by RouterInfo
 //---------------------------------------------------------------------
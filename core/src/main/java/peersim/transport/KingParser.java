@@ -49,6 +49,25 @@ private static final String PAR_FILE = "file";
  */
 private static final String PAR_RATIO = "ratio";
 
+/**
+ * If set, the latencies are stored off-heap in the memory-mapped file
+ * of the given name (see {@link MappedLatencyMatrix}). If the file
+ * already contains the complete matrix, computed from the same file with
+ * the same {@value #PAR_RATIO} and stored with the same
+ * {@value #PAR_QUANTUM}, and it is not older than the measurements, it is
+ * mapped without reading the measurements. Not set by default.
+ * @config
+ */
+private static final String PAR_MMAP = "mmap";
+
+/**
+ * If set together with {@value #PAR_MMAP}, latencies are stored in 16 bits,
+ * rounded to multiples of this value (after applying {@value #PAR_RATIO}).
+ * Not set by default, that is, latencies are stored exactly in 32 bits.
+ * @config
+ */
+private static final String PAR_QUANTUM = "quantum";
+
 // ---------------------------------------------------------------------
 // Fields
 // ---------------------------------------------------------------------
@@ -65,6 +84,12 @@ private double ratio;
 /** Prefix for reading parameters */
 private String prefix;
 
+/** Name of the memory-mapped file, or null */
+private String mmap;
+
+/** Quantum of the memory-mapped file, or 0 */
+private double quantum;
+
 // ---------------------------------------------------------------------
 // Initialization
 // ---------------------------------------------------------------------
@@ -77,6 +102,8 @@ public KingParser(String prefix)
 	this.prefix = prefix;
 	ratio = Configuration.getDouble(prefix + "." + PAR_RATIO, 1);
 	filename = Configuration.getString(prefix + "." + PAR_FILE, null);
+	mmap = Configuration.getString(prefix + "." + PAR_MMAP, null);
+	quantum = Configuration.getDouble(prefix + "." + PAR_QUANTUM, 0);
 }
 
 // ---------------------------------------------------------------------
@@ -89,6 +116,14 @@ public KingParser(String prefix)
 */
 public boolean execute()
 {
+	if (mmap != null && MappedLatencyMatrix.isReusable(mmap, quantum, ratio,
+			filename)) {
+		E2ENetwork.map(mmap);
+		System.err.println("KingParser: mapped " + E2ENetwork.getSize() +
+			" entries from " + mmap);
+		return false;
+	}
+
 	BufferedReader in = null;
 	if (filename != null) {
 		try {
@@ -123,7 +158,10 @@ public boolean execute()
 		try { in.close(); } catch (IOException e1) { };
 		System.exit(1);
 	}
-	E2ENetwork.reset(size, true);
+	if (mmap != null)
+		E2ENetwork.reset(size, mmap, quantum, ratio, filename);
+	else
+		E2ENetwork.reset(size, true);
 	if (line == null) {
 		System.err.println("KingParser: " + filename + ", line " + lc + ":");
 		System.err.println("No latency matrix contained in the specified file");
@@ -151,6 +189,7 @@ public boolean execute()
 		} while (line != null);
 		
 		in.close();
+		E2ENetwork.setComplete();
 	
 	} catch (IOException e) {
 		System.err.println("KingParser: " + filename + ", line " + lc + ":");
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+
+import peersim.config.Configuration;
+import peersim.core.Control;
+
+/**
+ * A compact binary file format for the latency matrices of
+ * {@link E2ENetwork}, which can be loaded without any parsing (see
+ * {@link BinaryMatrixParser}), and a command line tool that converts the
+ * measurements read by any of the other parsers to this format.
+ * <p>
+ * All values are little-endian. The file starts with a header of
+ * {@value #HEADER} bytes: the magic number {@link #MAGIC}, the
+ * {@link #VERSION} of the format, the number of routers, the flags
+ * (bit 0 is set if the matrix is symmetric) and the ratio (a double) that
+ * was applied to the measurements when they were converted, followed by
+ * zeros. The latencies follow as 32 bit integers, in the same layout as
+ * {@link E2ENetwork} stores them on the heap: row by row, the strictly lower
+ * triangle of the matrix if it is symmetric (the latency between routers
+ * i and j, i &gt; j, is entry <code>i*(i-1)/2+j</code>), and the full matrix
+ * otherwise.
+ * <p>
+ * Usage of the converter:
+ * <pre>
+ * java peersim.transport.LatencyMatrixFile parser input output [ratio]
+ * </pre>
+ * where <code>parser</code> is a {@link Control} that initializes
+ * {@link E2ENetwork} reading parameters <code>file</code> and
+ * <code>ratio</code>, like {@link KingParser} or
+ * {@link TriangularMatrixParser} (the format written by the converters of
+ * the extras package); <code>ratio</code> is passed to the parser, and
+ * defaults to 1.
+ */
+public class LatencyMatrixFile
+{
+
+//---------------------------------------------------------------------
+//Constants
+//---------------------------------------------------------------------
+
+/** The magic number at the beginning of the file, "PLB1" */
+public static final int MAGIC = 0x504C4231;
+
+/** The version of the format */
+public static final int VERSION = 1;
+
+/** The size of the header in bytes */
+public static final int HEADER = 32;
+
+/** Flag of symmetric matrices */
+private static final int SYMMETRIC = 1;
+
+/** The size of the I/O buffer in bytes */
+private static final int BUFFER = 1<<20;
+
+//---------------------------------------------------------------------
+//Initialization
+//---------------------------------------------------------------------
+
+/** Disable instance construction */
+private LatencyMatrixFile() {}
+
+//---------------------------------------------------------------------
+//Methods
+//---------------------------------------------------------------------
+
+/**
+ * Writes the latencies currently stored in {@link E2ENetwork} to the given
+ * file, which is created or replaced.
+ * @param file the name of the file
+ * @param ratio the ratio that was applied to the measurements, which is
+ * recorded in the header
+ */
+public static void write(String file, double ratio) throws IOException
+{
+	final int size = E2ENetwork.getSize();
+	final boolean symm = E2ENetwork.isSymmetric();
+	FileChannel ch = new FileOutputStream(file).getChannel();
+	try {
+		ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER);
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(MAGIC);
+		buf.putInt(VERSION);
+		buf.putInt(size);
+		buf.putInt(symm ? SYMMETRIC : 0);
+		buf.putDouble(ratio);
+		while (buf.position() < HEADER)
+			buf.put((byte)0);
+		for (int i=0; i < size; i++) {
+			final int n = (symm ? i : size);
+			for (int j=0; j < n; j++) {
+				if (!buf.hasRemaining())
+					flush(ch, buf);
+				buf.putInt(E2ENetwork.getLatency(i, j));
+			}
+		}
+		flush(ch, buf);
+	} finally {
+		ch.close();
+	}
+}
+
+//---------------------------------------------------------------------
+
+/** Writes the content of the buffer and clears it */
+private static void flush(FileChannel ch, ByteBuffer buf) throws IOException
+{
+	buf.flip();
+	while (buf.hasRemaining())
+		ch.write(buf);
+	buf.clear();
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Resets {@link E2ENetwork} to the matrix stored in the given file.
+ * The rows are read in bulk directly into the arrays of the network.
+ * @param file the name of the file
+ * @param ratio the latencies are multiplied by this value and truncated,
+ * unless it is 1
+ * @param mmap if not null, the latencies are stored in the given
+ * memory-mapped file (see {@link E2ENetwork#reset(int,String,double,double,String)});
+ * only symmetric matrices can be stored this way
+ * @param quantum the quantum of the memory-mapped file
+ * @return the ratio recorded in the header of the file
+ */
+public static double load(String file, double ratio, String mmap,
+		double quantum) throws IOException
+{
+	FileChannel ch = new FileInputStream(file).getChannel();
+	try {
+		ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER);
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		while (buf.position() < HEADER)
+			if (ch.read(buf) < 0)
+				throw new EOFException(file + ": truncated header");
+		buf.flip();
+		if (buf.getInt() != MAGIC)
+			throw new IOException(file + ": not a latency matrix file");
+		final int version = buf.getInt();
+		if (version != VERSION)
+			throw new IOException(file + ": unsupported version " + version);
+		final int size = buf.getInt();
+		final boolean symm = ((buf.getInt() & SYMMETRIC) != 0);
+		final double stored = buf.getDouble();
+		buf.position(HEADER);
+
+		if (mmap != null) {
+			if (!symm)
+				throw new IOException(file +
+					": only symmetric matrices can be memory-mapped");
+			E2ENetwork.reset(size, mmap, quantum, ratio, file);
+		} else {
+			E2ENetwork.reset(size, symm);
+		}
+		final int[] tmp = (mmap != null ? new int[size] : null);
+		for (int i=0; i < size; i++) {
+			final int[] row = (tmp != null ? tmp : E2ENetwork.getRow(i));
+			final int n = (symm ? i : size);
+			int k = 0;
+			while (k < n) {
+				if (buf.remaining() < 4) {
+					buf.compact();
+					if (ch.read(buf) < 0)
+						throw new EOFException(file + ": truncated at row " + i);
+					buf.flip();
+					continue;
+				}
+				IntBuffer ints = buf.asIntBuffer();
+				final int m = Math.min(n-k, ints.remaining());
+				ints.get(row, k, m);
+				buf.position(buf.position() + 4*m);
+				k += m;
+			}
+			if (ratio != 1)
+				for (int j=0; j < n; j++)
+					row[j] = (int) (ratio*row[j]);
+			if (tmp != null)
+				for (int j=0; j < n; j++)
+					E2ENetwork.setLatency(i, j, tmp[j]);
+		}
+		E2ENetwork.setComplete();
+		return stored;
+	} finally {
+		ch.close();
+	}
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Converts a file read by the given parser to this format.
+ */
+public static void main(String[] args) throws Exception
+{
+	if (args.length < 3) {
+		System.err.println("Usage: LatencyMatrixFile parser input output " +
+			"[ratio]");
+		System.exit(1);
+	}
+	final String ratio = (args.length > 3 ? args[3] : "1");
+	Properties p = new Properties();
+	p.setProperty("parser", args[0]);
+	p.setProperty("parser.file", args[1]);
+	p.setProperty("parser.ratio", ratio);
+	Configuration.setConfig(p);
+
+	long start = System.currentTimeMillis();
+	((Control) Configuration.getInstance("parser")).execute();
+	System.err.println("LatencyMatrixFile: parsed " + args[1] + " in " +
+		(System.currentTimeMillis() - start) + " ms");
+	write(args[2], Double.parseDouble(ratio));
+	System.err.println("LatencyMatrixFile: wrote " + E2ENetwork.getSize() +
+		(E2ENetwork.isSymmetric() ? " symmetric" : " asymmetric") +
+		" rows to " + args[2]);
+}
+
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A symmetric latency matrix stored in a memory-mapped file instead of on
+ * the heap. Only the strictly lower triangle is stored, row by row, so the
+ * latency between routers i and j (i &gt; j) is entry
+ * <code>i*(i-1)/2+j</code>. Entries are either 32 bit integers, or 16 bit
+ * unsigned integers that store the latency divided by a
+ * <em>quantum</em> and rounded, which halves the size of the file at the
+ * cost of precision: the latencies are multiples of the quantum, and
+ * the largest one is 65535 times the quantum.
+ * <p>
+ * The operating system loads the pages of the file when they are accessed
+ * and writes them back when needed, so the matrix can be larger than the
+ * heap, and a complete matrix can be mapped again by later experiments
+ * (see {@link #open}) without reading or parsing it.
+ * Reading is thread safe; writing different entries from different threads
+ * is safe too.
+ * <p>
+ * The file starts with a header of {@value #HEADER} bytes: the magic number
+ * {@link #MAGIC}, the number of routers, the size of the entries in bytes,
+ * the quantum (a double), a flag that tells if the matrix is
+ * complete, that is, if {@link #setComplete} was called after writing it,
+ * the ratio the source latencies were multiplied by (a double), and the
+ * canonical path of the source file as a length and UTF-8 bytes.
+ * The source and the ratio are recorded so that a parser reuses the file
+ * only if it would compute the same latencies (see {@link #isReusable}).
+ * The entries follow the header, in big-endian byte order.
+ */
+public class MappedLatencyMatrix
+{
+
+//---------------------------------------------------------------------
+//Constants
+//---------------------------------------------------------------------
+
+/** The magic number at the beginning of the file, "PLM2" */
+public static final int MAGIC = 0x504C4D32;
+
+/** The size of the header in bytes */
+public static final int HEADER = 4096;
+
+/** The offset of the source path in the header */
+private static final int SOURCE = 36;
+
+/** The size of the mapped segments in bytes, a power of two */
+private static final int SEGMENT = 1<<30;
+
+/** The largest value of a 16 bit entry */
+private static final int MAX_SHORT = 0xFFFF;
+
+//---------------------------------------------------------------------
+//Fields
+//---------------------------------------------------------------------
+
+/** The number of routers */
+private final int size;
+
+/** The size of the entries in bytes, 2 or 4 */
+private final int bytes;
+
+/** The quantum of 16 bit entries */
+private final double quantum;
+
+/** The header */
+private final MappedByteBuffer header;
+
+/** The entries, in segments of {@link #SEGMENT} bytes */
+private final MappedByteBuffer[] segments;
+
+//---------------------------------------------------------------------
+//Initialization
+//---------------------------------------------------------------------
+
+/**
+ * Maps the given channel.
+ */
+private MappedLatencyMatrix(FileChannel ch, FileChannel.MapMode mode,
+		int size, int bytes, double quantum) throws IOException
+{
+	this.size = size;
+	this.bytes = bytes;
+	this.quantum = quantum;
+	header = ch.map(mode, 0, HEADER);
+	final long length = entries(size)*bytes;
+	segments = new MappedByteBuffer[(int)((length+SEGMENT-1)/SEGMENT)];
+	for (int i=0; i < segments.length; i++) {
+		final long pos = (long)i*SEGMENT;
+		segments[i] = ch.map(mode, HEADER+pos,
+			Math.min(SEGMENT, length-pos));
+	}
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Creates a new matrix file, replacing the given file if it exists.
+ * All latencies are initially 0.
+ * @param file the name of the file
+ * @param size the number of routers
+ * @param quantum if positive, the entries are 16 bit and store the
+ * latencies divided by this value, otherwise they are 32 bit integers
+ * @param ratio the ratio the latencies of the source are multiplied by,
+ * recorded in the header
+ * @param source the file the latencies are read from, recorded in the
+ * header; null if they do not come from a file
+ */
+public static MappedLatencyMatrix create(String file, int size,
+		double quantum, double ratio, String source) throws IOException
+{
+	final byte[] path = sourcePath(source);
+	if (path.length > HEADER-SOURCE)
+		throw new IOException("Path too long: " + source);
+	final int bytes = (quantum > 0 ? 2 : 4);
+	RandomAccessFile raf = new RandomAccessFile(file, "rw");
+	try {
+		raf.setLength(0);
+		raf.setLength(HEADER+entries(size)*bytes);
+		MappedLatencyMatrix m = new MappedLatencyMatrix(raf.getChannel(),
+			FileChannel.MapMode.READ_WRITE, size, bytes,
+			(quantum > 0 ? quantum : 1));
+		m.header.putInt(0, MAGIC);
+		m.header.putInt(4, size);
+		m.header.putInt(8, bytes);
+		m.header.putDouble(12, m.quantum);
+		m.header.putInt(20, 0);
+		m.header.putDouble(24, ratio);
+		m.header.putInt(32, path.length);
+		for (int i=0; i < path.length; i++)
+			m.header.put(SOURCE+i, path[i]);
+		return m;
+	} finally {
+		raf.close(); // the mapping remains valid
+	}
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Maps an existing matrix file. It is mapped for writing if the file is
+ * writable, otherwise only for reading.
+ * @throws IOException if the file cannot be read or is not a matrix file
+ */
+public static MappedLatencyMatrix open(String file) throws IOException
+{
+	final boolean writable = new File(file).canWrite();
+	RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw" : "r");
+	try {
+		if (raf.length() < HEADER || raf.readInt() != MAGIC)
+			throw new IOException(file + " is not a latency matrix file");
+		final int size = raf.readInt();
+		final int bytes = raf.readInt();
+		final double quantum = raf.readDouble();
+		if (size < 0 || (bytes != 2 && bytes != 4) ||
+		    raf.length() < HEADER+entries(size)*bytes)
+			throw new IOException(file + " is corrupted");
+		return new MappedLatencyMatrix(raf.getChannel(), writable ?
+			FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+			size, bytes, quantum);
+	} finally {
+		raf.close(); // the mapping remains valid
+	}
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Tells if the given file is a complete matrix file. Returns false if it
+ * does not exist or cannot be read.
+ */
+public static boolean isComplete(String file)
+{
+	try {
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			if (in.readInt() != MAGIC) return false;
+			in.skipBytes(16);
+			return in.readInt() != 0;
+		} finally {
+			in.close();
+		}
+	} catch (IOException e) {
+		return false;
+	}
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Tells if the given file is a complete matrix file that stores latencies
+ * with the given quantum, read from the given source and multiplied by the
+ * given ratio (see {@link #create}), and that is not older than the
+ * source file, if it exists.
+ */
+static boolean isReusable(String file, double quantum, double ratio,
+		String source)
+{
+	final File f = new File(file);
+	if (source != null && new File(source).lastModified() > f.lastModified())
+		return false;
+	try {
+		DataInputStream in = new DataInputStream(new FileInputStream(f));
+		try {
+			if (in.readInt() != MAGIC) return false;
+			in.readInt();
+			final int b = in.readInt();
+			final double q = in.readDouble();
+			if (in.readInt() == 0) return false;
+			if (quantum > 0 ? b != 2 || q != quantum : b != 4) return false;
+			if (in.readDouble() != ratio) return false;
+			final byte[] path = new byte[in.readInt()];
+			if (path.length > HEADER-SOURCE) return false;
+			in.readFully(path);
+			return Arrays.equals(path, sourcePath(source));
+		} finally {
+			in.close();
+		}
+	} catch (IOException e) {
+		return false;
+	}
+}
+
+//---------------------------------------------------------------------
+//Methods
+//---------------------------------------------------------------------
+
+/**
+ * Returns the canonical path of the given source file in UTF-8, or an
+ * empty array if it is null.
+ */
+private static byte[] sourcePath(String source) throws IOException
+{
+	if (source == null) return new byte[0];
+	return new File(source).getCanonicalPath().getBytes("UTF-8");
+}
+
+//---------------------------------------------------------------------
+
+/** Returns the number of entries of the triangle of the given size */
+private static long entries(int size)
+{
+	return (long)size*(size-1)/2;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the latency between routers i and j, where i &gt; j.
+ */
+public int get(int i, int j)
+{
+	final long off = ((long)i*(i-1)/2+j)*bytes;
+	final ByteBuffer b = segments[(int)(off/SEGMENT)];
+	final int pos = (int)(off%SEGMENT);
+	if (bytes == 4)
+		return b.getInt(pos);
+	return (int)((b.getShort(pos) & MAX_SHORT)*quantum);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Sets the latency between routers i and j, where i &gt; j. For 16 bit
+ * entries the latency is rounded to a multiple of the quantum, between 0
+ * and 65535 times the quantum.
+ */
+public void set(int i, int j, int latency)
+{
+	if (j < 0 || j >= i)
+		throw new IndexOutOfBoundsException("(" + i + "," + j + ")");
+	final long off = ((long)i*(i-1)/2+j)*bytes;
+	final ByteBuffer b = segments[(int)(off/SEGMENT)];
+	final int pos = (int)(off%SEGMENT);
+	if (bytes == 4)
+		b.putInt(pos, latency);
+	else
+		b.putShort(pos, (short)Math.max(0,
+			Math.min(MAX_SHORT, Math.round(latency/quantum))));
+}
+
+//---------------------------------------------------------------------
+
+/** Returns the number of routers */
+public int getSize()
+{
+	return size;
+}
+
+//---------------------------------------------------------------------
+
+/** Returns the size of the entries in bytes, 2 or 4 */
+public int getEntryBytes()
+{
+	return bytes;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Writes the entries to the file and marks the matrix as complete, so
+ * that {@link #isComplete} returns true for the file.
+ */
+public void setComplete()
+{
+	for (int i=0; i < segments.length; i++)
+		segments[i].force();
+	header.putInt(20, 1);
+	header.force();
+}
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+
+/**
+ * A transport that can give a lower bound on the latency of every message
+ * it delivers. The parallel event driven engine uses this bound as its
+ * lookahead: no event sent through this transport at time <em>t</em> can be
+ * delivered before <em>t</em> plus the bound.
+ *
+ * @see peersim.edsim.EDSimulator
+ */
+public interface MinLatencyTransport extends Transport
+{
+
+/**
+ * Returns a lower bound on the latency of any message sent through this
+ * transport from now on. It is called on the prototype instance, after
+ * the initializers have been run. Zero means that no useful bound is known.
+ */
+public long getMinLatency();
+
+}
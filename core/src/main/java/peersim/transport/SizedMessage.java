@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+/**
+ * Interface to be implemented by messages that declare their size, which
+ * is used by {@link BandwidthTransport} to compute the time needed to
+ * transmit them.
+ */
+public interface SizedMessage
+{
+
+/**
+ * Returns the size of the message, in the units the bandwidth of
+ * the transport is expressed in (e.g. bytes).
+ */
+public long getSize();
+
+}
@@ -63,6 +63,25 @@ private static final String PAR_FILE = "file";
  */
 private static final String PAR_RATIO = "ratio";
 
+/**
+ * If set, the latencies are stored off-heap in the memory-mapped file
+ * of the given name (see {@link MappedLatencyMatrix}). If the file
+ * already contains the complete matrix, computed from the same file with
+ * the same {@value #PAR_RATIO} and stored with the same
+ * {@value #PAR_QUANTUM}, and it is not older than the measurements, it is
+ * mapped without reading the measurements. Not set by default.
+ * @config
+ */
+private static final String PAR_MMAP = "mmap";
+
+/**
+ * If set together with {@value #PAR_MMAP}, latencies are stored in 16 bits,
+ * rounded to multiples of this value (after applying {@value #PAR_RATIO}).
+ * Not set by default, that is, latencies are stored exactly in 32 bits.
+ * @config
+ */
+private static final String PAR_QUANTUM = "quantum";
+
 // ---------------------------------------------------------------------
 // Fields
 // ---------------------------------------------------------------------
@@ -73,6 +92,12 @@ private String filename;
 /** Ratio read from PAR_RATIO */
 private double ratio;
 
+/** Name of the memory-mapped file, or null */
+private String mmap;
+
+/** Quantum of the memory-mapped file, or 0 */
+private double quantum;
+
 // ---------------------------------------------------------------------
 // Initialization
 // ---------------------------------------------------------------------
@@ -84,6 +109,8 @@ public TriangularMatrixParser(String prefix)
 {
 	filename = Configuration.getString(prefix + "." + PAR_FILE);
 	ratio = Configuration.getDouble(prefix + "." + PAR_RATIO);
+	mmap = Configuration.getString(prefix + "." + PAR_MMAP, null);
+	quantum = Configuration.getDouble(prefix + "." + PAR_QUANTUM, 0);
 }
 
 // ---------------------------------------------------------------------
@@ -96,6 +123,14 @@ public TriangularMatrixParser(String prefix)
 */
 public boolean execute()
 {
+	if (mmap != null && MappedLatencyMatrix.isReusable(mmap, quantum, ratio,
+			filename)) {
+		E2ENetwork.map(mmap);
+		System.err.println("TriangularMatrixParser: mapped " +
+			E2ENetwork.getSize() + " rows from " + mmap);
+		return false;
+	}
+
 	try {
 		ObjectInputStream in = null;
 		try {
@@ -114,7 +149,10 @@ public boolean execute()
 	  int size = in.readInt();
 	  
 		// Reset the E2E network
-		E2ENetwork.reset(size, true);
+		if (mmap != null)
+			E2ENetwork.reset(size, mmap, quantum, ratio, filename);
+		else
+			E2ENetwork.reset(size, true);
 		System.err.println("TriangularMatrixParser: reading " + size + " rows");
 	
 		// If the file format is not correct, data will be read 
@@ -130,6 +168,7 @@ public boolean execute()
 				E2ENetwork.setLatency(r,c,x);
 			}
 		}
+		E2ENetwork.setComplete();
 		System.err.println("TriangularMatrixParser: Read " + count + " entries");
 	} catch (IOException e) {
 		throw new RuntimeException(e.getMessage());
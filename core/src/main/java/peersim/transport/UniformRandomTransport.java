@@ -31,9 +31,12 @@ import peersim.edsim.*;
  * @author Alberto Montresor
  * @version $Revision$
  */
-public final class UniformRandomTransport implements Transport
+public final class UniformRandomTransport
+implements MinLatencyTransport, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 //---------------------------------------------------------------------
 //Parameters
 //---------------------------------------------------------------------
@@ -119,5 +122,12 @@ public long getLatency(Node src, Node dest)
 	return (range==1?min:min + CommonState.r.nextLong(range));
 }
 
+/**
+ * Returns the configured minimal delay.
+ */
+public long getMinLatency()
+{
+	return min;
+}
 
 }
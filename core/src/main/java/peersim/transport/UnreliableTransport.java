@@ -35,9 +35,12 @@ import peersim.core.*;
  * @author Alberto Montresor
  * @version $Revision$
  */
-public final class UnreliableTransport implements Transport
+public final class UnreliableTransport
+implements MinLatencyTransport, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 //---------------------------------------------------------------------
 //Parameters
 //---------------------------------------------------------------------
@@ -126,4 +129,16 @@ public long getLatency(Node src, Node dest)
 	return t.getLatency(src, dest);
 }
 
+/**
+ * Returns the minimal latency of the underlying protocol, or zero if it
+ * does not implement {@link MinLatencyTransport}.
+ */
+public long getMinLatency()
+{
+	Protocol t = Network.getPrototype().getProtocol(transport);
+	if( t instanceof MinLatencyTransport )
+		return ((MinLatencyTransport) t).getMinLatency();
+	return 0;
+}
+
 }
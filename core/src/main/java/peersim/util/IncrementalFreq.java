@@ -124,6 +124,23 @@ public void add( int i, int k ) {
 
 // --------------------------------------------------------------------
 
+/**
+ * Adds all the items of the given input set to this one, that is, performs
+ * an element-by-element vector addition of the frequency vectors.
+ * Items that this object ignores (see {@link #add(int,int)}) are ignored.
+ * This is the opposite of {@link #remove}.
+ * @param other The instance of IncrementalFreq to add
+ */
+public void add(IncrementalFreq other) {
+
+	for(int i=other.freq.length-1; i>=0; --i)
+	{
+		if( other.freq[i] > 0 ) add(i, other.freq[i]);
+	}
+}
+
+// --------------------------------------------------------------------
+
 /** Returns number of processed data items.
 * This is the number of items over which the class holds statistics.
 */
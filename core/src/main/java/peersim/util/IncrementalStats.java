@@ -110,6 +110,34 @@ public void add( double item, int k ) {
 
 // --------------------------------------------------------------------
 
+/**
+* Updates the statistics as if all the data items of the given statistics
+* had been added to this one. Can be used to merge statistics collected
+* separately, for example by several threads. Note that the sums are
+* rounded differently than if the items had been added one by one.
+*/
+public void add( IncrementalStats other ) {
+
+	if( other.n == 0 ) return;
+	if( other.min < min )
+	{
+		min = other.min;
+		countmin = 0;
+	}
+	if( other.min == min ) countmin+=other.countmin;
+	if( other.max > max )
+	{
+		max = other.max;
+		countmax = 0;
+	}
+	if( other.max == max ) countmax+=other.countmax;
+	n+=other.n;
+	sum+=other.sum;
+	sqrsum+=other.sqrsum;
+}
+
+// --------------------------------------------------------------------
+
 /** The number of data items processed so far */
 public int getN() { return n; }
 
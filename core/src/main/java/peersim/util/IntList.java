@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.util;
+
+import java.util.Arrays;
+
+/**
+* A growable list of primitive ints. It is meant to be reused: after
+* {@link #clear} the allocated array is kept, so filling the list again does
+* not allocate memory unless it has to grow. It is iterated by index:
+* <pre>
+* for(int k=0; k&lt;list.size(); ++k) ... list.get(k) ...
+* </pre>
+* No range checks are performed beyond those of the underlying array.
+*/
+public class IntList {
+
+
+// ======================= fields ==================================
+// =================================================================
+
+/** The elements, only the first {@link #size} are valid */
+private int[] data;
+
+/** The number of elements */
+private int size = 0;
+
+
+// ======================= initialization ==========================
+// =================================================================
+
+/** Creates an empty list with a default initial capacity */
+public IntList() { this(16); }
+
+// -----------------------------------------------------------------
+
+/** Creates an empty list with the given initial capacity */
+public IntList(int capacity) { data = new int[Math.max(capacity,1)]; }
+
+
+// ======================= methods =================================
+// =================================================================
+
+/** Returns the number of elements */
+public int size() { return size; }
+
+// -----------------------------------------------------------------
+
+/** Returns the element at the given position */
+public int get(int i) { return data[i]; }
+
+// -----------------------------------------------------------------
+
+/** Sets the element at the given position */
+public void set(int i, int value) { data[i] = value; }
+
+// -----------------------------------------------------------------
+
+/** Appends an element */
+public void add(int value) {
+
+	if( size == data.length ) data = Arrays.copyOf(data, 2*size);
+	data[size++] = value;
+}
+
+// -----------------------------------------------------------------
+
+/** Removes all elements, keeping the allocated memory */
+public void clear() { size = 0; }
+
+// -----------------------------------------------------------------
+
+/**
+* Removes the elements from the given position on, keeping the allocated
+* memory.
+*/
+public void truncate(int size) {
+
+	if( size < this.size ) this.size = size;
+}
+
+// -----------------------------------------------------------------
+
+/**
+* Makes sure that the list can hold the given number of elements without
+* allocating memory.
+*/
+public void ensureCapacity(int capacity) {
+
+	if( capacity > data.length )
+		data = Arrays.copyOf(data, Math.max(capacity, 2*data.length));
+}
+
+// -----------------------------------------------------------------
+
+/**
+* Returns the underlying array. Only the first {@link #size} elements are
+* valid, and the array is replaced when the list grows.
+*/
+public int[] array() { return data; }
+
+// -----------------------------------------------------------------
+
+/** Returns a copy of the elements */
+public int[] toArray() { return Arrays.copyOf(data, size); }
+
+// -----------------------------------------------------------------
+
+public String toString() {
+
+	StringBuffer buffer = new StringBuffer("[");
+	for(int i=0; i<size; ++i)
+	{
+		if( i>0 ) buffer.append(", ");
+		buffer.append(data[i]);
+	}
+	return buffer.append("]").toString();
+}
+
+}
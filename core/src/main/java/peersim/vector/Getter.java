@@ -18,6 +18,7 @@
 
 package peersim.vector;
 
+import java.lang.invoke.*;
 import java.lang.reflect.*;
 import peersim.config.*;
 import peersim.core.*;
@@ -34,6 +35,13 @@ import peersim.core.*;
  * <p>
  * Please refer to package {@link peersim.vector} for a detailed description of 
  * the concept of protocol vector and the role of getters and setters. 
+ * <p>
+ * The method is called through method handles adapted to the type of the
+ * value, so {@link #getLong} and {@link #getDouble} do not box the
+ * value. Exceptions thrown by the method are wrapped in an
+ * {@link InvocationTargetException}, which is the cause of the
+ * <code>RuntimeException</code> thrown by this class, like when the
+ * method was called through reflection.
  */
 public class Getter {
 
@@ -53,6 +61,15 @@ private String methodName;
 /** Getter method */
 private Method method = null;
 
+/** Getter method returning the boxed value */
+private MethodHandle handle;
+
+/** Getter method returning a long, null if the type is not integer */
+private MethodHandle longHandle = null;
+
+/** Getter method returning a double, null if the type is not real */
+private MethodHandle doubleHandle = null;
+
 /** Parameter type of getter method */
 private Class type;
 
@@ -87,13 +104,13 @@ public Getter(String prefix, String protocol, String methodn) {
 /** Performs actual initialization */
 private void init() {
 
-	if( method!=null) return;
+	if( handle!=null) return;
 
 	// Read configuration parameter
 	pid = Configuration.getPid(prefix + "." + protocol);
 	methodName = Configuration.getString(prefix+"."+methodn,"getValue");
 	// Search the method
-	Class clazz = Network.prototype.getProtocol(pid).getClass();
+	Class clazz = Network.getPrototype().getProtocol(pid).getClass();
 	try {
 		method = GetterSetterFinder.getGetterMethod(clazz, methodName);
 	} catch (NoSuchMethodException e) {
@@ -102,6 +119,30 @@ private void init() {
 	}
 	// Obtain the type of the field
 	type = GetterSetterFinder.getGetterType(method);
+	// Adapt the method to the types used by the get methods
+	MethodHandle h = null;
+	try {
+		h = MethodHandles.lookup().unreflect(method);
+	} catch (IllegalAccessException e) {
+		throw new IllegalParameterException(prefix + "." +
+		methodn, e+"");
+	}
+	if(type==long.class || type==int.class)
+		longHandle = h.asType(
+			MethodType.methodType(long.class, Protocol.class));
+	else if(type==double.class || type==float.class)
+		doubleHandle = h.asType(
+			MethodType.methodType(double.class, Protocol.class));
+	handle = h.asType(MethodType.methodType(Object.class, Protocol.class));
+}
+
+// --------------------------------------------------------------------------
+
+/** Wraps an exception thrown by the getter method */
+private RuntimeException error(Throwable e) {
+
+	return new RuntimeException("While using getter "+methodName,
+		new InvocationTargetException(e));
 }
 
 
@@ -129,18 +170,19 @@ public Number get(Node n) {
 	
 	init();
 
+	Object ret;
 	try 
 	{
-		Object ret =method.invoke(n.getProtocol(pid));
-		if (ret instanceof Boolean)
-			return ((Boolean) ret) ? 1 : 0;
-		else
-			return (Number) ret;
+		ret = handle.invokeExact(n.getProtocol(pid));
 	}
-	catch (Exception e)
+	catch (Throwable e)
 	{
-		throw new RuntimeException("While using getter "+methodName,e);
+		throw error(e);
 	}
+	if (ret instanceof Boolean)
+		return ((Boolean) ret) ? 1 : 0;
+	else
+		return (Number) ret;
 }
 
 // --------------------------------------------------------------------------
@@ -155,17 +197,15 @@ public long getLong(Node n) {
 	
 	init();
 
-	if(type==long.class || type==int.class)
+	if(longHandle!=null)
 	{
 		try 
 		{
-			return ((Number)
-			method.invoke(n.getProtocol(pid))).longValue();
+			return (long) longHandle.invokeExact(n.getProtocol(pid));
 		}
-		catch (Exception e)
+		catch (Throwable e)
 		{
-			throw new RuntimeException(
-			"While using getter "+methodName,e);
+			throw error(e);
 		}
 	}	
 	else throw new RuntimeException("type has to be int or long");
@@ -183,17 +223,15 @@ public double getDouble(Node n) {
 	
 	init();
 
-	if(type==double.class || type==float.class)
+	if(doubleHandle!=null)
 	{
 		try
 		{
-			return ((Number)
-			method.invoke(n.getProtocol(pid))).doubleValue();
+			return (double) doubleHandle.invokeExact(n.getProtocol(pid));
 		}
-		catch (Exception e)
+		catch (Throwable e)
 		{
-			throw new RuntimeException(
-			"While using getter "+methodName,e);
+			throw error(e);
 		}
 	}
 	else throw new RuntimeException(
@@ -233,5 +271,49 @@ public long getLong(int i) { return getLong(Network.get(i)); }
 */
 public double getDouble(int i) { return getDouble(Network.get(i)); }
 
+// --------------------------------------------------------------------------
+
+/**
+* Reads the values of all the nodes of the network, in the order of their
+* indexes. Values of any type are converted to double, boolean values to
+* 0 or 1.
+* @param values the array to fill. If it is null or shorter than the size
+* of the network, a new array is allocated.
+* @return the array containing the values, the value of the node with index
+* <code>i</code> at position <code>i</code>.
+*/
+public double[] getAll(double[] values) {
+
+	init();
+	final int size = Network.size();
+	if( values == null || values.length < size ) values = new double[size];
+	if( doubleHandle == null && longHandle == null )
+	{
+		// boolean values
+		for(int i=0; i<size; ++i) values[i] = get(i).doubleValue();
+		return values;
+	}
+	try
+	{
+		if(doubleHandle!=null)
+		{
+			for(int i=0; i<size; ++i)
+				values[i] = (double) doubleHandle.invokeExact(
+					Network.get(i).getProtocol(pid));
+		}
+		else
+		{
+			for(int i=0; i<size; ++i)
+				values[i] = (long) longHandle.invokeExact(
+					Network.get(i).getProtocol(pid));
+		}
+	}
+	catch (Throwable e)
+	{
+		throw error(e);
+	}
+	return values;
+}
+
 }
 
@@ -90,10 +90,12 @@ public Normalizer(String prefix)
  */
 public boolean execute() {
 	
+	final double[] values = getter.getAll(null);
+	final int size = Network.size();
 	double sum = 0.0;
-	for (int i = 0; i < Network.size(); ++i)
+	for (int i = 0; i < size; ++i)
 	{
-		sum += getter.getDouble(i);
+		sum += values[i];
 	}
 	if (sum == 0.0)
 	{
@@ -101,11 +103,11 @@ public boolean execute() {
 		RuntimeException("Attempted to normalize all zero vector.");
 	}
 	double factor = l1 / sum;
-	for (int i = 0; i < Network.size(); ++i)
+	for (int i = 0; i < size; ++i)
 	{
-		double val = getter.getDouble(i)*factor;
-		setter.set(i,val);
+		values[i] *= factor;
 	}
+	setter.setAll(values);
 	return false;
 }
 
@@ -18,6 +18,7 @@
 
 package peersim.vector;
 
+import java.lang.invoke.*;
 import java.lang.reflect.*;
 import peersim.config.*;
 import peersim.core.*;
@@ -34,6 +35,12 @@ import peersim.core.*;
  * <p>
  * Please refer to package {@link peersim.vector} for a detailed description of 
  * the concept of protocol vector and the role of getters and setters. 
+ * <p>
+ * The method is called through a method handle adapted to the type of the
+ * value, so the values are not boxed. Exceptions thrown by the method are
+ * wrapped in an {@link InvocationTargetException}, which is the cause of
+ * the <code>RuntimeException</code> thrown by this class, like when the
+ * method was called through reflection.
  */
 public class Setter {
 
@@ -53,6 +60,12 @@ private String methodName;
 /** Setter method */
 private Method method=null;
 
+/** Setter method taking a long, null if the type is not integer */
+private MethodHandle longHandle = null;
+
+/** Setter method taking a double, null if the type is not real */
+private MethodHandle doubleHandle = null;
+
 /** Parameter type of setter method */
 private Class type;
 
@@ -93,7 +106,7 @@ private void init() {
 	pid = Configuration.getPid(prefix + "." + protocol);
 	methodName = Configuration.getString(prefix+"."+methodn,"setValue");
 	// Search the method
-	Class clazz = Network.prototype.getProtocol(pid).getClass();
+	Class clazz = Network.getPrototype().getProtocol(pid).getClass();
 	try {
 		method = GetterSetterFinder.getSetterMethod(clazz, methodName);
 	} catch (NoSuchMethodException e) {
@@ -102,6 +115,30 @@ private void init() {
 	}
 	// Obtain the type of the field
 	type = GetterSetterFinder.getSetterType(method);
+	// Adapt the method to the types used by the set methods, narrowing
+	// the value as a cast does
+	MethodHandle h = null;
+	try {
+		h = MethodHandles.lookup().unreflect(method);
+	} catch (IllegalAccessException e) {
+		throw new IllegalParameterException(prefix + "." +
+		methodn, e+"");
+	}
+	if(type==long.class || type==int.class)
+		longHandle = MethodHandles.explicitCastArguments(h,
+		MethodType.methodType(void.class, Protocol.class, long.class));
+	else
+		doubleHandle = MethodHandles.explicitCastArguments(h,
+		MethodType.methodType(void.class, Protocol.class, double.class));
+}
+
+// --------------------------------------------------------------------------
+
+/** Wraps an exception thrown by the setter method */
+private RuntimeException error(Throwable e) {
+
+	return new RuntimeException("While using setter "+methodName,
+		new InvocationTargetException(e));
 }
 
 
@@ -141,24 +178,18 @@ public void set(Node n, long val) {
 	
 	init();
 	
-	try 
+	if(longHandle!=null)
 	{
-		if(type==long.class)
+		try 
 		{
-			method.invoke(n.getProtocol(pid),val);
+			longHandle.invokeExact(n.getProtocol(pid),val);
 			return;
 		}
-		if(type==int.class)
+		catch (Throwable e)
 		{
-			method.invoke(n.getProtocol(pid),(int)val);
-			return;
+			throw error(e);
 		}
 	}
-	catch (Exception e)
-	{
-		throw new RuntimeException("While using setter "+methodName,e);
-		
-	}
 	
 	throw new RuntimeException("type has to be int or long");
 }
@@ -175,23 +206,18 @@ public void set(Node n, double val) {
 	
 	init();
 	
-	try
+	if(doubleHandle!=null)
 	{
-		if(type==double.class)
+		try
 		{
-			method.invoke(n.getProtocol(pid),val);
+			doubleHandle.invokeExact(n.getProtocol(pid),val);
 			return;
 		}
-		if(type==float.class)
+		catch (Throwable e)
 		{
-			method.invoke(n.getProtocol(pid),(float)val);
-			return;
+			throw error(e);
 		}
 	}
-	catch (Exception e)
-	{
-		throw new RuntimeException("While using setter "+methodName,e);
-	}
 	
 	throw new RuntimeException("type has to be double or float");
 }
@@ -218,5 +244,35 @@ public void set(int i, long val) { set(Network.get(i),val); }
 */
 public void set(int i, double val) { set(Network.get(i),val); }
 
+// --------------------------------------------------------------------------
+
+/**
+* Sets the values of all the nodes of the network, in the order of their
+* indexes. The type has to be double or float, as for
+* {@link #set(Node,double)}.
+* @param values the values, the value of the node with index
+* <code>i</code> at position <code>i</code>. It must not be shorter than
+* the size of the network.
+*/
+public void setAll(double[] values) {
+
+	init();
+	if(doubleHandle==null)
+		throw new RuntimeException("type has to be double or float");
+	final int size = Network.size();
+	if( values.length < size ) throw new IllegalArgumentException(
+		"the network has more than "+values.length+" nodes");
+	try
+	{
+		for(int i=0; i<size; ++i)
+			doubleHandle.invokeExact(Network.get(i).getProtocol(pid),
+				values[i]);
+	}
+	catch (Throwable e)
+	{
+		throw error(e);
+	}
+}
+
 }
 
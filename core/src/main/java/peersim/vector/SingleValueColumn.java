@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.vector;
+
+import peersim.core.*;
+
+/**
+ * The column protocol version of {@link SingleValueHolder}: it stores a
+ * single double value per node in a column of the {@link ColumnStore}
+ * and makes it available through the {@link SingleValue} interface.
+ * It can be used only with {@link ColumnNode} nodes.
+ */
+public class SingleValueColumn extends ColumnProtocol
+implements SingleValue
+{
+
+private static final long serialVersionUID = 1L;
+
+//--------------------------------------------------------------------------
+//Fields
+//--------------------------------------------------------------------------
+	
+/** The values of all nodes, indexed by slot */
+protected final ColumnStore.DoubleColumn value;
+	
+
+//--------------------------------------------------------------------------
+//Initialization
+//--------------------------------------------------------------------------
+
+/**
+ * Declares the column of the values.
+ */
+public SingleValueColumn(String prefix)
+{
+	value = addDoubleColumn();
+}
+
+//--------------------------------------------------------------------------
+//methods
+//--------------------------------------------------------------------------
+
+/**
+ * @inheritDoc
+ */
+public double getValue()
+{
+	return value.get(getSlot());
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * @inheritDoc
+ */
+public void setValue(double value)
+{
+	this.value.set(getSlot(), value);
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Returns the value as a string.
+ */
+public String toString() { return ""+getValue(); }
+
+}
@@ -28,9 +28,11 @@ import peersim.core.*;
  * @version $Revision$
  */
 public class SingleValueHolder 
-implements SingleValue, Protocol
+implements SingleValue, Protocol, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 //--------------------------------------------------------------------------
 //Fields
 //--------------------------------------------------------------------------
@@ -25,6 +25,8 @@ package peersim.vector;
 public class TestVectors extends SingleValueHolder
 {
 
+private static final long serialVersionUID = 1L;
+
 //--------------------------------------------------------------------------
 //Fields
 //--------------------------------------------------------------------------
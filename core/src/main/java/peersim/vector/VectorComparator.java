@@ -67,7 +67,7 @@ private final Method method;
 public VectorComparator(int pid, String methodName)
 {
 	this.pid = pid;
-	Node n = Network.prototype;
+	Node n = Network.getPrototype();
 	if (n == null) {
 		throw new IllegalStateException("No prototype node can be used to search methods");
 	}
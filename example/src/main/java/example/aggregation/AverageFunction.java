@@ -37,6 +37,9 @@ import peersim.cdsim.CDProtocol;
  * @version $Revision$
  */
 public class AverageFunction extends SingleValueHolder implements CDProtocol {
+
+    private static final long serialVersionUID = 1L;
+
     /**
      * Creates a new {@link example.aggregation.AverageFunction} protocol
      * instance.
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package example.aggregation;
+
+import peersim.core.*;
+import peersim.config.FastConfig;
+import peersim.vector.SingleValueColumn;
+import peersim.cdsim.CDProtocol;
+
+/**
+ * The same as {@link AverageFunction}, but the values are stored in a
+ * column of the {@link ColumnStore} (see {@link SingleValueColumn}), so it
+ * can be used only with {@link ColumnNode} nodes
+ * (<code>network.node ColumnNode</code>).
+ */
+public class ColumnAverageFunction extends SingleValueColumn
+implements CDProtocol {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new {@link example.aggregation.ColumnAverageFunction}
+     * protocol prototype.
+     * 
+     * @param prefix
+     *            the component prefix declared in the configuration file.
+     */
+    public ColumnAverageFunction(String prefix) {
+        super(prefix);
+    }
+
+    /**
+     * Using an underlying {@link Linkable} protocol choses a neighbor and
+     * performs a variance reduction step.
+     * 
+     * @param node
+     *            the node on which this component is run.
+     * @param protocolID
+     *            the id of this protocol in the protocol array.
+     */
+    public void nextCycle(Node node, int protocolID) {
+        int linkableID = FastConfig.getLinkable(protocolID);
+        Linkable linkable = (Linkable) node.getProtocol(linkableID);
+        if (linkable.degree() > 0) {
+            Node peer = linkable.getNeighbor(CommonState.r.nextInt(linkable
+                    .degree()));
+
+            // Failure handling
+            if (!peer.isUp())
+                return;
+
+            final int other = getSlot(peer);
+            final int self = getSlot(node);
+            double mean = (value.get(self) + value.get(other)) / 2;
+            value.set(self, mean);
+            value.set(other, mean);
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package example.aggregation;
+
+import peersim.core.*;
+import peersim.config.FastConfig;
+import peersim.vector.SingleValueHolder;
+import peersim.cdsim.ConcurrentCDProtocol;
+
+/**
+ * A pull-only variant of {@link AverageFunction} that can be run on several
+ * threads (see {@link ConcurrentCDProtocol}). In each cycle a node picks a
+ * random neighbor and averages its own value with the value the neighbor
+ * had at the end of the previous cycle. The neighbor is not modified, so
+ * unlike {@link AverageFunction} the sum of the values is preserved only
+ * in expectation.
+ */
+public class NeighbourAverage extends SingleValueHolder implements
+        ConcurrentCDProtocol {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The value computed in the current cycle, not yet committed. */
+    private double next;
+
+    /**
+     * Creates a new {@link example.aggregation.NeighbourAverage} protocol
+     * instance.
+     *
+     * @param prefix
+     *            the component prefix declared in the configuration file.
+     */
+    public NeighbourAverage(String prefix) {
+        super(prefix);
+    }
+
+    /**
+     * Using an underlying {@link Linkable} protocol choses a neighbor and
+     * computes the average of the two values.
+     *
+     * @param node
+     *            the node on which this component is run.
+     * @param protocolID
+     *            the id of this protocol in the protocol array.
+     */
+    public void nextCycle(Node node, int protocolID) {
+        next = value;
+        int linkableID = FastConfig.getLinkable(protocolID);
+        Linkable linkable = (Linkable) node.getProtocol(linkableID);
+        if (linkable.degree() > 0) {
+            Node peer = linkable.getNeighbor(CommonState.r.nextInt(linkable
+                    .degree()));
+
+            // Failure handling
+            if (!peer.isUp())
+                return;
+
+            NeighbourAverage neighbor = (NeighbourAverage) peer
+                    .getProtocol(protocolID);
+            next = (value + neighbor.value) / 2;
+        }
+    }
+
+    /**
+     * Makes the value computed by {@link #nextCycle} the current value.
+     *
+     * @param node
+     *            the node on which this component is run.
+     * @param protocolID
+     *            the id of this protocol in the protocol array.
+     */
+    public void commit(Node node, int protocolID) {
+        value = next;
+    }
+
+}
@@ -23,7 +23,7 @@ import peersim.config.*;
 import peersim.core.*;
 import peersim.transport.Transport;
 import peersim.cdsim.CDProtocol;
-import peersim.edsim.EDProtocol;
+import peersim.edsim.*;
 
 /**
 * Event driven version of epidemic averaging.
@@ -31,6 +31,8 @@ import peersim.edsim.EDProtocol;
 public class AverageED extends SingleValueHolder
 implements CDProtocol, EDProtocol<AverageMessage> {
 
+private static final long serialVersionUID = 1L;
+
 //--------------------------------------------------------------------------
 // Initialization
 //--------------------------------------------------------------------------
@@ -67,7 +69,7 @@ public void nextCycle( Node node, int pid )
 			send(
 				node,
 				peern,
-				new AverageMessage(value,node),
+				AverageMessage.get(value,node),
 				pid);
 	}
 }
@@ -84,7 +86,7 @@ public void processEvent( Node node, int pid, AverageMessage aem ) {
 			send(
 				node,
 				aem.sender,
-				new AverageMessage(value,null),
+				AverageMessage.get(value,null),
 				pid);
 				
 	value = (value + aem.value) / 2;
@@ -97,18 +99,33 @@ public void processEvent( Node node, int pid, AverageMessage aem ) {
 
 /**
 * The type of a message. It contains a value of type double and the
-* sender node of type {@link peersim.core.Node}.
+* sender node of type {@link peersim.core.Node}. Messages are recycled,
+* see {@link RecyclableEvent}.
 */
-class AverageMessage {
+class AverageMessage extends RecyclableEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The pool of messages */
+	private static final EventPool<AverageMessage> pool =
+		new EventPool<AverageMessage>() {
+			protected AverageMessage create() { return new AverageMessage(); }
+		};
 
-	final double value;
+	double value;
 	/** If not null,
 	this has to be answered, otherwise this is the answer. */
-	final Node sender;
-	public AverageMessage( double value, Node sender )
+	Node sender;
+
+	/** Returns a message from the pool with the given fields */
+	static AverageMessage get( double value, Node sender )
 	{
-		this.value = value;
-		this.sender = sender;
+		AverageMessage m = pool.acquire();
+		m.value = value;
+		m.sender = sender;
+		return m;
 	}
+
+	protected void clear() { sender = null; }
 }
 
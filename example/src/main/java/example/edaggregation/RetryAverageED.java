@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2003 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package example.edaggregation;
+
+import peersim.vector.SingleValueHolder;
+import peersim.config.*;
+import peersim.core.*;
+import peersim.transport.Transport;
+import peersim.cdsim.CDProtocol;
+import peersim.edsim.*;
+
+/**
+* A version of {@link AverageED} for unreliable transports. When a node
+* sends its value to a neighbor, it also schedules a timeout. If the
+* answer arrives first, the timeout is obsolete and is cancelled (see
+* {@link EDSimulator#cancel}); otherwise, when the timeout fires, the node
+* tries again with another neighbor. A new exchange started by
+* {@link #nextCycle} replaces the pending one and its timeout.
+*/
+public class RetryAverageED extends SingleValueHolder
+implements CDProtocol, EDProtocol<Object> {
+
+private static final long serialVersionUID = 1L;
+
+//--------------------------------------------------------------------------
+// Parameters
+//--------------------------------------------------------------------------
+
+/**
+ * The time after which a node that got no answer tries again with another
+ * neighbor.
+ * @config
+ */
+private static final String PAR_TIMEOUT = "timeout";
+
+/** The timeout event, which is the same object for all nodes */
+private static final Timeout TIMEOUT = new Timeout();
+
+//--------------------------------------------------------------------------
+// Fields
+//--------------------------------------------------------------------------
+
+/** The value of {@value #PAR_TIMEOUT} */
+private final long timeout;
+
+/** The handle of the timeout of the pending exchange, or null */
+private EventHandle pending = null;
+
+//--------------------------------------------------------------------------
+// Initialization
+//--------------------------------------------------------------------------
+
+/**
+ * @param prefix string prefix for config properties
+ */
+public RetryAverageED(String prefix)
+{
+	super(prefix);
+	timeout = Configuration.getLong(prefix + "." + PAR_TIMEOUT);
+}
+
+
+//--------------------------------------------------------------------------
+// methods
+//--------------------------------------------------------------------------
+
+/**
+ * Starts an exchange with a random neighbor. The frequency of execution
+ * of this method is defined by a {@link peersim.edsim.CDScheduler}
+ * component in the configuration.
+ */
+public void nextCycle( Node node, int pid )
+{
+	EDSimulator.cancel(pending);
+	pending = null;
+	start(node, pid);
+}
+
+//--------------------------------------------------------------------------
+
+/**
+* Answers requests, averages the values of the answers and cancels their
+* timeout, and tries another neighbor when the timeout fires.
+*/
+public void processEvent( Node node, int pid, Object event ) {
+
+	if( event instanceof Timeout )
+	{
+		pending = null;
+		start(node, pid);
+		return;
+	}
+	AverageMessage aem = (AverageMessage) event;
+	if( aem.sender!=null )
+		((Transport)node.getProtocol(FastConfig.getTransport(pid))).
+			send(
+				node,
+				aem.sender,
+				AverageMessage.get(value,null),
+				pid);
+	else
+	{
+		EDSimulator.cancel(pending);
+		pending = null;
+	}
+	value = (value + aem.value) / 2;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Sends the value to a random neighbor that is up, if any, and schedules
+ * the timeout of the exchange.
+ */
+private void start( Node node, int pid )
+{
+	Linkable linkable = 
+		(Linkable) node.getProtocol( FastConfig.getLinkable(pid) );
+	if (linkable.degree() > 0)
+	{
+		Node peern = linkable.getNeighbor(
+				CommonState.r.nextInt(linkable.degree()));
+		if(!peern.isUp()) return;
+		
+		((Transport)node.getProtocol(FastConfig.getTransport(pid))).
+			send(
+				node,
+				peern,
+				AverageMessage.get(value,node),
+				pid);
+		pending = EDSimulator.addCancellable(timeout, TIMEOUT, node, pid);
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * The timeout event. It is a class of its own so that it is recognized
+ * also after it has been read from a {@link Checkpoint}.
+ */
+private static final class Timeout implements java.io.Serializable {
+
+	private static final long serialVersionUID = 1L;
+}
+
+}
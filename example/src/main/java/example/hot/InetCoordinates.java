@@ -34,7 +34,9 @@ import peersim.core.Protocol;
  * 
  * @author Gian Paolo Jesi
  */
-public class InetCoordinates implements Protocol {
+public class InetCoordinates implements Protocol, java.io.Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     // ------------------------------------------------------------------------
     // Fields
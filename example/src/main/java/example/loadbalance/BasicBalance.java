@@ -38,6 +38,8 @@ import peersim.cdsim.CDProtocol;
  */
 public class BasicBalance extends SingleValueHolder implements CDProtocol {
 
+    private static final long serialVersionUID = 1L;
+
     // ------------------------------------------------------------------------
     // Parameters
     // ------------------------------------------------------------------------
@@ -26,9 +26,12 @@ import peersim.core.*;
  * This class represents the information stored by a node in the simplified
  * newscast system (i.e., used just as a topology manager)
  */
-public class SimpleNewscast implements CDProtocol, Linkable
+public class SimpleNewscast
+implements CDProtocol, Linkable, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 // =============== static fields =======================================
 // =====================================================================
 
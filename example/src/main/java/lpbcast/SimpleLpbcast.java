@@ -28,7 +28,10 @@ import java.util.*;
 *  the simplified lpbcast system (i.e., used just as a topology
 *  manager)
 */
-public class SimpleLpbcast implements CDProtocol, Linkable {
+public class SimpleLpbcast
+implements CDProtocol, Linkable, java.io.Serializable {
+
+private static final long serialVersionUID = 1L;
 
 
 // =============== static fields =======================================
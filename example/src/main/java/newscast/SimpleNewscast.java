@@ -27,7 +27,10 @@ import peersim.cdsim.*;
  *  the simplified newscast system (i.e., used just as a topology
  *  manager)
  */
-public class SimpleNewscast implements CDProtocol, Linkable {
+public class SimpleNewscast
+implements CDProtocol, Linkable, java.io.Serializable {
+
+private static final long serialVersionUID = 1L;
 
 // =============== static fields =======================================
 // =====================================================================
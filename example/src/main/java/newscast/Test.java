@@ -27,6 +27,8 @@ import peersim.core.*;
 */
 public class Test extends SimpleNewscast {
 
+private static final long serialVersionUID = 1L;
+
 public static final int CUTOFF=10;
 
 // ====================== initialization ===============================
@@ -29,7 +29,9 @@ import java.util.Collections;
 * an UDP like communication where there is no feedback if a given message
 * has arrived.
 */
-public class Scamp implements CDProtocol, Linkable {
+public class Scamp implements CDProtocol, Linkable, java.io.Serializable {
+
+private static final long serialVersionUID = 1L;
 
 
 // =================== static fields ==================================
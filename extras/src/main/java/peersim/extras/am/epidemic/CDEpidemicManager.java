@@ -28,9 +28,11 @@ import peersim.core.*;
  * @author Alberto Montresor
  * @version $Revision$
  */
-public class CDEpidemicManager implements CDProtocol
+public class CDEpidemicManager implements CDProtocol, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 // ---------------------------------------------------------------------
 // Parameters
 // ---------------------------------------------------------------------
@@ -23,9 +23,11 @@ import peersim.core.*;
 import peersim.edsim.*;
 import peersim.transport.*;
 
-public class EDEpidemicManager implements EDProtocol
+public class EDEpidemicManager implements EDProtocol, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 // ---------------------------------------------------------------------
 // Parameters
 // ---------------------------------------------------------------------
@@ -23,9 +23,11 @@ import peersim.config.*;
 import peersim.core.*;
 
 
-public class CDFlood implements CDProtocol, Infectable
+public class CDFlood implements CDProtocol, Infectable, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 private static final String PAR_LINKABLE = "linkable";
 
 private class ProtocolData
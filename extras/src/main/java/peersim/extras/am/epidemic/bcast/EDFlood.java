@@ -24,9 +24,12 @@ import peersim.edsim.*;
 import peersim.transport.*;
 
 
-public class EDFlood implements EDProtocol, Infectable
+public class EDFlood
+implements BatchEDProtocol<Object>, Infectable, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 private static final String PAR_LINKABLE = "linkable";
 
 private static final String PAR_TRANSPORT = "transport";
@@ -94,6 +97,19 @@ public void processEvent(Node node, int pid, Object event)
 	}
 }
 
+public void processEvents(Node[] nodes, int pid, Object[] events, int size)
+{
+	// nodes that are already infected are skipped without a lookup of
+	// their linkable and transport
+	for (int j=0; j < size; j++) {
+		EDFlood f = (EDFlood) nodes[j].getProtocol(pid);
+		if (f.status == 0) {
+			CommonState.setNode(nodes[j]);
+			f.processEvent(nodes[j], pid, events[j]);
+		}
+	}
+}
+
 public void setInfected(boolean infected)
 {
 	if (infected) {
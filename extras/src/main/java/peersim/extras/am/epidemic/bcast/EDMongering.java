@@ -24,9 +24,11 @@ import peersim.edsim.*;
 import peersim.transport.*;
 
 
-public class EDMongering implements EDProtocol, Infectable
+public class EDMongering implements EDProtocol, Infectable, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 private static final String PAR_LINKABLE = "linkable";
 
 private static final String PAR_INFECTABLE = "infectable";
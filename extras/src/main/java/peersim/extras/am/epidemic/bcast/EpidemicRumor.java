@@ -24,9 +24,12 @@ import peersim.core.*;
 import peersim.extras.am.epidemic.*;
 
 
-public class EpidemicRumor implements EpidemicProtocol, Infectable
+public class EpidemicRumor
+implements EpidemicProtocol, Infectable, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 //---------------------------------------------------------------------
 //Constants for messages
 //---------------------------------------------------------------------
@@ -26,9 +26,11 @@ import peersim.core.*;
  * @author Alberto Montresor
  * @version $Revision$
  */
-public class IDHolderImpl implements IDHolder, Protocol
+public class IDHolderImpl implements IDHolder, Protocol, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 /** Identifier */
 private long id;
 
@@ -127,8 +127,8 @@ private void buildChordTopology()
 		if (!nofingers) {
 			for (int j = 0; j < ID.BITS; j++) {
 				long key = (lid + (1L << j)) % ID.SIZE;
-				((IDHolder) Network.prototype.getProtocol(pid)).setID(key);
-				int pos = Arrays.binarySearch(nodes, Network.prototype, idc);
+				((IDHolder) Network.getPrototype().getProtocol(pid)).setID(key);
+				int pos = Arrays.binarySearch(nodes, Network.getPrototype(), idc);
 				if (pos < 0) {
 					pos = -(pos + 1);
 					if (pos == size)
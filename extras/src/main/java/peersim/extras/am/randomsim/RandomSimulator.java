@@ -84,6 +84,10 @@ java peersim.rangesim.RangeSimulator config.file jvm.options=-Xmx256m
  * The new JVM inherits the same classpath as the JVM running the
  * RangeSimulator. The {@value #PAR_JVM} parameter can be used to
  * specify additional classpath specification.
+ * <p>
+ * Like in the {@link RangeSimulator}, parameter
+ * {@value peersim.rangesim.RangeSimulator#PAR_THREADS} can be used to run
+ * the experiments concurrently within the JVM of the random simulator.
  * 
  * @author Alberto Montresor
  * @version $Revision$
@@ -132,6 +136,9 @@ private int experiments;
 /** The jvm options to be used when creating jvms */
 private String[] jvmoptions;
 
+/** The number of experiments run concurrently in this JVM, or 0 */
+private int threads;
+
 /** Command line arguments */
 private String[] args;
 
@@ -180,6 +187,11 @@ public RandomSimulator(String[] args)
 	else
 		jvmoptions = opt.split(" ");
 
+	threads = Configuration.getInt(RangeSimulator.PAR_THREADS, 0);
+	if (threads < 0)
+		throw new IllegalParameterException(RangeSimulator.PAR_THREADS,
+				"Should not be negative");
+
 	// Parse range parameters
 	parseRanges();
 
@@ -281,6 +293,7 @@ private void doExperiments(String[] args)
 	list.add("peersim.Simulator");
 	
 	// Parameters specified on the command line
+	int startargs = list.size();
 	for (int i=0; i < args.length; i++) {
 		list.add(args[i]);
 	}
@@ -290,6 +303,7 @@ private void doExperiments(String[] args)
 	list.add(Simulator.PAR_EXPS+"=1");
 
 	// Activate redirection to separate stdout from stderr
+	int endargs = list.size();
 	list.add(Simulator.PAR_REDIRECT+"="+TaggedOutputStream.class.getCanonicalName());
 	int startlog = list.size();
 	list.add(""); 
@@ -305,6 +319,11 @@ private void doExperiments(String[] args)
 	
 	String[] rv = new String[pars.length];
 	
+	// Run in this JVM if requested
+	InProcessRunner runner = null;
+	if (threads > 0)
+		runner = new InProcessRunner(threads);
+	
 	for (int i=0; i < experiments; i++) {
 
 		// Configure the argument string array
@@ -329,11 +348,22 @@ private void doExperiments(String[] args)
 		long seed = CommonState.r.nextLong();
 		list.set(startseed, CommonState.PAR_SEED+"="+seed);
 
-		System.err.println("Experiment: " + log);
-		
-		executeProcess(list);
+		if (runner != null) {
+			// the same arguments, without the redirection
+			List<String> local = new ArrayList<String>(
+					list.subList(startargs, endargs));
+			local.addAll(list.subList(startseed, list.size()));
+			runner.submit(local.toArray(new String[local.size()]),
+					log.toString());
+		} else {
+			System.err.println("Experiment: " + log);
+			executeProcess(list);
+		}
 
 	}
+	
+	if (runner != null)
+		runner.finish();
 }
 
 //--------------------------------------------------------------------
@@ -72,7 +72,7 @@ public Getter(String prefix, String protocol, String methodn) {
 
 	methodName = methodn;
 	// Search the method
-	Class clazz = Network.prototype.getProtocol(pid).getClass();
+	Class clazz = Network.getPrototype().getProtocol(pid).getClass();
 	try {
 		method = GetterSetterFinder.getGetterMethod(clazz, methodName);
 	} catch (NoSuchMethodException e) {
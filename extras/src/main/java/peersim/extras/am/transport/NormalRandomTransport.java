@@ -42,9 +42,11 @@ import cern.jet.random.engine.*;
  * @author Alberto Montresor
  * @version $Revision$
  */
-public class NormalRandomTransport implements Transport
+public class NormalRandomTransport implements Transport, java.io.Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 // ---------------------------------------------------------------------
 // Parameters
 // ---------------------------------------------------------------------
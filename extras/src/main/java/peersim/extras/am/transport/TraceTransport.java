@@ -33,9 +33,11 @@ import peersim.transport.*;
  * @author Alberto Montresor
  * @version $Revision$
  */
-public class TraceTransport implements Transport
+public class TraceTransport implements Transport, Serializable
 {
 
+private static final long serialVersionUID = 1L;
+
 //---------------------------------------------------------------------
 //Parameters
 //---------------------------------------------------------------------
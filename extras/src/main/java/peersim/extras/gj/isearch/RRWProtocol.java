@@ -24,6 +24,8 @@ import peersim.core.Node;
  * @author  Gian Paolo Jesi
  */
 public class RRWProtocol extends RWProtocol {
+
+    private static final long serialVersionUID = 1L;
     
     /** Creates a new instance of RRWProtocol */
     public RRWProtocol(String prefix)  {
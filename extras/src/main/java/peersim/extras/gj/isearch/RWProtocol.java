@@ -27,6 +27,8 @@ import peersim.core.Node;
  */
 public class RWProtocol extends SearchProtocol {
 
+    private static final long serialVersionUID = 1L;
+
     // ---------------------------------------------------------------------
     // Parameters
     // ---------------------------------------------------------------------
@@ -38,7 +38,10 @@ import peersim.core.Node;
  * 
  * @author Gian Paolo Jesi
  */
-public abstract class SearchProtocol implements CDProtocol, Linkable {
+public abstract class SearchProtocol
+implements CDProtocol, Linkable, java.io.Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     // ---------------------------------------------------------------------
     // Parameters
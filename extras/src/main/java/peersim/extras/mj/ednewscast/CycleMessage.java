@@ -23,11 +23,16 @@ package peersim.extras.mj.ednewscast;
  * a (for example, gossip) protocol. 
  */
 
-class CycleMessage {
+class CycleMessage implements java.io.Serializable {
+
+private static final long serialVersionUID = 1L;
 
 /** A singleton to be used instead of constructing
 * new instances all the time. */
 public static final CycleMessage inst = new CycleMessage();
 
+/** Keeps the singleton when restored from a checkpoint */
+private Object readResolve() { return inst; }
+
 }
 
@@ -28,7 +28,9 @@ import java.security.InvalidParameterException;
  * The newscast protocol.
  */
 
-public class EdNewscast implements EDProtocol, Linkable {
+public class EdNewscast implements EDProtocol, Linkable, java.io.Serializable {
+
+private static final long serialVersionUID = 1L;
 
 // --------------------------------------------------------------------------
 // Static fields
@@ -317,7 +319,7 @@ private void sendReq(Node node, int pid) {
 		((Transport) node.getProtocol(FastConfig.getTransport(pid))).send(
 				node, 
 				peern, 
-				new EdNewscastMessage(node, cache, tstamps,false), 
+				EdNewscastMessage.get(node, cache, tstamps,false), 
 				pid
 		);
 	}
@@ -343,7 +345,7 @@ public void processEvent(Node node, int pid, Object event) {
 			((Transport) node.getProtocol(FastConfig.getTransport(pid))).send(
 					node, 
 					enm.sender, 
-					new EdNewscastMessage(node,cache, tstamps, true), 
+					EdNewscastMessage.get(node,cache, tstamps, true), 
 					pid
 			);
 		}
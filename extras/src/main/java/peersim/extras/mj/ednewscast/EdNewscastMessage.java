@@ -19,44 +19,74 @@
 package peersim.extras.mj.ednewscast;
 
 import peersim.core.*;
+import peersim.edsim.*;
 
 /**
  * This class represents the communication message in the system; both the
- * proactive and reactive (response) message.
+ * proactive and reactive (response) message. Messages are recycled together
+ * with their arrays, see {@link RecyclableEvent}.
  */
 
-class EdNewscastMessage {
+class EdNewscastMessage extends RecyclableEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	// --------------------------------------------------------------------------
+	// Static fields
+	// --------------------------------------------------------------------------
+
+	/** The pool of messages */
+	private static final EventPool<EdNewscastMessage> pool =
+		new EventPool<EdNewscastMessage>() {
+			protected EdNewscastMessage create() {
+				return new EdNewscastMessage();
+			}
+		};
 
 	// --------------------------------------------------------------------------
 	// Fields
 	// --------------------------------------------------------------------------
 
 	/** sender adress */
-	public final Node sender;
+	public Node sender;
 	
 	/** node adress list to send */
-	public final Node[] cacheM; 
+	public Node[] cacheM = new Node[0]; 
 	
 	/** time stamps to send */
-	public final int[] tstampsM; 
+	public int[] tstampsM = new int[0]; 
 	
 	/** type of message */
-	private final boolean isAnswer; 
+	private boolean isAnswer; 
 
 	// --------------------------------------------------------------------------
 	// Initialization
 	// --------------------------------------------------------------------------
 	
-	public EdNewscastMessage(Node senderP, Node[] cacheMP, int[] tstampsMP, boolean isAnswerP) {
-		isAnswer = isAnswerP;
-		sender = senderP;
-		cacheM = new Node[cacheMP.length];
-		tstampsM = new int[tstampsMP.length];
+	private EdNewscastMessage() {}
 
-		for (int i = 0; i < cacheMP.length; i++) {
-			cacheM[i] = cacheMP[i];
-			tstampsM[i] = tstampsMP[i];
+	/**
+	 * Returns a message from the pool, with a copy of the given cache.
+	 */
+	public static EdNewscastMessage get(Node senderP, Node[] cacheMP, int[] tstampsMP, boolean isAnswerP) {
+		final EdNewscastMessage m = pool.acquire();
+		m.isAnswer = isAnswerP;
+		m.sender = senderP;
+		if (m.cacheM.length != cacheMP.length) {
+			m.cacheM = new Node[cacheMP.length];
+			m.tstampsM = new int[tstampsMP.length];
 		}
+		System.arraycopy(cacheMP, 0, m.cacheM, 0, cacheMP.length);
+		System.arraycopy(tstampsMP, 0, m.tstampsM, 0, tstampsMP.length);
+		return m;
+	}
+
+	/**
+	 * Clears the references to the nodes.
+	 */
+	protected void clear() {
+		sender = null;
+		java.util.Arrays.fill(cacheM, null);
 	}
 	
 	// --------------------------------------------------------------------------